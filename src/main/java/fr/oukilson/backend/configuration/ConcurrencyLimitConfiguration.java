@@ -0,0 +1,39 @@
+package fr.oukilson.backend.configuration;
+
+import fr.oukilson.backend.filter.ConcurrencyLimitFilter;
+import fr.oukilson.backend.service.ConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class ConcurrencyLimitConfiguration {
+    @Bean
+    public ConcurrencyLimiter concurrencyLimiter(@Value("${environment.concurrencyLimit.initialLimit}") int initialLimit,
+                                                 @Value("${environment.concurrencyLimit.minLimit}") int minLimit,
+                                                 @Value("${environment.concurrencyLimit.maxLimit}") int maxLimit,
+                                                 @Value("${environment.concurrencyLimit.tolerance}") double tolerance,
+                                                 @Value("${environment.concurrencyLimit.backoff}") double backoff) {
+        return new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, backoff);
+    }
+
+    /**
+     * Right after the rate limit, so requests refused by it never take a place
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            ConcurrencyLimiter concurrencyLimiter, MeterRegistry registry,
+            @Value("${environment.concurrencyLimit.registrations}") String[] registrations,
+            @Value("${environment.concurrencyLimit.searches}") String[] searches,
+            @Value("${environment.concurrencyLimit.readShare}") double readShare,
+            @Value("${environment.concurrencyLimit.searchShare}") double searchShare) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(concurrencyLimiter, registrations, searches, readShare, searchShare,
+                        registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
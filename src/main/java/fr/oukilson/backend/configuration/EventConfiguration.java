@@ -1,22 +1,50 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.event.EventSeatsDTO;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.repository.EventProjectionRepository;
 import fr.oukilson.backend.repository.EventRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
 import fr.oukilson.backend.repository.UserRepository;
+import fr.oukilson.backend.service.BlockList;
+import fr.oukilson.backend.service.Broadcaster;
 import fr.oukilson.backend.service.EventService;
+import fr.oukilson.backend.service.FeedService;
+import fr.oukilson.backend.service.NicknameCache;
+import fr.oukilson.backend.service.VersionCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class EventConfiguration {
+    @Bean(destroyMethod = "shutdown")
+    public Broadcaster<EventSeatsDTO> seatBroadcaster(MeterRegistry registry,
+                                                      @Value("${environment.live.threads}") int threads,
+                                                      @Value("${environment.live.heartbeat}") long heartbeat,
+                                                      @Value("${environment.live.outboxSize}") int outboxSize) {
+        return new Broadcaster<>("seats", threads, heartbeat, outboxSize, registry);
+    }
+
     @Bean
     public EventService eventService(EventRepository eventRepo,
                                      UserRepository userRepo,
                                      GameRepository gameRepo,
                                      LocationRepository locationRepo,
-                                     ModelMapper mapper) {
-        return new EventService(eventRepo, userRepo, gameRepo, locationRepo, mapper);
+                                     EventProjectionRepository projectionRepo,
+                                     ModelMapper mapper,
+                                     EventMapper eventMapper,
+                                     NicknameCache nicknameCache,
+                                     BlockList blockList,
+                                     FeedService feedService,
+                                     Broadcaster<EventSeatsDTO> seatBroadcaster,
+                                     @Value("${environment.versionCache.maxSize}") int maxSize,
+                                     @Value("${environment.versionCache.ttl}") long ttl) {
+        return new EventService(eventRepo, userRepo, gameRepo, locationRepo, projectionRepo, mapper, eventMapper,
+                nicknameCache, blockList, feedService, new VersionCache(eventRepo::findVersionByUuid, maxSize, ttl),
+                seatBroadcaster);
     }
 }
@@ -1,15 +1,22 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.repository.GameProjectionRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.service.GameService;
-import org.modelmapper.ModelMapper;
+import fr.oukilson.backend.service.VersionCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class GameConfiguration {
     @Bean
-    public GameService gameService(GameRepository repository, ModelMapper mapper) {
-        return new GameService(repository, mapper);
+    public GameService gameService(GameRepository repository, GameProjectionRepository projectionRepository,
+                                   GameMapper mapper,
+                                   @Value("${environment.versionCache.maxSize}") int maxSize,
+                                   @Value("${environment.versionCache.ttl}") long ttl) {
+        return new GameService(repository, projectionRepository, mapper,
+                new VersionCache(repository::findVersionByUuid, maxSize, ttl));
     }
 }
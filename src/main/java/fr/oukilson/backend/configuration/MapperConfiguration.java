@@ -1,13 +1,93 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.backend.dto.event.EventUpdateDTO;
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.mapper.UserMapper;
 import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeMap;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class MapperConfiguration {
+
+    /**
+     * ModelMapper with the DTO -> entity type maps built and validated up front, so the first requests
+     * don't build them concurrently and a property left unmapped stops the startup.
+     * Skips are declared before the implicit mappings so they also cover the nested properties.
+     * Entity -> DTO mappings are handwritten (package mapper).
+     */
     @Bean
     public ModelMapper modelMapper() {
-        return new ModelMapper();
+        ModelMapper result = new ModelMapper();
+
+        // UserService.createUser: the password is hashed afterwards
+        TypeMap<UserCreationDTO, User> userCreation = result.emptyTypeMap(UserCreationDTO.class, User.class)
+                .addMappings(m -> {
+                    m.skip(User::setId);
+                    m.skip(User::setFirstName);
+                    m.skip(User::setLastName);
+                    m.skip(User::setFriendList);
+                    m.skip(User::setDeniedList);
+                })
+                .implicitMappings();
+
+        // EventService.save: uuid, creation date, creator and game are set by the service
+        TypeMap<EventCreateDTO, Event> eventCreation = result.emptyTypeMap(EventCreateDTO.class, Event.class)
+                .addMappings(m -> {
+                    m.skip(Event::setId);
+                    m.skip(Event::setUuid);
+                    m.skip(Event::setVersion);
+                    m.skip(Event::setCreationDate);
+                    m.skip(Event::setCreator);
+                    m.skip(Event::setGame);
+                    m.skip(Event::setRegisteredUsers);
+                    m.skip(Event::setWaitingUsers);
+                    m.<Long>skip((event, id) -> event.getLocation().setId(id));
+                    m.<Event>skip((event, owner) -> event.getLocation().setEvent(owner));
+                })
+                .implicitMappings();
+
+        // EventService.update merges into the loaded event: the game is replaced by the service, never
+        // written into (that would change the uuid of the previous game)
+        TypeMap<EventUpdateDTO, Event> eventUpdate = result.emptyTypeMap(EventUpdateDTO.class, Event.class)
+                .addMappings(m -> {
+                    m.skip(Event::setId);
+                    m.skip(Event::setUuid);
+                    m.skip(Event::setVersion);
+                    m.skip(Event::setCreationDate);
+                    m.skip(Event::setCreator);
+                    m.skip(Event::setGame);
+                    m.skip(Event::setRegisteredUsers);
+                    m.skip(Event::setWaitingUsers);
+                    m.<Long>skip((event, id) -> event.getLocation().setId(id));
+                    m.<Event>skip((event, owner) -> event.getLocation().setEvent(owner));
+                })
+                .implicitMappings();
+
+        userCreation.validate();
+        eventCreation.validate();
+        eventUpdate.validate();
+        return result;
+    }
+
+    @Bean
+    public UserMapper userMapper() {
+        return new UserMapper();
+    }
+
+    @Bean
+    public GameMapper gameMapper() {
+        return new GameMapper();
+    }
+
+    @Bean
+    public EventMapper eventMapper(UserMapper userMapper, GameMapper gameMapper) {
+        return new EventMapper(userMapper, gameMapper);
     }
-}
\ No newline at end of file
+}
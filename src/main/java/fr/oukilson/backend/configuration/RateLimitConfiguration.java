@@ -0,0 +1,33 @@
+package fr.oukilson.backend.configuration;
+
+import fr.oukilson.backend.filter.RateLimitFilter;
+import fr.oukilson.backend.service.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class RateLimitConfiguration {
+    @Bean
+    public RateLimiter rateLimiter(@Value("${environment.rateLimit.capacity}") int capacity,
+                                   @Value("${environment.rateLimit.refillPerSecond}") double refillPerSecond,
+                                   @Value("${environment.rateLimit.sweepInterval}") long sweepInterval) {
+        return new RateLimiter(capacity, refillPerSecond, sweepInterval);
+    }
+
+    /**
+     * First filter of the chain, so limited requests cost as little as possible
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimiter rateLimiter, MeterRegistry registry,
+                                                                   @Value("${environment.rateLimit.routes}")
+                                                                           String[] routes) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(rateLimiter, routes, registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
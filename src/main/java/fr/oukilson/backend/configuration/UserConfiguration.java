@@ -1,17 +1,104 @@
 package fr.oukilson.backend.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.oukilson.backend.mapper.UserMapper;
 import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.repository.FeedRepository;
+import fr.oukilson.backend.repository.FriendListRepository;
+import fr.oukilson.backend.repository.UserBatchRepository;
 import fr.oukilson.backend.repository.UserRepository;
+import fr.oukilson.backend.service.BlockList;
+import fr.oukilson.backend.service.FeedService;
+import fr.oukilson.backend.service.FriendGraph;
+import fr.oukilson.backend.service.FriendSuggestionIndex;
+import fr.oukilson.backend.service.NicknameCache;
+import fr.oukilson.backend.service.NicknameRegistry;
+import fr.oukilson.backend.service.PasswordHasher;
+import fr.oukilson.backend.service.UserImportService;
 import fr.oukilson.backend.service.UserService;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class UserConfiguration {
     @Bean
-    public UserService userService(UserRepository userRepository, ModelMapper modelMapper,
-                                   RegexCollection regexCollection){
-        return new UserService(userRepository, modelMapper, regexCollection);
+    public NicknameCache nicknameCache(UserRepository userRepository,
+                                       @Value("${environment.nicknameCache.maxSize}") int maxSize,
+                                       @Value("${environment.nicknameCache.negativeTtl}") long negativeTtl) {
+        return new NicknameCache(userRepository, maxSize, negativeTtl);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public FriendGraph friendGraph(UserRepository userRepository,
+                                   @Value("${environment.friendGraph.maxSize}") int maxSize) {
+        return new FriendGraph(userRepository, maxSize);
+    }
+
+    @Bean
+    public FriendSuggestionIndex friendSuggestionIndex(FriendListRepository friendListRepository) {
+        return new FriendSuggestionIndex(friendListRepository);
+    }
+
+    @Bean
+    public BlockList blockList(UserRepository userRepository,
+                               @Value("${environment.blockList.maxSize}") int maxSize,
+                               @Value("${environment.blockList.falsePositiveRate}") double falsePositiveRate,
+                               @Value("${environment.blockList.ttl}") long ttl) {
+        return new BlockList(userRepository, maxSize, falsePositiveRate, ttl);
+    }
+
+    @Bean
+    public NicknameRegistry nicknameRegistry(UserRepository userRepository,
+                                             @Value("${environment.nicknameRegistry.minCapacity}") int minCapacity,
+                                             @Value("${environment.nicknameRegistry.falsePositiveRate}")
+                                                     double falsePositiveRate) {
+        return new NicknameRegistry(userRepository, minCapacity, falsePositiveRate);
+    }
+
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${environment.passwordHasher.cost}") int cost,
+                                         @Value("${environment.passwordHasher.threads}") int threads,
+                                         @Value("${environment.passwordHasher.queueSize}") int queueSize,
+                                         @Value("${environment.passwordHasher.timeout}") long timeout) {
+        return new PasswordHasher(cost, threads, queueSize, timeout);
+    }
+
+    @Bean
+    public UserService userService(UserRepository userRepository, ModelMapper modelMapper, UserMapper userMapper,
+                                   RegexCollection regexCollection, NicknameCache nicknameCache,
+                                   FriendGraph friendGraph, FriendSuggestionIndex friendSuggestionIndex,
+                                   BlockList blockList, NicknameRegistry nicknameRegistry,
+                                   PasswordHasher passwordHasher){
+        return new UserService(userRepository, modelMapper, userMapper, regexCollection, nicknameCache, friendGraph,
+                friendSuggestionIndex, blockList, nicknameRegistry, passwordHasher);
+    }
+
+    @Bean
+    public UserImportService userImportService(UserRepository userRepository,
+                                               UserBatchRepository userBatchRepository,
+                                               RegexCollection regexCollection, PasswordHasher passwordHasher,
+                                               NicknameRegistry nicknameRegistry, NicknameCache nicknameCache,
+                                               ObjectMapper objectMapper,
+                                               @Value("${environment.userImport.batchSize}") int batchSize,
+                                               @Value("${environment.userImport.maxErrors}") int maxErrors,
+                                               @Value("${environment.userImport.hashParallelism}")
+                                                       int hashParallelism,
+                                               @Value("${environment.userImport.threads}") int threads,
+                                               @Value("${environment.userImport.queueSize}") int queueSize,
+                                               @Value("${environment.userImport.maxJobs}") int maxJobs) {
+        return new UserImportService(userRepository, userBatchRepository, regexCollection, passwordHasher,
+                nicknameRegistry, nicknameCache, objectMapper, batchSize, maxErrors, hashParallelism, threads,
+                queueSize, maxJobs);
+    }
+
+    @Bean
+    public FeedService feedService(FeedRepository feedRepository, FriendListRepository friendListRepository,
+                                   NicknameCache nicknameCache,
+                                   @Value("${environment.feed.capacity}") int capacity,
+                                   @Value("${environment.feed.maxHeads}") int maxHeads,
+                                   @Value("${environment.feed.queueSize}") int queueSize) {
+        return new FeedService(feedRepository, friendListRepository, nicknameCache, capacity, maxHeads, queueSize);
+    }
+}
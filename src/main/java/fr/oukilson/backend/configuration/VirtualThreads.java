@@ -0,0 +1,66 @@
+package fr.oukilson.backend.configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads (Java 21), reached by reflection so the project still builds and runs on Java 11.
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * Check if the running JVM has virtual threads
+     * @return True on Java 21 or later
+     */
+    public static boolean isSupported() {
+        try {
+            factory("probe-");
+            return true;
+        }
+        catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Factory of virtual threads named prefix + counter
+     * @param prefix Prefix of the threads' name
+     * @return ThreadFactory
+     * @throws IllegalStateException If the JVM has no virtual threads
+     */
+    public static ThreadFactory factory(String prefix) throws IllegalStateException {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on "
+                    + Runtime.version(), e);
+        }
+    }
+
+    /**
+     * Executor starting a new virtual thread for each task
+     * @param prefix Prefix of the threads' name
+     * @return ExecutorService
+     * @throws IllegalStateException If the JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) throws IllegalStateException {
+        ThreadFactory factory = factory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on "
+                    + Runtime.version(), e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package fr.oukilson.backend.configuration;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.service.JdbcExecutor;
+import fr.oukilson.backend.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Binary encodings of the responses, chosen by the Accept header:
+ * - application/cbor
+ * - application/x-jackson-smile
+ * JSON stays the default. Binary mappers are built from Boot's builder, so they use the same
+ * modules, serializers (see package json) and date format as JSON.
+ *
+ * Controllers don't run database work on the request threads but on two bounded pools, so slow
+ * searches can't starve registrations:
+ * - readExecutor for the reads
+ * - writeExecutor for the registrations and other writes
+ * A full pool answers 503 (see OverloadHandler), a request waiting longer than 'timeout' too.
+ * Concurrent reads of the same event share one load (eventLookups) before reaching the pool.
+ *
+ * With environment.virtualThreads.enabled (Java 21 or later), Tomcat runs each request on its own virtual
+ * thread instead of its pool of 200 platform threads, so thousands of slow clients only cost memory.
+ * The database pools keep platform threads: Connector/J 8.0 holds a monitor during socket reads, which
+ * would pin the carrier thread of a virtual thread for the whole query. They are small and bounded by
+ * the connection pool anyway, so virtual threads wouldn't let them serve more queries.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private final Jackson2ObjectMapperBuilder builder;
+
+    private final long timeout;
+
+    /**
+     * @param timeout Maximal time (in milliseconds) to answer an asynchronous request
+     */
+    public WebConfiguration(Jackson2ObjectMapperBuilder builder,
+                            @Value("${environment.executors.timeout}") long timeout) {
+        this.builder = builder;
+        this.timeout = timeout;
+    }
+
+    @Bean
+    public JdbcExecutor readExecutor(MeterRegistry registry,
+                                     @Value("${environment.executors.read.threads}") int threads,
+                                     @Value("${environment.executors.read.queueSize}") int queueSize) {
+        return new JdbcExecutor("jdbc-read", threads, queueSize, registry);
+    }
+
+    @Bean
+    public JdbcExecutor writeExecutor(MeterRegistry registry,
+                                      @Value("${environment.executors.write.threads}") int threads,
+                                      @Value("${environment.executors.write.queueSize}") int queueSize) {
+        return new JdbcExecutor("jdbc-write", threads, queueSize, registry);
+    }
+
+    @Bean
+    public SingleFlight<String, EventDTO> eventLookups(MeterRegistry registry,
+                                                      @Value("${environment.singleFlight.maxWait}") long maxWait) {
+        return new SingleFlight<>("events", maxWait, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "environment.virtualThreads.enabled", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadCustomizer() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(this.timeout);
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Spring adds its own binary converters, not configured like JSON
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        // After JSON, so JSON is chosen when the client accepts anything
+        int index = converters.size();
+        for (int i=0; i<converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter)
+                index = i + 1;
+        }
+        converters.add(index, new MappingJackson2CborHttpMessageConverter(
+                this.builder.factory(new CBORFactory()).build()));
+        converters.add(index + 1, new MappingJackson2SmileHttpMessageConverter(
+                this.builder.factory(new SmileFactory()).build()));
+    }
+}
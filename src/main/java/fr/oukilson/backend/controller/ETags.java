@@ -0,0 +1,50 @@
+package fr.oukilson.backend.controller;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong ETags built from entity versions, and If-None-Match matching
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    /**
+     * @param version Entity's version, may be null
+     * @return The quoted ETag, or null if there's no version
+     */
+    static String of(Long version) {
+        return version==null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * @param body Response body
+     * @param version Version of the body, may be null
+     * @return 200 with the body and its ETag (none if there's no version)
+     */
+    static <T> ResponseEntity<T> ok(T body, Long version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (version!=null)
+            builder.eTag(of(version));
+        return builder.body(body);
+    }
+
+    /**
+     * Check an If-None-Match header against an ETag (weak comparison, as required for If-None-Match)
+     * @param ifNoneMatch Header value, may be null
+     * @param etag Current ETag, may be null
+     * @return True if the client already has this version
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch==null || etag==null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(etag))
+                return true;
+        }
+        return false;
+    }
+}
@@ -1,52 +1,210 @@
 package fr.oukilson.backend.controller;
 
 import fr.oukilson.backend.dto.event.*;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.model.EventField;
+import fr.oukilson.backend.model.ProjectedField;
+import fr.oukilson.backend.model.Uuids;
+import fr.oukilson.backend.service.Broadcaster;
 import fr.oukilson.backend.service.EventService;
+import fr.oukilson.backend.service.JdbcExecutor;
+import fr.oukilson.backend.service.SingleFlight;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
-@CrossOrigin
+@CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
 @RequestMapping("/events")
 public class EventController {
+    private static final int REGISTRATION_ATTEMPTS = 3;
     private EventService service;
+    private JdbcExecutor readExecutor;
+    private JdbcExecutor writeExecutor;
+    private SingleFlight<String, EventDTO> lookups;
+    private Broadcaster<EventSeatsDTO> seats;
+    private long liveTimeout;
 
-    public EventController(EventService service) {
+    /**
+     * @param readExecutor Pool of the reads
+     * @param writeExecutor Pool of the writes: registrations don't wait behind searches
+     * @param lookups Loads of events by uuid, shared by concurrent requests
+     * @param seats Changes of the seats of the events, for the live streams
+     * @param liveTimeout Time (in milliseconds) after which a live stream is closed
+     */
+    public EventController(EventService service,
+                           @Qualifier("readExecutor") JdbcExecutor readExecutor,
+                           @Qualifier("writeExecutor") JdbcExecutor writeExecutor,
+                           SingleFlight<String, EventDTO> lookups,
+                           Broadcaster<EventSeatsDTO> seats,
+                           @Value("${environment.live.timeout}") long liveTimeout) {
         this.service = service;
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+        this.lookups = lookups;
+        this.seats = seats;
+        this.liveTimeout = liveTimeout;
     }
 
     /**
-     * Route to get the info of the event from its uuid
+     * Route to get the info of the event from its uuid.
+     * Answers 304 without loading the event if the client already has its current version (If-None-Match).
+     * Concurrent plain reads of the same event share one load (see SingleFlight).
+     * With fields, only these fields are read and sent (see EventField), without ETag.
+     * The uuid is normalized (see Uuids.normalize), so whatever its case it shares the cached version
+     * and the loads of the uuid read from the database.
      * @param uuid Event's uuid
-     * @return EventDTO
+     * @param fields Comma separated names of the fields to send, all if null
+     * @param ifNoneMatch ETags the client already has
+     * @return EventDTO with its ETag, or the asked fields; bad request if a field is unknown
      */
     @GetMapping("{uuid}")
-    public ResponseEntity<EventDTO> findByUuid(@PathVariable String uuid) {
-        EventDTO eventDTO = service.findByUuid(uuid);
-        ResponseEntity<EventDTO> result;
+    public CompletableFuture<ResponseEntity<?>> findByUuid(
+            @PathVariable String uuid,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String key = Uuids.normalize(uuid);
+        // Joined before taking a thread of the pool, so waiting readers don't hold one
+        if (fields==null && ifNoneMatch==null)
+            return this.lookups.load(key, () -> this.readExecutor.supply(() -> service.findByUuid(key)))
+                    .thenApply(EventController::found);
+        return this.readExecutor.supply(() -> this.findByUuidNow(key, fields, ifNoneMatch));
+    }
+
+    private ResponseEntity<?> findByUuidNow(String uuid, String fields, String ifNoneMatch) {
+        if (ifNoneMatch!=null) {
+            String etag = ETags.of(service.findVersion(uuid));
+            if (ETags.matches(ifNoneMatch, etag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        if (fields!=null) {
+            EnumSet<EventField> projection;
+            try {
+                projection = ProjectedField.parse(EventField.class, fields);
+            }
+            catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            Map<String, Object> event = service.findByUuid(uuid, projection);
+            return event==null ? ResponseEntity.notFound().build() : ResponseEntity.ok(event);
+        }
+
+        return found(service.findByUuid(uuid));
+    }
+
+    /**
+     * Answer of a read of an event
+     * @param eventDTO Event, null if not found
+     * @return EventDTO with its ETag, not found if null
+     */
+    private static ResponseEntity<?> found(EventDTO eventDTO) {
+        ResponseEntity<?> result;
         if (eventDTO==null)
             result = ResponseEntity.notFound().build();
         else
-            result = ResponseEntity.ok(eventDTO);
+            result = ETags.ok(eventDTO, eventDTO.getVersion());
         return result;
     }
 
+    /**
+     * Route to follow the seats of an event: server-sent events named "seats", sending the current seats,
+     * then the new ones each time a registration changes them (see SseSubscriber).
+     * The stream holds no thread while idle; it ends when the event is deleted or after a timeout.
+     * The uuid is normalized, as the changes are published by the uuid read from the database.
+     * @param uuid Event's uuid
+     * @return Stream of EventSeatsDTO, not found if the event doesn't exist
+     */
+    @GetMapping(path = "{uuid}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public CompletableFuture<ResponseEntity<SseEmitter>> live(@PathVariable String uuid) {
+        String key = Uuids.normalize(uuid);
+        SseEmitter emitter = new SseEmitter(this.liveTimeout);
+        SseSubscriber subscriber = new SseSubscriber(emitter);
+        Runnable unsubscribe = () -> this.seats.unsubscribe(key, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        // Subscribed before reading the seats, so a change committed meanwhile isn't missed
+        this.seats.subscribe(key, subscriber);
+        return this.readExecutor.supply(() -> this.service.findSeats(key))
+                .whenComplete((current, error) -> {
+                    if (current==null)
+                        unsubscribe.run();
+                })
+                .thenApply(current -> {
+                    if (current==null)
+                        return ResponseEntity.notFound().build();
+                    try {
+                        subscriber.send(current);     // Buffered until the stream starts
+                    }
+                    catch (IOException | IllegalStateException e) {
+                        unsubscribe.run();
+                        throw new CompletionException(e);
+                    }
+                    return ResponseEntity.ok(emitter);
+                });
+    }
+
+    /**
+     * Route to get several events at once, like GET /events?uuid=a&uuid=b
+     * @param uuids Events' uuid, at most 100
+     * @return For each uuid, in the same order, its event (written from the entity by EventJsonComponent)
+     * or null if not found; bad request if there's no uuid or too many
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<Event>>> findAllByUuid(@RequestParam("uuid") List<String> uuids) {
+        if (!MultiGet.isValid(uuids))
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        List<String> keys = uuids.stream().map(Uuids::normalize).collect(Collectors.toList());
+        return this.readExecutor.supply(() -> ResponseEntity.ok(this.service.findAllByUuid(keys)));
+    }
+
     /**
      * Search for events by one of this two options :
      * - date after the provided date
      * - happening in a town
      * For now, if both parameter are included, only the date will be taken into consideration
+     * With fields, only these fields are read and sent (see EventField).
      * @param date Date to look after
      * @param town Town to look
-     * @return List<EventDTO>
+     * @param fields Comma separated names of the fields to send, all if null
+     * @return List<EventDTO>, written from the entities by EventJsonComponent, or the asked fields;
+     * bad request if a field is unknown
      */
-    @ResponseBody
     @GetMapping("/search")
-    public List<EventDTO> findAllByFilters(@RequestParam(name="date", defaultValue = "") String date,
-                                           @RequestParam(name="town", defaultValue = "") String town) {
-        return this.service.findByFilter(date, town);
+    public CompletableFuture<ResponseEntity<List<?>>> findAllByFilters(
+            @RequestParam(name="date", defaultValue = "") String date,
+            @RequestParam(name="town", defaultValue = "") String town,
+            @RequestParam(name="fields", required = false) String fields) {
+        if (fields==null) {
+            return this.readExecutor.supply(() -> {
+                List<Event> events = this.service.findByFilter(date, town);
+                return ResponseEntity.ok(events);
+            });
+        }
+        EnumSet<EventField> projection;
+        try {
+            projection = ProjectedField.parse(EventField.class, fields);
+        }
+        catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return this.readExecutor.supply(() -> ResponseEntity.ok(this.service.findByFilter(date, town, projection)));
     }
 
     /**
@@ -55,7 +213,11 @@ public class EventController {
      * @return The created event
      */
     @PostMapping
-    public ResponseEntity<EventDTO> save(@RequestBody EventCreateDTO toCreate) {
+    public CompletableFuture<ResponseEntity<EventDTO>> save(@RequestBody EventCreateDTO toCreate) {
+        return this.writeExecutor.supply(() -> this.saveNow(toCreate));
+    }
+
+    private ResponseEntity<EventDTO> saveNow(EventCreateDTO toCreate) {
         ResponseEntity<EventDTO> result;
         try {
             EventDTO event = this.service.save(toCreate);
@@ -76,7 +238,11 @@ public class EventController {
      * @return The updated event
      */
     @PutMapping
-    public ResponseEntity<EventDTO> update(@RequestBody EventUpdateDTO toUpdate) {
+    public CompletableFuture<ResponseEntity<EventDTO>> update(@RequestBody EventUpdateDTO toUpdate) {
+        return this.writeExecutor.supply(() -> this.updateNow(toUpdate));
+    }
+
+    private ResponseEntity<EventDTO> updateNow(EventUpdateDTO toUpdate) {
         ResponseEntity<EventDTO> result;
         try {
             EventDTO event = this.service.update(toUpdate);
@@ -97,52 +263,68 @@ public class EventController {
      * @return Always true
      */
     @DeleteMapping
-    public ResponseEntity<Boolean> deleteByUuid(@RequestBody EventDeleteDTO toDelete) {
-        this.service.deleteByUuid(toDelete.getUuid());
-        return ResponseEntity.ok(true);
+    public CompletableFuture<ResponseEntity<Boolean>> deleteByUuid(@RequestBody EventDeleteDTO toDelete) {
+        return this.writeExecutor.supply(() -> {
+            this.service.deleteByUuid(Uuids.normalize(toDelete.getUuid()));
+            return ResponseEntity.ok(true);
+        });
     }
 
     /**
      * Route to add a user (with his nickname) in an event (with its uuid)
      * @param tuple EventAddUserDTO
-     * @return True if added
+     * @return True if added; 409 with false if concurrent changes of the event kept winning
      */
     @PutMapping("/add_user")
-    public ResponseEntity<Boolean> addUserInEvent(@RequestBody EventAddUserDTO tuple) {
-        boolean result = this.service.addUserInEvent(tuple);
-        return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<Boolean>> addUserInEvent(@RequestBody EventAddUserDTO tuple) {
+        return this.writeExecutor.supply(() -> register(() -> this.service.addUserInEvent(tuple)));
     }
 
     /**
      * Route to add a user (with his nickname) in the waiting list of an event (with its uuid)
      * @param tuple EventAddUserDTO
-     * @return True if added
+     * @return True if added; 409 with false if concurrent changes of the event kept winning
      */
     @PutMapping("/add_user/waiting")
-    public ResponseEntity<Boolean> addUserInEventInWaitingQueue(@RequestBody EventAddUserDTO tuple) {
-        boolean result = this.service.addUserInEventInWaitingQueue(tuple);
-        return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<Boolean>> addUserInEventInWaitingQueue(@RequestBody EventAddUserDTO tuple) {
+        return this.writeExecutor.supply(() -> register(() -> this.service.addUserInEventInWaitingQueue(tuple)));
     }
 
     /**
      * Route to remove a user (with his nickname) in an event (with its uuid)
      * @param tuple EventRemoveUserDTO
-     * @return True if removed
+     * @return True if removed; 409 with false if concurrent changes of the event kept winning
      */
     @PutMapping("/remove_user")
-    public ResponseEntity<Boolean> removeUserInEvent(@RequestBody EventRemoveUserDTO tuple) {
-        boolean result = this.service.removeUserInEvent(tuple);
-        return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<Boolean>> removeUserInEvent(@RequestBody EventRemoveUserDTO tuple) {
+        return this.writeExecutor.supply(() -> register(() -> this.service.removeUserInEvent(tuple)));
     }
 
     /**
      * Route to remove a user (with his nickname) in the waiting list of an event (with its uuid)
      * @param tuple EventRemoveUserDTO
-     * @return True if removed
+     * @return True if removed; 409 with false if concurrent changes of the event kept winning
      */
     @PutMapping("/remove_user/waiting")
-    public ResponseEntity<Boolean> removeUserInWaitingQueue(@RequestBody EventRemoveUserDTO tuple) {
-        boolean result = this.service.removeUserInWaitingQueue(tuple);
-        return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<Boolean>> removeUserInWaitingQueue(@RequestBody EventRemoveUserDTO tuple) {
+        return this.writeExecutor.supply(() -> register(() -> this.service.removeUserInWaitingQueue(tuple)));
+    }
+
+    /**
+     * Change the registrations of an event, again when a concurrent change of the same event committed
+     * first (its version changed), since registrations of a popular event often come at once
+     * @param change Transaction of the change
+     * @return Its result, or 409 with false if it still conflicted after REGISTRATION_ATTEMPTS attempts
+     */
+    private static ResponseEntity<Boolean> register(Supplier<Boolean> change) {
+        for (int attempt=1; ; attempt++) {
+            try {
+                return ResponseEntity.ok(change.get());
+            }
+            catch (OptimisticLockingFailureException e) {
+                if (attempt >= REGISTRATION_ATTEMPTS)
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(false);
+            }
+        }
     }
 }
@@ -2,44 +2,120 @@ package fr.oukilson.backend.controller;
 
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.model.GameField;
+import fr.oukilson.backend.model.ProjectedField;
+import fr.oukilson.backend.model.Uuids;
 import fr.oukilson.backend.service.GameService;
+import fr.oukilson.backend.service.JdbcExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RestController
-@CrossOrigin
+@CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
 @RequestMapping("/games")
 public class GameController {
     private GameService service;
+    private JdbcExecutor readExecutor;
 
-    public GameController(GameService service) {
+    public GameController(GameService service, @Qualifier("readExecutor") JdbcExecutor readExecutor) {
         this.service = service;
+        this.readExecutor = readExecutor;
     }
 
     /**
      * Route to get all the game info by providing its uuid.
+     * Answers 304 without loading the game if the client already has its current version (If-None-Match).
+     * With fields, only these fields are read and sent (see GameField), without ETag.
+     * The uuid is normalized (see Uuids.normalize), so whatever its case it shares the cached version.
      * @param uuid String Uuid of the game
-     * @return A GameDTO or a bad request
+     * @param fields Comma separated names of the fields to send, all if null
+     * @param ifNoneMatch ETags the client already has
+     * @return A GameDTO with its ETag, or the asked fields; bad request if a field is unknown.
+     * Read on the read pool, like the search.
      */
     @GetMapping("/{uuid}")
-    public ResponseEntity<GameDTO> findByUuid(@PathVariable String uuid) {
-        ResponseEntity<GameDTO> result;
+    public CompletableFuture<ResponseEntity<?>> findByUuid(
+            @PathVariable String uuid,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String key = Uuids.normalize(uuid);
+        return this.readExecutor.supply(() -> this.findByUuidNow(key, fields, ifNoneMatch));
+    }
+
+    private ResponseEntity<?> findByUuidNow(String uuid, String fields, String ifNoneMatch) {
+        if (ifNoneMatch!=null) {
+            String etag = ETags.of(this.service.findVersion(uuid));
+            if (ETags.matches(ifNoneMatch, etag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        if (fields!=null) {
+            EnumSet<GameField> projection;
+            try {
+                projection = ProjectedField.parse(GameField.class, fields);
+            }
+            catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            Map<String, Object> game = this.service.findByUuid(uuid, projection);
+            return game==null ? ResponseEntity.notFound().build() : ResponseEntity.ok(game);
+        }
+
+        ResponseEntity<?> result;
         GameDTO game = this.service.findByUuid(uuid);
         if (game!=null)
-            result = ResponseEntity.ok(game);
+            result = ETags.ok(game, game.getVersion());
         else
             result = ResponseEntity.notFound().build();
         return result;
     }
 
+    /**
+     * Route to get several games at once, like GET /games?uuid=a&uuid=b
+     * @param uuids Games' uuid, at most 100
+     * @return For each uuid, in the same order, its GameDTO or null if not found;
+     * bad request if there's no uuid or too many
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<GameDTO>>> findAllByUuid(@RequestParam("uuid") List<String> uuids) {
+        if (!MultiGet.isValid(uuids))
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        List<String> keys = uuids.stream().map(Uuids::normalize).collect(Collectors.toList());
+        return this.readExecutor.supply(() -> ResponseEntity.ok(this.service.findAllByUuid(keys)));
+    }
+
     /**
      * Get all the games sharing the same name or at least a part of it.
+     * With fields, only these fields are read and sent (see GameField).
      * @param name The string to search
-     * @return A list of GameDTO
+     * @param fields Comma separated names of the fields to send, uuid and name if null
+     * @return A list of GameUuidDTO, or the asked fields; bad request if a field is unknown
      */
     @GetMapping("/search")
-    public ResponseEntity<List<GameUuidDTO>> findByName(@RequestParam(name = "name") String name) {
-        return ResponseEntity.ok().body(service.findByName(name));
+    public CompletableFuture<ResponseEntity<List<?>>> findByName(
+            @RequestParam(name = "name") String name,
+            @RequestParam(name = "fields", required = false) String fields) {
+        if (fields==null) {
+            return this.readExecutor.supply(() -> {
+                List<GameUuidDTO> games = service.findByName(name);
+                return ResponseEntity.ok().body(games);
+            });
+        }
+        EnumSet<GameField> projection;
+        try {
+            projection = ProjectedField.parse(GameField.class, fields);
+        }
+        catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return this.readExecutor.supply(() -> ResponseEntity.ok().body(service.findByName(name, projection)));
     }
 }
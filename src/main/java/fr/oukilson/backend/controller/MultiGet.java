@@ -0,0 +1,22 @@
+package fr.oukilson.backend.controller;
+
+import java.util.List;
+
+/**
+ * Keys of the routes reading several entities at once, like GET /events?uuid=a&uuid=b
+ */
+final class MultiGet {
+    static final int MAX_KEYS = 100;
+
+    private MultiGet() {
+    }
+
+    /**
+     * @param keys Keys asked
+     * @return True if there's at least one key, at most MAX_KEYS, and none is blank
+     */
+    static boolean isValid(List<String> keys) {
+        return keys!=null && !keys.isEmpty() && keys.size() <= MAX_KEYS
+                && keys.stream().noneMatch(key -> key==null || key.isBlank());
+    }
+}
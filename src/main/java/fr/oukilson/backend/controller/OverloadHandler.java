@@ -0,0 +1,20 @@
+package fr.oukilson.backend.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answer 503 when the work of a request has been refused by a full pool (see JdbcExecutor),
+ * so the client retries later instead of waiting in an unbounded queue.
+ */
+@RestControllerAdvice
+class OverloadHandler {
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> handleRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+}
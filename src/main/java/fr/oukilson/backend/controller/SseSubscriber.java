@@ -0,0 +1,42 @@
+package fr.oukilson.backend.controller;
+
+import fr.oukilson.backend.dto.event.EventSeatsDTO;
+import fr.oukilson.backend.service.Broadcaster;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+
+/**
+ * Stream of the seats of an event, sent as server-sent events named "seats" whose id is the event's version.
+ * Seats older than the last ones sent are skipped, so the first seats read and a change committed
+ * meanwhile can be sent in any order.
+ */
+class SseSubscriber implements Broadcaster.Subscriber<EventSeatsDTO> {
+    private final SseEmitter emitter;
+    private Long version;
+
+    SseSubscriber(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public synchronized void send(EventSeatsDTO seats) throws IOException {
+        if (this.version!=null && seats.getVersion()!=null && seats.getVersion() <= this.version)
+            return;
+        this.version = seats.getVersion();
+        this.emitter.send(SseEmitter.event()
+                .name("seats")
+                .id(String.valueOf(seats.getVersion()))
+                .data(seats, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public synchronized void ping() throws IOException {
+        this.emitter.send(SseEmitter.event().comment("ping"));
+    }
+
+    @Override
+    public void close() {
+        this.emitter.complete();
+    }
+}
@@ -1,21 +1,56 @@
 package fr.oukilson.backend.controller;
 
+import fr.oukilson.backend.dto.event.EventPageDTO;
+import fr.oukilson.backend.dto.user.FeedEntryDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportJobDTO;
+import fr.oukilson.backend.dto.user.UserSuggestionDTO;
+import fr.oukilson.backend.model.EventRole;
+import fr.oukilson.backend.service.EventService;
+import fr.oukilson.backend.service.FeedService;
+import fr.oukilson.backend.service.JdbcExecutor;
+import fr.oukilson.backend.service.UserImportService;
 import fr.oukilson.backend.service.UserService;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @CrossOrigin
 @RequestMapping("/users")
 public class UserController {
     private UserService userService;
+    private UserImportService userImportService;
+    private FeedService feedService;
+    private EventService eventService;
+    private JdbcExecutor readExecutor;
+    private JdbcExecutor writeExecutor;
 
-    public UserController(UserService userService) {
+    /**
+     * @param readExecutor Pool of the reads
+     * @param writeExecutor Pool of the writes
+     */
+    public UserController(UserService userService, UserImportService userImportService, FeedService feedService,
+                          EventService eventService,
+                          @Qualifier("readExecutor") JdbcExecutor readExecutor,
+                          @Qualifier("writeExecutor") JdbcExecutor writeExecutor) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.feedService = feedService;
+        this.eventService = eventService;
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
     }
 
     /**
@@ -24,7 +59,11 @@ public class UserController {
      * @return UserDTO
      */
     @GetMapping("{nickname}")
-    public ResponseEntity<UserDTO> findUserByNickname(@PathVariable String nickname) {
+    public CompletableFuture<ResponseEntity<UserDTO>> findUserByNickname(@PathVariable String nickname) {
+        return this.readExecutor.supply(() -> this.findUserByNicknameNow(nickname));
+    }
+
+    private ResponseEntity<UserDTO> findUserByNicknameNow(String nickname) {
         ResponseEntity<UserDTO> result;
         try {
             UserDTO userDTO = this.userService.findUserByNickname(nickname);
@@ -39,26 +78,156 @@ public class UserController {
         return result;
     }
 
+    /**
+     * Find several users at once, like GET /users?nickname=a&nickname=b
+     * @param nicknames Users' nickname, at most 100
+     * @return For each nickname, in the same order, its UserDTO or null if not found;
+     * bad request if there's no nickname or too many
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<UserDTO>>> findUsersByNickname(
+            @RequestParam("nickname") List<String> nicknames) {
+        if (!MultiGet.isValid(nicknames))
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        return this.readExecutor.supply(() -> ResponseEntity.ok(this.userService.findUsersByNickname(nicknames)));
+    }
+
+    /**
+     * Find the events a user created, is registered in or is waiting for, one page at a time
+     * @param nickname User's nickname
+     * @param role creator, registered or waiting
+     * @param after Value of 'next' of the previous page; absent for the first page
+     * @param limit Maximal number of events, 20 by default and at most 100
+     * @return ResponseEntity<EventPageDTO>
+     */
+    @GetMapping("{nickname}/events")
+    public CompletableFuture<ResponseEntity<EventPageDTO>> findEvents(
+            @PathVariable String nickname,
+            @RequestParam String role,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "20") int limit) {
+        CompletableFuture<ResponseEntity<EventPageDTO>> result;
+        EventRole eventRole;
+        try {
+            eventRole = EventRole.valueOf(role.toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            eventRole = null;
+        }
+        if (eventRole==null || limit <= 0)
+            result = CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        else {
+            EventRole finalRole = eventRole;
+            result = this.readExecutor.supply(() -> {
+                EventPageDTO page = this.eventService.findByUser(nickname, finalRole, after, Math.min(limit, 100));
+                if (page!=null)
+                    return ResponseEntity.ok(page);
+                else
+                    return ResponseEntity.notFound().build();
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Find what the user's friends did lately: events they created or joined
+     * @param nickname User's nickname
+     * @param before Only entries older than this one (its seq) are returned; the newest if absent
+     * @param limit Maximal number of entries, 20 by default
+     * @return ResponseEntity<List<FeedEntryDTO>>
+     */
+    @GetMapping("{nickname}/feed")
+    public CompletableFuture<ResponseEntity<List<FeedEntryDTO>>> findFeed(
+            @PathVariable String nickname,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit) {
+        CompletableFuture<ResponseEntity<List<FeedEntryDTO>>> result;
+        if (limit <= 0)
+            result = CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        else {
+            result = this.readExecutor.supply(() -> {
+                List<FeedEntryDTO> feed = this.feedService.findFeed(nickname, before, limit);
+                if (feed!=null)
+                    return ResponseEntity.ok(feed);
+                else
+                    return ResponseEntity.notFound().build();
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Check if a nickname can be used to create a new user
+     * @param nickname Nickname to check
+     * @return ResponseEntity<Boolean>
+     */
+    @GetMapping("available/{nickname}")
+    public CompletableFuture<ResponseEntity<Boolean>> isNicknameAvailable(@PathVariable String nickname) {
+        return this.readExecutor.supply(() -> ResponseEntity.ok(this.userService.isNicknameAvailable(nickname)));
+    }
+
     /* Method to save a user in the database
+     * The nickname is checked on the read pool and the password hashed by its own pool, so the write
+     * pool is only held by the insert and the other writes don't wait for bcrypt.
      * @param userCreationDTO the user object to be saved
      * @return ResponseEntity<UserDTO>
      */
     @PostMapping()
-    public ResponseEntity<UserDTO> createUser(@Valid @RequestBody UserCreationDTO userCreationDTO){
-        ResponseEntity<UserDTO> result;
+    public CompletableFuture<ResponseEntity<UserDTO>> createUser(
+            @Valid @RequestBody UserCreationDTO userCreationDTO) {
+        return this.readExecutor.supply(() -> this.userService.createUser(userCreationDTO, this.writeExecutor))
+                .thenCompose(creation -> creation)
+                .handle((user, error) -> {
+                    ResponseEntity<UserDTO> result;
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof RejectedExecutionException)
+                        result = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                    else if (cause!=null || user==null)
+                        result = ResponseEntity.badRequest().build();
+                    else
+                        result = ResponseEntity.status(HttpStatus.CREATED).body(user);
+                    return result;
+                });
+    }
+  
+    /**
+     * Start the creation of many users at once from UserCreationDTO in JSON, one per line.
+     * Stays on the request thread only to copy the body; the users are created by a background job,
+     * followed at the route given in Location.
+     * @param input Request body
+     * @return ResponseEntity<UserImportJobDTO>, accepted; bad request if the body can't be read,
+     * service unavailable if too many imports are waiting
+     */
+    @PostMapping("import")
+    public ResponseEntity<UserImportJobDTO> importUsers(InputStream input) {
+        ResponseEntity<UserImportJobDTO> result;
         try {
-            UserDTO event = this.userService.createUser(userCreationDTO);
-            if (event!=null)
-                result = ResponseEntity.status(HttpStatus.CREATED).body(event);
-            else
-                result = ResponseEntity.badRequest().build();
+            String id = this.userImportService.startImport(input);
+            result = ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/users/import/" + id))
+                    .body(this.userImportService.findImport(id).orElse(null));
         }
-        catch(Exception e) {
+        catch (IOException e) {
             result = ResponseEntity.badRequest().build();
         }
+        catch (RejectedExecutionException e) {
+            result = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
         return result;
     }
-  
+
+    /**
+     * Find the status and report of an import
+     * @param id Id of the import
+     * @return ResponseEntity<UserImportJobDTO>; not found if unknown or too old
+     */
+    @GetMapping("import/{id}")
+    public ResponseEntity<UserImportJobDTO> findImport(@PathVariable String id) {
+        return this.userImportService.findImport(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     /**
      * Add a user to another user's friend list, asking for both users' nickname
      * @param nickname1 Nickname of the main user
@@ -66,9 +235,11 @@ public class UserController {
      * @return ResponseEntity<Boolean>
      */
     @PutMapping("/add/{id1}/{id2}")
-    public ResponseEntity<Boolean> addUserToFriendList(@PathVariable(name = "id1") String nickname1,
-                                                       @PathVariable(name = "id2") String nickname2) {
-        return ResponseEntity.ok(this.userService.addUserToFriendList(nickname1, nickname2));
+    public CompletableFuture<ResponseEntity<Boolean>> addUserToFriendList(
+            @PathVariable(name = "id1") String nickname1,
+            @PathVariable(name = "id2") String nickname2) {
+        return this.writeExecutor.supply(
+                () -> ResponseEntity.ok(this.userService.addUserToFriendList(nickname1, nickname2)));
     }
 
     /**
@@ -78,9 +249,11 @@ public class UserController {
      * @return ResponseEntity<Boolean>
      */
     @PutMapping("/remove/{id1}/{id2}")
-    public ResponseEntity<Boolean> removeUserFromFriendList(@PathVariable(name = "id1") String nickname1,
-                                                                @PathVariable(name = "id2") String nickname2) {
-        return ResponseEntity.ok(this.userService.removeUserFromFriendList(nickname1, nickname2));
+    public CompletableFuture<ResponseEntity<Boolean>> removeUserFromFriendList(
+            @PathVariable(name = "id1") String nickname1,
+            @PathVariable(name = "id2") String nickname2) {
+        return this.writeExecutor.supply(
+                () -> ResponseEntity.ok(this.userService.removeUserFromFriendList(nickname1, nickname2)));
     }
 
     /**
@@ -89,7 +262,28 @@ public class UserController {
      * @return ResponseEntity<Boolean>
      */
     @PutMapping("/empty/{id}")
-    public ResponseEntity<Boolean> emptyFriendList(@PathVariable(name = "id") String nickname) {
-        return ResponseEntity.ok(this.userService.emptyFriendList(nickname));
+    public CompletableFuture<ResponseEntity<Boolean>> emptyFriendList(@PathVariable(name = "id") String nickname) {
+        return this.writeExecutor.supply(() -> ResponseEntity.ok(this.userService.emptyFriendList(nickname)));
+    }
+
+    /**
+     * Suggest new friends to a user, ranked by number of mutual friends
+     * @param nickname User's nickname
+     * @param limit Maximal number of suggestions
+     * @return ResponseEntity<List<UserSuggestionDTO>>
+     */
+    @GetMapping("{nickname}/suggestions")
+    public CompletableFuture<ResponseEntity<List<UserSuggestionDTO>>> findSuggestions(
+            @PathVariable String nickname,
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return this.readExecutor.supply(() -> {
+            ResponseEntity<List<UserSuggestionDTO>> result;
+            List<UserSuggestionDTO> suggestions = this.userService.findSuggestions(nickname, Math.min(limit, 100));
+            if (suggestions!=null)
+                result = ResponseEntity.ok(suggestions);
+            else
+                result = ResponseEntity.notFound().build();
+            return result;
+        });
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package fr.oukilson.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,4 +17,7 @@ public class GameDTO {
     private int maxPlayingTime;
     private int minAge;
     private String creatorName;
+    // Version of the game, sent as ETag
+    @JsonIgnore
+    private Long version;
 }
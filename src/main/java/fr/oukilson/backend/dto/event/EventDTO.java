@@ -1,5 +1,6 @@
 package fr.oukilson.backend.dto.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import fr.oukilson.backend.dto.game.GameNameUuidDTO;
 import fr.oukilson.backend.dto.location.LocationDTO;
 import fr.oukilson.backend.dto.user.UserNameDTO;
@@ -28,4 +29,7 @@ public class EventDTO {
     private List<UserNameDTO> registeredUsers = new LinkedList<>();
     // Users in the waiting queue
     private List<UserNameDTO> waitingUsers = new LinkedList<>();
+    // Version of the event, sent as ETag
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package fr.oukilson.backend.dto.event;
+
+import lombok.*;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventPageDTO {
+    private List<EventSummaryDTO> events = new ArrayList<>();
+    private Long next;                  // Value of 'after' for the next page, null if it's the last one
+}
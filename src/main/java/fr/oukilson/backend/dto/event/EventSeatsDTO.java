@@ -0,0 +1,25 @@
+package fr.oukilson.backend.dto.event;
+
+import lombok.*;
+
+/**
+ * Seats of an event, as pushed by GET /events/{uuid}/live.
+ * Clients keep the one with the highest version.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventSeatsDTO {
+    private String uuid;
+    private Long version;
+    private int maxPlayer;
+    private int registered;             // Number of registered users
+    private int waiting;                // Number of users in the waiting queue
+
+    /**
+     * @return Number of seats left
+     */
+    public int getSeatsLeft() {
+        return Math.max(0, this.maxPlayer - this.registered);
+    }
+}
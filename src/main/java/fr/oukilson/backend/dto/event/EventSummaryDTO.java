@@ -0,0 +1,18 @@
+package fr.oukilson.backend.dto.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventSummaryDTO {
+    @JsonIgnore
+    private Long id;                    // Only used as paging key
+    private String uuid;
+    private String title;
+    private LocalDateTime startingDate;
+    private String town;
+    private String gameName;
+}
@@ -0,0 +1,17 @@
+package fr.oukilson.backend.dto.user;
+
+import fr.oukilson.backend.model.FeedEntryType;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntryDTO {
+    private long seq;                   // Position in the feed, to ask for older entries
+    private FeedEntryType type;
+    private String nickname;            // Friend who did it
+    private String eventUuid;
+    private String eventTitle;
+    private LocalDateTime date;
+}
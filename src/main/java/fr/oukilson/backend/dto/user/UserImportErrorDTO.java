@@ -0,0 +1,12 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportErrorDTO {
+    private long line;                  // Line of the record in the imported file, starting at 1
+    private String nickname;            // Null if the record couldn't be read
+    private String reason;
+}
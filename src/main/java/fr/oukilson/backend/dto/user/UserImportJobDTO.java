@@ -0,0 +1,13 @@
+package fr.oukilson.backend.dto.user;
+
+import fr.oukilson.backend.model.UserImportStatus;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportJobDTO {
+    private String id;
+    private UserImportStatus status;
+    private UserImportReportDTO report;         // Progress so far while running
+}
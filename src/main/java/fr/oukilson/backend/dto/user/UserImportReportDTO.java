@@ -0,0 +1,15 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportReportDTO {
+    private long total;                 // Number of records read
+    private long created;               // Number of users created
+    private long rejected;              // Number of records rejected
+    private List<UserImportErrorDTO> errors = new ArrayList<>();    // First errors only
+}
@@ -0,0 +1,11 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSuggestionDTO {
+    private String nickname;
+    private int mutualFriends;
+}
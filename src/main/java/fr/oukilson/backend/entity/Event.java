@@ -1,12 +1,15 @@
 package fr.oukilson.backend.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.*;
 
 @Entity
-@Table(name="event")
+@Table(name="event", indexes = {
+        @Index(name = "idx_event_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_event_uuid_version", columnList = "uuid, version")})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -15,7 +18,11 @@ public class Event {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                                // DB id
-    private String uuid;                            // String uuid to access from the client
+    @Convert(converter = UuidConverter.class)
+    @Column(columnDefinition = "BINARY(16)")
+    private String uuid;                            // Uuid to access from the client, 16 bytes in DB
+    @Version
+    private Long version;                           // Incremented on each change, used for the ETag
     private String title;                           // Event's title
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -48,16 +55,20 @@ public class Event {
 
     // Users registered in the event
     @ManyToMany
+    @BatchSize(size = 50)
     @JoinTable(name = "event_user",
             joinColumns = @JoinColumn(name = "event_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_event_user_user_id", columnList = "user_id, event_id"))
     private List<User> registeredUsers = new LinkedList<>();
 
     // Users in the waiting queue
     @ManyToMany
+    @BatchSize(size = 50)
     @JoinTable(name = "event_user_in_queue",
             joinColumns = @JoinColumn(name = "event_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_event_user_in_queue_user_id", columnList = "user_id, event_id"))
     private List<User> waitingUsers = new LinkedList<>();
 
 
@@ -73,7 +84,7 @@ public class Event {
         Iterator it = list.iterator();
         while (it.hasNext()) {
             User u = (User) it.next();
-            if (user.getId()==u.getId()) {
+            if (Objects.equals(user.getId(), u.getId())) {
                 result = true;
                 break;
             }
@@ -124,7 +135,7 @@ public class Event {
      * @return True if removed
      */
     public boolean removeUser(User user) {
-        return this.registeredUsers.removeIf(u -> u.getId()==user.getId());
+        return this.registeredUsers.removeIf(u -> Objects.equals(u.getId(), user.getId()));
     }
 
     /**
@@ -133,6 +144,6 @@ public class Event {
      * @return True if removed
      */
     public boolean removeUserInWaitingQueue(User user) {
-        return this.waitingUsers.removeIf(u -> u.getId()==user.getId());
+        return this.waitingUsers.removeIf(u -> Objects.equals(u.getId(), user.getId()));
     }
 }
@@ -6,7 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 @Entity
-@Table(name="game")
+@Table(name="game", indexes = @Index(name = "idx_game_uuid_version", columnList = "uuid, version"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -15,7 +15,11 @@ public class Game {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                    // DB id
-    private String uuid;                // String uuid to access from the client
+    @Convert(converter = UuidConverter.class)
+    @Column(columnDefinition = "BINARY(16)")
+    private String uuid;                // Uuid to access from the client, 16 bytes in DB
+    @Version
+    private Long version;               // Incremented on each change, used for the ETag
     private String name;                // Game's name
     @Column(name = "min_player")
     private Integer minPlayer;          // Minimal number of players
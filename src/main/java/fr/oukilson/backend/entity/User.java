@@ -15,6 +15,7 @@ public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                    // DB id
+    @Column(unique = true)
     private String nickname;            // Unique username; also used to access from the client
     private String password;            // Encrypted version of the password
     private String email;               // Email of the user
@@ -23,10 +24,12 @@ public class User {
     @Column(name = "last_name")
     private String lastName;            // Last name of the user
 
-    @ManyToMany(cascade = CascadeType.ALL)
+    // Read only from here: changes go through FriendGraph
+    @ManyToMany
     @JoinTable(name = "friend_list",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "friend_id"))
+            inverseJoinColumns = @JoinColumn(name = "friend_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_friend_list", columnNames = {"user_id", "friend_id"}))
     private List<User> friendList = new ArrayList<>();
 
     @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -38,11 +41,12 @@ public class User {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        // Don't compare classes: a lazy reference is a subclass of User
+        if (!(o instanceof User)) return false;
 
         User user = (User) o;
 
-        return id.equals(user.id);
+        return id.equals(user.getId());
     }
 
     @Override
@@ -0,0 +1,22 @@
+package fr.oukilson.backend.entity;
+
+import fr.oukilson.backend.model.Uuids;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Uuid strings of the entities stored as BINARY(16) (see Uuids).
+ * A string which isn't a uuid becomes NULL, so a query by such a uuid finds nothing.
+ */
+@Converter
+public class UuidConverter implements AttributeConverter<String, byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(String uuid) {
+        return Uuids.toBytes(uuid);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes==null ? null : Uuids.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,151 @@
+package fr.oukilson.backend.filter;
+
+import fr.oukilson.backend.service.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission of the requests by a ConcurrencyLimiter, with three priorities:
+ * - registrations may fill the whole limit
+ * - searches (bulk reads) only 'searchShare' of it, so they're refused first
+ * - the other requests, reads mostly, 'readShare' of it
+ * A refused request gets 503 with Retry-After, before any controller or database work.
+ * Requests are matched by their normalized path (see Routes), so a trailing slash doesn't change the priority.
+ * A request is in flight until its response is sent, asynchronous work included.
+ * Live streams (/live) and the actuator are never limited: they're long or must always answer.
+ * Refused requests are counted in http.server.requests.shed, tagged with the priority; the limit and
+ * the requests in flight are the gauges concurrencylimiter.limit and concurrencylimiter.inflight.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final ConcurrencyLimiter limiter;
+    private final Set<String> registrations;
+    private final Set<String> searches;
+    private final double readShare;
+    private final double searchShare;
+    private final Counter shedRegistrations;
+    private final Counter shedReads;
+    private final Counter shedSearches;
+
+    /**
+     * @param limiter Limiter
+     * @param registrations Routes of the registrations, as "METHOD /path"
+     * @param searches Routes of the searches, as "METHOD /path"
+     * @param readShare Share of the limit the other requests may fill
+     * @param searchShare Share of the limit the searches may fill
+     * @param registry Registry of the metrics
+     */
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter, String[] registrations, String[] searches,
+                                  double readShare, double searchShare, MeterRegistry registry) {
+        this.limiter = limiter;
+        this.registrations = Routes.normalize(registrations);
+        this.searches = Routes.normalize(searches);
+        this.readShare = readShare;
+        this.searchShare = searchShare;
+        this.shedRegistrations = shed("registration", registry);
+        this.shedReads = shed("read", registry);
+        this.shedSearches = shed("search", registry);
+        registry.gauge("concurrencylimiter.limit", limiter, ConcurrencyLimiter::getLimit);
+        registry.gauge("concurrencylimiter.inflight", limiter, ConcurrencyLimiter::getInFlight);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = Routes.path(request);
+        return path.endsWith("/live") || path.startsWith("/actuator/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String route = Routes.of(request);
+        double share;
+        Counter shed;
+        if (this.registrations.contains(route)) {
+            share = 1;
+            shed = this.shedRegistrations;
+        }
+        else if (this.searches.contains(route)) {
+            share = this.searchShare;
+            shed = this.shedSearches;
+        }
+        else {
+            share = this.readShare;
+            shed = this.shedReads;
+        }
+
+        if (!this.limiter.tryAcquire(share)) {
+            shed.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true))
+                this.limiter.release(System.nanoTime() - start);
+        };
+        try {
+            chain.doFilter(request, response);
+        }
+        finally {
+            // Controllers answering with a future: in flight until the async work has answered
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new ReleaseListener(release));
+            else
+                release.run();
+        }
+    }
+
+    private static Counter shed(String priority, MeterRegistry registry) {
+        return Counter.builder("http.server.requests.shed")
+                .description("Requests refused by the concurrency limiter")
+                .tag("priority", priority)
+                .register(registry);
+    }
+
+    /**
+     * Release of the place of an asynchronous request, whichever way it ends
+     */
+    private static class ReleaseListener implements AsyncListener {
+        private final Runnable release;
+
+        ReleaseListener(Runnable release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            this.release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            this.release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            this.release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Async restarted by a dispatch: the listener must be added again to be called
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fr.oukilson.backend.filter;
+
+import fr.oukilson.backend.service.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit of the routes open to bots, by client address and route (see RateLimiter).
+ * A client out of tokens gets 429 with Retry-After, before any controller or database work.
+ * Requests are matched by their normalized path (see Routes), so a trailing slash doesn't avoid the limit.
+ * The client address is the remote address: behind a proxy, server.forward-headers-strategy makes it the
+ * address given by the proxy (X-Forwarded-For), otherwise all the clients would share the proxy's bucket.
+ * Limited requests are counted in http.server.requests.limited, tagged with the route; the number of
+ * buckets in memory is the gauge ratelimiter.buckets.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimiter limiter;
+    private final Map<String, Counter> limited = new HashMap<>();
+
+    /**
+     * @param limiter Buckets of the clients
+     * @param routes Limited routes, as "METHOD /path"
+     * @param registry Registry of the metrics
+     */
+    public RateLimitFilter(RateLimiter limiter, String[] routes, MeterRegistry registry) {
+        this.limiter = limiter;
+        for (String route : routes) {
+            String normalized = Routes.normalize(route);
+            this.limited.put(normalized, Counter.builder("http.server.requests.limited")
+                    .description("Requests refused by the rate limiter")
+                    .tag("route", normalized)
+                    .register(registry));
+        }
+        registry.gauge("ratelimiter.buckets", limiter, RateLimiter::size);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !this.limited.containsKey(Routes.of(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String route = Routes.of(request);
+        long wait = this.limiter.tryAcquire(request.getRemoteAddr() + " " + route);
+        if (wait > 0) {
+            this.limited.get(route).increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        }
+        else
+            chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,54 @@
+package fr.oukilson.backend.filter;
+
+import org.springframework.web.util.UrlPathHelper;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Routes of the requests, as "METHOD /path", compared by the filters to their configured routes.
+ * The path is the one the controllers are matched with: decoded, without ';' parameters nor duplicate
+ * slashes, and without trailing slash since Spring MVC matches "/users/" with "/users". So
+ * "POST /users/;x" can't pass for another route than "POST /users".
+ */
+final class Routes {
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    private Routes() {
+    }
+
+    /**
+     * @param request Request
+     * @return Its path, without the context path
+     */
+    static String path(HttpServletRequest request) {
+        String result = PATHS.getPathWithinApplication(request);
+        return result.length() > 1 && result.endsWith("/") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    /**
+     * @param request Request
+     * @return Its method and path, as "METHOD /path"
+     */
+    static String of(HttpServletRequest request) {
+        return request.getMethod() + " " + path(request);
+    }
+
+    /**
+     * @param routes Configured routes, as "METHOD /path"
+     * @return The routes, with single spaces and without trailing slash
+     */
+    static Set<String> normalize(String[] routes) {
+        return Arrays.stream(routes).map(Routes::normalize).collect(Collectors.toSet());
+    }
+
+    /**
+     * @param route Configured route, as "METHOD /path"
+     * @return The route, with single spaces and without trailing slash
+     */
+    static String normalize(String route) {
+        String result = route.trim().replaceAll("\\s+", " ");
+        return result.endsWith("/") && !result.endsWith(" /") ? result.substring(0, result.length() - 1) : result;
+    }
+}
@@ -0,0 +1,212 @@
+package fr.oukilson.backend.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import org.springframework.boot.jackson.JsonComponent;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Write events straight to the JSON generator, without Jackson's reflection.
+ * An Event entity is written exactly like its EventDTO, so search results don't need to be copied into DTOs.
+ */
+@JsonComponent
+public class EventJsonComponent {
+
+    /**
+     * EventDTO
+     */
+    public static class EventDTOSerializer extends JsonSerializer<EventDTO> {
+        @Override
+        public void serialize(EventDTO event, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("uuid", event.getUuid());
+            gen.writeStringField("title", event.getTitle());
+            UserNameDTO creator = event.getCreator();
+            writeNickname(gen, "creator", creator==null ? null : creator.getNickname(), creator!=null);
+            GameNameUuidDTO game = event.getGame();
+            if (game==null)
+                gen.writeNullField("game");
+            else
+                writeGame(gen, game.getUuid(), game.getName());
+            gen.writeNumberField("minPlayer", event.getMinPlayer());
+            gen.writeNumberField("maxPlayer", event.getMaxPlayer());
+            writeDate(gen, "creationDate", event.getCreationDate());
+            writeDate(gen, "startingDate", event.getStartingDate());
+            writeDate(gen, "endingDate", event.getEndingDate());
+            writeDate(gen, "limitDate", event.getLimitDate());
+            gen.writeStringField("description", event.getDescription());
+            LocationDTO location = event.getLocation();
+            if (location==null)
+                gen.writeNullField("location");
+            else
+                writeLocation(gen, location.getTown(), location.getZipCode(), location.getAddress());
+            writeNames(gen, "registeredUsers", event.getRegisteredUsers());
+            writeNames(gen, "waitingUsers", event.getWaitingUsers());
+            gen.writeBooleanField("private", event.isPrivate());
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Event entity, written as its EventDTO.
+     * The participant lists must be loaded.
+     */
+    public static class EventSerializer extends JsonSerializer<Event> {
+        @Override
+        public void serialize(Event event, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("uuid", event.getUuid());
+            gen.writeStringField("title", event.getTitle());
+            User creator = event.getCreator();
+            writeNickname(gen, "creator", creator==null ? null : creator.getNickname(), creator!=null);
+            Game game = event.getGame();
+            if (game==null)
+                gen.writeNullField("game");
+            else
+                writeGame(gen, game.getUuid(), game.getName());
+            gen.writeNumberField("minPlayer", event.getMinPlayer());
+            gen.writeNumberField("maxPlayer", event.getMaxPlayer());
+            writeDate(gen, "creationDate", event.getCreationDate());
+            writeDate(gen, "startingDate", event.getStartingDate());
+            writeDate(gen, "endingDate", event.getEndingDate());
+            writeDate(gen, "limitDate", event.getLimitDate());
+            gen.writeStringField("description", event.getDescription());
+            Location location = event.getLocation();
+            if (location==null)
+                gen.writeNullField("location");
+            else
+                writeLocation(gen, location.getTown(), location.getZipCode(), location.getAddress());
+            writeUsers(gen, "registeredUsers", event.getRegisteredUsers());
+            writeUsers(gen, "waitingUsers", event.getWaitingUsers());
+            gen.writeBooleanField("private", event.isPrivate());
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Write a date as Jackson does by default (ISO_LOCAL_DATE_TIME), without building a String.
+     * Years out of 0-9999 are left to DateTimeFormatter.
+     */
+    static void writeDate(JsonGenerator gen, String name, LocalDateTime date) throws IOException {
+        if (date==null) {
+            gen.writeNullField(name);
+            return;
+        }
+        int year = date.getYear();
+        if (year<0 || year>9999) {
+            gen.writeStringField(name, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(date));
+            return;
+        }
+        char[] buffer = new char[29];
+        digits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        digits(buffer, 5, date.getMonthValue(), 2);
+        buffer[7] = '-';
+        digits(buffer, 8, date.getDayOfMonth(), 2);
+        buffer[10] = 'T';
+        digits(buffer, 11, date.getHour(), 2);
+        buffer[13] = ':';
+        digits(buffer, 14, date.getMinute(), 2);
+        buffer[16] = ':';
+        digits(buffer, 17, date.getSecond(), 2);
+        int length = 19;
+        int nano = date.getNano();
+        if (nano!=0) {
+            // Fraction without its trailing zeros
+            buffer[19] = '.';
+            digits(buffer, 20, nano, 9);
+            length = 29;
+            while (buffer[length-1]=='0')
+                length--;
+        }
+        gen.writeFieldName(name);
+        gen.writeString(buffer, 0, length);
+    }
+
+    /**
+     * Write a positive number on 'width' digits, padded with zeros
+     */
+    private static void digits(char[] buffer, int offset, int value, int width) {
+        for (int i=offset+width-1; i>=offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Write a field {"nickname": ...}, or null if present is false
+     */
+    static void writeNickname(JsonGenerator gen, String name, String nickname, boolean present) throws IOException {
+        if (!present)
+            gen.writeNullField(name);
+        else {
+            gen.writeObjectFieldStart(name);
+            gen.writeStringField("nickname", nickname);
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Write a list of UserNameDTO; null is written as null
+     */
+    static void writeNames(JsonGenerator gen, String name, List<UserNameDTO> users) throws IOException {
+        if (users==null)
+            gen.writeNullField(name);
+        else {
+            gen.writeArrayFieldStart(name);
+            for (UserNameDTO user : users) {
+                if (user==null)
+                    gen.writeNull();
+                else {
+                    gen.writeStartObject();
+                    gen.writeStringField("nickname", user.getNickname());
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * Write a list of users as UserNameDTO; null is written as an empty list, as EventMapper does
+     */
+    private static void writeUsers(JsonGenerator gen, String name, List<User> users) throws IOException {
+        gen.writeArrayFieldStart(name);
+        if (users!=null) {
+            for (User user : users) {
+                gen.writeStartObject();
+                gen.writeStringField("nickname", user.getNickname());
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeGame(JsonGenerator gen, String uuid, String name) throws IOException {
+        gen.writeObjectFieldStart("game");
+        gen.writeStringField("uuid", uuid);
+        gen.writeStringField("name", name);
+        gen.writeEndObject();
+    }
+
+    private static void writeLocation(JsonGenerator gen, String town, String zipCode, String address)
+            throws IOException {
+        gen.writeObjectFieldStart("location");
+        gen.writeStringField("town", town);
+        gen.writeStringField("zipCode", zipCode);
+        gen.writeStringField("address", address);
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,28 @@
+package fr.oukilson.backend.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import org.springframework.boot.jackson.JsonComponent;
+import java.io.IOException;
+
+/**
+ * Write games straight to the JSON generator, without Jackson's reflection
+ */
+@JsonComponent
+public class GameJsonComponent {
+
+    /**
+     * GameUuidDTO, used by the game search
+     */
+    public static class GameUuidDTOSerializer extends JsonSerializer<GameUuidDTO> {
+        @Override
+        public void serialize(GameUuidDTO game, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("uuid", game.getUuid());
+            gen.writeStringField("name", game.getName());
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package fr.oukilson.backend.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import fr.oukilson.backend.dto.user.UserDTO;
+import org.springframework.boot.jackson.JsonComponent;
+import java.io.IOException;
+
+/**
+ * Write users straight to the JSON generator, without Jackson's reflection
+ */
+@JsonComponent
+public class UserJsonComponent {
+
+    /**
+     * UserDTO
+     */
+    public static class UserDTOSerializer extends JsonSerializer<UserDTO> {
+        @Override
+        public void serialize(UserDTO user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("nickname", user.getNickname());
+            EventJsonComponent.writeNames(gen, "friendList", user.getFriendList());
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Location;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handwritten mapping of events to their DTOs.
+ * Gives the same result as ModelMapper, without reflection.
+ */
+public class EventMapper {
+    private final UserMapper userMapper;
+    private final GameMapper gameMapper;
+
+    public EventMapper(UserMapper userMapper, GameMapper gameMapper) {
+        this.userMapper = userMapper;
+        this.gameMapper = gameMapper;
+    }
+
+    /**
+     * @param event Event, may be null
+     * @return EventDTO, null if event is null
+     */
+    public EventDTO toDTO(Event event) {
+        if (event==null)
+            return null;
+        return new EventDTO(event.getUuid(), event.getTitle(), this.userMapper.toNameDTO(event.getCreator()),
+                this.gameMapper.toNameUuidDTO(event.getGame()), event.getMinPlayer(), event.getMaxPlayer(),
+                event.getCreationDate(), event.getStartingDate(), event.getEndingDate(), event.getLimitDate(),
+                event.getDescription(), event.isPrivate(), this.toDTO(event.getLocation()),
+                this.userMapper.toNameDTOs(event.getRegisteredUsers()),
+                this.userMapper.toNameDTOs(event.getWaitingUsers()), event.getVersion());
+    }
+
+    /**
+     * @param events Events
+     * @return List of EventDTO, in the same order
+     */
+    public List<EventDTO> toDTOs(List<Event> events) {
+        List<EventDTO> result = new ArrayList<>(events.size());
+        for (Event event : events)
+            result.add(this.toDTO(event));
+        return result;
+    }
+
+    /**
+     * @param location Location, may be null
+     * @return LocationDTO, null if location is null
+     */
+    public LocationDTO toDTO(Location location) {
+        if (location==null)
+            return null;
+        return new LocationDTO(location.getTown(), location.getZipCode(), location.getAddress());
+    }
+}
@@ -0,0 +1,49 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.entity.Game;
+
+/**
+ * Handwritten mapping of games to their DTOs.
+ * Gives the same result as ModelMapper, without reflection: a null number becomes 0.
+ */
+public class GameMapper {
+
+    /**
+     * @param game Game, may be null
+     * @return GameDTO, null if game is null
+     */
+    public GameDTO toDTO(Game game) {
+        if (game==null)
+            return null;
+        return new GameDTO(game.getUuid(), game.getName(), valueOf(game.getMinPlayer()),
+                valueOf(game.getMaxPlayer()), valueOf(game.getMinPlayingTime()), valueOf(game.getMaxPlayingTime()),
+                valueOf(game.getMinAge()), game.getCreatorName(), game.getVersion());
+    }
+
+    /**
+     * @param game Game, may be null
+     * @return GameUuidDTO, null if game is null
+     */
+    public GameUuidDTO toUuidDTO(Game game) {
+        if (game==null)
+            return null;
+        return new GameUuidDTO(game.getUuid(), game.getName());
+    }
+
+    /**
+     * @param game Game, may be null
+     * @return GameNameUuidDTO, null if game is null
+     */
+    public GameNameUuidDTO toNameUuidDTO(Game game) {
+        if (game==null)
+            return null;
+        return new GameNameUuidDTO(game.getUuid(), game.getName());
+    }
+
+    private static int valueOf(Integer value) {
+        return value==null ? 0 : value;
+    }
+}
@@ -0,0 +1,50 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.User;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handwritten mapping of users to their DTOs.
+ * Gives the same result as ModelMapper, without reflection.
+ */
+public class UserMapper {
+
+    /**
+     * @param user User, may be null
+     * @return UserDTO, null if user is null
+     */
+    public UserDTO toDTO(User user) {
+        if (user==null)
+            return null;
+        return new UserDTO(user.getNickname(), this.toNameDTOs(user.getFriendList()));
+    }
+
+    /**
+     * @param user User, may be null
+     * @return UserNameDTO, null if user is null
+     */
+    public UserNameDTO toNameDTO(User user) {
+        if (user==null)
+            return null;
+        return new UserNameDTO(user.getNickname());
+    }
+
+    /**
+     * @param users Users, may be null
+     * @return List of UserNameDTO, never null
+     */
+    public List<UserNameDTO> toNameDTOs(List<User> users) {
+        List<UserNameDTO> result;
+        if (users==null)
+            result = new ArrayList<>();
+        else {
+            result = new ArrayList<>(users.size());
+            for (User user : users)
+                result.add(this.toNameDTO(user));
+        }
+        return result;
+    }
+}
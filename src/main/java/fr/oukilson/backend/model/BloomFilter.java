@@ -0,0 +1,97 @@
+package fr.oukilson.backend.model;
+
+/**
+ * Simple Bloom filter over long or string keys.
+ * mightContain never answers false for an added key, but may answer true for a key never added
+ * (with the false positive probability given at construction).
+ * This class is not thread-safe for writes.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final int size;                 // Number of bits
+    private final int hashCount;            // Number of hash functions
+
+    /**
+     * @param expectedInsertions Number of keys expected to be added
+     * @param falsePositiveRate Wanted false positive probability, between 0 and 1 (excluded)
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.size = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) this.size / n * Math.log(2)));
+        this.bits = new long[(this.size + 63) / 64];
+    }
+
+    /**
+     * Add a key in the filter
+     * @param key Key
+     */
+    public void put(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i=0; i<this.hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % this.size;
+            this.bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Check if a key might have been added in the filter
+     * @param key Key
+     * @return False if the key has never been added, true if it has probably been added
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i=0; i<this.hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % this.size;
+            if ((this.bits[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add a string key in the filter
+     * @param key Key
+     */
+    public void put(CharSequence key) {
+        this.put(hash(key));
+    }
+
+    /**
+     * Check if a string key might have been added in the filter
+     * @param key Key
+     * @return False if the key has never been added, true if it has probably been added
+     */
+    public boolean mightContain(CharSequence key) {
+        return this.mightContain(hash(key));
+    }
+
+    /**
+     * 64 bits FNV-1a hash of a string
+     */
+    private static long hash(CharSequence key) {
+        long result = 0xcbf29ce484222325L;
+        for (int i=0; i<key.length(); i++) {
+            result ^= key.charAt(i);
+            result *= 0x100000001b3L;
+        }
+        return result;
+    }
+
+    /**
+     * Spread the bits of a key (finalizer of MurmurHash3)
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
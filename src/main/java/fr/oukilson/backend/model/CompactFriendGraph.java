@@ -0,0 +1,214 @@
+package fr.oukilson.backend.model;
+
+import java.util.*;
+
+/**
+ * In-memory friend graph using dense int indexes instead of user ids.
+ * Each user's friends are kept as a sorted int array, so a friend list costs 4 bytes per friend.
+ * Suggestions count the friends of friends in arrays indexed by dense index and kept between the calls
+ * of each thread, so a call allocates nothing but its result and takes a time linear in the number of
+ * friends of friends.
+ * Concurrent calls to suggest are safe; the changes must be synchronized with them and between them.
+ */
+public class CompactFriendGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Long, Integer> indexes = new HashMap<>();    // User id -> dense index
+    private long[] ids = new long[1024];                            // Dense index -> user id
+    private int[][] friends = new int[1024][];                      // Dense index -> sorted friends
+    private int size = 0;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Add a friendship (user -> friend)
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void addFriend(long userId, long friendId) {
+        int user = this.indexOf(userId);
+        int friend = this.indexOf(friendId);
+        int[] current = this.friends[user];
+        int position = Arrays.binarySearch(current, friend);
+        if (position < 0) {
+            position = -position - 1;
+            int[] result = new int[current.length + 1];
+            System.arraycopy(current, 0, result, 0, position);
+            result[position] = friend;
+            System.arraycopy(current, position, result, position + 1, current.length - position);
+            this.friends[user] = result;
+        }
+    }
+
+    /**
+     * Remove a friendship (user -> friend)
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void removeFriend(long userId, long friendId) {
+        Integer user = this.indexes.get(userId);
+        Integer friend = this.indexes.get(friendId);
+        if (user!=null && friend!=null) {
+            int[] current = this.friends[user];
+            int position = Arrays.binarySearch(current, friend);
+            if (position >= 0) {
+                int[] result = new int[current.length - 1];
+                System.arraycopy(current, 0, result, 0, position);
+                System.arraycopy(current, position + 1, result, position, current.length - position - 1);
+                this.friends[user] = result;
+            }
+        }
+    }
+
+    /**
+     * Remove all the friends of a user
+     * @param userId User's id
+     */
+    public void removeAllFriends(long userId) {
+        Integer user = this.indexes.get(userId);
+        if (user!=null)
+            this.friends[user] = EMPTY;
+    }
+
+    /**
+     * Rank the friends of the user's friends by number of mutual friends.
+     * The user and his friends are excluded. Ties are ordered by ascending id.
+     * @param userId User's id
+     * @param limit Maximal number of suggestions
+     * @return List of {user id, mutual friends count}, best suggestion first
+     */
+    public List<long[]> suggest(long userId, int limit) {
+        Integer user = this.indexes.get(userId);
+        if (user==null || limit <= 0)
+            return new ArrayList<>();
+        int[] direct = this.friends[user];
+        Scratch scratch = this.scratch.get();
+        if (scratch.counts.length < this.ids.length) {
+            scratch.counts = new int[this.ids.length];
+            scratch.touched = new int[this.ids.length];
+        }
+        int[] counts = scratch.counts;
+        int[] touched = scratch.touched;
+
+        // The user and his friends start far below 0, so they're never counted as candidates
+        counts[user] = Integer.MIN_VALUE / 2;
+        for (int friend : direct)
+            counts[friend] = Integer.MIN_VALUE / 2;
+        int touchedCount = 0;
+        for (int friend : direct) {
+            for (int candidate : this.friends[friend]) {
+                if (counts[candidate]++ == 0)
+                    touched[touchedCount++] = candidate;
+            }
+        }
+
+        // Keep the best candidates in a min-heap of size limit, then reset the counts
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, CompactFriendGraph::compareWorstFirst);
+        for (int i=0; i<touchedCount; i++) {
+            int candidate = touched[i];
+            long mutual = counts[candidate];
+            counts[candidate] = 0;
+            long[] worst = best.peek();
+            if (best.size() < limit || mutual > worst[1] || (mutual == worst[1] && this.ids[candidate] < worst[0])) {
+                best.add(new long[] {this.ids[candidate], mutual});
+                if (best.size() > limit)
+                    best.poll();
+            }
+        }
+        counts[user] = 0;
+        for (int friend : direct)
+            counts[friend] = 0;
+        List<long[]> result = new ArrayList<>(best);
+        result.sort((a, b) -> compareWorstFirst(b, a));
+        return result;
+    }
+
+    /**
+     * @return Number of users known by the graph
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Counts of the suggestions of one thread
+     */
+    private static class Scratch {
+        private int[] counts = new int[1024];       // Dense index -> mutual friends, 0 between calls
+        private int[] touched = new int[1024];      // Candidates counted by the current call
+    }
+
+    /**
+     * Builder to load a whole graph at once.
+     * Friends are appended without being sorted, then everything is sorted once in build().
+     */
+    public static class Builder {
+        private final CompactFriendGraph graph = new CompactFriendGraph();
+        private int[] lengths = new int[1024];      // Number of friends used in each array
+
+        /**
+         * Append a friendship (user -> friend)
+         * @param userId User's id
+         * @param friendId Friend's id
+         */
+        public void addFriend(long userId, long friendId) {
+            int user = this.graph.indexOf(userId);
+            int friend = this.graph.indexOf(friendId);
+            if (this.lengths.length < this.graph.ids.length)
+                this.lengths = Arrays.copyOf(this.lengths, this.graph.ids.length);
+            int[] current = this.graph.friends[user];
+            int length = this.lengths[user];
+            if (length == current.length) {
+                current = Arrays.copyOf(current, Math.max(4, length * 2));
+                this.graph.friends[user] = current;
+            }
+            current[length] = friend;
+            this.lengths[user] = length + 1;
+        }
+
+        /**
+         * @return The graph, with sorted and deduplicated friend arrays
+         */
+        public CompactFriendGraph build() {
+            for (int user=0; user<this.graph.size; user++) {
+                int[] current = this.graph.friends[user];
+                int length = this.lengths[user];
+                Arrays.sort(current, 0, length);
+                int unique = 0;
+                for (int i=0; i<length; i++) {
+                    if (unique == 0 || current[i] != current[unique - 1])
+                        current[unique++] = current[i];
+                }
+                this.graph.friends[user] = unique == 0 ? EMPTY : Arrays.copyOf(current, unique);
+            }
+            return this.graph;
+        }
+    }
+
+    /**
+     * Return the dense index of a user, creating it if needed
+     */
+    private int indexOf(long userId) {
+        Integer result = this.indexes.get(userId);
+        if (result==null) {
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+                this.friends = Arrays.copyOf(this.friends, this.size * 2);
+            }
+            result = this.size++;
+            this.ids[result] = userId;
+            this.friends[result] = EMPTY;
+            this.indexes.put(userId, result);
+        }
+        return result;
+    }
+
+    /**
+     * Lower mutual count first, then higher id first
+     */
+    private static int compareWorstFirst(long[] a, long[] b) {
+        int result = Long.compare(a[1], b[1]);
+        if (result == 0)
+            result = Long.compare(b[0], a[0]);
+        return result;
+    }
+}
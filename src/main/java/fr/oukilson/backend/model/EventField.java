@@ -0,0 +1,35 @@
+package fr.oukilson.backend.model;
+
+/**
+ * Fields of EventDTO a client can ask for, plus the participant counts
+ */
+public enum EventField implements ProjectedField {
+    UUID("uuid"),
+    TITLE("title"),
+    CREATOR("creator"),                     // {nickname}
+    GAME("game"),                           // {uuid, name}
+    MIN_PLAYER("minPlayer"),
+    MAX_PLAYER("maxPlayer"),
+    CREATION_DATE("creationDate"),
+    STARTING_DATE("startingDate"),
+    ENDING_DATE("endingDate"),
+    LIMIT_DATE("limitDate"),
+    DESCRIPTION("description"),
+    PRIVATE("private"),
+    LOCATION("location"),                   // {town, zipCode, address}
+    REGISTERED_USERS("registeredUsers"),    // [{nickname}]
+    WAITING_USERS("waitingUsers"),          // [{nickname}]
+    REGISTERED_COUNT("registeredCount"),    // Number of registered users
+    WAITING_COUNT("waitingCount");          // Number of users in the waiting queue
+
+    private final String name;
+
+    EventField(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+}
@@ -0,0 +1,10 @@
+package fr.oukilson.backend.model;
+
+/**
+ * Part a user takes in an event
+ */
+public enum EventRole {
+    CREATOR,                // The user created the event
+    REGISTERED,             // The user is registered in the event
+    WAITING                 // The user is in the waiting queue of the event
+}
@@ -0,0 +1,20 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the table feed_entry
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntry {
+    private long ownerId;               // User whose feed it is
+    private int slot;                   // Position in the owner's ring buffer
+    private long seq;                   // Sequence number in the owner's feed, growing
+    private FeedEntryType type;
+    private long actorId;               // Friend who did it
+    private long eventId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,33 @@
+package fr.oukilson.backend.model;
+
+/**
+ * Kind of activity written in the friends' feeds.
+ * The code is what's stored in the table feed_entry: never change an existing one.
+ */
+public enum FeedEntryType {
+    CREATED(1),             // The friend created the event
+    REGISTERED(2);          // The friend registered in the event
+
+    private final int code;
+
+    FeedEntryType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+
+    /**
+     * @param code Stored code
+     * @return The type with this code
+     * @throws IllegalArgumentException If the code is unknown
+     */
+    public static FeedEntryType fromCode(int code) throws IllegalArgumentException {
+        for (FeedEntryType type : values()) {
+            if (type.code == code)
+                return type;
+        }
+        throw new IllegalArgumentException("Unknown feed entry type " + code);
+    }
+}
@@ -0,0 +1,26 @@
+package fr.oukilson.backend.model;
+
+/**
+ * Fields of GameDTO a client can ask for
+ */
+public enum GameField implements ProjectedField {
+    UUID("uuid"),
+    NAME("name"),
+    MIN_PLAYER("minPlayer"),
+    MAX_PLAYER("maxPlayer"),
+    MIN_PLAYING_TIME("minPlayingTime"),
+    MAX_PLAYING_TIME("maxPlayingTime"),
+    MIN_AGE("minAge"),
+    CREATOR_NAME("creatorName");
+
+    private final String name;
+
+    GameField(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+}
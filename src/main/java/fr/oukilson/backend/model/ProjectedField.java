@@ -0,0 +1,41 @@
+package fr.oukilson.backend.model;
+
+import java.util.EnumSet;
+
+/**
+ * Field a client can ask for with ?fields= (sparse fieldset)
+ */
+public interface ProjectedField {
+    /**
+     * @return Name of the field in the JSON
+     */
+    String getName();
+
+    /**
+     * Parse a comma separated list of field names
+     * @param type Enum of the fields
+     * @param fields Field names, e.g. "uuid,title"
+     * @return The fields, in declaration order
+     * @throws IllegalArgumentException If a field is unknown or no field is given
+     */
+    static <E extends Enum<E> & ProjectedField> EnumSet<E> parse(Class<E> type, String fields)
+            throws IllegalArgumentException {
+        EnumSet<E> result = EnumSet.noneOf(type);
+        for (String name : fields.split(",")) {
+            name = name.trim();
+            if (name.isEmpty())
+                continue;
+            E found = null;
+            for (E field : type.getEnumConstants()) {
+                if (field.getName().equals(name))
+                    found = field;
+            }
+            if (found==null)
+                throw new IllegalArgumentException("Unknown field: " + name);
+            result.add(found);
+        }
+        if (result.isEmpty())
+            throw new IllegalArgumentException("No field");
+        return result;
+    }
+}
@@ -0,0 +1,10 @@
+package fr.oukilson.backend.model;
+
+/**
+ * State of a user import
+ */
+public enum UserImportStatus {
+    RUNNING,                // Waiting or running; the report grows while the file is read
+    DONE,                   // The whole file has been read
+    FAILED                  // Stopped before the end of the file, the report tells how far it went
+}
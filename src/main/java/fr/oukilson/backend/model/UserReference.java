@@ -0,0 +1,11 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserReference {
+    private Long id;                    // DB id
+    private String nickname;            // Unique username
+}
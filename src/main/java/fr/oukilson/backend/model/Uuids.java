@@ -0,0 +1,80 @@
+package fr.oukilson.backend.model;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uuids of the events and games, stored as 16 bytes (BINARY(16)) and sent to the clients as the usual
+ * 36 characters string.
+ * New uuids are time ordered (version 7, RFC 9562): 48 bits of Unix time in milliseconds, then a 12 bits
+ * counter keeping the uuids of one millisecond in order, then 62 random bits. New rows go at the end of
+ * the uuid indexes instead of splitting random pages. Their bytes are in the order of the string, like
+ * MySQL's UUID_TO_BIN(uuid) without swap.
+ */
+public final class Uuids {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final AtomicLong LAST = new AtomicLong();       // Last milliseconds << 12 | counter
+
+    private Uuids() {
+    }
+
+    /**
+     * New time ordered uuid, greater than all the previous ones of this JVM
+     * @return Uuid, as a string
+     */
+    public static String generate() {
+        return generate(System.currentTimeMillis()).toString();
+    }
+
+    static UUID generate(long millis) {
+        // Counter exhausted within a millisecond: borrow the next one, the clock will catch up
+        long stamp = LAST.accumulateAndGet(millis << 12, (last, now) -> Math.max(last + 1, now));
+        long msb = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long lsb = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Form of a uuid as stored and sent back, so a uuid asked in uppercase matches the one read
+     * @param uuid Uuid, as a string
+     * @return Uuid, as a lowercase string, or the string unchanged if it isn't a uuid
+     */
+    public static String normalize(String uuid) {
+        byte[] bytes = toBytes(uuid);
+        return bytes==null ? uuid : fromBytes(bytes);
+    }
+
+    /**
+     * @param uuid Uuid, as a string
+     * @return Its 16 bytes, null if it isn't a uuid
+     */
+    public static byte[] toBytes(String uuid) {
+        if (uuid==null || uuid.length()!=36)
+            return null;
+        UUID parsed;
+        try {
+            parsed = UUID.fromString(uuid);
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ByteBuffer.allocate(16)
+                .putLong(parsed.getMostSignificantBits())
+                .putLong(parsed.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * @param bytes 16 bytes of a uuid
+     * @return Uuid, as a lowercase string
+     * @throws IllegalArgumentException If there aren't 16 bytes
+     */
+    public static String fromBytes(byte[] bytes) throws IllegalArgumentException {
+        if (bytes.length!=16)
+            throw new IllegalArgumentException("Uuid : 16 bytes expected, got " + bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,233 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.EventField;
+import org.springframework.stereotype.Repository;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Events read as rows holding only the fields asked by the client (sparse fieldsets).
+ * The select clause is built from the fields: the joins on creator, game and location are only made
+ * if needed, participant counts are subqueries, and participant lists are read by a second query only
+ * if asked. Rows are maps field name -> value, serialized as EventDTO would be.
+ */
+@Repository
+public class EventProjectionRepository {
+    private static final int IN_SIZE = 500;                 // Maximal number of ids in a IN clause
+    private final EntityManager entityManager;
+
+    public EventProjectionRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param uuid Event's uuid
+     * @param fields Fields to read
+     * @return The event, or empty
+     */
+    public Optional<Map<String, Object>> findByUuid(String uuid, Set<EventField> fields) {
+        List<Map<String, Object>> result = this.find(fields,
+                projection -> projection.builder.equal(projection.event.get("uuid"), uuid));
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * @param date Date
+     * @param fields Fields to read
+     * @return Events starting after the date
+     */
+    public List<Map<String, Object>> findAllByStartingDateAfter(LocalDateTime date, Set<EventField> fields) {
+        return this.find(fields,
+                projection -> projection.builder.greaterThan(projection.event.get("startingDate"), date));
+    }
+
+    /**
+     * @param town Part of the town's name
+     * @param fields Fields to read
+     * @return Events happening in a town containing the string
+     */
+    public List<Map<String, Object>> findAllByLocationTownContaining(String town, Set<EventField> fields) {
+        return this.find(fields, projection -> projection.builder.like(projection.location().get("town"),
+                "%" + escape(town) + "%", '\\'));
+    }
+
+    /**
+     * Build and run the query
+     * @param fields Fields to read
+     * @param where Filter of the events
+     */
+    private List<Map<String, Object>> find(Set<EventField> fields, Function<Projection, Predicate> where) {
+        Projection projection = new Projection(this.entityManager.getCriteriaBuilder());
+        int id = projection.select(projection.event.get("id"));
+        for (EventField field : fields) {
+            String name = field.getName();
+            switch (field) {
+                case CREATOR: {
+                    int creatorId = projection.select(projection.creator().get("id"));
+                    int nickname = projection.select(projection.creator().get("nickname"));
+                    projection.writers.add((tuple, row) -> row.put(name, tuple.get(creatorId)==null ? null :
+                            nested("nickname", tuple.get(nickname))));
+                    break;
+                }
+                case GAME: {
+                    int gameId = projection.select(projection.game().get("id"));
+                    int uuid = projection.select(projection.game().get("uuid"));
+                    int gameName = projection.select(projection.game().get("name"));
+                    projection.writers.add((tuple, row) -> row.put(name, tuple.get(gameId)==null ? null :
+                            nested("uuid", tuple.get(uuid), "name", tuple.get(gameName))));
+                    break;
+                }
+                case LOCATION: {
+                    int locationId = projection.select(projection.location().get("id"));
+                    int town = projection.select(projection.location().get("town"));
+                    int zipCode = projection.select(projection.location().get("zipCode"));
+                    int address = projection.select(projection.location().get("address"));
+                    projection.writers.add((tuple, row) -> row.put(name, tuple.get(locationId)==null ? null :
+                            nested("town", tuple.get(town), "zipCode", tuple.get(zipCode),
+                                    "address", tuple.get(address))));
+                    break;
+                }
+                case REGISTERED_USERS:
+                case WAITING_USERS:
+                    // Read by a second query
+                    projection.writers.add((tuple, row) -> row.put(name, null));
+                    break;
+                case REGISTERED_COUNT:
+                    projection.writeValue(name, projection.builder.size(
+                            projection.event.<List<User>>get("registeredUsers")));
+                    break;
+                case WAITING_COUNT:
+                    projection.writeValue(name, projection.builder.size(
+                            projection.event.<List<User>>get("waitingUsers")));
+                    break;
+                case PRIVATE:
+                    projection.writeValue(name, projection.event.get("isPrivate"));
+                    break;
+                default:
+                    projection.writeValue(name, projection.event.get(name));
+            }
+        }
+        projection.query.multiselect(projection.selections).where(where.apply(projection));
+
+        // Rows, by event id
+        Map<Long, Map<String, Object>> rows = new LinkedHashMap<>();
+        for (Tuple tuple : this.entityManager.createQuery(projection.query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (BiConsumer<Tuple, Map<String, Object>> writer : projection.writers)
+                writer.accept(tuple, row);
+            rows.put((Long) tuple.get(id), row);
+        }
+
+        // Participants
+        if (!rows.isEmpty() && fields.contains(EventField.REGISTERED_USERS))
+            this.findNicknames("registeredUsers", rows, EventField.REGISTERED_USERS.getName());
+        if (!rows.isEmpty() && fields.contains(EventField.WAITING_USERS))
+            this.findNicknames("waitingUsers", rows, EventField.WAITING_USERS.getName());
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * Read the nicknames of a participant list of the events, by chunks of ids
+     * @param attribute Event's attribute holding the list
+     * @param rows Rows by event id
+     * @param name Field receiving the list of {nickname}
+     */
+    private void findNicknames(String attribute, Map<Long, Map<String, Object>> rows, String name) {
+        for (Map<String, Object> row : rows.values())
+            row.put(name, new ArrayList<>());
+        List<Long> ids = new ArrayList<>(rows.keySet());
+        CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+        for (int from=0; from<ids.size(); from+=IN_SIZE) {
+            CriteriaQuery<Tuple> query = builder.createTupleQuery();
+            Root<Event> event = query.from(Event.class);
+            Join<Event, User> user = event.join(attribute);
+            query.multiselect(event.get("id"), user.get("nickname"))
+                    .where(event.get("id").in(ids.subList(from, Math.min(from + IN_SIZE, ids.size()))));
+            for (Tuple tuple : this.entityManager.createQuery(query).getResultList()) {
+                @SuppressWarnings("unchecked")
+                List<Object> users = (List<Object>) rows.get((Long) tuple.get(0)).get(name);
+                users.add(nested("nickname", tuple.get(1)));
+            }
+        }
+    }
+
+    /**
+     * Build a nested object from name, value pairs
+     */
+    private static Map<String, Object> nested(Object... pairs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i=0; i<pairs.length; i+=2)
+            result.put((String) pairs[i], pairs[i+1]);
+        return result;
+    }
+
+    /**
+     * Escape the wildcards of LIKE, as Spring Data does for "Containing"
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Query being built: selections, and how to write them in a row
+     */
+    private static class Projection {
+        private final CriteriaBuilder builder;
+        private final CriteriaQuery<Tuple> query;
+        private final Root<Event> event;
+        private final List<Selection<?>> selections = new ArrayList<>();
+        private final List<BiConsumer<Tuple, Map<String, Object>>> writers = new ArrayList<>();
+        private Join<Event, User> creator;
+        private Join<Event, ?> game;
+        private Join<Event, Location> location;
+
+        private Projection(CriteriaBuilder builder) {
+            this.builder = builder;
+            this.query = builder.createTupleQuery();
+            this.event = this.query.from(Event.class);
+        }
+
+        /**
+         * Add a selection
+         * @return Its index in the tuple
+         */
+        private int select(Selection<?> selection) {
+            this.selections.add(selection);
+            return this.selections.size() - 1;
+        }
+
+        /**
+         * Add a selection written as it is in the row
+         */
+        private void writeValue(String name, Selection<?> selection) {
+            int index = this.select(selection);
+            this.writers.add((tuple, row) -> row.put(name, tuple.get(index)));
+        }
+
+        private Join<Event, User> creator() {
+            if (this.creator==null)
+                this.creator = this.event.join("creator", JoinType.LEFT);
+            return this.creator;
+        }
+
+        private Join<Event, ?> game() {
+            if (this.game==null)
+                this.game = this.event.join("game", JoinType.LEFT);
+            return this.game;
+        }
+
+        private Join<Event, Location> location() {
+            if (this.location==null)
+                this.location = this.event.join("location", JoinType.LEFT);
+            return this.location;
+        }
+    }
+}
@@ -1,17 +1,60 @@
 package fr.oukilson.backend.repository;
 
+import fr.oukilson.backend.dto.event.EventSeatsDTO;
+import fr.oukilson.backend.dto.event.EventSummaryDTO;
 import fr.oukilson.backend.entity.Event;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long> {
     Optional<Event> findByUuid(String uuid);
+
+    // Creator, game and location in the same query; participants are then loaded by batches (see @BatchSize)
+    @Query("select e from Event e left join fetch e.creator left join fetch e.game left join fetch e.location " +
+            "where e.uuid in :uuids")
+    List<Event> findAllByUuidIn(@Param("uuids") Collection<String> uuids);
     List<Event> findAllByStartingDateAfter(LocalDateTime date);
     List<Event> findAllByLocationTown(String town);
     List<Event> findAllByLocationTownContaining(String town);
     void deleteByUuid(String uuid);
+
+    @Query("select e.version from Event e where e.uuid = :uuid")
+    Optional<Long> findVersionByUuid(@Param("uuid") String uuid);
+
+    @Query("select new fr.oukilson.backend.dto.event.EventSeatsDTO(e.uuid, e.version, e.maxPlayer, " +
+            "size(e.registeredUsers), size(e.waitingUsers)) from Event e where e.uuid = :uuid")
+    Optional<EventSeatsDTO> findSeatsByUuid(@Param("uuid") String uuid);
+
+    // The version is incremented at commit even if only the location changes
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select e from Event e where e.uuid = :uuid")
+    Optional<Event> findByUuidForUpdate(@Param("uuid") String uuid);
+
+    @Query("select new fr.oukilson.backend.dto.event.EventSummaryDTO(e.id, e.uuid, e.title, e.startingDate, " +
+            "l.town, g.name) from Event e left join e.location l left join e.game g " +
+            "where e.creator.id = :userId and e.id > :after order by e.id")
+    List<EventSummaryDTO> findSummariesByCreator(@Param("userId") Long userId, @Param("after") Long after,
+                                                 Pageable pageable);
+
+    @Query("select new fr.oukilson.backend.dto.event.EventSummaryDTO(e.id, e.uuid, e.title, e.startingDate, " +
+            "l.town, g.name) from Event e join e.registeredUsers u left join e.location l left join e.game g " +
+            "where u.id = :userId and e.id > :after order by e.id")
+    List<EventSummaryDTO> findSummariesByRegisteredUser(@Param("userId") Long userId, @Param("after") Long after,
+                                                        Pageable pageable);
+
+    @Query("select new fr.oukilson.backend.dto.event.EventSummaryDTO(e.id, e.uuid, e.title, e.startingDate, " +
+            "l.town, g.name) from Event e join e.waitingUsers u left join e.location l left join e.game g " +
+            "where u.id = :userId and e.id > :after order by e.id")
+    List<EventSummaryDTO> findSummariesByWaitingUser(@Param("userId") Long userId, @Param("after") Long after,
+                                                     Pageable pageable);
 }
@@ -0,0 +1,74 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.dto.user.FeedEntryDTO;
+import fr.oukilson.backend.model.FeedEntry;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.model.Uuids;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the table feed_entry.
+ * Each user's feed is a ring buffer: a new entry overwrites the slot of the entry 'capacity' steps older.
+ */
+@Repository
+public class FeedRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public FeedRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find the sequence number of the newest entry of a feed
+     * @param ownerId Owner of the feed
+     * @return Sequence number, -1 if the feed is empty
+     */
+    public long findHead(long ownerId) {
+        Long result = this.jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(seq), -1) FROM feed_entry WHERE owner_id = ?", Long.class, ownerId);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Write entries in one batch, each one replacing the entry in its slot
+     * @param entries Entries
+     */
+    public void write(List<FeedEntry> entries) {
+        this.jdbcTemplate.batchUpdate("INSERT INTO feed_entry " +
+                        "(owner_id, slot, seq, type, actor_id, event_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE seq = VALUES(seq), type = VALUES(type), " +
+                        "actor_id = VALUES(actor_id), event_id = VALUES(event_id), created_at = VALUES(created_at)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getOwnerId());
+                    ps.setInt(2, entry.getSlot());
+                    ps.setLong(3, entry.getSeq());
+                    ps.setInt(4, entry.getType().getCode());
+                    ps.setLong(5, entry.getActorId());
+                    ps.setLong(6, entry.getEventId());
+                    ps.setTimestamp(7, Timestamp.valueOf(entry.getCreatedAt()));
+                });
+    }
+
+    /**
+     * Find the newest entries of a feed older than a sequence number.
+     * Entries whose event has been deleted are skipped.
+     * @param ownerId Owner of the feed
+     * @param before Only entries with a lower sequence number are returned
+     * @param limit Maximal number of entries
+     * @return Entries, newest first
+     */
+    public List<FeedEntryDTO> findPage(long ownerId, long before, int limit) {
+        return this.jdbcTemplate.query("SELECT f.seq, f.type, u.nickname, e.uuid, e.title, f.created_at " +
+                        "FROM feed_entry f " +
+                        "JOIN user u ON u.id = f.actor_id " +
+                        "JOIN event e ON e.id = f.event_id " +
+                        "WHERE f.owner_id = ? AND f.seq < ? ORDER BY f.seq DESC LIMIT ?",
+                (rs, i) -> new FeedEntryDTO(rs.getLong(1), FeedEntryType.fromCode(rs.getInt(2)),
+                        rs.getString(3), Uuids.fromBytes(rs.getBytes(4)), rs.getString(5),
+                        rs.getTimestamp(6).toLocalDateTime()),
+                ownerId, before, limit);
+    }
+}
@@ -0,0 +1,38 @@
+package fr.oukilson.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Plain JDBC access to the table friend_list, for the reads that don't need entities.
+ */
+@Repository
+public class FriendListRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public FriendListRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Call the consumer for each row (user_id, friend_id) of the table friend_list.
+     * Rows are read one by one, nothing is kept in memory.
+     * @param consumer Consumer of (user id, friend id)
+     */
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        this.jdbcTemplate.query("SELECT user_id, friend_id FROM friend_list",
+                rs -> { consumer.accept(rs.getLong(1), rs.getLong(2)); });
+    }
+
+    /**
+     * Find the users having a given user in their friend list
+     * @param friendId Friend's id
+     * @return Ids of the users
+     */
+    public List<Long> findUserIdsByFriendId(long friendId) {
+        return this.jdbcTemplate.queryForList("SELECT user_id FROM friend_list WHERE friend_id = ?",
+                Long.class, friendId);
+    }
+}
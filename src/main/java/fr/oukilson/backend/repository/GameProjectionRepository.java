@@ -0,0 +1,75 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.model.GameField;
+import org.springframework.stereotype.Repository;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Games read as rows holding only the fields asked by the client (sparse fieldsets).
+ * Rows are maps field name -> value, serialized as GameDTO would be.
+ */
+@Repository
+public class GameProjectionRepository {
+    private final EntityManager entityManager;
+
+    public GameProjectionRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param uuid Game's uuid
+     * @param fields Fields to read
+     * @return The game, or empty
+     */
+    public Optional<Map<String, Object>> findByUuid(String uuid, Set<GameField> fields) {
+        List<Map<String, Object>> result = this.find(fields,
+                (builder, game) -> builder.equal(game.get("uuid"), uuid));
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * @param name Part of the game's name
+     * @param fields Fields to read
+     * @return Games whose name contains the string
+     */
+    public List<Map<String, Object>> findAllByNameContaining(String name, Set<GameField> fields) {
+        return this.find(fields, (builder, game) -> builder.like(game.get("name"),
+                "%" + EventProjectionRepository.escape(name) + "%", '\\'));
+    }
+
+    private List<Map<String, Object>> find(Set<GameField> fields,
+                                           BiFunction<CriteriaBuilder, Root<Game>, Predicate> where) {
+        CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Game> game = query.from(Game.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (GameField field : fields) {
+            switch (field) {
+                case UUID:
+                case NAME:
+                case CREATOR_NAME:
+                    selections.add(game.get(field.getName()));
+                    break;
+                default:
+                    // Numbers are never null in GameDTO
+                    selections.add(builder.coalesce(game.<Integer>get(field.getName()), 0));
+            }
+        }
+        query.multiselect(selections).where(where.apply(builder, game));
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Tuple tuple : this.entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int index = 0;
+            for (GameField field : fields)
+                row.put(field.getName(), tuple.get(index++));
+            result.add(row);
+        }
+        return result;
+    }
+}
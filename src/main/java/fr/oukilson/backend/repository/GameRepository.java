@@ -2,10 +2,17 @@ package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.Game;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
     Optional<Game> findByUuid(String uuid);
+    List<Game> findAllByUuidIn(Collection<String> uuids);
     List<Game> findAllByNameContaining(String name);
+
+    @Query("select g.version from Game g where g.uuid = :uuid")
+    Optional<Long> findVersionByUuid(@Param("uuid") String uuid);
 }
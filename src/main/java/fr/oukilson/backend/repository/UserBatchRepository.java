@@ -0,0 +1,34 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+
+/**
+ * Plain JDBC writes to the table user, for bulk inserts that don't need entities to be managed.
+ */
+@Repository
+public class UserBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert users (nickname, password, email) in one JDBC batch.
+     * Ids are not read back. The batch is inserted entirely or not at all.
+     * @param users Users to insert
+     */
+    @Transactional
+    public void insertAll(List<User> users) {
+        this.jdbcTemplate.batchUpdate("INSERT INTO user (nickname, password, email) VALUES (?, ?, ?)",
+                users, users.size(), (ps, user) -> {
+                    ps.setString(1, user.getNickname());
+                    ps.setString(2, user.getPassword());
+                    ps.setString(3, user.getEmail());
+                });
+    }
+}
@@ -1,9 +1,61 @@
 package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.UserReference;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByNickname(String nickname);
-}
\ No newline at end of file
+
+    @Query("select distinct u from User u left join fetch u.friendList where u.nickname in :nicknames")
+    List<User> findAllWithFriendsByNicknameIn(@Param("nicknames") Collection<String> nicknames);
+
+    @Query("select u.password from User u where u.nickname = :nickname")
+    Optional<String> findPasswordByNickname(@Param("nickname") String nickname);
+
+    @Query("select u.nickname from User u")
+    List<String> findAllNicknames();
+
+    @Query("select u.nickname from User u where u.nickname in :nicknames")
+    List<String> findNicknamesIn(@Param("nicknames") Collection<String> nicknames);
+
+    @Query("select new fr.oukilson.backend.model.UserReference(u.id, u.nickname) from User u " +
+            "where u.nickname = :nickname")
+    Optional<UserReference> findReferenceByNickname(@Param("nickname") String nickname);
+
+    @Query("select new fr.oukilson.backend.model.UserReference(u.id, u.nickname) from User u where u.id in :ids")
+    List<UserReference> findReferencesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT friend_id FROM friend_list WHERE user_id = :userId", nativeQuery = true)
+    List<Number> findFriendIds(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT IGNORE INTO friend_list (user_id, friend_id) VALUES (:userId, :friendId)",
+            nativeQuery = true)
+    int insertFriend(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM friend_list WHERE user_id = :userId AND friend_id = :friendId", nativeQuery = true)
+    int deleteFriend(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM friend_list WHERE user_id = :userId", nativeQuery = true)
+    int deleteAllFriends(@Param("userId") Long userId);
+
+    @Query(value = "SELECT denied_id FROM denied_list WHERE user_id = :userId", nativeQuery = true)
+    List<Number> findDeniedIds(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM denied_list WHERE user_id = :userId AND denied_id = :deniedId",
+            nativeQuery = true)
+    long countDenied(@Param("userId") Long userId, @Param("deniedId") Long deniedId);
+}
@@ -0,0 +1,29 @@
+package fr.oukilson.backend.service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Results of the lookups of several keys at once
+ */
+final class Batches {
+    private Batches() {
+    }
+
+    /**
+     * Put the results found by one query back in the order of the keys asked
+     * @param keys Keys asked, maybe with duplicates
+     * @param found Results, in any order
+     * @param keyOf Key of a result
+     * @return For each key, its result, or null if not found
+     */
+    static <K, V> List<V> inOrder(List<K> keys, Collection<V> found, Function<V, K> keyOf) {
+        Map<K, V> byKey = new HashMap<>();
+        for (V value : found)
+            byKey.put(keyOf.apply(value), value);
+        List<V> result = new ArrayList<>(keys.size());
+        for (K key : keys)
+            result.add(byKey.get(key));
+        return result;
+    }
+}
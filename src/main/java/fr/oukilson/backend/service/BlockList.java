@@ -0,0 +1,116 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.BloomFilter;
+import fr.oukilson.backend.repository.UserRepository;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Check if a user has been blocked by another one (table denied_list).
+ * Each user's denied list is summarized by a Bloom filter loaded on first use, so the usual
+ * "not blocked" answer needs no database access. A positive answer of the filter is confirmed
+ * by an exact query.
+ * Filters expire after 'ttl', so the rows written in denied_list since a filter was loaded are seen.
+ * A filter loaded while its user was evicted isn't kept, as it may miss the change.
+ * Least recently used filters are evicted once the maximal number of users is reached.
+ */
+public class BlockList {
+    private static final BloomFilter NOBODY = new BloomFilter(1, 0.5);    // Nothing is ever added
+
+    private final UserRepository repository;
+    private final int maxSize;
+    private final double falsePositiveRate;
+    private final long ttl;
+    private final Map<Long, Entry> filters;
+    private final Map<Long, Object> loading = new HashMap<>();      // Token of the last load of a user
+
+    /**
+     * @param repository Repository to access the table denied_list
+     * @param maxSize Maximal number of filters kept in memory
+     * @param falsePositiveRate False positive probability of each filter
+     * @param ttl How long (in milliseconds) a filter is kept
+     */
+    public BlockList(UserRepository repository, int maxSize, double falsePositiveRate, long ttl) {
+        this.repository = repository;
+        this.maxSize = maxSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.ttl = ttl;
+        this.filters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return this.size() > BlockList.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Check if a user is in the denied list of another user
+     * @param userId Id of the user who may have blocked
+     * @param blockedId Id of the user who may be blocked
+     * @return True if userId has blocked blockedId
+     */
+    public boolean isBlocked(Long userId, Long blockedId) {
+        if (userId==null || blockedId==null)
+            return false;
+        return this.filterOf(userId).mightContain(blockedId)
+                && this.repository.countDenied(userId, blockedId) > 0;
+    }
+
+    /**
+     * Forget the filter of a user; it will be loaded again on next access.
+     * Must be called when a denied list is changed.
+     * @param userId User's id
+     */
+    public void evict(Long userId) {
+        synchronized (this.filters) {
+            this.filters.remove(userId);
+            this.loading.remove(userId);
+        }
+    }
+
+    /**
+     * Return the filter of a user, loading it if needed
+     */
+    private BloomFilter filterOf(Long userId) {
+        long now = System.currentTimeMillis();
+        Object token = new Object();
+        synchronized (this.filters) {
+            Entry entry = this.filters.get(userId);
+            if (entry!=null) {
+                if (now <= entry.expiresAt)
+                    return entry.filter;
+                this.filters.remove(userId);
+            }
+            this.loading.put(userId, token);
+        }
+
+        // Load outside the lock: a slow query must not block the other users
+        BloomFilter result;
+        List<Number> ids = this.repository.findDeniedIds(userId);
+        if (ids.isEmpty())
+            result = NOBODY;
+        else {
+            result = new BloomFilter(ids.size(), this.falsePositiveRate);
+            for (Number id : ids)
+                result.put(id.longValue());
+        }
+        synchronized (this.filters) {
+            // Kept only if the user hasn't been evicted meanwhile
+            if (this.loading.remove(userId, token))
+                this.filters.put(userId, new Entry(result, now + this.ttl));
+        }
+        return result;
+    }
+
+    private static class Entry {
+        private final BloomFilter filter;
+        private final long expiresAt;               // Expiration timestamp in milliseconds
+
+        private Entry(BloomFilter filter, long expiresAt) {
+            this.filter = filter;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
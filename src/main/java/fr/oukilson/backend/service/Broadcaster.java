@@ -0,0 +1,300 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of changes to the subscribers of a topic (an event's uuid for instance).
+ * Subscribers cost no thread while idle: each one has an outbox, drained by a small pool only when it
+ * holds something, so publishing a change never waits for a subscriber. Changes published faster than
+ * a subscriber takes them are coalesced: it gets the last one, so payloads must carry all the state.
+ * Every 'heartbeat', subscribers are pinged through their outbox, which finds the ones whose client is gone.
+ * A subscriber failing to send is dropped, and so is one receiving more than 'outboxSize' changes and pings
+ * while a single send is blocked on its client. A dropped subscriber is closed once its blocked send
+ * returns, which the connector's write timeout bounds; its client reconnects and gets the whole state.
+ * Published in the meter registry, tagged with its name: the gauge broadcaster.subscribers, and
+ * broadcaster.dropped counting the dropped subscribers.
+ */
+public class Broadcaster<T> {
+    private final Map<String, Map<Subscriber<T>, Outbox>> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int outboxSize;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService heartbeat;
+    private final Counter dropped;
+
+    /**
+     * @param name Name of the threads and metrics
+     * @param threads Number of threads sending the changes
+     * @param heartbeat Time (in milliseconds) between two pings of the subscribers
+     * @param outboxSize Number of changes and pings a subscriber may get during one send before being dropped
+     * @param registry Registry of the metrics
+     */
+    public Broadcaster(String name, int threads, long heartbeat, int outboxSize, MeterRegistry registry) {
+        this.outboxSize = outboxSize;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(factory);
+        this.heartbeat.scheduleWithFixedDelay(this::ping, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        registry.gauge("broadcaster.subscribers", Tags.of("name", name), this.size, AtomicInteger::get);
+        this.dropped = Counter.builder("broadcaster.dropped")
+                .description("Subscribers dropped because sending to them failed or fell behind")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * Add a subscriber to a topic
+     * @param topic Topic
+     * @param subscriber Subscriber
+     */
+    public void subscribe(String topic, Subscriber<T> subscriber) {
+        // Added in compute, so an unsubscribe emptying the topic can't remove its map meanwhile
+        this.topics.compute(topic, (t, subscribers) -> {
+            Map<Subscriber<T>, Outbox> result = subscribers==null ? new ConcurrentHashMap<>() : subscribers;
+            if (result.putIfAbsent(subscriber, new Outbox(topic, subscriber))==null)
+                this.size.incrementAndGet();
+            return result;
+        });
+    }
+
+    /**
+     * Remove a subscriber from a topic
+     * @param topic Topic
+     * @param subscriber Subscriber
+     */
+    public void unsubscribe(String topic, Subscriber<T> subscriber) {
+        this.topics.computeIfPresent(topic, (t, subscribers) -> {
+            if (subscribers.remove(subscriber)!=null)
+                this.size.decrementAndGet();
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * Send a change to the subscribers of a topic, in the background
+     * @param topic Topic
+     * @param payload Whole state of the topic
+     */
+    public void publish(String topic, T payload) {
+        Map<Subscriber<T>, Outbox> subscribers = this.topics.get(topic);
+        if (subscribers!=null)
+            subscribers.values().forEach(outbox -> outbox.offer(payload));
+    }
+
+    /**
+     * Publish a change once the current transaction commits, so subscribers never see a change rolled back.
+     * Without transaction, it's published right away.
+     * @param topic Topic
+     * @param payload Whole state of the topic, built when publishing
+     */
+    public void publishAfterCommit(String topic, Supplier<T> payload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    Broadcaster.this.publish(topic, payload.get());
+                }
+            });
+        }
+        else
+            this.publish(topic, payload.get());
+    }
+
+    /**
+     * Close all the subscribers of a topic, like when its entity is deleted
+     * @param topic Topic
+     */
+    public void close(String topic) {
+        Map<Subscriber<T>, Outbox> subscribers = this.topics.remove(topic);
+        if (subscribers!=null) {
+            this.size.addAndGet(-subscribers.size());
+            subscribers.values().forEach(Outbox::close);
+        }
+    }
+
+    /**
+     * Close the subscribers of a topic once the current transaction commits, so a deletion rolled back
+     * doesn't close the streams of an entity still there. Without transaction, they're closed right away.
+     * @param topic Topic
+     */
+    public void closeAfterCommit(String topic) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    Broadcaster.this.close(topic);
+                }
+            });
+        }
+        else
+            this.close(topic);
+    }
+
+    /**
+     * @return Number of subscribers of all the topics
+     */
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Stop the threads
+     */
+    public void shutdown() {
+        this.heartbeat.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Ask a ping of all the subscribers
+     */
+    private void ping() {
+        this.topics.values().forEach(subscribers -> subscribers.values().forEach(outbox -> outbox.offer(null)));
+    }
+
+    private void drop(Outbox outbox) {
+        if (outbox.close()) {
+            this.dropped.increment();
+            this.unsubscribe(outbox.topic, outbox.subscriber);
+        }
+    }
+
+    /**
+     * What is waiting to be sent to a subscriber, and its drain on the pool
+     */
+    private class Outbox implements Runnable {
+        private final String topic;
+        private final Subscriber<T> subscriber;
+        // Guarded by this
+        private T payload;                  // Newest payload not sent yet
+        private boolean ping;               // Ping asked and not done yet
+        private int backlog;                // Changes and pings given since the drain last took them
+        private boolean scheduled;          // A drain is waiting for a thread or running
+        private boolean closed;
+
+        private Outbox(String topic, Subscriber<T> subscriber) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Give a change, or a ping if null, and start a drain if none is running
+         */
+        private void offer(T message) {
+            boolean overflow = false;
+            boolean schedule = false;
+            synchronized (this) {
+                if (this.closed)
+                    return;
+                if (++this.backlog > Broadcaster.this.outboxSize)
+                    overflow = true;
+                else {
+                    if (message==null)
+                        this.ping = true;
+                    else
+                        this.payload = message;
+                    schedule = !this.scheduled;
+                    this.scheduled = true;
+                }
+            }
+            if (overflow)
+                Broadcaster.this.drop(this);
+            else if (schedule) {
+                try {
+                    Broadcaster.this.executor.execute(this);
+                }
+                catch (RejectedExecutionException e) {
+                    // Shut down
+                }
+            }
+        }
+
+        /**
+         * Stop sending; the subscriber is closed now, or by the running drain once its send returns
+         * @return False if already closed
+         */
+        private boolean close() {
+            synchronized (this) {
+                if (this.closed)
+                    return false;
+                this.closed = true;
+                this.payload = null;
+                if (this.scheduled)
+                    return true;
+            }
+            this.subscriber.close();
+            return true;
+        }
+
+        /**
+         * Send what is waiting until the outbox is empty. A ping is useless after a payload.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                T message;
+                synchronized (this) {
+                    if (this.closed) {
+                        this.scheduled = false;
+                        break;
+                    }
+                    if (this.payload==null && !this.ping) {
+                        this.scheduled = false;
+                        return;
+                    }
+                    message = this.payload;
+                    this.payload = null;
+                    this.ping = false;
+                    this.backlog = 0;
+                }
+                try {
+                    if (message!=null)
+                        this.subscriber.send(message);
+                    else
+                        this.subscriber.ping();
+                }
+                catch (Exception e) {
+                    Broadcaster.this.drop(this);
+                }
+            }
+            this.subscriber.close();
+        }
+    }
+
+    /**
+     * Receiver of the changes of a topic
+     */
+    public interface Subscriber<T> {
+        /**
+         * Send a change
+         * @param payload Whole state of the topic
+         * @throws Exception If the subscriber can't receive anymore
+         */
+        void send(T payload) throws Exception;
+
+        /**
+         * Check the subscriber can still receive
+         * @throws Exception If the subscriber can't receive anymore
+         */
+        void ping() throws Exception;
+
+        /**
+         * End the subscription
+         */
+        void close();
+    }
+}
@@ -0,0 +1,113 @@
+package fr.oukilson.backend.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit of the requests in flight, adapted to their measured latency (AIMD), so a request is refused
+ * right away instead of queueing in the pools once the server is saturated.
+ *
+ * Latency is followed by two moving averages: a short one, over the last few requests, and a long one,
+ * the usual latency. When the short one goes over 'tolerance' times the long one, requests are queueing:
+ * the limit is multiplied by 'backoff', at most once per limit's worth of requests, so the requests
+ * already in flight don't divide it again. Otherwise, while at least half the limit is used, it grows
+ * by one per limit's worth of requests. It stays between 'minLimit' and 'maxLimit'.
+ *
+ * Each request asks with a share of the limit it may fill: with a smaller share, a request is refused
+ * first, leaving room to the requests with a larger one.
+ */
+public class ConcurrencyLimiter {
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private volatile int limit;
+    // Guarded by this
+    private double exactLimit;
+    private double shortLatency;
+    private double longLatency;
+    private int samplesSinceDecrease;
+
+    /**
+     * @param initialLimit Limit until the first latencies are known
+     * @param minLimit Lowest limit
+     * @param maxLimit Highest limit
+     * @param tolerance Ratio of the recent latency to the usual one from which the limit decreases
+     * @param backoff Ratio applied to the limit when it decreases
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit)
+            throw new IllegalArgumentException("Concurrency limiter : limits must be 1 <= min <= initial <= max");
+        if (tolerance <= 1 || backoff <= 0 || backoff >= 1)
+            throw new IllegalArgumentException("Concurrency limiter : tolerance must be above 1, backoff in ]0, 1[");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.exactLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Take a place for a request, to be given back with release
+     * @param share Share of the limit the request may fill, in ]0, 1]
+     * @return True if taken, false if the request must be refused
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (this.limit * share));
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= allowed)
+                return false;
+            if (this.inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Give back the place of a finished request, and adapt the limit to its latency
+     * @param latency Time (in nanoseconds) the request took
+     */
+    public void release(long latency) {
+        int current = this.inFlight.getAndDecrement();
+        this.update(latency, current);
+    }
+
+    /**
+     * @return Current limit
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * @return Number of requests in flight
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    private synchronized void update(long latency, int inFlight) {
+        if (this.longLatency==0) {
+            this.shortLatency = latency;
+            this.longLatency = latency;
+        }
+        else {
+            this.shortLatency += (latency - this.shortLatency) / SHORT_WINDOW;
+            this.longLatency += (latency - this.longLatency) / LONG_WINDOW;
+        }
+        this.samplesSinceDecrease++;
+
+        if (this.shortLatency > this.tolerance * this.longLatency) {
+            if (this.samplesSinceDecrease >= this.exactLimit) {
+                this.exactLimit = Math.max(this.minLimit, this.exactLimit * this.backoff);
+                this.samplesSinceDecrease = 0;
+            }
+        }
+        else if (inFlight * 2 >= this.exactLimit)
+            this.exactLimit = Math.min(this.maxLimit, this.exactLimit + 1 / this.exactLimit);
+        this.limit = (int) this.exactLimit;
+    }
+}
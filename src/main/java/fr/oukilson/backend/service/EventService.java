@@ -5,29 +5,86 @@ import fr.oukilson.backend.entity.Event;
 import fr.oukilson.backend.entity.Game;
 import fr.oukilson.backend.entity.Location;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.model.EventField;
+import fr.oukilson.backend.model.EventRole;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.model.Uuids;
+import fr.oukilson.backend.repository.EventProjectionRepository;
 import fr.oukilson.backend.repository.EventRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
 import fr.oukilson.backend.repository.UserRepository;
+import org.hibernate.Hibernate;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 
 public class EventService {
     private EventRepository repository;
     private UserRepository userRepository;
     private GameRepository gameRepository;
     private LocationRepository locationRepository;
+    private EventProjectionRepository projectionRepository;
     private ModelMapper mapper;
+    private EventMapper eventMapper;
+    private NicknameCache nicknameCache;
+    private BlockList blockList;
+    private FeedService feedService;
+    private VersionCache versionCache;
+    private Broadcaster<EventSeatsDTO> seats;
 
     public EventService(EventRepository repository, UserRepository userRepository, GameRepository gameRepository,
-                        LocationRepository locationRepository, ModelMapper mapper) {
+                        LocationRepository locationRepository, EventProjectionRepository projectionRepository,
+                        ModelMapper mapper, EventMapper eventMapper,
+                        NicknameCache nicknameCache, BlockList blockList, FeedService feedService,
+                        VersionCache versionCache, Broadcaster<EventSeatsDTO> seats) {
         this.repository = repository;
         this.userRepository = userRepository;
         this.gameRepository = gameRepository;
         this.locationRepository = locationRepository;
+        this.projectionRepository = projectionRepository;
         this.mapper = mapper;
+        this.eventMapper = eventMapper;
+        this.nicknameCache = nicknameCache;
+        this.blockList = blockList;
+        this.feedService = feedService;
+        this.versionCache = versionCache;
+        this.seats = seats;
+    }
+
+    /**
+     * Find a user by its nickname and return a reference to it, without loading the whole user.
+     * @param nickname User's nickname
+     * @return The user or null if not found
+     */
+    private User findUserReference(String nickname) {
+        Optional<UserReference> reference = this.nicknameCache.resolve(nickname);
+        return reference.map(r -> this.userRepository.getById(r.getId())).orElse(null);
+    }
+
+    /**
+     * Push the seats of an event to its live subscribers, once the change is committed
+     * @param event Event, with its participants loaded
+     */
+    private void publishSeats(Event event) {
+        this.seats.publishAfterCommit(event.getUuid(), () -> new EventSeatsDTO(event.getUuid(), event.getVersion(),
+                event.getMaxPlayer(), event.getRegisteredUsers().size(), event.getWaitingUsers().size()));
+    }
+
+    /**
+     * Check if a user has been blocked by the creator of an event
+     * @param event Event
+     * @param user User
+     * @return True if blocked
+     */
+    private boolean isBlockedByCreator(Event event, User user) {
+        return event.getCreator()!=null && this.blockList.isBlocked(event.getCreator().getId(), user.getId());
     }
 
     /**
@@ -35,16 +92,62 @@ public class EventService {
      * @param uuid Event's uuid
      * @return EventDTO
      */
+    @Transactional(readOnly = true)
     public EventDTO findByUuid(String uuid) {
         Event event =  this.repository.findByUuid(uuid).orElse(null);
         EventDTO result;
         if (event==null)
             result = null;
         else
-            result = this.mapper.map(event, EventDTO.class);
+            result = this.eventMapper.toDTO(event);
         return result;
     }
 
+    /**
+     * Find several events by their uuid, with one query for the events and their creator, game and location,
+     * and one for each list of participants.
+     * The events are returned as entities, written straight to the response by EventJsonComponent.
+     * @param uuids Events' uuid
+     * @return For each uuid, in the same order, its event or null if not found
+     */
+    @Transactional(readOnly = true)
+    public List<Event> findAllByUuid(List<String> uuids) {
+        List<Event> events = this.repository.findAllByUuidIn(new HashSet<>(uuids));
+        for (Event event : events) {
+            Hibernate.initialize(event.getRegisteredUsers());
+            Hibernate.initialize(event.getWaitingUsers());
+        }
+        return Batches.inOrder(uuids, events, Event::getUuid);
+    }
+
+    /**
+     * Find the seats of an event, with one query
+     * @param uuid Event's uuid
+     * @return EventSeatsDTO, or null if not found
+     */
+    public EventSeatsDTO findSeats(String uuid) {
+        return this.repository.findSeatsByUuid(uuid).orElse(null);
+    }
+
+    /**
+     * Find an event by its uuid and return only some of its fields
+     * @param uuid Event's uuid
+     * @param fields Fields to return
+     * @return Map field name -> value, or null if not found
+     */
+    public Map<String, Object> findByUuid(String uuid, Set<EventField> fields) {
+        return this.projectionRepository.findByUuid(uuid, fields).orElse(null);
+    }
+
+    /**
+     * Find the version of an event, without loading it
+     * @param uuid Event's uuid
+     * @return The version, or null if the event doesn't exist
+     */
+    public Long findVersion(String uuid) {
+        return this.versionCache.find(uuid);
+    }
+
     /**
      * Delete an event by its uuid
      * @param uuid Event's uuid
@@ -52,6 +155,8 @@ public class EventService {
     @Transactional
     public void deleteByUuid(String uuid) {
         this.repository.deleteByUuid(uuid);
+        this.versionCache.invalidate(uuid);
+        this.seats.closeAfterCommit(uuid);
     }
 
     /**
@@ -59,6 +164,7 @@ public class EventService {
      * @param toCreate The event to add
      * @return The created event
      */
+    @Transactional
     public EventDTO save(EventCreateDTO toCreate)
             throws NoSuchElementException, IllegalArgumentException, NullPointerException {
         // Check data
@@ -69,10 +175,10 @@ public class EventService {
         // Get the user creator and the game
         Event event = this.mapper.map(toCreate, Event.class);
         event.setCreationDate(rightNow);
-        event.setUuid(UUID.randomUUID().toString());
+        event.setUuid(Uuids.generate());
         try {
-            Optional<User> user = this.userRepository.findByNickname(toCreate.getCreator().getNickname());
-            event.setCreator(user.get());
+            Optional<UserReference> user = this.nicknameCache.resolve(toCreate.getCreator().getNickname());
+            event.setCreator(this.userRepository.getById(user.get().getId()));
             Optional<Game> game = this.gameRepository.findByUuid(toCreate.getGame().getUuid());
             event.setGame(game.get());
         }
@@ -84,7 +190,8 @@ public class EventService {
         event.getLocation().setEvent(event);
         Location location = this.locationRepository.save(event.getLocation());
         event.setLocation(location);
-        return this.mapper.map(event, EventDTO.class);
+        this.feedService.publish(FeedEntryType.CREATED, event.getCreator().getId(), event.getId());
+        return this.eventMapper.toDTO(event);
     }
 
     /**
@@ -92,10 +199,11 @@ public class EventService {
      * @param toUpdate The event to update
      * @return The updated event
      */
+    @Transactional
     public EventDTO update(EventUpdateDTO toUpdate)
             throws NoSuchElementException, IllegalArgumentException, NullPointerException {
         // Find the event to update
-        Event event = this.repository.findByUuid(toUpdate.getUuid()).orElse(null);
+        Event event = this.repository.findByUuidForUpdate(toUpdate.getUuid()).orElse(null);
         if (event==null)
             throw new NoSuchElementException("Event update : Unknown event");
 
@@ -121,7 +229,9 @@ public class EventService {
         else
             this.repository.save(event);
 
-        return this.mapper.map(event, EventDTO.class);
+        this.versionCache.invalidate(event.getUuid());
+        this.publishSeats(event);
+        return this.eventMapper.toDTO(event);
     }
 
     /**
@@ -129,33 +239,101 @@ public class EventService {
      * - date after the provided date
      * - happening in a town
      * If both filters are used, the date will be default choice.
+     * The events are returned as entities, with their participants loaded, and written straight to the
+     * response by EventJsonComponent: no EventDTO is built for a search.
+     * @param date Date in a string format
+     * @param town Town's name
+     * @return List<Event>
+     */
+    @Transactional(readOnly = true)
+    public List<Event> findByFilter(String date, String town) {
+        List<Event> events = search(date, town, this.repository::findAllByStartingDateAfter,
+                this.repository::findAllByLocationTownContaining);
+
+        // Participants are loaded by batches of events (see @BatchSize), before the transaction ends
+        for (Event event : events) {
+            Hibernate.initialize(event.getRegisteredUsers());
+            Hibernate.initialize(event.getWaitingUsers());
+        }
+        return events;
+    }
+
+    /**
+     * Search for events as findByFilter does, and return only some of their fields.
+     * Only the columns and joins needed by the fields are read.
+     * @param date Date in a string format
+     * @param town Town's name
+     * @param fields Fields to return
+     * @return List of maps field name -> value
+     */
+    public List<Map<String, Object>> findByFilter(String date, String town, Set<EventField> fields) {
+        return search(date, town,
+                pointInTime -> this.projectionRepository.findAllByStartingDateAfter(pointInTime, fields),
+                name -> this.projectionRepository.findAllByLocationTownContaining(name, fields));
+    }
+
+    /**
+     * Choose the search to run from the filters
      * @param date Date in a string format
      * @param town Town's name
-     * @return List<EventDTO>
+     * @param byDate Search of the events after a date
+     * @param byTown Search of the events in a town
+     * @return Result of the search, empty if there's no valid filter
      */
-    public List<EventDTO> findByFilter(String date, String town) {
-        // Get events
-        List<Event> events;
+    private static <T> List<T> search(String date, String town, Function<LocalDateTime, List<T>> byDate,
+                                      Function<String, List<T>> byTown) {
+        List<T> result;
         if (date!=null && !date.isBlank()) {
-            LocalDateTime pointInTime;
             try {
-                pointInTime = LocalDateTime.parse(date);
-                events = this.repository.findAllByStartingDateAfter(pointInTime);
+                result = byDate.apply(LocalDateTime.parse(date));
             }
             catch (Exception e) {
                 if (town!=null && !town.isBlank())
-                    events = this.repository.findAllByLocationTownContaining(town);
+                    result = byTown.apply(town);
                 else
-                    events = new ArrayList<>();
+                    result = new ArrayList<>();
             }
         } else if (town!=null && !town.isBlank()) {
-            events = this.repository.findAllByLocationTownContaining(town);
+            result = byTown.apply(town);
         } else
-            events = new ArrayList<>();
+            result = new ArrayList<>();
+        return result;
+    }
 
-        // Construct result
-        List<EventDTO> result = new ArrayList<>();
-        events.forEach(e -> result.add(this.mapper.map(e, EventDTO.class)));
+    /**
+     * Find the events a user takes part in, ordered by creation, one page at a time
+     * @param nickname User's nickname
+     * @param role Part the user takes in the events
+     * @param after Only events after this one are returned (value of 'next' of the previous page); null for the first page
+     * @param limit Maximal number of events
+     * @return EventPageDTO, or null if the user doesn't exist
+     */
+    public EventPageDTO findByUser(String nickname, EventRole role, Long after, int limit) {
+        Optional<UserReference> user = this.nicknameCache.resolve(nickname);
+        if (user.isEmpty())
+            return null;
+
+        // One more event tells if there's a next page
+        Long userId = user.get().getId();
+        Long from = after==null ? 0L : after;
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<EventSummaryDTO> events;
+        switch (role) {
+            case CREATOR:
+                events = this.repository.findSummariesByCreator(userId, from, page);
+                break;
+            case REGISTERED:
+                events = this.repository.findSummariesByRegisteredUser(userId, from, page);
+                break;
+            default:
+                events = this.repository.findSummariesByWaitingUser(userId, from, page);
+        }
+        EventPageDTO result = new EventPageDTO();
+        if (events.size() > limit) {
+            events = new ArrayList<>(events.subList(0, limit));
+            result.setNext(events.get(limit - 1).getId());
+        }
+        result.setEvents(events);
         return result;
     }
 
@@ -166,9 +344,11 @@ public class EventService {
      * - event doesn't exist
      * - user is already in the queue
      * - the event's queue is full
+     * - user is in the denied list of the event's creator
      * @param tuple EventAddUserDTO
      * @return True if added
      */
+    @Transactional
     public boolean addUserInEvent(EventAddUserDTO tuple) {
         boolean result;
 
@@ -181,12 +361,17 @@ public class EventService {
             if (event==null)
                 result = false;
             else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
+                User user = this.findUserReference(tuple.getNickname());
+                if (user==null || this.isBlockedByCreator(event, user))
                     result = false;
                 else {
                     result = event.addUser(user);
                     this.repository.save(event);
+                    this.versionCache.invalidate(event.getUuid());
+                    if (result) {
+                        this.feedService.publish(FeedEntryType.REGISTERED, user.getId(), event.getId());
+                        this.publishSeats(event);
+                    }
                 }
             }
         }
@@ -200,9 +385,11 @@ public class EventService {
      * - event doesn't exist
      * - user is already in the waiting queue
      * - the event's waiting queue is full
+     * - user is in the denied list of the event's creator
      * @param tuple EventAddUserDTO
      * @return True if added
      */
+    @Transactional
     public boolean addUserInEventInWaitingQueue(EventAddUserDTO tuple) {
         boolean result;
 
@@ -215,12 +402,15 @@ public class EventService {
             if (event==null)
                 result = false;
             else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
+                User user = this.findUserReference(tuple.getNickname());
+                if (user==null || this.isBlockedByCreator(event, user))
                     result = false;
                 else {
                     result = event.addUserInWaitingQueue(user);
                     this.repository.save(event);
+                    this.versionCache.invalidate(event.getUuid());
+                    if (result)
+                        this.publishSeats(event);
                 }
             }
         }
@@ -236,6 +426,7 @@ public class EventService {
      * @param tuple EventRemoveUserDTO
      * @return True if removed
      */
+    @Transactional
     public boolean removeUserInEvent(EventRemoveUserDTO tuple) {
         boolean result;
 
@@ -248,12 +439,15 @@ public class EventService {
             if (event==null)
                 result = false;
             else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
+                User user = this.findUserReference(tuple.getNickname());
                 if (user==null)
                     result = false;
                 else {
                     result = event.removeUser(user);
                     this.repository.save(event);
+                    this.versionCache.invalidate(event.getUuid());
+                    if (result)
+                        this.publishSeats(event);
                 }
             }
         }
@@ -269,6 +463,7 @@ public class EventService {
      * @param tuple EventRemoveUserDTO
      * @return True if removed
      */
+    @Transactional
     public boolean removeUserInWaitingQueue(EventRemoveUserDTO tuple) {
         boolean result;
 
@@ -281,12 +476,15 @@ public class EventService {
             if (event==null)
                 result = false;
             else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
+                User user = this.findUserReference(tuple.getNickname());
                 if (user==null)
                     result = false;
                 else {
                     result = event.removeUserInWaitingQueue(user);
                     this.repository.save(event);
+                    this.versionCache.invalidate(event.getUuid());
+                    if (result)
+                        this.publishSeats(event);
                 }
             }
         }
@@ -0,0 +1,162 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.user.FeedEntryDTO;
+import fr.oukilson.backend.model.FeedEntry;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.FeedRepository;
+import fr.oukilson.backend.repository.FriendListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Friend activity feeds, written when the activity happens (fan-out on write).
+ * When a user creates or joins an event, an entry is written in the feed of every user having him as
+ * a friend. Each feed is a ring buffer of 'capacity' entries, so reading a feed is a single range scan.
+ * The sequence number of the newest entry of each feed is loaded on first write, then kept in memory
+ * for the 'maxHeads' feeds written last; this assumes a single instance writes the feeds.
+ * Entries are written once the activity's transaction commits, by a single background writer, so
+ * the caller doesn't wait for the fan-out and a rolled back activity is never published. When more
+ * than 'queueSize' activities wait, new ones are dropped from the feeds.
+ */
+@Slf4j
+public class FeedService {
+    private final FeedRepository feedRepository;
+    private final FriendListRepository friendListRepository;
+    private final NicknameCache nicknameCache;
+    private final int capacity;
+    private final Executor executor;
+    private final Map<Long, Long> heads;            // Owner -> newest seq, only used by the writer
+
+    /**
+     * @param capacity Number of entries kept in each feed
+     * @param maxHeads Number of feeds whose newest sequence number is kept in memory
+     * @param queueSize Maximal number of activities waiting to be written
+     */
+    public FeedService(FeedRepository feedRepository, FriendListRepository friendListRepository,
+                       NicknameCache nicknameCache, int capacity, int maxHeads, int queueSize) {
+        this(feedRepository, friendListRepository, nicknameCache, capacity, maxHeads,
+                new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                        r -> {
+                            Thread thread = new Thread(r, "feed-writer");
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    /**
+     * @param capacity Number of entries kept in each feed
+     * @param maxHeads Number of feeds whose newest sequence number is kept in memory
+     * @param executor Executor of the writes, running them one at a time
+     */
+    public FeedService(FeedRepository feedRepository, FriendListRepository friendListRepository,
+                       NicknameCache nicknameCache, int capacity, int maxHeads, Executor executor) {
+        this.feedRepository = feedRepository;
+        this.friendListRepository = friendListRepository;
+        this.nicknameCache = nicknameCache;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.heads = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return this.size() > maxHeads;
+            }
+        };
+    }
+
+    /**
+     * Write an activity in the feeds of the actor's followers, once the current transaction commits.
+     * Without transaction, it's written right away, still in the background.
+     * Feeds are secondary: a failure is logged and doesn't reach the caller.
+     * @param type Type of activity
+     * @param actorId Id of the user who did it
+     * @param eventId Id of the event
+     */
+    public void publish(FeedEntryType type, Long actorId, Long eventId) {
+        if (actorId==null || eventId==null)
+            return;
+        LocalDateTime now = LocalDateTime.now();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    FeedService.this.submit(type, actorId, eventId, now);
+                }
+            });
+        }
+        else
+            this.submit(type, actorId, eventId, now);
+    }
+
+    /**
+     * Stop the writer; activities still waiting are lost
+     */
+    public void shutdown() {
+        if (this.executor instanceof ExecutorService)
+            ((ExecutorService) this.executor).shutdownNow();
+    }
+
+    /**
+     * Hand an activity to the writer
+     */
+    private void submit(FeedEntryType type, Long actorId, Long eventId, LocalDateTime now) {
+        try {
+            this.executor.execute(() -> this.write(type, actorId, eventId, now));
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("Feed entries of user {} for event {} dropped, too many waiting", actorId, eventId);
+        }
+    }
+
+    /**
+     * Write an activity in the feeds of the actor's followers
+     */
+    private void write(FeedEntryType type, Long actorId, Long eventId, LocalDateTime now) {
+        try {
+            List<Long> owners = this.friendListRepository.findUserIdsByFriendId(actorId);
+            if (owners.isEmpty())
+                return;
+            List<FeedEntry> entries = new ArrayList<>(owners.size());
+            for (Long owner : owners) {
+                long seq = this.nextSeq(owner);
+                entries.add(new FeedEntry(owner, (int) (seq % this.capacity), seq, type, actorId, eventId, now));
+            }
+            this.feedRepository.write(entries);
+        }
+        catch (DataAccessException e) {
+            log.warn("Feed entries of user {} for event {} not written", actorId, eventId, e);
+        }
+    }
+
+    /**
+     * Find the newest entries of a user's feed
+     * @param nickname User's nickname
+     * @param before Only entries older than this sequence number are returned; null for the newest
+     * @param limit Maximal number of entries
+     * @return Entries, newest first, or null if the user doesn't exist
+     */
+    public List<FeedEntryDTO> findFeed(String nickname, Long before, int limit) {
+        Optional<UserReference> user = this.nicknameCache.resolve(nickname);
+        if (user.isEmpty())
+            return null;
+        return this.feedRepository.findPage(user.get().getId(), before==null ? Long.MAX_VALUE : before,
+                Math.min(limit, this.capacity));
+    }
+
+    /**
+     * Take the next sequence number of a feed, loading its newest one if needed
+     */
+    private long nextSeq(Long owner) {
+        Long head = this.heads.get(owner);
+        if (head==null)
+            head = this.feedRepository.findHead(owner);
+        this.heads.put(owner, head + 1);
+        return head + 1;
+    }
+}
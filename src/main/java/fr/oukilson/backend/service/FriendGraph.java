@@ -0,0 +1,191 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.repository.UserRepository;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Friend lists kept as sorted arrays of user ids.
+ * A friend list is loaded from the table friend_list the first time it is needed, then membership
+ * checks are a binary search. Changes are written with single-row inserts and deletes, the User
+ * entity (and its friends) is never loaded.
+ * Least recently used friend lists are evicted once the maximal number of users is reached.
+ * Loads and changes of a friend list are serialized by a lock striped by user, so a list loaded while it's
+ * changed can't be cached without the change, and two concurrent adds can't both insert. Across instances,
+ * the unique key of friend_list makes the second insert a no-op.
+ */
+public class FriendGraph {
+    private static final long[] EMPTY = new long[0];
+    private static final int STRIPES = 64;
+
+    private final UserRepository repository;
+    private final int maxSize;
+    private final Map<Long, long[]> friends;
+    private final Object[] locks = new Object[STRIPES];
+
+    /**
+     * @param repository Repository to access the table friend_list
+     * @param maxSize Maximal number of friend lists kept in memory
+     */
+    public FriendGraph(UserRepository repository, int maxSize) {
+        this.repository = repository;
+        this.maxSize = maxSize;
+        this.friends = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return this.size() > FriendGraph.this.maxSize;
+            }
+        };
+        for (int i=0; i<STRIPES; i++)
+            this.locks[i] = new Object();
+    }
+
+    /**
+     * Return the friends' ids of a user, sorted in ascending order.
+     * The returned array must not be modified.
+     * @param userId User's id
+     * @return long[]
+     */
+    public long[] friendsOf(Long userId) {
+        long[] result;
+        synchronized (this.friends) {
+            result = this.friends.get(userId);
+        }
+        if (result==null) {
+            synchronized (this.lockOf(userId)) {
+                synchronized (this.friends) {
+                    result = this.friends.get(userId);
+                }
+                if (result==null) {
+                    result = this.load(userId);
+                    synchronized (this.friends) {
+                        this.friends.put(userId, result);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if a user is in the friend list of another user
+     * @param userId User's id
+     * @param friendId Friend's id
+     * @return True if friendId is a friend of userId
+     */
+    public boolean isFriend(Long userId, Long friendId) {
+        return Arrays.binarySearch(this.friendsOf(userId), friendId) >= 0;
+    }
+
+    /**
+     * Add a user in a friend list.
+     * @param userId Id of the user whose friend list is altered
+     * @param friendId Id of the friend to add
+     * @return True if added, false if already in the friend list
+     */
+    public boolean addFriend(Long userId, Long friendId) {
+        boolean result;
+        synchronized (this.lockOf(userId)) {
+            if (this.isFriend(userId, friendId))
+                result = false;
+            else {
+                // No row inserted: added meanwhile by another instance
+                result = this.repository.insertFriend(userId, friendId) > 0;
+                synchronized (this.friends) {
+                    long[] current = this.friends.get(userId);
+                    if (current!=null)
+                        this.friends.put(userId, insert(current, friendId));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove a user from a friend list.
+     * @param userId Id of the user whose friend list is altered
+     * @param friendId Id of the friend to remove
+     * @return True if removed, false if not in the friend list
+     */
+    public boolean removeFriend(Long userId, Long friendId) {
+        boolean result;
+        synchronized (this.lockOf(userId)) {
+            if (!this.isFriend(userId, friendId))
+                result = false;
+            else {
+                result = this.repository.deleteFriend(userId, friendId) > 0;
+                synchronized (this.friends) {
+                    long[] current = this.friends.get(userId);
+                    if (current!=null)
+                        this.friends.put(userId, remove(current, friendId));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget the friend list of a user; it will be loaded again on next access.
+     * @param userId User's id
+     */
+    public void evict(Long userId) {
+        synchronized (this.lockOf(userId)) {
+            synchronized (this.friends) {
+                this.friends.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Lock of the friend list of a user
+     */
+    private Object lockOf(Long userId) {
+        return this.locks[Math.floorMod(Long.hashCode(userId), STRIPES)];
+    }
+
+    /**
+     * Load a friend list from the database
+     * @param userId User's id
+     * @return Sorted array of ids
+     */
+    private long[] load(Long userId) {
+        List<Number> ids = this.repository.findFriendIds(userId);
+        if (ids.isEmpty())
+            return EMPTY;
+        long[] result = new long[ids.size()];
+        for (int i=0; i<result.length; i++)
+            result[i] = ids.get(i).longValue();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Return a copy of a sorted array with a new value inserted at its place
+     */
+    private static long[] insert(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index >= 0)
+            return array;
+        index = -index - 1;
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    /**
+     * Return a copy of a sorted array without the provided value
+     */
+    private static long[] remove(long[] array, long value) {
+        int index = Arrays.binarySearch(array, value);
+        if (index < 0)
+            return array;
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+}
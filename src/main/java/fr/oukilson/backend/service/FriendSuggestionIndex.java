@@ -0,0 +1,103 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.CompactFriendGraph;
+import fr.oukilson.backend.repository.FriendListRepository;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Whole friend graph kept in memory to compute friends-of-friends suggestions.
+ * The graph is built from the table friend_list on first use, then kept up to date by UserService
+ * each time a friend list changes.
+ */
+public class FriendSuggestionIndex {
+    private final FriendListRepository repository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private CompactFriendGraph graph;           // Null until built
+
+    public FriendSuggestionIndex(FriendListRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Rank the friends of the user's friends by number of mutual friends
+     * @param userId User's id
+     * @param limit Maximal number of suggestions
+     * @return List of {user id, mutual friends count}, best suggestion first
+     */
+    public List<long[]> suggest(Long userId, int limit) {
+        this.ensureBuilt();
+        this.lock.readLock().lock();
+        try {
+            return this.graph.suggest(userId, limit);
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record a new friendship (user -> friend)
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void addFriend(Long userId, Long friendId) {
+        this.update(graph -> graph.addFriend(userId, friendId));
+    }
+
+    /**
+     * Record a removed friendship (user -> friend)
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void removeFriend(Long userId, Long friendId) {
+        this.update(graph -> graph.removeFriend(userId, friendId));
+    }
+
+    /**
+     * Record that a user's friend list has been emptied
+     * @param userId User's id
+     */
+    public void removeAllFriends(Long userId) {
+        this.update(graph -> graph.removeAllFriends(userId));
+    }
+
+    /**
+     * Apply a change to the graph, if it's already built.
+     * Otherwise there is nothing to do: the change will be read from the database when building.
+     */
+    private void update(Consumer<CompactFriendGraph> change) {
+        this.lock.writeLock().lock();
+        try {
+            if (this.graph!=null)
+                change.accept(this.graph);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build the graph from the database if not done yet
+     */
+    private void ensureBuilt() {
+        this.lock.readLock().lock();
+        boolean built = this.graph!=null;
+        this.lock.readLock().unlock();
+        if (!built) {
+            this.lock.writeLock().lock();
+            try {
+                if (this.graph==null) {
+                    CompactFriendGraph.Builder builder = new CompactFriendGraph.Builder();
+                    this.repository.forEachFriendship(builder::addFriend);
+                    this.graph = builder.build();
+                }
+            }
+            finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+}
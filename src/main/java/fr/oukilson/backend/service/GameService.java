@@ -3,17 +3,33 @@ package fr.oukilson.backend.service;
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.model.GameField;
+import fr.oukilson.backend.repository.GameProjectionRepository;
 import fr.oukilson.backend.repository.GameRepository;
-import org.modelmapper.ModelMapper;
 import java.util.*;
 
 public class GameService {
     private GameRepository repository;
-    private ModelMapper mapper;
+    private GameProjectionRepository projectionRepository;
+    private GameMapper mapper;
+    private VersionCache versionCache;
 
-    public GameService(GameRepository repository, ModelMapper mapper) {
+    public GameService(GameRepository repository, GameProjectionRepository projectionRepository, GameMapper mapper,
+                       VersionCache versionCache) {
         this.repository = repository;
+        this.projectionRepository = projectionRepository;
         this.mapper = mapper;
+        this.versionCache = versionCache;
+    }
+
+    /**
+     * Find the version of a game, without loading it
+     * @param uuid Game's uuid
+     * @return The version, or null if the game doesn't exist
+     */
+    public Long findVersion(String uuid) {
+        return this.versionCache.find(uuid);
     }
 
     /**
@@ -24,10 +40,21 @@ public class GameService {
     public GameDTO findByUuid(String uuid) {
         GameDTO result = null;
         Optional<Game> game = this.repository.findByUuid(uuid);
-        if (game.isPresent()) result = this.mapper.map(game.get(), GameDTO.class);
+        if (game.isPresent()) result = this.mapper.toDTO(game.get());
         return result;
     }
 
+    /**
+     * Return several games by their uuid, read with one query
+     * @param uuids Games' uuid
+     * @return For each uuid, in the same order, its GameDTO or null if not found
+     */
+    public List<GameDTO> findAllByUuid(List<String> uuids) {
+        List<GameDTO> games = new ArrayList<>();
+        this.repository.findAllByUuidIn(new HashSet<>(uuids)).forEach(g -> games.add(this.mapper.toDTO(g)));
+        return Batches.inOrder(uuids, games, GameDTO::getUuid);
+    }
+
     /**
      * Return a list of all games sharing the same name or part of it.
      * @param name The string to search
@@ -37,9 +64,31 @@ public class GameService {
         List<GameUuidDTO> result = new LinkedList<>();
         if (name!=null) {
             repository.findAllByNameContaining(name).forEach(
-                    g -> result.add(this.mapper.map(g, GameUuidDTO.class))
+                    g -> result.add(this.mapper.toUuidDTO(g))
             );
         }
         return result;
     }
+
+    /**
+     * Return only some fields of a game
+     * @param uuid String uuid of the game
+     * @param fields Fields to return
+     * @return Map field name -> value, or null if not found
+     */
+    public Map<String, Object> findByUuid(String uuid, Set<GameField> fields) {
+        return this.projectionRepository.findByUuid(uuid, fields).orElse(null);
+    }
+
+    /**
+     * Return only some fields of the games sharing the same name or part of it
+     * @param name The string to search
+     * @param fields Fields to return
+     * @return List of maps field name -> value
+     */
+    public List<Map<String, Object>> findByName(String name, Set<GameField> fields) {
+        if (name==null)
+            return new LinkedList<>();
+        return this.projectionRepository.findAllByNameContaining(name, fields);
+    }
 }
@@ -0,0 +1,67 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool running blocking database work out of the request threads.
+ * At most 'threads' tasks run at the same time and at most 'queueSize' wait: beyond that, the task is
+ * refused right away and its future fails with a RejectedExecutionException, so a burst of one kind of
+ * requests can't hold all the request threads nor grow an unbounded queue.
+ * The pool is published in the meter registry as executor.* metrics tagged with its name, plus
+ * executor.rejected counting the refused tasks.
+ */
+public class JdbcExecutor {
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService monitored;
+    private final Counter rejected;
+
+    /**
+     * @param name Name of the pool, used for its threads and metrics
+     * @param threads Number of threads, which should stay under the number of database connections
+     * @param queueSize Maximal number of tasks waiting for a thread
+     * @param registry Registry of the pool's metrics
+     */
+    public JdbcExecutor(String name, int threads, int queueSize, MeterRegistry registry) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.monitored = ExecutorServiceMetrics.monitor(registry, this.executor, name);
+        this.rejected = Counter.builder("executor.rejected")
+                .description("Tasks refused because the pool and its queue are full")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * Run a task on the pool
+     * @param task Blocking work
+     * @return Future of the task's result; failed with a RejectedExecutionException if the pool is full
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, this.monitored);
+        }
+        catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Stop the pool
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,121 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.UserRepository;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Bounded nickname -> user reference cache shared by the services.
+ * Unknown nicknames are cached too (negative entries) for a short time, so repeated lookups
+ * of a nickname that doesn't exist don't hit the database either.
+ * Least recently used entries are evicted once the maximal size is reached.
+ * A load runs outside the lock and is only cached if the nickname hasn't been invalidated meanwhile,
+ * so a user created during the lookup of its nickname isn't cached as unknown.
+ * Nicknames are compared ignoring case, like the unique index of the table user.
+ */
+public class NicknameCache {
+    private final UserRepository repository;
+    private final int maxSize;
+    private final long negativeTtl;
+    private final Map<String, Entry> entries;
+    private final Map<String, Object> loading = new HashMap<>();   // Token of the last load of a nickname
+
+    /**
+     * @param repository Repository used on cache miss
+     * @param maxSize Maximal number of entries kept in the cache
+     * @param negativeTtl How long (in milliseconds) an unknown nickname stays cached
+     */
+    public NicknameCache(UserRepository repository, int maxSize, long negativeTtl) {
+        this.repository = repository;
+        this.maxSize = maxSize;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > NicknameCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Resolve a nickname into a lightweight user reference.
+     * Only the id and the nickname are loaded from the database on cache miss.
+     * @param nickname User's nickname
+     * @return Optional<UserReference>, empty if the nickname is unknown
+     */
+    public Optional<UserReference> resolve(String nickname) {
+        String key = key(nickname);
+        Entry entry;
+        Object token = new Object();
+        synchronized (this.entries) {
+            entry = this.entries.get(key);
+            if (entry!=null && entry.isExpired(System.currentTimeMillis())) {
+                this.entries.remove(key);
+                entry = null;
+            }
+            if (entry==null)
+                this.loading.put(key, token);
+        }
+        if (entry!=null)
+            return Optional.ofNullable(entry.reference);
+
+        // Load outside the lock: a slow query must not block the other lookups
+        Optional<UserReference> result = this.repository.findReferenceByNickname(nickname);
+        Entry loaded = result.map(r -> new Entry(r, Long.MAX_VALUE))
+                .orElseGet(() -> new Entry(null, System.currentTimeMillis() + this.negativeTtl));
+        synchronized (this.entries) {
+            // Token gone: invalidated (or loaded again) meanwhile, this result may be stale
+            if (this.loading.remove(key, token))
+                this.entries.put(key, loaded);
+        }
+        return result;
+    }
+
+    /**
+     * Remove a nickname from the cache.
+     * Must be called when a user is created or changed.
+     * @param nickname User's nickname
+     */
+    public void invalidate(String nickname) {
+        if (nickname!=null) {
+            String key = key(nickname);
+            synchronized (this.entries) {
+                this.entries.remove(key);
+                this.loading.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Empty the cache
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.loading.clear();
+        }
+    }
+
+    private static String key(String nickname) {
+        return Objects.requireNonNull(nickname).toLowerCase(Locale.ROOT);
+    }
+
+    private static class Entry {
+        private final UserReference reference;      // Null for an unknown nickname
+        private final long expiresAt;               // Expiration timestamp in milliseconds
+
+        private Entry(UserReference reference, long expiresAt) {
+            this.reference = reference;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now > this.expiresAt;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.BloomFilter;
+import fr.oukilson.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bloom filter of all the users' nicknames.
+ * Built at startup and updated on each user creation. When it says a nickname is unknown, the
+ * nickname is free for sure; otherwise the caller has to ask the database.
+ * Until the filter is built (or if it couldn't be built), every nickname is reported as maybe used.
+ * Once full, the filter is built again in the background, one build at a time; the nicknames added
+ * meanwhile are kept aside and put in the new filter before it replaces the current one.
+ * Nicknames are compared ignoring case, like the unique index of the table user.
+ */
+@Slf4j
+public class NicknameRegistry {
+    private final UserRepository repository;
+    private final int minCapacity;
+    private final double falsePositiveRate;
+    private final Executor executor;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private BloomFilter filter;             // Null until built
+    private int capacity;                   // Expected number of nicknames of the current filter
+    private int count;                      // Number of nicknames added in the current filter
+    private List<String> addedDuringBuild;  // Null when no build is running
+
+    /**
+     * @param repository Repository to load the nicknames
+     * @param minCapacity Minimal number of nicknames the filter is sized for
+     * @param falsePositiveRate False positive probability of the filter
+     */
+    public NicknameRegistry(UserRepository repository, int minCapacity, double falsePositiveRate) {
+        this(repository, minCapacity, falsePositiveRate, task -> {
+            Thread thread = new Thread(task, "nickname-registry");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * @param repository Repository to load the nicknames
+     * @param minCapacity Minimal number of nicknames the filter is sized for
+     * @param falsePositiveRate False positive probability of the filter
+     * @param executor Executor of the builds once the filter is full
+     */
+    public NicknameRegistry(UserRepository repository, int minCapacity, double falsePositiveRate,
+                            Executor executor) {
+        this.repository = repository;
+        this.minCapacity = minCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.executor = executor;
+    }
+
+    /**
+     * Load all the nicknames from the database in a new filter.
+     * The filter is sized for twice the current number of users.
+     * Does nothing if a build is already running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (this.building.compareAndSet(false, true))
+            this.rebuild();
+    }
+
+    /**
+     * Build the filter; the caller must have set the flag building, which is cleared at the end
+     */
+    private void rebuild() {
+        try {
+            synchronized (this) {
+                this.addedDuringBuild = new ArrayList<>();
+            }
+            List<String> nicknames = this.repository.findAllNicknames();
+            int newCapacity = Math.max(this.minCapacity, nicknames.size() * 2);
+            BloomFilter newFilter = new BloomFilter(newCapacity, this.falsePositiveRate);
+            nicknames.forEach(nickname -> newFilter.put(key(nickname)));
+            synchronized (this) {
+                this.addedDuringBuild.forEach(nickname -> newFilter.put(key(nickname)));
+                this.filter = newFilter;
+                this.capacity = newCapacity;
+                this.count = nicknames.size() + this.addedDuringBuild.size();
+            }
+            log.info("Nickname filter built with {} nicknames", nicknames.size());
+        }
+        catch (Exception e) {
+            log.warn("Nickname filter not built, the database will be used instead", e);
+        }
+        finally {
+            synchronized (this) {
+                this.addedDuringBuild = null;
+            }
+            this.building.set(false);
+        }
+    }
+
+    /**
+     * Check if a nickname might be used
+     * @param nickname Nickname
+     * @return False if the nickname is free for sure
+     */
+    public synchronized boolean mightExist(String nickname) {
+        return this.filter==null || this.filter.mightContain(key(nickname));
+    }
+
+    /**
+     * Add a new nickname in the filter.
+     * When the filter is full, it's built again in the background so its false positive rate stays low.
+     * @param nickname Nickname
+     */
+    public void add(String nickname) {
+        boolean full;
+        synchronized (this) {
+            if (this.addedDuringBuild!=null)
+                this.addedDuringBuild.add(nickname);
+            if (this.filter==null)
+                return;
+            this.filter.put(key(nickname));
+            this.count++;
+            full = this.count > this.capacity;
+        }
+        if (full && this.building.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::rebuild);
+            }
+            catch (RejectedExecutionException e) {
+                this.building.set(false);
+                log.warn("Nickname filter not built again", e);
+            }
+        }
+    }
+
+    private static String key(String nickname) {
+        return nickname.toLowerCase(Locale.ROOT);
+    }
+}
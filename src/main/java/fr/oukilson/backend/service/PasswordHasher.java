@@ -0,0 +1,91 @@
+package fr.oukilson.backend.service;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hash and verify passwords with bcrypt on a dedicated bounded pool.
+ * Hashing is slow on purpose, so it must not run on the request threads: at most 'threads' passwords
+ * are hashed at the same time and at most 'queueSize' wait. Beyond that, a RejectedExecutionException
+ * is thrown right away. Results are futures, so callers don't hold a thread while bcrypt runs.
+ * A future without result after 'timeout' fails with a RejectedExecutionException. This doesn't stop
+ * a hash already running: bcrypt can't be interrupted, so its worker stays busy until it's done.
+ * A hash still waiting in the queue is skipped when its turn comes.
+ */
+public class PasswordHasher {
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeout;
+
+    /**
+     * @param cost bcrypt cost (log2 of the number of rounds), between 4 and 31
+     * @param threads Number of threads hashing passwords
+     * @param queueSize Maximal number of passwords waiting to be hashed
+     * @param timeout Maximal time (in milliseconds) to wait for a result
+     */
+    public PasswordHasher(int cost, int threads, int queueSize, long timeout) {
+        this.encoder = new BCryptPasswordEncoder(cost);
+        this.timeout = timeout;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Hash a password on the pool
+     * @param password Raw password
+     * @return bcrypt hash; a RejectedExecutionException if it doesn't come in time
+     * @throws RejectedExecutionException If the pool is overloaded
+     */
+    public CompletableFuture<String> hash(String password) throws RejectedExecutionException {
+        return this.run(() -> this.encoder.encode(password));
+    }
+
+    /**
+     * Check a password against a hash, on the pool
+     * @param password Raw password
+     * @param hash bcrypt hash
+     * @return True if the password matches; a RejectedExecutionException if it doesn't come in time
+     * @throws RejectedExecutionException If the pool is overloaded
+     */
+    public CompletableFuture<Boolean> matches(String password, String hash) throws RejectedExecutionException {
+        return this.run(() -> this.encoder.matches(password, hash));
+    }
+
+    /**
+     * Hash a password in the calling thread.
+     * Only for batch work already running on its own threads.
+     * @param password Raw password
+     * @return bcrypt hash
+     */
+    public String hashNow(String password) {
+        return this.encoder.encode(password);
+    }
+
+    /**
+     * Stop the pool
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Run a task on the pool, failing its future if the result doesn't come in time.
+     * A task completed before its turn isn't run by supplyAsync.
+     */
+    private <T> CompletableFuture<T> run(Supplier<T> task) throws RejectedExecutionException {
+        CompletableFuture<T> result = CompletableFuture.supplyAsync(task, this.executor);
+        CompletableFuture.delayedExecutor(this.timeout, TimeUnit.MILLISECONDS).execute(() ->
+                result.completeExceptionally(new RejectedExecutionException("Password hashing timed out")));
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package fr.oukilson.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets by key (client and route), holding 'capacity' tokens and refilled with 'refillPerSecond'.
+ * Each request takes a token; without one, it's refused until the next token comes.
+ *
+ * A bucket is a single timestamp, the time when it will be full again: taking a token moves it
+ * 1/refillPerSecond later, and the bucket is empty when it's more than capacity/refillPerSecond ahead.
+ * Buckets are updated by compare-and-set and live in a ConcurrentHashMap, whose reads and bins are
+ * striped, so requests never wait for a lock.
+ * A full bucket is the same as no bucket: such buckets are removed, lazily, by the request that finds
+ * the last sweep older than 'sweepInterval'.
+ */
+public class RateLimiter {
+    private static final long REMOVED = Long.MIN_VALUE;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final long interval;                    // Nanoseconds between two tokens
+    private final long burst;                       // Nanoseconds of tokens a full bucket holds
+    private final long sweepInterval;
+    private final AtomicLong lastSweep;
+    private final LongSupplier clock;
+
+    /**
+     * @param capacity Maximal number of tokens of a bucket, so of requests in a burst
+     * @param refillPerSecond Number of tokens added each second
+     * @param sweepInterval Time (in milliseconds) between two removals of the full buckets
+     */
+    public RateLimiter(int capacity, double refillPerSecond, long sweepInterval) {
+        this(capacity, refillPerSecond, sweepInterval, System::nanoTime);
+    }
+
+    RateLimiter(int capacity, double refillPerSecond, long sweepInterval, LongSupplier clock) {
+        if (capacity < 1 || refillPerSecond <= 0)
+            throw new IllegalArgumentException("Rate limiter : capacity and refill must be positive");
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.burst = this.interval * capacity;
+        this.sweepInterval = TimeUnit.MILLISECONDS.toNanos(sweepInterval);
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Take a token from the bucket of a key
+     * @param key Client and route
+     * @return 0 if taken, else the time (in nanoseconds) before the next token
+     */
+    public long tryAcquire(String key) {
+        long now = this.clock.getAsLong();
+        this.sweep(now);
+        while (true) {
+            AtomicLong bucket = this.buckets.get(key);
+            if (bucket==null) {
+                AtomicLong created = new AtomicLong(now + this.interval);
+                bucket = this.buckets.putIfAbsent(key, created);
+                if (bucket==null)
+                    return 0;
+            }
+            long full = bucket.get();
+            if (full==REMOVED)
+                continue;                           // Swept meanwhile: use or create the new bucket
+            long next = Math.max(full, now) + this.interval;
+            if (next - now > this.burst)
+                return next - now - this.burst;
+            if (bucket.compareAndSet(full, next))
+                return 0;
+        }
+    }
+
+    /**
+     * @return Number of buckets in memory
+     */
+    public int size() {
+        return this.buckets.size();
+    }
+
+    /**
+     * Remove the full buckets, if the last sweep is old enough and no other thread is sweeping
+     */
+    private void sweep(long now) {
+        long last = this.lastSweep.get();
+        if (now - last < this.sweepInterval || !this.lastSweep.compareAndSet(last, now))
+            return;
+        this.buckets.forEach((key, bucket) -> {
+            long full = bucket.get();
+            // Marked first, so a request holding this bucket doesn't take a token nobody will see
+            if (full!=REMOVED && full - now <= 0 && bucket.compareAndSet(full, REMOVED))
+                this.buckets.remove(key, bucket);
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce concurrent loads of the same key: while a load is running, the next callers for its key get
+ * its result instead of starting their own (database queries and mapping included).
+ * Waiting costs no thread: callers get a future, to be called before handing the load to a pool.
+ * A caller waiting more than 'maxWait' for the load of another one starts its own.
+ * Results are shared by all the callers of a load, so they must not be modified.
+ * Published in the meter registry, tagged with its name:
+ * - singleflight.coalesced counting the callers served by the load of another one
+ * - singleflight.timeouts counting the callers which stopped waiting
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWait;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    /**
+     * @param name Name of the metrics' tag
+     * @param maxWait Maximal time (in milliseconds) to wait for the load of another caller
+     * @param registry Registry of the metrics
+     */
+    public SingleFlight(String name, long maxWait, MeterRegistry registry) {
+        this.maxWait = maxWait;
+        this.coalesced = Counter.builder("singleflight.coalesced")
+                .description("Loads served by a load already running for the same key")
+                .tag("name", name)
+                .register(registry);
+        this.timeouts = Counter.builder("singleflight.timeouts")
+                .description("Callers which stopped waiting for the load of another one")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * Load a key, or join the load of this key already running
+     * @param key Key
+     * @param loader Start of the load, called only if no load of the key is running
+     * @return Future of the result, failed like the load
+     */
+    public CompletableFuture<V> load(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = this.inFlight.putIfAbsent(key, flight);
+        if (running==null) {
+            CompletableFuture<V> result;
+            try {
+                result = loader.get();
+            }
+            catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            result.whenComplete((value, error) -> {
+                this.inFlight.remove(key, flight);
+                if (error==null)
+                    flight.complete(value);
+                else
+                    flight.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            });
+            return flight;
+        }
+
+        this.coalesced.increment();
+        return running.copy()
+                .orTimeout(this.maxWait, TimeUnit.MILLISECONDS)
+                .handle((value, error) -> {
+                    if (error instanceof TimeoutException) {
+                        this.timeouts.increment();
+                        return loader.get();
+                    }
+                    return running;
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * @return Number of keys being loaded
+     */
+    public int size() {
+        return this.inFlight.size();
+    }
+}
@@ -0,0 +1,368 @@
+package fr.oukilson.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.dto.user.UserImportErrorDTO;
+import fr.oukilson.backend.dto.user.UserImportJobDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.model.UserImportStatus;
+import fr.oukilson.backend.repository.UserBatchRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Create many users from a stream of UserCreationDTO, one JSON object per line.
+ * The stream is read by chunks, so memory doesn't depend on the file size. For each chunk:
+ * records are validated in parallel, nicknames already seen in the file or already used are
+ * rejected, passwords are hashed, then the users are inserted in one JDBC batch.
+ * Only the nicknames of the file are kept until the end, to detect duplicates.
+ *
+ * Imports run as jobs on their own bounded pool: the request only copies the body to a temporary file,
+ * then the job's status and report are found by its id. The last 'maxJobs' jobs are kept.
+ * Passwords are hashed by the pool of PasswordHasher, at most 'hashParallelism' at a time for a job,
+ * so sign-ups keep the rest of the pool.
+ */
+@Slf4j
+public class UserImportService {
+    private static final long RETRY_DELAY = 100;        // Wait (in milliseconds) when the hasher's pool is full
+    private final UserRepository userRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final RegexCollection regexCollection;
+    private final PasswordHasher passwordHasher;
+    private final NicknameRegistry nicknameRegistry;
+    private final NicknameCache nicknameCache;
+    private final ObjectReader reader;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int hashParallelism;
+    private final int maxJobs;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs;
+
+    /**
+     * @param batchSize Number of records handled and inserted at once
+     * @param maxErrors Maximal number of errors detailed in the report (all are counted)
+     * @param hashParallelism Maximal number of passwords of a job hashed at the same time
+     * @param threads Number of jobs running at the same time
+     * @param queueSize Maximal number of jobs waiting to run
+     * @param maxJobs Number of jobs whose status is kept
+     */
+    public UserImportService(UserRepository userRepository, UserBatchRepository userBatchRepository,
+                             RegexCollection regexCollection, PasswordHasher passwordHasher,
+                             NicknameRegistry nicknameRegistry, NicknameCache nicknameCache,
+                             ObjectMapper objectMapper, int batchSize, int maxErrors, int hashParallelism,
+                             int threads, int queueSize, int maxJobs) {
+        this.userRepository = userRepository;
+        this.userBatchRepository = userBatchRepository;
+        this.regexCollection = regexCollection;
+        this.passwordHasher = passwordHasher;
+        this.nicknameRegistry = nicknameRegistry;
+        this.nicknameCache = nicknameCache;
+        this.reader = objectMapper.readerFor(UserCreationDTO.class);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.hashParallelism = hashParallelism;
+        this.maxJobs = maxJobs;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread thread = new Thread(r, "user-import-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return this.size() > UserImportService.this.maxJobs;
+            }
+        };
+    }
+
+    /**
+     * Start an import job on a stream of UserCreationDTO in JSON, one per line.
+     * The stream is copied to a temporary file first, so it can be read after the request.
+     * @param input UTF-8 stream
+     * @return Id of the job
+     * @throws IOException If the stream can't be read
+     * @throws RejectedExecutionException If too many imports are waiting
+     */
+    public String startImport(InputStream input) throws IOException, RejectedExecutionException {
+        Path file = Files.createTempFile("user-import-", ".ndjson");
+        try {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            Job job = new Job(UUID.randomUUID().toString());
+            this.executor.execute(() -> this.run(job, file));
+            synchronized (this.jobs) {
+                this.jobs.put(job.id, job);
+            }
+            return job.id;
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Find the status of an import job
+     * @param id Id of the job
+     * @return The job with its report so far, empty if unknown or too old
+     */
+    public Optional<UserImportJobDTO> findImport(String id) {
+        Job job;
+        synchronized (this.jobs) {
+            job = this.jobs.get(id);
+        }
+        if (job==null)
+            return Optional.empty();
+        UserImportStatus status = job.status;
+        UserImportReportDTO report;
+        synchronized (job.report) {
+            report = new UserImportReportDTO(job.report.getTotal(), job.report.getCreated(),
+                    job.report.getRejected(), new ArrayList<>(job.report.getErrors()));
+        }
+        return Optional.of(new UserImportJobDTO(job.id, status, report));
+    }
+
+    /**
+     * Stop the pool of the jobs
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Import the users of a stream of UserCreationDTO in JSON, one per line (blank lines are skipped).
+     * Invalid records are reported and skipped, the others are created.
+     * @param input UTF-8 stream
+     * @return Report of the import
+     * @throws IOException If the stream can't be read
+     */
+    public UserImportReportDTO importUsers(InputStream input) throws IOException {
+        UserImportReportDTO report = new UserImportReportDTO();
+        this.importUsers(input, report);
+        return report;
+    }
+
+    /**
+     * Run a job on its file, then delete the file
+     */
+    private void run(Job job, Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            this.importUsers(input, job.report);
+            job.status = UserImportStatus.DONE;
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("User import {} failed", job.id, e);
+            job.status = UserImportStatus.FAILED;
+        }
+        finally {
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                log.warn("User import file {} not deleted", file, e);
+            }
+        }
+    }
+
+    /**
+     * Import the users of a stream, filling a report while it goes
+     */
+    private void importUsers(InputStream input, UserImportReportDTO report) throws IOException {
+        Set<String> seen = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(this.batchSize);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+            chunk.add(new Row(lineNumber, line));
+            if (chunk.size() == this.batchSize) {
+                this.importChunk(chunk, seen, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            this.importChunk(chunk, seen, report);
+        log.info("User import: {} records, {} created, {} rejected",
+                report.getTotal(), report.getCreated(), report.getRejected());
+    }
+
+    /**
+     * Handle one chunk of records
+     */
+    private void importChunk(List<Row> chunk, Set<String> seen, UserImportReportDTO report) {
+        // Parsing and validation don't depend on the other records
+        chunk.parallelStream().forEach(this::parse);
+
+        // Duplicates in the file ignoring case, like the unique index, in order so the first record wins
+        List<Row> candidates = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error == null) {
+                if (seen.add(row.dto.getNickname().toLowerCase(Locale.ROOT)))
+                    candidates.add(row);
+                else
+                    row.error = "Nickname duplicated in the file";
+            }
+        }
+
+        // Nicknames already used, with one query for the whole chunk
+        if (!candidates.isEmpty()) {
+            Set<String> used = new HashSet<>(this.userRepository.findNicknamesIn(
+                    candidates.stream().map(row -> row.dto.getNickname()).collect(Collectors.toList())));
+            candidates.removeIf(row -> {
+                if (used.contains(row.dto.getNickname()))
+                    row.error = "Nickname already used";
+                return row.error != null;
+            });
+        }
+
+        // Hashing is the slow part: a new hash is started each time one of the last 'hashParallelism' ends
+        List<CompletableFuture<String>> hashes = new ArrayList<>(candidates.size());
+        for (int i=0; i<candidates.size(); i++) {
+            if (i >= this.hashParallelism)
+                hashes.get(i - this.hashParallelism).exceptionally(e -> null).join();
+            hashes.add(this.hash(candidates.get(i).dto.getPassword()));
+        }
+        List<Row> hashed = new ArrayList<>(candidates.size());
+        List<User> users = new ArrayList<>(candidates.size());
+        for (int i=0; i<candidates.size(); i++) {
+            Row row = candidates.get(i);
+            String password = hashes.get(i).exceptionally(e -> null).join();
+            if (password == null)
+                row.error = "Password not hashed in time";
+            else {
+                User user = new User();
+                user.setNickname(row.dto.getNickname());
+                user.setEmail(row.dto.getEmail());
+                user.setPassword(password);
+                hashed.add(row);
+                users.add(user);
+            }
+        }
+        this.insert(hashed, users);
+
+        synchronized (report) {
+            report.setTotal(report.getTotal() + chunk.size());
+            for (Row row : chunk) {
+                if (row.error == null) {
+                    report.setCreated(report.getCreated() + 1);
+                    this.nicknameCache.invalidate(row.dto.getNickname());
+                    this.nicknameRegistry.add(row.dto.getNickname());
+                }
+                else {
+                    report.setRejected(report.getRejected() + 1);
+                    if (report.getErrors().size() < this.maxErrors)
+                        report.getErrors().add(new UserImportErrorDTO(row.line,
+                                row.dto == null ? null : row.dto.getNickname(), row.error));
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash a password on the pool of PasswordHasher, waiting while it's full: sign-ups go first
+     */
+    private CompletableFuture<String> hash(String password) {
+        while (true) {
+            try {
+                return this.passwordHasher.hash(password);
+            }
+            catch (RejectedExecutionException e) {
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                }
+                catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return CompletableFuture.failedFuture(interrupted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read and validate a record
+     */
+    private void parse(Row row) {
+        try {
+            row.dto = this.reader.readValue(row.json);
+            if (!row.dto.isValid(this.regexCollection.getNicknamePattern(), this.regexCollection.getEmailPattern()))
+                row.error = "Invalid data";
+        }
+        catch (IOException e) {
+            row.error = "Malformed record";
+        }
+        row.json = null;
+    }
+
+    /**
+     * Insert the users in one batch.
+     * If the batch fails (a nickname taken meanwhile), users are inserted one by one to find the culprits.
+     */
+    private void insert(List<Row> rows, List<User> users) {
+        if (users.isEmpty())
+            return;
+        try {
+            this.userBatchRepository.insertAll(users);
+        }
+        catch (DataAccessException e) {
+            for (int i=0; i<users.size(); i++) {
+                try {
+                    this.userBatchRepository.insertAll(List.of(users.get(i)));
+                }
+                catch (DataAccessException rowException) {
+                    rows.get(i).error = "Insert failed";
+                }
+            }
+        }
+    }
+
+    /**
+     * An import job; its report is filled by the job under its own lock
+     */
+    private static class Job {
+        private final String id;
+        private final UserImportReportDTO report = new UserImportReportDTO();
+        private volatile UserImportStatus status = UserImportStatus.RUNNING;
+
+        private Job(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * One record of the file
+     */
+    private static class Row {
+        private final long line;
+        private String json;
+        private UserCreationDTO dto;
+        private String error;                   // Null while the record is accepted
+
+        private Row(long line, String json) {
+            this.line = line;
+            this.json = json;
+        }
+    }
+}
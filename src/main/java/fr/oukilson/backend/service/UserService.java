@@ -2,24 +2,48 @@ package fr.oukilson.backend.service;
 
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserSuggestionDTO;
 import fr.oukilson.backend.model.RegexCollection;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.UserMapper;
+import fr.oukilson.backend.model.UserReference;
 import fr.oukilson.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RequiredArgsConstructor
 public class UserService {
     private UserRepository userRepository;
     private ModelMapper modelMapper;
+    private UserMapper userMapper;
     private RegexCollection regexCollection;
+    private NicknameCache nicknameCache;
+    private FriendGraph friendGraph;
+    private FriendSuggestionIndex suggestionIndex;
+    private BlockList blockList;
+    private NicknameRegistry nicknameRegistry;
+    private PasswordHasher passwordHasher;
 
-    public UserService(UserRepository userRepository, ModelMapper modelMapper, RegexCollection regexCollection) {
+    public UserService(UserRepository userRepository, ModelMapper modelMapper, UserMapper userMapper,
+                       RegexCollection regexCollection, NicknameCache nicknameCache, FriendGraph friendGraph,
+                       FriendSuggestionIndex suggestionIndex, BlockList blockList, NicknameRegistry nicknameRegistry,
+                       PasswordHasher passwordHasher) {
         this.userRepository = userRepository;
         this.modelMapper = modelMapper;
+        this.userMapper = userMapper;
         this.regexCollection = regexCollection;
+        this.nicknameCache = nicknameCache;
+        this.friendGraph = friendGraph;
+        this.suggestionIndex = suggestionIndex;
+        this.blockList = blockList;
+        this.nicknameRegistry = nicknameRegistry;
+        this.passwordHasher = passwordHasher;
     }
 
     /**
@@ -27,53 +51,142 @@ public class UserService {
      * @param nickname User's nickname
      * @return UserDTO
      */
+    @Transactional(readOnly = true)
     public UserDTO findUserByNickname(String nickname) {
         UserDTO result;
         if (this.regexCollection.getNicknamePattern().matcher(nickname).find()) {
-            Optional<User> optionalUser = userRepository.findByNickname(nickname);
-            result = optionalUser.map(user -> this.modelMapper.map(user, UserDTO.class)).orElse(null);
+            result = this.nicknameCache.resolve(nickname)
+                    .flatMap(reference -> this.userRepository.findById(reference.getId()))
+                    .map(this.userMapper::toDTO)
+                    .orElse(null);
         }
         else
             result = null;
         return result;
     }
 
+    /**
+     * Search several users by nickname, with their friends, in one query.
+     * Invalid nicknames are not looked for.
+     * @param nicknames Users' nickname
+     * @return For each nickname, in the same order, its UserDTO or null if not found
+     */
+    @Transactional(readOnly = true)
+    public List<UserDTO> findUsersByNickname(List<String> nicknames) {
+        Set<String> valid = new HashSet<>();
+        for (String nickname : nicknames) {
+            if (this.regexCollection.getNicknamePattern().matcher(nickname).find())
+                valid.add(nickname);
+        }
+        List<UserDTO> users = new ArrayList<>();
+        if (!valid.isEmpty())
+            this.userRepository.findAllWithFriendsByNicknameIn(valid)
+                    .forEach(u -> users.add(this.userMapper.toDTO(u)));
+        return Batches.inOrder(nicknames, users, UserDTO::getNickname);
+    }
+
+    /**
+     * Check if a nickname is valid and not used by another user.
+     * Most free nicknames are answered by the nickname filter without database access.
+     * @param nickname Nickname to check
+     * @return True if the nickname can be used to create a user
+     */
+    public boolean isNicknameAvailable(String nickname) {
+        boolean result;
+        if (nickname==null || !this.regexCollection.getNicknamePattern().matcher(nickname).find())
+            result = false;
+        else if (!this.nicknameRegistry.mightExist(nickname))
+            result = true;
+        else
+            result = this.nicknameCache.resolve(nickname).isEmpty();
+        return result;
+    }
+
     /* Method to save a user entity to the database
+     * Null if the data are invalid or if the nickname is already used.
+     * The password is stored hashed. No thread waits for the hash: the data are checked by the caller,
+     * the password hashed by the pool of PasswordHasher, then the user saved on 'saveExecutor'.
      * @param userCreationDTO User's data
-     * @return UserDTO
+     * @param saveExecutor Pool of the insert
+     * @return UserDTO; a RejectedExecutionException if the password isn't hashed in time or the pool
+     * of the insert is full
+     * @throws RejectedExecutionException If too many passwords are being hashed
      */
-    public UserDTO createUser(UserCreationDTO userCreationDTO) {
+    public CompletableFuture<UserDTO> createUser(UserCreationDTO userCreationDTO, JdbcExecutor saveExecutor)
+            throws RejectedExecutionException {
+        if (userCreationDTO==null
+                || !userCreationDTO.isValid(regexCollection.getNicknamePattern(), regexCollection.getEmailPattern())
+                || !this.isNicknameAvailable(userCreationDTO.getNickname()))
+            return CompletableFuture.completedFuture(null);
+        User toCreate = this.modelMapper.map(userCreationDTO, User.class);
+        return this.passwordHasher.hash(userCreationDTO.getPassword())
+                .thenCompose(hash -> saveExecutor.supply(() -> {
+                    toCreate.setPassword(hash);
+                    return this.save(toCreate);
+                }));
+    }
+
+    /**
+     * Insert a new user
+     * @return UserDTO, or null if the nickname has been taken meanwhile
+     */
+    private UserDTO save(User toCreate) {
         UserDTO result = null;
-        if (userCreationDTO!=null
-                && userCreationDTO.isValid(regexCollection.getNicknamePattern(), regexCollection.getEmailPattern())) {
-            User user = this.userRepository.save(this.modelMapper.map(userCreationDTO, User.class));
-            result = this.modelMapper.map(user, UserDTO.class);
+        try {
+            User user = this.userRepository.save(toCreate);
+            this.nicknameCache.invalidate(user.getNickname());
+            this.nicknameRegistry.add(user.getNickname());
+            result = this.userMapper.toDTO(user);
+        }
+        catch (DataIntegrityViolationException e) {
+            // The unique index on nickname has been hit by a concurrent creation
+            this.nicknameCache.invalidate(toCreate.getNickname());
         }
         return result;
     }
 
     /**
-     * Add a user to the main user's friend list
+     * Check the password of a user
+     * @param nickname User's nickname
+     * @param password Raw password to check
+     * @return True if the user exists and the password matches; a RejectedExecutionException if the check
+     * doesn't end in time
+     * @throws RejectedExecutionException If too many passwords are being checked
+     */
+    public CompletableFuture<Boolean> checkPassword(String nickname, String password)
+            throws RejectedExecutionException {
+        CompletableFuture<Boolean> result;
+        if (nickname==null || password==null)
+            result = CompletableFuture.completedFuture(false);
+        else {
+            Optional<String> hash = this.userRepository.findPasswordByNickname(nickname);
+            if (hash.isPresent())
+                result = this.passwordHasher.matches(password, hash.get());
+            else
+                result = CompletableFuture.completedFuture(false);
+        }
+        return result;
+    }
+
+
+    /**
+     * Add a user to the main user's friend list.
+     * Not possible if the main user is in the denied list of the user to add.
      * @param mainUser User (nickname) to alter the friend list
      * @param secondUser User (nickname) to add
      * @return True if the adding has been done
      */
     public boolean addUserToFriendList(String mainUser, String secondUser) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(mainUser);
+        Optional<UserReference> myOptionalUser = this.nicknameCache.resolve(mainUser);
         if (myOptionalUser.isPresent()) {
-            Optional<User> myOptionalFriend = this.userRepository.findByNickname(secondUser);
+            Optional<UserReference> myOptionalFriend = this.nicknameCache.resolve(secondUser);
             if (myOptionalFriend.isPresent()) {
-                User myUser = myOptionalUser.get();
-                List<User> friends = myUser.getFriendList();
-                User myFriend = myOptionalFriend.get();
-                if (!friends.contains(myFriend)) {
-                    friends.add(myFriend);
-                    this.userRepository.save(myUser);
-                    result = true;
-                }
-                else
-                    result = false;
+                Long userId = myOptionalUser.get().getId();
+                Long friendId = myOptionalFriend.get().getId();
+                result = !this.blockList.isBlocked(friendId, userId) && this.friendGraph.addFriend(userId, friendId);
+                if (result)
+                    this.suggestionIndex.addFriend(userId, friendId);
             }
             else
                 result = false;
@@ -91,14 +204,14 @@ public class UserService {
      */
     public boolean removeUserFromFriendList(String mainUser, String secondUser) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(mainUser);
+        Optional<UserReference> myOptionalUser = this.nicknameCache.resolve(mainUser);
         if (myOptionalUser.isPresent()) {
-            Optional<User> myOptionalFriend = this.userRepository.findByNickname(secondUser);
+            Optional<UserReference> myOptionalFriend = this.nicknameCache.resolve(secondUser);
             if (myOptionalFriend.isPresent()) {
-                User myUser = myOptionalUser.get();
-                User myFriend = myOptionalFriend.get();
-                myUser.getFriendList().remove(myFriend);
-                this.userRepository.save(myUser);
+                Long userId = myOptionalUser.get().getId();
+                Long friendId = myOptionalFriend.get().getId();
+                if (this.friendGraph.removeFriend(userId, friendId))
+                    this.suggestionIndex.removeFriend(userId, friendId);
                 result = true;
             }
             else
@@ -116,15 +229,44 @@ public class UserService {
      */
     public boolean emptyFriendList(String nickname) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(nickname);
+        Optional<UserReference> myOptionalUser = this.nicknameCache.resolve(nickname);
         if (myOptionalUser.isPresent()) {
-            User myUser = myOptionalUser.get();
-            myUser.getFriendList().clear();
-            this.userRepository.save(myUser);
+            Long userId = myOptionalUser.get().getId();
+            this.userRepository.deleteAllFriends(userId);
+            this.friendGraph.evict(userId);
+            this.suggestionIndex.removeAllFriends(userId);
             result = true;
         }
         else
             result = false;
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Suggest new friends to a user: the friends of his friends, ranked by number of mutual friends.
+     * @param nickname User's nickname
+     * @param limit Maximal number of suggestions
+     * @return List of UserSuggestionDTO, best suggestion first; null if the user is not found
+     */
+    public List<UserSuggestionDTO> findSuggestions(String nickname, int limit) {
+        List<UserSuggestionDTO> result;
+        Optional<UserReference> myOptionalUser = this.nicknameCache.resolve(nickname);
+        if (myOptionalUser.isPresent()) {
+            List<long[]> suggestions = this.suggestionIndex.suggest(myOptionalUser.get().getId(), limit);
+            List<Long> ids = new ArrayList<>(suggestions.size());
+            suggestions.forEach(s -> ids.add(s[0]));
+            Map<Long, String> nicknames = new HashMap<>();
+            if (!ids.isEmpty())
+                this.userRepository.findReferencesByIdIn(ids).forEach(r -> nicknames.put(r.getId(), r.getNickname()));
+            result = new ArrayList<>(suggestions.size());
+            for (long[] suggestion : suggestions) {
+                String friendNickname = nicknames.get(suggestion[0]);
+                if (friendNickname!=null)
+                    result.add(new UserSuggestionDTO(friendNickname, (int) suggestion[1]));
+            }
+        }
+        else
+            result = null;
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package fr.oukilson.backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded uuid -> version cache, used to answer conditional requests without loading the entity.
+ * On cache miss, only the version is read from the database (one scalar query).
+ * Entries are dropped when the entity is written on this instance, and expire after 'ttl' so writes
+ * made by another instance are seen too. Unknown uuids are not cached. A version loaded while its entity
+ * was invalidated isn't cached either, as it may be the version before the write.
+ * Least recently used entries are evicted once the maximal size is reached.
+ */
+public class VersionCache {
+    private final Function<String, Optional<Long>> loader;
+    private final int maxSize;
+    private final long ttl;
+    private final Map<String, Entry> entries;
+    private final Map<String, Object> loading = new HashMap<>();    // Token of the last load of a uuid
+
+    /**
+     * @param loader Query reading the version of an entity from its uuid, used on cache miss
+     * @param maxSize Maximal number of entries kept in the cache
+     * @param ttl How long (in milliseconds) a version stays cached
+     */
+    public VersionCache(Function<String, Optional<Long>> loader, int maxSize, long ttl) {
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > VersionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Find the version of an entity
+     * @param uuid Entity's uuid
+     * @return The version, or null if the entity doesn't exist
+     */
+    public Long find(String uuid) {
+        Objects.requireNonNull(uuid);
+        long now = System.currentTimeMillis();
+        Object token = new Object();
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(uuid);
+            if (entry!=null) {
+                if (now <= entry.expiresAt)
+                    return entry.version;
+                this.entries.remove(uuid);
+            }
+            this.loading.put(uuid, token);
+        }
+
+        // Load outside the lock: a slow query must not block the other lookups
+        Long result = this.loader.apply(uuid).orElse(null);
+        synchronized (this.entries) {
+            // Cached only if the entity hasn't been invalidated meanwhile
+            if (this.loading.remove(uuid, token) && result!=null)
+                this.entries.put(uuid, new Entry(result, now + this.ttl));
+        }
+        return result;
+    }
+
+    /**
+     * Remove an entity from the cache.
+     * Must be called when the entity is changed or deleted. Inside a transaction, the entry is removed
+     * again after the commit, so a version read meanwhile doesn't stay cached.
+     * @param uuid Entity's uuid
+     */
+    public void invalidate(String uuid) {
+        if (uuid==null)
+            return;
+        this.remove(uuid);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    VersionCache.this.remove(uuid);
+                }
+            });
+        }
+    }
+
+    /**
+     * Empty the cache
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.loading.clear();
+        }
+    }
+
+    private void remove(String uuid) {
+        synchronized (this.entries) {
+            this.entries.remove(uuid);
+            this.loading.remove(uuid);
+        }
+    }
+
+    private static class Entry {
+        private final long version;
+        private final long expiresAt;               // Expiration timestamp in milliseconds
+
+        private Entry(long version, long expiresAt) {
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
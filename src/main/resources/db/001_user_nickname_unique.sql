@@ -0,0 +1,2 @@
+-- Nicknames must be unique: last guard behind the nickname filter of UserService
+ALTER TABLE user ADD CONSTRAINT uk_user_nickname UNIQUE (nickname);
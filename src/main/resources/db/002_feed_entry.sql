@@ -0,0 +1,12 @@
+-- Friend activity feeds: one ring buffer of 'environment.feed.capacity' slots per user (see FeedService)
+CREATE TABLE feed_entry (
+    owner_id BIGINT NOT NULL,
+    slot INT NOT NULL,
+    seq BIGINT NOT NULL,
+    type TINYINT NOT NULL,
+    actor_id BIGINT NOT NULL,
+    event_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (owner_id, slot),
+    INDEX idx_feed_entry_owner_seq (owner_id, seq)
+);
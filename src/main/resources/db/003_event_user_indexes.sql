@@ -0,0 +1,4 @@
+-- Per-user event lookups (GET /users/{nickname}/events): each index covers the filter and the keyset order
+CREATE INDEX idx_event_user_id ON event (user_id, id);
+CREATE INDEX idx_event_user_user_id ON event_user (user_id, event_id);
+CREATE INDEX idx_event_user_in_queue_user_id ON event_user_in_queue (user_id, event_id);
@@ -0,0 +1,6 @@
+-- Versions of events and games, incremented on each change and sent as ETag.
+-- The (uuid, version) indexes let conditional GETs read the version from the index only.
+ALTER TABLE event ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE game ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX idx_event_uuid_version ON event (uuid, version);
+CREATE INDEX idx_game_uuid_version ON game (uuid, version);
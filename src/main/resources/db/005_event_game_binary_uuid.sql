@@ -0,0 +1,14 @@
+-- Uuids of events and games stored as BINARY(16) instead of 36 characters (see Uuids), MySQL 8.
+-- UUID_TO_BIN without swap keeps the bytes in the order of the string, like the application writes them.
+-- Existing uuids keep their value; new ones are time ordered, so they're appended to the uuid indexes.
+ALTER TABLE event ADD COLUMN uuid_bin BINARY(16) AFTER uuid;
+UPDATE event SET uuid_bin = UUID_TO_BIN(uuid);
+ALTER TABLE event DROP INDEX idx_event_uuid_version, DROP COLUMN uuid;
+ALTER TABLE event CHANGE uuid_bin uuid BINARY(16);
+CREATE INDEX idx_event_uuid_version ON event (uuid, version);
+
+ALTER TABLE game ADD COLUMN uuid_bin BINARY(16) AFTER uuid;
+UPDATE game SET uuid_bin = UUID_TO_BIN(uuid);
+ALTER TABLE game DROP INDEX idx_game_uuid_version, DROP COLUMN uuid;
+ALTER TABLE game CHANGE uuid_bin uuid BINARY(16);
+CREATE INDEX idx_game_uuid_version ON game (uuid, version);
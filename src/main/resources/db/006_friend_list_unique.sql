@@ -0,0 +1,7 @@
+-- Each friendship once: the unique key makes a concurrent second add (INSERT IGNORE) a no-op.
+-- Duplicates inserted before are removed first.
+CREATE TEMPORARY TABLE friend_list_distinct AS SELECT DISTINCT user_id, friend_id FROM friend_list;
+DELETE FROM friend_list;
+INSERT INTO friend_list (user_id, friend_id) SELECT user_id, friend_id FROM friend_list_distinct;
+DROP TEMPORARY TABLE friend_list_distinct;
+ALTER TABLE friend_list ADD CONSTRAINT uk_friend_list UNIQUE (user_id, friend_id);
@@ -0,0 +1,22 @@
+package fr.oukilson.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * WebFlux and R2DBC variant of the backend, built with the Maven profile 'reactive'.
+ * It serves the main routes of /events, /games and /users on the same database as the servlet
+ * backend, with the same validation rules, and runs with the Spring profile 'reactive'.
+ */
+@SpringBootApplication
+public class ReactiveApplication {
+
+	public static void main(String[] args) {
+		new SpringApplicationBuilder(ReactiveApplication.class)
+				.web(WebApplicationType.REACTIVE)
+				.profiles("reactive")
+				.run(args);
+	}
+
+}
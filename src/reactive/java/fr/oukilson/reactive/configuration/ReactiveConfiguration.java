@@ -0,0 +1,54 @@
+package fr.oukilson.reactive.configuration;
+
+import fr.oukilson.backend.configuration.RegexConfiguration;
+import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.service.PasswordHasher;
+import fr.oukilson.reactive.repository.EventRepository;
+import fr.oukilson.reactive.repository.GameRepository;
+import fr.oukilson.reactive.repository.UserRepository;
+import fr.oukilson.reactive.service.EventService;
+import fr.oukilson.reactive.service.GameService;
+import fr.oukilson.reactive.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Services of the reactive variant, built from the same environment.* settings as the servlet ones.
+ * Tomcat is on the classpath for the servlet backend, so Netty is chosen here explicitly.
+ */
+@Configuration
+@Import(RegexConfiguration.class)
+public class ReactiveConfiguration {
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${environment.passwordHasher.cost}") int cost,
+                                         @Value("${environment.passwordHasher.threads}") int threads,
+                                         @Value("${environment.passwordHasher.queueSize}") int queueSize,
+                                         @Value("${environment.passwordHasher.timeout}") long timeout) {
+        return new PasswordHasher(cost, threads, queueSize, timeout);
+    }
+
+    @Bean
+    public EventService eventService(EventRepository repository, UserRepository userRepository,
+                                     GameRepository gameRepository) {
+        return new EventService(repository, userRepository, gameRepository);
+    }
+
+    @Bean
+    public GameService gameService(GameRepository repository) {
+        return new GameService(repository);
+    }
+
+    @Bean
+    public UserService userService(UserRepository userRepository, RegexCollection regexCollection,
+                                   PasswordHasher passwordHasher) {
+        return new UserService(userRepository, regexCollection, passwordHasher);
+    }
+}
@@ -0,0 +1,122 @@
+package fr.oukilson.reactive.controller;
+
+import fr.oukilson.backend.dto.event.*;
+import fr.oukilson.reactive.service.EventService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import java.util.List;
+
+@RestController
+@CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
+@RequestMapping("/events")
+public class EventController {
+    private final EventService service;
+
+    public EventController(EventService service) {
+        this.service = service;
+    }
+
+    /**
+     * Route to get the info of the event from its uuid
+     * @param uuid Event's uuid
+     * @return EventDTO with its ETag
+     */
+    @GetMapping("{uuid}")
+    public Mono<ResponseEntity<EventDTO>> findByUuid(@PathVariable String uuid) {
+        return this.service.findByUuid(uuid)
+                .map(event -> ResponseEntity.ok().eTag(String.valueOf(event.getVersion())).body(event))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Search for events after a date or in a town, as the servlet route does
+     * @param date Date to look after
+     * @param town Town to look
+     * @return List<EventDTO>
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<EventDTO>>> findAllByFilters(
+            @RequestParam(name="date", defaultValue = "") String date,
+            @RequestParam(name="town", defaultValue = "") String town) {
+        return this.service.findByFilter(date, town).collectList().map(ResponseEntity::ok);
+    }
+
+    /**
+     * Route to create a new event
+     * @param toCreate Event to create
+     * @return The created event, bad request if invalid
+     */
+    @PostMapping
+    public Mono<ResponseEntity<EventDTO>> save(@RequestBody EventCreateDTO toCreate) {
+        return this.service.save(toCreate)
+                .map(event -> ResponseEntity.status(HttpStatus.CREATED).body(event))
+                .onErrorResume(e -> Mono.empty())
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * Route to update an existing event using its uuid
+     * @param toUpdate The event to update
+     * @return The updated event, bad request if invalid
+     */
+    @PutMapping
+    public Mono<ResponseEntity<EventDTO>> update(@RequestBody EventUpdateDTO toUpdate) {
+        return this.service.update(toUpdate)
+                .map(event -> ResponseEntity.status(HttpStatus.CREATED).body(event))
+                .onErrorResume(e -> Mono.empty())
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * Route to delete the event by its uuid
+     * @param toDelete EventDeleteDTO
+     * @return Always true
+     */
+    @DeleteMapping
+    public Mono<ResponseEntity<Boolean>> deleteByUuid(@RequestBody EventDeleteDTO toDelete) {
+        return this.service.deleteByUuid(toDelete.getUuid()).thenReturn(ResponseEntity.ok(true));
+    }
+
+    /**
+     * Route to add a user (with his nickname) in an event (with its uuid)
+     * @param tuple EventAddUserDTO
+     * @return True if added
+     */
+    @PutMapping("/add_user")
+    public Mono<ResponseEntity<Boolean>> addUserInEvent(@RequestBody EventAddUserDTO tuple) {
+        return this.service.addUserInEvent(tuple).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Route to add a user (with his nickname) in the waiting list of an event (with its uuid)
+     * @param tuple EventAddUserDTO
+     * @return True if added
+     */
+    @PutMapping("/add_user/waiting")
+    public Mono<ResponseEntity<Boolean>> addUserInEventInWaitingQueue(@RequestBody EventAddUserDTO tuple) {
+        return this.service.addUserInEventInWaitingQueue(tuple).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Route to remove a user (with his nickname) in an event (with its uuid)
+     * @param tuple EventRemoveUserDTO
+     * @return True if removed
+     */
+    @PutMapping("/remove_user")
+    public Mono<ResponseEntity<Boolean>> removeUserInEvent(@RequestBody EventRemoveUserDTO tuple) {
+        return this.service.removeUserInEvent(tuple).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Route to remove a user (with his nickname) in the waiting list of an event (with its uuid)
+     * @param tuple EventRemoveUserDTO
+     * @return True if removed
+     */
+    @PutMapping("/remove_user/waiting")
+    public Mono<ResponseEntity<Boolean>> removeUserInWaitingQueue(@RequestBody EventRemoveUserDTO tuple) {
+        return this.service.removeUserInWaitingQueue(tuple).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,43 @@
+package fr.oukilson.reactive.controller;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.reactive.service.GameService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import java.util.List;
+
+@RestController
+@CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
+@RequestMapping("/games")
+public class GameController {
+    private final GameService service;
+
+    public GameController(GameService service) {
+        this.service = service;
+    }
+
+    /**
+     * Route to get all the game info by providing its uuid
+     * @param uuid String Uuid of the game
+     * @return A GameDTO with its ETag
+     */
+    @GetMapping("/{uuid}")
+    public Mono<ResponseEntity<GameDTO>> findByUuid(@PathVariable String uuid) {
+        return this.service.findByUuid(uuid)
+                .map(game -> ResponseEntity.ok().eTag(String.valueOf(game.getVersion())).body(game))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get all the games sharing the same name or at least a part of it
+     * @param name The string to search
+     * @return A list of GameUuidDTO
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<GameUuidDTO>>> findByName(@RequestParam(name = "name") String name) {
+        return this.service.findByName(name).collectList().map(ResponseEntity::ok);
+    }
+}
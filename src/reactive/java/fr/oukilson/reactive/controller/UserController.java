@@ -0,0 +1,59 @@
+package fr.oukilson.reactive.controller;
+
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.reactive.service.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import javax.validation.Valid;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/users")
+public class UserController {
+    private final UserService userService;
+
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * Find a user and send its info back
+     * @param nickname User's nickname
+     * @return UserDTO
+     */
+    @GetMapping("{nickname}")
+    public Mono<ResponseEntity<UserDTO>> findUserByNickname(@PathVariable String nickname) {
+        return this.userService.findUserByNickname(nickname)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Check if a nickname can be used to create a new user
+     * @param nickname Nickname to check
+     * @return ResponseEntity<Boolean>
+     */
+    @GetMapping("available/{nickname}")
+    public Mono<ResponseEntity<Boolean>> isNicknameAvailable(@PathVariable String nickname) {
+        return this.userService.isNicknameAvailable(nickname).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Create a user
+     * @param userCreationDTO The user to create
+     * @return ResponseEntity<UserDTO>, bad request if invalid, 503 if too many passwords are being hashed
+     */
+    @PostMapping()
+    public Mono<ResponseEntity<UserDTO>> createUser(@Valid @RequestBody UserCreationDTO userCreationDTO) {
+        return this.userService.createUser(userCreationDTO)
+                .map(user -> ResponseEntity.status(HttpStatus.CREATED).body(user))
+                .defaultIfEmpty(ResponseEntity.badRequest().build())
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+}
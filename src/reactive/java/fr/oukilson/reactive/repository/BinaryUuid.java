@@ -0,0 +1,33 @@
+package fr.oukilson.reactive.repository;
+
+import fr.oukilson.backend.model.Uuids;
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Mono;
+
+/**
+ * Uuid columns, stored as BINARY(16) like the JPA entities map them (see Uuids)
+ */
+final class BinaryUuid {
+    private BinaryUuid() {
+    }
+
+    /**
+     * Bytes to bind for a uuid
+     * @param uuid Uuid, as a string
+     * @return Its bytes, empty if it isn't a uuid (so no row can match)
+     */
+    static Mono<byte[]> key(String uuid) {
+        return Mono.justOrEmpty(Uuids.toBytes(uuid));
+    }
+
+    /**
+     * Read a uuid column
+     * @param row Row
+     * @param column Column's name
+     * @return Uuid, as a string; null if the column is null
+     */
+    static String read(Row row, String column) {
+        byte[] bytes = row.get(column, byte[].class);
+        return bytes == null ? null : Uuids.fromBytes(bytes);
+    }
+}
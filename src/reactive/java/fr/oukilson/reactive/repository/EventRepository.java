@@ -0,0 +1,328 @@
+package fr.oukilson.reactive.repository;
+
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.event.EventUpdateDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.model.Uuids;
+import io.r2dbc.spi.Row;
+import lombok.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * R2DBC access to the tables event, location, event_user and event_user_in_queue, the ones the
+ * JPA entity Event is mapped to. Events are read as EventDTO: one query for the events, with their
+ * creator, game and location, then one query for the participants of all of them.
+ */
+@Repository
+public class EventRepository {
+    private static final String SELECT = "SELECT e.id, e.uuid, e.version, e.title, u.nickname AS creator, " +
+            "g.uuid AS game_uuid, g.name AS game_name, e.min_player, e.max_player, e.creation_date, e.start_date, " +
+            "e.end_date, e.limit_date, e.description, e.private, l.town, l.zip_code, l.address " +
+            "FROM event e " +
+            "LEFT JOIN user u ON u.id = e.user_id " +
+            "LEFT JOIN game g ON g.id = e.game_id " +
+            "LEFT JOIN location l ON l.id = e.location_id ";
+    private final DatabaseClient client;
+
+    public EventRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Find an event by its uuid
+     * @param uuid Event's uuid
+     * @return The event, empty if not found
+     */
+    public Mono<EventDTO> findByUuid(String uuid) {
+        return BinaryUuid.key(uuid)
+                .flatMap(key -> this.withParticipants(this.client.sql(SELECT + "WHERE e.uuid = :uuid")
+                                .bind("uuid", key)
+                                .map(EventRepository::toEvent)
+                                .all())
+                        .next());
+    }
+
+    /**
+     * Find the events starting after a date
+     * @param date Date
+     * @return Events
+     */
+    public Flux<EventDTO> findAllByStartingDateAfter(LocalDateTime date) {
+        return this.withParticipants(this.client.sql(SELECT + "WHERE e.start_date > :date")
+                .bind("date", date)
+                .map(EventRepository::toEvent)
+                .all());
+    }
+
+    /**
+     * Find the events whose town contains a text
+     * @param town Text to look for
+     * @return Events
+     */
+    public Flux<EventDTO> findAllByLocationTownContaining(String town) {
+        return this.withParticipants(this.client.sql(SELECT + "WHERE l.town LIKE :town" + Like.ESCAPE)
+                .bind("town", Like.containing(town))
+                .map(EventRepository::toEvent)
+                .all());
+    }
+
+    /**
+     * Lock an event until the end of the transaction and read what its changes depend on
+     * @param uuid Event's uuid
+     * @return The locked event, empty if not found
+     */
+    public Mono<LockedEvent> lockByUuid(String uuid) {
+        return BinaryUuid.key(uuid).flatMap(key -> this.client.sql("SELECT id, user_id, location_id, max_player, " +
+                        "creation_date FROM event WHERE uuid = :uuid FOR UPDATE")
+                .bind("uuid", key)
+                .map(row -> new LockedEvent(row.get("id", Long.class), row.get("user_id", Long.class),
+                        row.get("location_id", Long.class), row.get("max_player", Integer.class),
+                        row.get("creation_date", LocalDateTime.class)))
+                .one());
+    }
+
+    /**
+     * Insert an event and its location
+     * @param toCreate Event to insert
+     * @param uuid Event's uuid
+     * @param creationDate Creation date
+     * @param creatorId Id of the creator
+     * @param gameId Id of the game
+     * @return Id of the event
+     */
+    public Mono<Long> insert(EventCreateDTO toCreate, String uuid, LocalDateTime creationDate,
+                             long creatorId, long gameId) {
+        DatabaseClient.GenericExecuteSpec location = this.client.sql(
+                "INSERT INTO location (town, zip_code, address) VALUES (:town, :zipCode, :address)");
+        location = bind(location, "town", toCreate.getLocation().getTown(), String.class);
+        location = bind(location, "zipCode", toCreate.getLocation().getZipCode(), String.class);
+        location = bind(location, "address", toCreate.getLocation().getAddress(), String.class);
+        return location.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .flatMap(locationId -> {
+                    DatabaseClient.GenericExecuteSpec event = this.client.sql("INSERT INTO event " +
+                                    "(uuid, version, title, user_id, game_id, min_player, max_player, creation_date, " +
+                                    "start_date, end_date, limit_date, description, private, location_id) VALUES " +
+                                    "(:uuid, 0, :title, :creator, :game, :minPlayer, :maxPlayer, :creationDate, " +
+                                    ":startingDate, :endingDate, :limitDate, :description, :private, :location)")
+                            .bind("uuid", Objects.requireNonNull(Uuids.toBytes(uuid)))
+                            .bind("title", toCreate.getTitle())
+                            .bind("creator", creatorId)
+                            .bind("game", gameId)
+                            .bind("minPlayer", toCreate.getMinPlayer())
+                            .bind("maxPlayer", toCreate.getMaxPlayer())
+                            .bind("creationDate", creationDate)
+                            .bind("startingDate", toCreate.getStartingDate())
+                            .bind("limitDate", toCreate.getLimitDate())
+                            .bind("description", toCreate.getDescription())
+                            .bind("private", toCreate.isPrivate())
+                            .bind("location", locationId);
+                    event = bind(event, "endingDate", toCreate.getEndingDate(), LocalDateTime.class);
+                    return event.filter(statement -> statement.returnGeneratedValues("id"))
+                            .map(row -> row.get("id", Long.class))
+                            .one();
+                });
+    }
+
+    /**
+     * Update an event and its location, and increment its version
+     * @param event Locked event
+     * @param toUpdate New values
+     * @param gameId Id of the game
+     */
+    public Mono<Void> update(LockedEvent event, EventUpdateDTO toUpdate, long gameId) {
+        DatabaseClient.GenericExecuteSpec update = this.client.sql("UPDATE event SET title = :title, " +
+                        "game_id = :game, min_player = :minPlayer, max_player = :maxPlayer, start_date = :startingDate, " +
+                        "end_date = :endingDate, limit_date = :limitDate, description = :description, " +
+                        "private = :private, version = version + 1 WHERE id = :id")
+                .bind("title", toUpdate.getTitle())
+                .bind("game", gameId)
+                .bind("minPlayer", toUpdate.getMinPlayer())
+                .bind("maxPlayer", toUpdate.getMaxPlayer())
+                .bind("startingDate", toUpdate.getStartingDate())
+                .bind("limitDate", toUpdate.getLimitDate())
+                .bind("description", toUpdate.getDescription())
+                .bind("private", toUpdate.isPrivate())
+                .bind("id", event.getId());
+        update = bind(update, "endingDate", toUpdate.getEndingDate(), LocalDateTime.class);
+        DatabaseClient.GenericExecuteSpec location = this.client.sql(
+                "UPDATE location SET town = :town, zip_code = :zipCode, address = :address WHERE id = :id");
+        location = bind(location, "town", toUpdate.getLocation().getTown(), String.class);
+        location = bind(location, "zipCode", toUpdate.getLocation().getZipCode(), String.class);
+        location = bind(location, "address", toUpdate.getLocation().getAddress(), String.class);
+        location = bind(location, "id", event.getLocationId(), Long.class);
+        return update.then().then(location.then());
+    }
+
+    /**
+     * Delete an event and its participants
+     * @param uuid Event's uuid
+     */
+    public Mono<Void> deleteByUuid(String uuid) {
+        return BinaryUuid.key(uuid).flatMap(key -> this.client.sql("SELECT id FROM event WHERE uuid = :uuid")
+                        .bind("uuid", key)
+                        .map(row -> row.get("id", Long.class))
+                        .one())
+                .flatMap(id -> this.client.sql("DELETE FROM event_user WHERE event_id = :id").bind("id", id).then()
+                        .then(this.client.sql("DELETE FROM event_user_in_queue WHERE event_id = :id")
+                                .bind("id", id).then())
+                        .then(this.client.sql("DELETE FROM event WHERE id = :id").bind("id", id).then()));
+    }
+
+    /**
+     * Count the participants of an event and tell if a user is already one of them
+     * @param eventId Event's id
+     * @param userId User's id
+     * @param waiting True for the waiting queue, false for the registered users
+     * @return Participants
+     */
+    public Mono<Participants> findParticipants(long eventId, long userId, boolean waiting) {
+        return this.client.sql("SELECT " +
+                        "(SELECT COUNT(*) FROM " + table(waiting) + " WHERE event_id = :event) AS size, " +
+                        "(SELECT COUNT(*) FROM event_user WHERE event_id = :event AND user_id = :user) " +
+                        "+ (SELECT COUNT(*) FROM event_user_in_queue WHERE event_id = :event AND user_id = :user) " +
+                        "AS present")
+                .bind("event", eventId)
+                .bind("user", userId)
+                .map(row -> new Participants(((Number) row.get("size")).longValue(),
+                        ((Number) row.get("present")).longValue() > 0))
+                .one();
+    }
+
+    /**
+     * Add a participant to an event and increment its version
+     * @param eventId Event's id
+     * @param userId User's id
+     * @param waiting True for the waiting queue, false for the registered users
+     */
+    public Mono<Void> addParticipant(long eventId, long userId, boolean waiting) {
+        return this.client.sql("INSERT INTO " + table(waiting) + " (event_id, user_id) VALUES (:event, :user)")
+                .bind("event", eventId)
+                .bind("user", userId)
+                .then()
+                .then(this.incrementVersion(eventId));
+    }
+
+    /**
+     * Remove a participant from an event and increment its version if he was one
+     * @param eventId Event's id
+     * @param userId User's id
+     * @param waiting True for the waiting queue, false for the registered users
+     * @return True if removed
+     */
+    public Mono<Boolean> removeParticipant(long eventId, long userId, boolean waiting) {
+        return this.client.sql("DELETE FROM " + table(waiting) + " WHERE event_id = :event AND user_id = :user")
+                .bind("event", eventId)
+                .bind("user", userId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(count -> count > 0 ? this.incrementVersion(eventId).thenReturn(true) : Mono.just(false));
+    }
+
+    /**
+     * Increment the version of an event
+     */
+    private Mono<Void> incrementVersion(long eventId) {
+        return this.client.sql("UPDATE event SET version = version + 1 WHERE id = :id").bind("id", eventId).then();
+    }
+
+    /**
+     * Read the participants of the events, with one query for all of them
+     */
+    private Flux<EventDTO> withParticipants(Flux<Map.Entry<Long, EventDTO>> rows) {
+        return rows.collectList().flatMapMany(events -> {
+            if (events.isEmpty())
+                return Flux.empty();
+            Map<Long, EventDTO> byId = new LinkedHashMap<>();
+            events.forEach(entry -> byId.put(entry.getKey(), entry.getValue()));
+            return this.client.sql("SELECT p.event_id, 0 AS waiting, u.nickname FROM event_user p " +
+                            "JOIN user u ON u.id = p.user_id WHERE p.event_id IN (:ids) " +
+                            "UNION ALL " +
+                            "SELECT p.event_id, 1 AS waiting, u.nickname FROM event_user_in_queue p " +
+                            "JOIN user u ON u.id = p.user_id WHERE p.event_id IN (:ids)")
+                    .bind("ids", byId.keySet())
+                    .map(row -> {
+                        EventDTO event = byId.get(row.get("event_id", Long.class));
+                        UserNameDTO user = new UserNameDTO(row.get("nickname", String.class));
+                        if (((Number) row.get("waiting")).intValue() == 0)
+                            event.getRegisteredUsers().add(user);
+                        else
+                            event.getWaitingUsers().add(user);
+                        return user;
+                    })
+                    .all()
+                    .thenMany(Flux.fromIterable(byId.values()));
+        });
+    }
+
+    /**
+     * Read an event, without its participants
+     */
+    private static Map.Entry<Long, EventDTO> toEvent(Row row) {
+        EventDTO event = new EventDTO();
+        event.setUuid(BinaryUuid.read(row, "uuid"));
+        event.setVersion(row.get("version", Long.class));
+        event.setTitle(row.get("title", String.class));
+        String creator = row.get("creator", String.class);
+        event.setCreator(creator == null ? null : new UserNameDTO(creator));
+        String gameUuid = BinaryUuid.read(row, "game_uuid");
+        event.setGame(gameUuid == null ? null : new GameNameUuidDTO(gameUuid, row.get("game_name", String.class)));
+        event.setMinPlayer(row.get("min_player", Integer.class));
+        event.setMaxPlayer(row.get("max_player", Integer.class));
+        event.setCreationDate(row.get("creation_date", LocalDateTime.class));
+        event.setStartingDate(row.get("start_date", LocalDateTime.class));
+        event.setEndingDate(row.get("end_date", LocalDateTime.class));
+        event.setLimitDate(row.get("limit_date", LocalDateTime.class));
+        event.setDescription(row.get("description", String.class));
+        event.setPrivate(Boolean.TRUE.equals(row.get("private", Boolean.class)));
+        String town = row.get("town", String.class);
+        event.setLocation(town == null ? null
+                : new LocationDTO(town, row.get("zip_code", String.class), row.get("address", String.class)));
+        return new AbstractMap.SimpleImmutableEntry<>(row.get("id", Long.class), event);
+    }
+
+    /**
+     * Bind a value which may be null
+     */
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                         Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    /**
+     * Table of the registered users or of the waiting queue
+     */
+    private static String table(boolean waiting) {
+        return waiting ? "event_user_in_queue" : "event_user";
+    }
+
+    /**
+     * What the changes of an event depend on, read while the event is locked
+     */
+    @Value
+    public static class LockedEvent {
+        Long id;
+        Long creatorId;
+        Long locationId;
+        int maxPlayer;
+        LocalDateTime creationDate;
+    }
+
+    /**
+     * Size of a list of participants, and presence of a user in one of the lists
+     */
+    @Value
+    public static class Participants {
+        long size;
+        boolean present;
+    }
+}
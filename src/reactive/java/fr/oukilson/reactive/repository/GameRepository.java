@@ -0,0 +1,68 @@
+package fr.oukilson.reactive.repository;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC access to the table game
+ */
+@Repository
+public class GameRepository {
+    private final DatabaseClient client;
+
+    public GameRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Find a game by its uuid
+     * @param uuid Game's uuid
+     * @return The game, empty if not found
+     */
+    public Mono<GameDTO> findByUuid(String uuid) {
+        return BinaryUuid.key(uuid).flatMap(key -> this.client.sql("SELECT uuid, version, name, min_player, " +
+                        "max_player, min_time, max_time, min_age, creator_name FROM game WHERE uuid = :uuid")
+                .bind("uuid", key)
+                .map(row -> new GameDTO(BinaryUuid.read(row, "uuid"), row.get("name", String.class),
+                        valueOf(row.get("min_player", Integer.class)), valueOf(row.get("max_player", Integer.class)),
+                        valueOf(row.get("min_time", Integer.class)), valueOf(row.get("max_time", Integer.class)),
+                        valueOf(row.get("min_age", Integer.class)), row.get("creator_name", String.class),
+                        row.get("version", Long.class)))
+                .one());
+    }
+
+    /**
+     * Find the games whose name contains a text
+     * @param name Text to look for
+     * @return Games
+     */
+    public Flux<GameUuidDTO> findAllByNameContaining(String name) {
+        return this.client.sql("SELECT uuid, name FROM game WHERE name LIKE :name" + Like.ESCAPE)
+                .bind("name", Like.containing(name))
+                .map(row -> new GameUuidDTO(BinaryUuid.read(row, "uuid"), row.get("name", String.class)))
+                .all();
+    }
+
+    /**
+     * Find the id of a game
+     * @param uuid Game's uuid
+     * @return Id, empty if not found
+     */
+    public Mono<Long> findIdByUuid(String uuid) {
+        return BinaryUuid.key(uuid).flatMap(key -> this.client.sql("SELECT id FROM game WHERE uuid = :uuid")
+                .bind("uuid", key)
+                .map(row -> row.get("id", Long.class))
+                .one());
+    }
+
+    /**
+     * Integer columns may be null, as in GameMapper
+     */
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
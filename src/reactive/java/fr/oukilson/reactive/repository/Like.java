@@ -0,0 +1,20 @@
+package fr.oukilson.reactive.repository;
+
+/**
+ * LIKE patterns, escaped with '!' which needs no escaping itself in MySQL string literals
+ */
+final class Like {
+    static final String ESCAPE = " ESCAPE '!'";
+
+    private Like() {
+    }
+
+    /**
+     * Pattern of the values containing a text, its wildcards taken literally
+     * @param text Text
+     * @return Pattern
+     */
+    static String containing(String text) {
+        return "%" + text.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+}
@@ -0,0 +1,75 @@
+package fr.oukilson.reactive.repository;
+
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC access to the tables user, friend_list and denied_list
+ */
+@Repository
+public class UserRepository {
+    private final DatabaseClient client;
+
+    public UserRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Find the id of a user
+     * @param nickname User's nickname
+     * @return Id, empty if not found
+     */
+    public Mono<Long> findIdByNickname(String nickname) {
+        return this.client.sql("SELECT id FROM user WHERE nickname = :nickname")
+                .bind("nickname", nickname)
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Find the friends of a user
+     * @param userId User's id
+     * @return Friends' nicknames
+     */
+    public Flux<UserNameDTO> findFriends(long userId) {
+        return this.client.sql("SELECT u.nickname FROM friend_list f JOIN user u ON u.id = f.friend_id " +
+                        "WHERE f.user_id = :id")
+                .bind("id", userId)
+                .map(row -> new UserNameDTO(row.get("nickname", String.class)))
+                .all();
+    }
+
+    /**
+     * Check if a user is in the denied list of another one
+     * @param ownerId Owner of the denied list
+     * @param userId User to check
+     * @return True if denied
+     */
+    public Mono<Boolean> isDenied(long ownerId, long userId) {
+        return this.client.sql("SELECT COUNT(*) AS count FROM denied_list WHERE user_id = :owner AND denied_id = :user")
+                .bind("owner", ownerId)
+                .bind("user", userId)
+                .map(row -> ((Number) row.get("count")).longValue() > 0)
+                .one();
+    }
+
+    /**
+     * Insert a user
+     * @param nickname Nickname
+     * @param password Hashed password
+     * @param email Email
+     * @return Id of the user
+     */
+    public Mono<Long> insert(String nickname, String password, String email) {
+        return this.client.sql("INSERT INTO user (nickname, password, email) VALUES (:nickname, :password, :email)")
+                .bind("nickname", nickname)
+                .bind("password", password)
+                .bind("email", email)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+}
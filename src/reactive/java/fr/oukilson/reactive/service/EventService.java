@@ -0,0 +1,198 @@
+package fr.oukilson.reactive.service;
+
+import fr.oukilson.backend.dto.event.*;
+import fr.oukilson.backend.model.Uuids;
+import fr.oukilson.reactive.repository.EventRepository;
+import fr.oukilson.reactive.repository.GameRepository;
+import fr.oukilson.reactive.repository.UserRepository;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+
+/**
+ * Events, with the rules of the servlet EventService (validation by the DTOs' isValid, full lists,
+ * waiting queue, creator's denied list) and non blocking database access.
+ * Registrations lock the event row until they commit, so two of them can't fill the same last place.
+ * Friend feeds and the version cache are kept in memory by the servlet instance: they are not updated here.
+ */
+public class EventService {
+    private final EventRepository repository;
+    private final UserRepository userRepository;
+    private final GameRepository gameRepository;
+
+    public EventService(EventRepository repository, UserRepository userRepository, GameRepository gameRepository) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.gameRepository = gameRepository;
+    }
+
+    /**
+     * Find an event by its uuid
+     * @param uuid Event's uuid
+     * @return EventDTO, empty if not found
+     */
+    public Mono<EventDTO> findByUuid(String uuid) {
+        return this.repository.findByUuid(uuid);
+    }
+
+    /**
+     * Search for events by one of this two options :
+     * - date after the provided date
+     * - happening in a town
+     * If both filters are used, the date will be default choice; an invalid date falls back to the town.
+     * @param date Date in a string format
+     * @param town Town's name
+     * @return Events, none if there's no valid filter
+     */
+    public Flux<EventDTO> findByFilter(String date, String town) {
+        Flux<EventDTO> result;
+        LocalDateTime pointInTime = null;
+        if (date!=null && !date.isBlank()) {
+            try {
+                pointInTime = LocalDateTime.parse(date);
+            }
+            catch (Exception e) {
+                pointInTime = null;
+            }
+        }
+        if (pointInTime!=null)
+            result = this.repository.findAllByStartingDateAfter(pointInTime);
+        else if (town!=null && !town.isBlank())
+            result = this.repository.findAllByLocationTownContaining(town);
+        else
+            result = Flux.empty();
+        return result;
+    }
+
+    /**
+     * Add a new event
+     * @param toCreate The event to add
+     * @return The created event; an IllegalArgumentException if invalid, a NoSuchElementException if its
+     * creator or game doesn't exist
+     */
+    @Transactional
+    public Mono<EventDTO> save(EventCreateDTO toCreate) {
+        LocalDateTime rightNow = LocalDateTime.now();
+        if (toCreate==null || !toCreate.isValid(rightNow))
+            return Mono.error(new IllegalArgumentException("Event creation : Invalid parameter data."));
+        String uuid = Uuids.generate();
+        return Mono.zip(this.userRepository.findIdByNickname(toCreate.getCreator().getNickname()),
+                        this.gameRepository.findIdByUuid(toCreate.getGame().getUuid()))
+                .switchIfEmpty(Mono.error(new NoSuchElementException("Event creation : Unknown user/game")))
+                .flatMap(ids -> this.repository.insert(toCreate, uuid, rightNow, ids.getT1(), ids.getT2()))
+                .then(Mono.defer(() -> this.repository.findByUuid(uuid)));
+    }
+
+    /**
+     * Update an existing event
+     * @param toUpdate The event to update
+     * @return The updated event; an IllegalArgumentException if invalid, a NoSuchElementException if the
+     * event or its game doesn't exist
+     */
+    @Transactional
+    public Mono<EventDTO> update(EventUpdateDTO toUpdate) {
+        if (toUpdate==null || toUpdate.getUuid()==null)
+            return Mono.error(new NoSuchElementException("Event update : Unknown event"));
+        return this.repository.lockByUuid(toUpdate.getUuid())
+                .switchIfEmpty(Mono.error(new NoSuchElementException("Event update : Unknown event")))
+                .flatMap(event -> {
+                    if (!toUpdate.isValid(event.getCreationDate()))
+                        return Mono.error(new IllegalArgumentException("Event update : Invalid parameter data."));
+                    return this.gameRepository.findIdByUuid(toUpdate.getGame().getUuid())
+                            .switchIfEmpty(Mono.error(new NoSuchElementException("Event update : Unknown game")))
+                            .flatMap(gameId -> this.repository.update(event, toUpdate, gameId));
+                })
+                .then(Mono.defer(() -> this.repository.findByUuid(toUpdate.getUuid())));
+    }
+
+    /**
+     * Delete an event by its uuid
+     * @param uuid Event's uuid
+     */
+    @Transactional
+    public Mono<Void> deleteByUuid(String uuid) {
+        return this.repository.deleteByUuid(uuid);
+    }
+
+    /**
+     * Add a user in the event's queue.
+     * Will return false if :
+     * - user doesn't exist
+     * - event doesn't exist
+     * - user is already in the queue or in the waiting queue
+     * - the event's queue is full
+     * - user is in the denied list of the event's creator
+     * @param tuple EventAddUserDTO
+     * @return True if added
+     */
+    @Transactional
+    public Mono<Boolean> addUserInEvent(EventAddUserDTO tuple) {
+        return tuple==null ? Mono.just(false) : this.addUser(tuple.getUuid(), tuple.getNickname(), false);
+    }
+
+    /**
+     * Add a user in the event's waiting queue, with the same rules as addUserInEvent
+     * @param tuple EventAddUserDTO
+     * @return True if added
+     */
+    @Transactional
+    public Mono<Boolean> addUserInEventInWaitingQueue(EventAddUserDTO tuple) {
+        return tuple==null ? Mono.just(false) : this.addUser(tuple.getUuid(), tuple.getNickname(), true);
+    }
+
+    /**
+     * Remove a user in an event's queue
+     * @param tuple EventRemoveUserDTO
+     * @return True if removed, false if the user or the event doesn't exist or if the user is not in the queue
+     */
+    @Transactional
+    public Mono<Boolean> removeUserInEvent(EventRemoveUserDTO tuple) {
+        return tuple==null ? Mono.just(false) : this.removeUser(tuple.getUuid(), tuple.getNickname(), false);
+    }
+
+    /**
+     * Remove a user in an event's waiting queue
+     * @param tuple EventRemoveUserDTO
+     * @return True if removed, false if the user or the event doesn't exist or if the user is not in the queue
+     */
+    @Transactional
+    public Mono<Boolean> removeUserInWaitingQueue(EventRemoveUserDTO tuple) {
+        return tuple==null ? Mono.just(false) : this.removeUser(tuple.getUuid(), tuple.getNickname(), true);
+    }
+
+    /**
+     * Add a user in one of the lists of an event
+     */
+    private Mono<Boolean> addUser(String uuid, String nickname, boolean waiting) {
+        if (uuid==null || nickname==null)
+            return Mono.just(false);
+        return this.repository.lockByUuid(uuid)
+                .flatMap(event -> this.userRepository.findIdByNickname(nickname)
+                        .flatMap(userId -> (event.getCreatorId()==null ? Mono.just(false)
+                                : this.userRepository.isDenied(event.getCreatorId(), userId))
+                                .flatMap(denied -> denied ? Mono.just(false)
+                                        : this.repository.findParticipants(event.getId(), userId, waiting)
+                                        .flatMap(participants -> {
+                                            if (participants.getSize() >= event.getMaxPlayer()
+                                                    || participants.isPresent())
+                                                return Mono.just(false);
+                                            return this.repository.addParticipant(event.getId(), userId, waiting)
+                                                    .thenReturn(true);
+                                        }))))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Remove a user from one of the lists of an event
+     */
+    private Mono<Boolean> removeUser(String uuid, String nickname, boolean waiting) {
+        if (uuid==null || nickname==null)
+            return Mono.just(false);
+        return this.repository.lockByUuid(uuid)
+                .flatMap(event -> this.userRepository.findIdByNickname(nickname)
+                        .flatMap(userId -> this.repository.removeParticipant(event.getId(), userId, waiting)))
+                .defaultIfEmpty(false);
+    }
+}
@@ -0,0 +1,33 @@
+package fr.oukilson.reactive.service;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.reactive.repository.GameRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class GameService {
+    private final GameRepository repository;
+
+    public GameService(GameRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Return all the game info by providing its uuid.
+     * @param uuid String uuid of the game
+     * @return GameDTO, empty if not found
+     */
+    public Mono<GameDTO> findByUuid(String uuid) {
+        return this.repository.findByUuid(uuid);
+    }
+
+    /**
+     * Return all games sharing the same name or part of it.
+     * @param name The string to search
+     * @return GameUuidDTO of the games
+     */
+    public Flux<GameUuidDTO> findByName(String name) {
+        return name==null ? Flux.empty() : this.repository.findAllByNameContaining(name);
+    }
+}
@@ -0,0 +1,73 @@
+package fr.oukilson.reactive.service;
+
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.service.PasswordHasher;
+import fr.oukilson.reactive.repository.UserRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
+import java.util.ArrayList;
+
+/**
+ * Users, with the rules of the servlet UserService.
+ * Passwords are hashed by the bounded pool of PasswordHasher, whose future is followed without blocking
+ * the event loop.
+ */
+public class UserService {
+    private final UserRepository userRepository;
+    private final RegexCollection regexCollection;
+    private final PasswordHasher passwordHasher;
+
+    public UserService(UserRepository userRepository, RegexCollection regexCollection,
+                       PasswordHasher passwordHasher) {
+        this.userRepository = userRepository;
+        this.regexCollection = regexCollection;
+        this.passwordHasher = passwordHasher;
+    }
+
+    /**
+     * Search a user by nickname
+     * @param nickname User's nickname
+     * @return UserDTO, empty if not found
+     */
+    public Mono<UserDTO> findUserByNickname(String nickname) {
+        if (!this.regexCollection.getNicknamePattern().matcher(nickname).find())
+            return Mono.empty();
+        return this.userRepository.findIdByNickname(nickname)
+                .flatMap(id -> this.userRepository.findFriends(id).collectList())
+                .map(friends -> new UserDTO(nickname, friends));
+    }
+
+    /**
+     * Check if a nickname is valid and not used by another user
+     * @param nickname Nickname to check
+     * @return True if the nickname can be used to create a user
+     */
+    public Mono<Boolean> isNicknameAvailable(String nickname) {
+        if (nickname==null || !this.regexCollection.getNicknamePattern().matcher(nickname).find())
+            return Mono.just(false);
+        return this.userRepository.findIdByNickname(nickname).hasElement().map(used -> !used);
+    }
+
+    /**
+     * Create a user, with his password hashed.
+     * Empty if the data are invalid or if the nickname is already used.
+     * @param userCreationDTO User's data
+     * @return UserDTO; a RejectedExecutionException if too many passwords are being hashed
+     */
+    public Mono<UserDTO> createUser(UserCreationDTO userCreationDTO) {
+        if (userCreationDTO==null || !userCreationDTO.isValid(this.regexCollection.getNicknamePattern(),
+                this.regexCollection.getEmailPattern()))
+            return Mono.empty();
+        return this.isNicknameAvailable(userCreationDTO.getNickname())
+                .filter(available -> available)
+                .flatMap(available -> Mono.defer(
+                        () -> Mono.fromFuture(this.passwordHasher.hash(userCreationDTO.getPassword()))))
+                .flatMap(hash -> this.userRepository.insert(userCreationDTO.getNickname(), hash,
+                        userCreationDTO.getEmail()))
+                .map(id -> new UserDTO(userCreationDTO.getNickname(), new ArrayList<>()))
+                // The unique index on nickname has been hit by a concurrent creation
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty());
+    }
+}
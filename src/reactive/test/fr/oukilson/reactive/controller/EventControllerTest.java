@@ -0,0 +1,74 @@
+package fr.oukilson.reactive.controller;
+
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.reactive.service.EventService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(controllers = EventController.class)
+public class EventControllerTest {
+    @Autowired
+    private WebTestClient client;
+    @MockBean
+    private EventService service;
+
+    /**
+     * Test findByUuid : the event is sent with its version as ETag
+     */
+    @DisplayName("Test findByUuid : found")
+    @Test
+    public void testFindByUuid() {
+        EventDTO event = new EventDTO();
+        event.setUuid("uuid");
+        event.setVersion(3L);
+        BDDMockito.when(this.service.findByUuid("uuid")).thenReturn(Mono.just(event));
+        this.client.get().uri("/events/uuid").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"3\"")
+                .expectBody().jsonPath("$.uuid").isEqualTo("uuid");
+    }
+
+    /**
+     * Test findByUuid : not found
+     */
+    @DisplayName("Test findByUuid : not found")
+    @Test
+    public void testFindByUuidNotFound() {
+        BDDMockito.when(this.service.findByUuid("uuid")).thenReturn(Mono.empty());
+        this.client.get().uri("/events/uuid").exchange().expectStatus().isNotFound();
+    }
+
+    /**
+     * Test save : an error of the service is a bad request
+     */
+    @DisplayName("Test save : invalid event")
+    @Test
+    public void testSaveInvalid() {
+        BDDMockito.when(this.service.save(ArgumentMatchers.any(EventCreateDTO.class)))
+                .thenReturn(Mono.error(new IllegalArgumentException()));
+        this.client.post().uri("/events").contentType(MediaType.APPLICATION_JSON).bodyValue("{}").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Test addUserInEvent : the answer of the service is the body
+     */
+    @DisplayName("Test addUserInEvent")
+    @Test
+    public void testAddUserInEvent() {
+        BDDMockito.when(this.service.addUserInEvent(ArgumentMatchers.any())).thenReturn(Mono.just(true));
+        this.client.put().uri("/events/add_user").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"uuid\":\"uuid\",\"nickname\":\"nickname\"}").exchange()
+                .expectStatus().isOk()
+                .expectBody(Boolean.class).isEqualTo(true);
+    }
+}
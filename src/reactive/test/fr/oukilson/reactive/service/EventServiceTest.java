@@ -0,0 +1,97 @@
+package fr.oukilson.reactive.service;
+
+import fr.oukilson.backend.dto.event.EventAddUserDTO;
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.reactive.repository.EventRepository;
+import fr.oukilson.reactive.repository.GameRepository;
+import fr.oukilson.reactive.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import java.time.LocalDateTime;
+
+public class EventServiceTest {
+    private EventRepository repository;
+    private UserRepository userRepository;
+    private EventService service;
+    private final EventRepository.LockedEvent event =
+            new EventRepository.LockedEvent(1L, 2L, 3L, 2, LocalDateTime.now().minusDays(1));
+
+    @BeforeEach
+    public void init() {
+        this.repository = Mockito.mock(EventRepository.class);
+        this.userRepository = Mockito.mock(UserRepository.class);
+        this.service = new EventService(this.repository, this.userRepository, Mockito.mock(GameRepository.class));
+        BDDMockito.when(this.repository.lockByUuid("uuid")).thenReturn(Mono.just(this.event));
+        BDDMockito.when(this.repository.lockByUuid("unknown")).thenReturn(Mono.empty());
+        BDDMockito.when(this.userRepository.findIdByNickname("nickname")).thenReturn(Mono.just(4L));
+        BDDMockito.when(this.userRepository.isDenied(2L, 4L)).thenReturn(Mono.just(false));
+        BDDMockito.when(this.repository.addParticipant(1L, 4L, false)).thenReturn(Mono.empty());
+    }
+
+    /**
+     * Test save : an invalid event is refused before any query
+     */
+    @DisplayName("Test save : invalid event")
+    @Test
+    public void testSaveInvalid() {
+        StepVerifier.create(this.service.save(new EventCreateDTO())).expectError(IllegalArgumentException.class)
+                .verify();
+        Mockito.verifyNoInteractions(this.repository);
+    }
+
+    /**
+     * Test addUserInEvent : the user is added when there's a place
+     */
+    @DisplayName("Test addUserInEvent : added")
+    @Test
+    public void testAddUserInEvent() {
+        BDDMockito.when(this.repository.findParticipants(1L, 4L, false))
+                .thenReturn(Mono.just(new EventRepository.Participants(1, false)));
+        StepVerifier.create(this.service.addUserInEvent(new EventAddUserDTO("uuid", "nickname")))
+                .expectNext(true).verifyComplete();
+        Mockito.verify(this.repository).addParticipant(1L, 4L, false);
+    }
+
+    /**
+     * Test addUserInEvent : refused when the list is full
+     */
+    @DisplayName("Test addUserInEvent : full list")
+    @Test
+    public void testAddUserInEventFull() {
+        BDDMockito.when(this.repository.findParticipants(1L, 4L, false))
+                .thenReturn(Mono.just(new EventRepository.Participants(2, false)));
+        StepVerifier.create(this.service.addUserInEvent(new EventAddUserDTO("uuid", "nickname")))
+                .expectNext(false).verifyComplete();
+        Mockito.verify(this.repository, Mockito.never())
+                .addParticipant(ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyBoolean());
+    }
+
+    /**
+     * Test addUserInEvent : refused when the user is in the denied list of the creator
+     */
+    @DisplayName("Test addUserInEvent : denied user")
+    @Test
+    public void testAddUserInEventDenied() {
+        BDDMockito.when(this.userRepository.isDenied(2L, 4L)).thenReturn(Mono.just(true));
+        StepVerifier.create(this.service.addUserInEvent(new EventAddUserDTO("uuid", "nickname")))
+                .expectNext(false).verifyComplete();
+        Mockito.verify(this.repository, Mockito.never())
+                .findParticipants(ArgumentMatchers.anyLong(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyBoolean());
+    }
+
+    /**
+     * Test addUserInEvent : false for an unknown event
+     */
+    @DisplayName("Test addUserInEvent : unknown event")
+    @Test
+    public void testAddUserInEventUnknown() {
+        StepVerifier.create(this.service.addUserInEvent(new EventAddUserDTO("unknown", "nickname")))
+                .expectNext(false).verifyComplete();
+    }
+}
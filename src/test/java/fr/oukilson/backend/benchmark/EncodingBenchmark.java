@@ -0,0 +1,100 @@
+package fr.oukilson.backend.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.json.EventJsonComponent;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of search results written as JSON, CBOR and Smile.
+ * The payload size of each format is printed in the setup; times are per page.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="EncodingBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+    @Param({"json", "cbor", "smile"})
+    private String format;
+    @Param({"20", "100"})
+    private int page;
+    private ObjectWriter writer;
+    private List<Event> events;
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setup() throws IOException {
+        JsonFactory factory;
+        switch (this.format) {
+            case "cbor":
+                factory = new CBORFactory();
+                break;
+            case "smile":
+                factory = new SmileFactory();
+                break;
+            default:
+                factory = new JsonFactory();
+        }
+        this.writer = JsonMapper.builder(factory)
+                .addModule(new SimpleModule().addSerializer(Event.class, new EventJsonComponent.EventSerializer()))
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build()
+                .writer();
+        this.events = new ArrayList<>(this.page);
+        for (long e=0; e<this.page; e++) {
+            Game game = new Game();
+            game.setUuid(UUID.randomUUID().toString());
+            game.setName("Les Aventuriers du Rail");
+            User creator = new User();
+            creator.setId(1L);
+            creator.setNickname("SuperAlbert");
+            Event event = new Event();
+            event.setId(e);
+            event.setUuid(UUID.randomUUID().toString());
+            event.setTitle("Soirée jeux " + e);
+            event.setCreator(creator);
+            event.setGame(game);
+            event.setMinPlayer(2);
+            event.setMaxPlayer(6);
+            event.setCreationDate(LocalDateTime.now());
+            event.setStartingDate(LocalDateTime.now().plusDays(2));
+            event.setEndingDate(LocalDateTime.now().plusDays(2).plusHours(4));
+            event.setLimitDate(LocalDateTime.now().plusDays(1));
+            event.setDescription("Venez nombreux, boissons et gâteaux fournis.");
+            event.setLocation(new Location(e, "Gan", "64290", "123 Rue d'Ossau", event));
+            for (long i=0; i<4; i++) {
+                User user = new User();
+                user.setId(i + 2);
+                user.setNickname("Player" + i);
+                event.getRegisteredUsers().add(user);
+            }
+            this.events.add(event);
+        }
+        System.out.println(this.format + ", " + this.page + " events: "
+                + this.writer.writeValueAsBytes(this.events).length + " bytes");
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        this.writer.writeValue(this.sink, this.events);
+    }
+}
@@ -0,0 +1,104 @@
+package fr.oukilson.backend.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.json.EventJsonComponent;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of search results written as JSON: events mapped to EventDTO then written by Jackson's
+ * bean serializer, against entities written by EventJsonComponent.
+ * Times and allocations (gc.alloc.rate.norm) are per event.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="JsonBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    private static final int PAGE = 20;
+    @Param({"0", "10"})
+    private int registered;
+    private EventMapper eventMapper;
+    private ObjectWriter reflective;
+    private ObjectWriter streaming;
+    private List<Event> events;
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setup() {
+        this.eventMapper = new EventMapper(new UserMapper(), new GameMapper());
+        this.reflective = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build()
+                .writer();
+        this.streaming = JsonMapper.builder()
+                .addModule(new SimpleModule().addSerializer(Event.class, new EventJsonComponent.EventSerializer()))
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build()
+                .writer();
+        this.events = new ArrayList<>(PAGE);
+        for (long e=0; e<PAGE; e++) {
+            Game game = new Game();
+            game.setUuid(UUID.randomUUID().toString());
+            game.setName("Innovation");
+            User creator = new User();
+            creator.setId(1L);
+            creator.setNickname("SuperAlbert");
+            Event event = new Event();
+            event.setId(e);
+            event.setUuid(UUID.randomUUID().toString());
+            event.setTitle("Soirée " + e);
+            event.setCreator(creator);
+            event.setGame(game);
+            event.setMinPlayer(2);
+            event.setMaxPlayer(this.registered + 2);
+            event.setCreationDate(LocalDateTime.now());
+            event.setStartingDate(LocalDateTime.now().plusDays(2));
+            event.setLimitDate(LocalDateTime.now().plusDays(1));
+            event.setDescription("Description");
+            event.setLocation(new Location(e, "Gan", "64290", "123 Rue d'Ossau", event));
+            for (long i=0; i<this.registered; i++) {
+                User user = new User();
+                user.setId(i + 2);
+                user.setNickname("Player" + i);
+                event.getRegisteredUsers().add(user);
+            }
+            this.events.add(event);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void dtoThenReflection() throws IOException {
+        this.reflective.writeValue(this.sink, this.eventMapper.toDTOs(this.events));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void entityStreaming() throws IOException {
+        this.streaming.writeValue(this.sink, this.events);
+    }
+}
@@ -0,0 +1,76 @@
+package fr.oukilson.backend.benchmark;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.mapper.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event to EventDTO: ModelMapper against the handwritten EventMapper.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="MapperBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+    @Param({"0", "10", "50"})
+    private int registered;
+    private ModelMapper modelMapper;
+    private EventMapper eventMapper;
+    private Event event;
+
+    @Setup
+    public void setup() {
+        this.modelMapper = new ModelMapper();
+        this.eventMapper = new EventMapper(new UserMapper(), new GameMapper());
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Innovation");
+        User creator = new User();
+        creator.setId(1L);
+        creator.setNickname("SuperAlbert");
+        this.event = new Event();
+        this.event.setId(1L);
+        this.event.setUuid(UUID.randomUUID().toString());
+        this.event.setTitle("Soirée");
+        this.event.setCreator(creator);
+        this.event.setGame(game);
+        this.event.setMinPlayer(2);
+        this.event.setMaxPlayer(this.registered + 2);
+        this.event.setCreationDate(LocalDateTime.now());
+        this.event.setStartingDate(LocalDateTime.now().plusDays(2));
+        this.event.setLimitDate(LocalDateTime.now().plusDays(1));
+        this.event.setDescription("Description");
+        this.event.setLocation(new Location(1L, "Gan", "64290", "123 Rue d'Ossau", this.event));
+        for (long i=0; i<this.registered; i++) {
+            User user = new User();
+            user.setId(i + 2);
+            user.setNickname("Player" + i);
+            this.event.getRegisteredUsers().add(user);
+        }
+        // Build the type map before measuring
+        this.modelMapper.map(this.event, EventDTO.class);
+    }
+
+    @Benchmark
+    public EventDTO modelMapper() {
+        return this.modelMapper.map(this.event, EventDTO.class);
+    }
+
+    @Benchmark
+    public EventDTO eventMapper() {
+        return this.eventMapper.toDTO(this.event);
+    }
+}
@@ -0,0 +1,49 @@
+package fr.oukilson.backend.benchmark;
+
+import fr.oukilson.backend.service.PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of hashing and checking a password for several bcrypt costs, through the bounded pool.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PasswordHasherBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHasherBenchmark {
+    @Param({"8", "10", "12"})
+    private int cost;
+    private PasswordHasher hasher;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        this.hasher = new PasswordHasher(this.cost, Runtime.getRuntime().availableProcessors(), 1024, 60000);
+        this.hash = this.hasher.hashNow("esdrftghjkkl");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.hasher.shutdown();
+    }
+
+    @Benchmark
+    public String hash() {
+        return this.hasher.hash("esdrftghjkkl").join();
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return this.hasher.matches("esdrftghjkkl", this.hash).join();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hashConcurrent() {
+        return this.hasher.hash("esdrftghjkkl").join();
+    }
+}
@@ -0,0 +1,87 @@
+package fr.oukilson.backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load on a running instance, to compare the servlet stack with the reactive one under the same concurrency.
+ * Start the servlet stack with "mvn spring-boot:run" (port 8080) or the reactive one with
+ * "mvn -Preactive spring-boot:run" (port 8081), on a database holding a few events, then
+ * run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="StackLoadBenchmark -p url=http://localhost:8081"
+ * Each of the 32 threads creates its own user, which registers to and leaves the first event found.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StackLoadBenchmark {
+    @Param("http://localhost:8080")
+    private String url;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String event;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        JsonNode events = this.mapper.readTree(this.send(
+                HttpRequest.newBuilder(URI.create(this.url + "/events/search?date=2000-01-01T00:00")).build()));
+        if (events.size()==0)
+            throw new IllegalStateException("No event to benchmark on " + this.url);
+        this.event = events.get(0).get("uuid").asText();
+    }
+
+    /**
+     * User of one thread
+     */
+    @State(Scope.Thread)
+    public static class Registrant {
+        private String nickname;
+
+        @Setup
+        public void setup(StackLoadBenchmark benchmark) throws IOException, InterruptedException {
+            this.nickname = "bench" + ThreadLocalRandom.current().nextInt(1_000_000, 10_000_000);
+            benchmark.send(benchmark.json("/users", "POST",
+                    "{\"nickname\":\"" + this.nickname + "\",\"password\":\"password\",\"email\":\""
+                            + this.nickname + "@oukilson.fr\"}"));
+        }
+    }
+
+    @Benchmark
+    public String findByUuid() throws IOException, InterruptedException {
+        return this.send(HttpRequest.newBuilder(URI.create(this.url + "/events/" + this.event)).build());
+    }
+
+    @Benchmark
+    public String search() throws IOException, InterruptedException {
+        return this.send(HttpRequest.newBuilder(URI.create(this.url + "/events/search?town=a")).build());
+    }
+
+    @Benchmark
+    public String registerAndLeave(Registrant registrant) throws IOException, InterruptedException {
+        String tuple = "{\"uuid\":\"" + this.event + "\",\"nickname\":\"" + registrant.nickname + "\"}";
+        this.send(this.json("/events/add_user/waiting", "PUT", tuple));
+        return this.send(this.json("/events/remove_user/waiting", "PUT", tuple));
+    }
+
+    private HttpRequest json(String path, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(this.url + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        return this.client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
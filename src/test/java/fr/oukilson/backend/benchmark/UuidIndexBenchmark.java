@@ -0,0 +1,116 @@
+package fr.oukilson.backend.benchmark;
+
+import fr.oukilson.backend.model.Uuids;
+import org.openjdk.jmh.annotations.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uuid index of the events before (random uuids as VARCHAR(36)) and after (time ordered uuids as BINARY(16)).
+ * Each key type gets a table like event, with its (uuid, version) index, filled with 'rows' rows inserted in
+ * uuid generation order like in production. The insert time and the index size (from InnoDB's persistent
+ * statistics) are printed in the setup; the benchmark reads the version of a random row by its uuid.
+ * Needs a MySQL 8 database: run with
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark="UuidIndexBenchmark -p url=jdbc:mysql://localhost:3306/bench"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidIndexBenchmark {
+    private static final int BATCH = 1000;
+    @Param("jdbc:mysql://localhost:3306/oukilson_bench")
+    private String url;
+    @Param("root")
+    private String user;
+    @Param("root")
+    private String password;
+    @Param({"varchar-v4", "binary-v7"})
+    private String key;
+    @Param("500000")
+    private int rows;
+    private Connection connection;
+    private PreparedStatement lookup;
+    private String table;
+    private boolean binary;
+    private final List<String> uuids = new ArrayList<>();
+
+    @Setup
+    public void setup() throws SQLException {
+        this.binary = this.key.startsWith("binary");
+        this.table = "uuid_bench_" + this.key.replace('-', '_');
+        this.connection = DriverManager.getConnection(this.url + "?rewriteBatchedStatements=true",
+                this.user, this.password);
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + this.table);
+            statement.execute("CREATE TABLE " + this.table + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "uuid " + (this.binary ? "BINARY(16)" : "VARCHAR(36)") + ", version BIGINT NOT NULL, " +
+                    "title VARCHAR(255), INDEX idx_uuid_version (uuid, version)) " +
+                    "STATS_PERSISTENT = 1");
+        }
+
+        long start = System.nanoTime();
+        this.connection.setAutoCommit(false);
+        try (PreparedStatement insert = this.connection.prepareStatement(
+                "INSERT INTO " + this.table + " (uuid, version, title) VALUES (?, 0, 'Event')")) {
+            for (int i=0; i<this.rows; i++) {
+                String uuid = this.binary ? Uuids.generate() : UUID.randomUUID().toString();
+                this.uuids.add(uuid);
+                this.bind(insert, uuid);
+                insert.addBatch();
+                if ((i + 1) % BATCH == 0 || i == this.rows - 1) {
+                    insert.executeBatch();
+                    this.connection.commit();
+                }
+            }
+        }
+        this.connection.setAutoCommit(true);
+        long insertTime = System.nanoTime() - start;
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + this.table);
+            try (ResultSet result = statement.executeQuery("SELECT stat_name, stat_value * @@innodb_page_size " +
+                    "FROM mysql.innodb_index_stats WHERE database_name = DATABASE() AND table_name = '" +
+                    this.table + "' AND index_name = 'idx_uuid_version' AND stat_name IN ('size', 'n_leaf_pages')")) {
+                StringBuilder stats = new StringBuilder();
+                while (result.next())
+                    stats.append(String.format(", %s %.1f MB", result.getString(1), result.getLong(2) / 1048576.0));
+                System.out.printf("%n%s: %d rows inserted in %.1f s%s%n", this.key, this.rows,
+                        insertTime / 1e9, stats);
+            }
+        }
+        this.lookup = this.connection.prepareStatement("SELECT version FROM " + this.table + " WHERE uuid = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + this.table);
+        }
+        this.connection.close();
+    }
+
+    @Benchmark
+    public long findVersionByUuid() throws SQLException {
+        this.bind(this.lookup, this.uuids.get(ThreadLocalRandom.current().nextInt(this.uuids.size())));
+        try (ResultSet result = this.lookup.executeQuery()) {
+            return result.next() ? result.getLong(1) : -1;
+        }
+    }
+
+    /**
+     * Bind a uuid as the application does for the key type
+     */
+    private void bind(PreparedStatement statement, String uuid) throws SQLException {
+        if (this.binary)
+            statement.setBytes(1, Uuids.toBytes(uuid));
+        else
+            statement.setString(1, uuid);
+    }
+}
@@ -0,0 +1,68 @@
+package fr.oukilson.backend.benchmark;
+
+import fr.oukilson.backend.configuration.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.*;
+
+/**
+ * Thread per request as Tomcat does it by default (a pool of 200 platform threads) against a virtual thread
+ * per request, for a burst of slow clients: each request blocks 'latency' milliseconds, like a client
+ * sending its body slowly. Times are per burst.
+ * The virtual executor needs Java 21: put it first in the PATH, then
+ * run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="VirtualThreadBenchmark -prof gc"
+ * On an older Java, only the platform executor can run:
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark="VirtualThreadBenchmark -p threads=platform -prof gc"
+ * For the whole stack, run StackLoadBenchmark against an instance started with
+ * -Denvironment.virtualThreads.enabled=true and one without.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+    @Param({"platform", "virtual"})
+    private String threads;
+    @Param({"1000", "10000"})
+    private int clients;
+    @Param("20")
+    private long latency;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        if ("virtual".equals(this.threads)) {
+            if (!VirtualThreads.isSupported())
+                throw new IllegalStateException("Virtual threads need Java 21, "
+                        + "run on Java 21 or with -p threads=platform (running Java "
+                        + Runtime.version().feature() + ")");
+            this.executor = VirtualThreads.newThreadPerTaskExecutor("virtual-");
+        }
+        else
+            this.executor = Executors.newFixedThreadPool(200);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(this.clients);
+        for (int i=0; i<this.clients; i++) {
+            this.executor.execute(() -> {
+                try {
+                    Thread.sleep(this.latency);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        return this.clients;
+    }
+}
@@ -0,0 +1,99 @@
+package fr.oukilson.backend.configuration;
+
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.backend.dto.event.EventUpdateDTO;
+import fr.oukilson.backend.dto.game.GameUuidDTO;
+import fr.oukilson.backend.dto.location.EventCreateLocationDTO;
+import fr.oukilson.backend.dto.location.EventUpdateLocationDTO;
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import org.junit.jupiter.api.*;
+import org.modelmapper.ModelMapper;
+import java.time.LocalDateTime;
+
+public class MapperConfigurationTest {
+    private final ModelMapper mapper = new MapperConfiguration().modelMapper();
+
+    /**
+     * Test the type maps are built at creation
+     */
+    @DisplayName("Test modelMapper : type maps built")
+    @Test
+    public void testTypeMapsBuilt() {
+        Assertions.assertNotNull(this.mapper.getTypeMap(UserCreationDTO.class, User.class));
+        Assertions.assertNotNull(this.mapper.getTypeMap(EventCreateDTO.class, Event.class));
+        Assertions.assertNotNull(this.mapper.getTypeMap(EventUpdateDTO.class, Event.class));
+    }
+
+    /**
+     * Test UserCreationDTO -> User
+     */
+    @DisplayName("Test modelMapper : user creation")
+    @Test
+    public void testUserCreation() {
+        User user = this.mapper.map(new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de"), User.class);
+        Assertions.assertEquals("Jimmy", user.getNickname());
+        Assertions.assertEquals("esdrftghjkkl", user.getPassword());
+        Assertions.assertEquals("letruc@yahoo.de", user.getEmail());
+        Assertions.assertNull(user.getId());
+    }
+
+    /**
+     * Test EventCreateDTO -> Event : creator and game are left to the service
+     */
+    @DisplayName("Test modelMapper : event creation")
+    @Test
+    public void testEventCreation() {
+        LocalDateTime start = LocalDateTime.now().plusDays(2);
+        EventCreateDTO dto = new EventCreateDTO("Soirée", new UserNameDTO("Jimmy"), new GameUuidDTO("game"), 2, 4,
+                start.minusDays(1), start, null, "Description", true,
+                new EventCreateLocationDTO("Gan", "64290", "123 Rue d'Ossau"));
+        Event event = this.mapper.map(dto, Event.class);
+        Assertions.assertEquals("Soirée", event.getTitle());
+        Assertions.assertEquals(start, event.getStartingDate());
+        Assertions.assertTrue(event.isPrivate());
+        Assertions.assertEquals("Gan", event.getLocation().getTown());
+        Assertions.assertNull(event.getLocation().getEvent());
+        Assertions.assertNull(event.getCreator());
+        Assertions.assertNull(event.getGame());
+        Assertions.assertNull(event.getUuid());
+    }
+
+    /**
+     * Test EventUpdateDTO -> Event merge : the current game and the location's identity are untouched
+     */
+    @DisplayName("Test modelMapper : event update")
+    @Test
+    public void testEventUpdate() {
+        Game game = new Game();
+        game.setId(1L);
+        game.setUuid("old");
+        User creator = new User();
+        creator.setId(3L);
+        Event event = new Event();
+        event.setId(2L);
+        event.setUuid("event");
+        event.setGame(game);
+        event.setCreator(creator);
+        Location location = new Location(5L, "Pau", "64000", "1 Place Royale", event);
+        event.setLocation(location);
+        LocalDateTime start = LocalDateTime.now().plusDays(2);
+        EventUpdateDTO dto = new EventUpdateDTO("event", "Soirée", new GameUuidDTO("new"), 2, 4, start, null,
+                start.minusDays(1), "Description", false, new EventUpdateLocationDTO("Gan", "64290", null));
+        this.mapper.map(dto, event);
+        Assertions.assertEquals("Soirée", event.getTitle());
+        Assertions.assertEquals(start, event.getStartingDate());
+        Assertions.assertSame(game, event.getGame());
+        Assertions.assertEquals("old", game.getUuid());
+        Assertions.assertSame(creator, event.getCreator());
+        Assertions.assertEquals(2L, event.getId());
+        Assertions.assertSame(location, event.getLocation());
+        Assertions.assertEquals(5L, location.getId());
+        Assertions.assertSame(event, location.getEvent());
+        Assertions.assertEquals("Gan", location.getTown());
+    }
+}
@@ -0,0 +1,45 @@
+package fr.oukilson.backend.configuration;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+public class VirtualThreadsTest {
+
+    /**
+     * Test factory : virtual threads on Java 21, a clear error before
+     */
+    @DisplayName("Test factory")
+    @Test
+    public void testFactory() throws Exception {
+        if (Runtime.version().feature() >= 21) {
+            ThreadFactory factory = VirtualThreads.factory("test-");
+            Thread thread = factory.newThread(() -> {});
+            Assertions.assertEquals("test-0", thread.getName());
+            Assertions.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            Assertions.assertTrue(VirtualThreads.isSupported());
+        }
+        else {
+            Assertions.assertThrows(IllegalStateException.class, () -> VirtualThreads.factory("test-"));
+            Assertions.assertFalse(VirtualThreads.isSupported());
+        }
+    }
+
+    /**
+     * Test newThreadPerTaskExecutor : each task gets its own thread
+     */
+    @DisplayName("Test newThreadPerTaskExecutor")
+    @Test
+    public void testNewThreadPerTaskExecutor() throws Exception {
+        Assumptions.assumeTrue(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            String first = executor.submit(() -> Thread.currentThread().getName()).get();
+            String second = executor.submit(() -> Thread.currentThread().getName()).get();
+            Assertions.assertNotEquals(first, second);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,40 +1,71 @@
 package fr.oukilson.backend.controller;
 
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.google.gson.*;
 import fr.oukilson.backend.dto.event.*;
 import fr.oukilson.backend.entity.Event;
 import fr.oukilson.backend.entity.Game;
 import fr.oukilson.backend.entity.Location;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.EventField;
+import fr.oukilson.backend.service.Broadcaster;
 import fr.oukilson.backend.service.EventService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @WebMvcTest(controllers = EventController.class)
+@Import(SimpleMeterRegistry.class)
 public class EventControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @MockBean
     private EventService service;
+    @MockBean
+    private Broadcaster<EventSeatsDTO> seats;
     private final String route = "/events";
 
     // Convenient methods for testing
 
+    /**
+     * Send a request to a route answering asynchronously, and wait for its answer
+     * @param request Request
+     * @return ResultActions of the answer
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        MvcResult result = this.mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+
     /**
      * Return a valid Game entity with all attributes set to valid data.
      * @param id Game's id in database
@@ -121,7 +152,7 @@ public class EventControllerTest {
     @DisplayName("Test : find a user who doesn't exist in database.")
     @Test
     public void testFindByUuidWhenEventDoesntExist() throws Exception {
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/12345"))
+        this.perform(MockMvcRequestBuilders.get(route+"/12345"))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
@@ -142,7 +173,7 @@ public class EventControllerTest {
         Mockito.when(service.findByUuid(eventDTO.getUuid())).thenReturn(eventDTO);
 
         // Send request
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+eventDTO.getUuid()))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/"+eventDTO.getUuid()))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andReturn();
 
@@ -153,6 +184,237 @@ public class EventControllerTest {
         Assertions.assertEquals(eventDTO, resultDTO);
     }
 
+    /**
+     * Test findByUuid : concurrent reads of the same event share one load
+     */
+    @DisplayName("Test : find an event, concurrent reads coalesced")
+    @Test
+    public void testFindByUuidCoalesced() throws Exception {
+        EventDTO eventDTO = new EventDTO();
+        eventDTO.setUuid("uuid");
+        eventDTO.setVersion(2L);
+        CountDownLatch loading = new CountDownLatch(1);
+        Mockito.when(this.service.findByUuid("uuid")).thenAnswer(invocation -> {
+            loading.await(5, TimeUnit.SECONDS);
+            return eventDTO;
+        });
+
+        MvcResult first = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/uuid"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult second = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/uuid"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        loading.countDown();
+        for (MvcResult result : List.of(first, second)) {
+            this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""));
+        }
+        Mockito.verify(this.service, Mockito.times(1)).findByUuid("uuid");
+    }
+
+    /**
+     * Test live : the current seats are sent, then the newer ones published
+     */
+    @DisplayName("Test : live seats of an event")
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLive() throws Exception {
+        Mockito.when(this.service.findSeats("uuid")).thenReturn(new EventSeatsDTO("uuid", 2L, 6, 4, 0));
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/uuid/live"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult stream = this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+        ArgumentCaptor<Broadcaster.Subscriber<EventSeatsDTO>> subscriber =
+                ArgumentCaptor.forClass(Broadcaster.Subscriber.class);
+        Mockito.verify(this.seats).subscribe(ArgumentMatchers.eq("uuid"), subscriber.capture());
+
+        subscriber.getValue().send(new EventSeatsDTO("uuid", 1L, 6, 3, 0));
+        subscriber.getValue().send(new EventSeatsDTO("uuid", 3L, 6, 5, 0));
+        String body = stream.getResponse().getContentAsString();
+        Assertions.assertTrue(body.startsWith("event:seats\nid:2\ndata:"));
+        Assertions.assertTrue(body.contains("\"seatsLeft\":2"));
+        Assertions.assertFalse(body.contains("id:1\n"));
+        Assertions.assertTrue(body.contains("id:3\n"));
+        Assertions.assertTrue(body.contains("\"seatsLeft\":1"));
+    }
+
+    /**
+     * Test live with an uppercase uuid : subscribed to the topic of the uuid read from the database
+     */
+    @DisplayName("Test : live seats of an event, uppercase uuid")
+    @Test
+    public void testLiveUppercase() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findSeats(uuid)).thenReturn(new EventSeatsDTO(uuid, 2L, 6, 4, 0));
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+uuid.toUpperCase()+"/live"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        Mockito.verify(this.seats).subscribe(ArgumentMatchers.eq(uuid), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test live with an unknown event
+     */
+    @DisplayName("Test : live seats of an unknown event")
+    @Test
+    public void testLiveUnknown() throws Exception {
+        Mockito.when(this.service.findSeats("uuid")).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/uuid/live"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        Mockito.verify(this.seats).unsubscribe(ArgumentMatchers.eq("uuid"), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test findByUuid sends the event's version as ETag
+     */
+    @DisplayName("Test : find an event, ETag sent")
+    @Test
+    public void testFindByUuidETag() throws Exception {
+        User user = this.createValidFullUser(3L, "toto");
+        Game game = this.createValidFullGame(23L, "7 Wonders");
+        Location location = new Location(620L, "Euralille", "59777", "1 Place François Mitterrand", null);
+        Event event = this.createValidEvent(465L, game, user, location);
+        location.setEvent(event);
+        event.setVersion(5L);
+        EventDTO eventDTO = new ModelMapper().map(event, EventDTO.class);
+        Mockito.when(this.service.findVersion(event.getUuid())).thenReturn(5L);
+        Mockito.when(this.service.findByUuid(event.getUuid())).thenReturn(eventDTO);
+
+        // An older version: the event is sent
+        this.perform(MockMvcRequestBuilders.get(route+"/"+event.getUuid())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.uuid").value(event.getUuid()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version").doesNotExist());
+    }
+
+    /**
+     * Test findByUuid answers 304 without loading the event when the client has its current version
+     */
+    @DisplayName("Test : find an event, not modified")
+    @Test
+    public void testFindByUuidNotModified() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findVersion(uuid)).thenReturn(5L);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"4\", W/\"5\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        Mockito.verify(this.service, Mockito.never()).findByUuid(ArgumentMatchers.anyString());
+    }
+
+    /**
+     * Test findByUuid with an uppercase uuid : the version is looked for as read from the database,
+     * so it's the entry the writes invalidate
+     */
+    @DisplayName("Test : find an event by uppercase uuid, not modified")
+    @Test
+    public void testFindByUuidNotModifiedUppercase() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findVersion(uuid)).thenReturn(5L);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid.toUpperCase())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"5\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        Mockito.verify(this.service, Mockito.never()).findVersion(uuid.toUpperCase());
+    }
+
+    /**
+     * Test findByUuid with If-None-Match on an unknown event
+     */
+    @DisplayName("Test : find an unknown event with If-None-Match")
+    @Test
+    public void testFindByUuidNotFoundWithIfNoneMatch() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findVersion(uuid)).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test findByUuid with fields sends only these fields
+     */
+    @DisplayName("Test : find an event with fields")
+    @Test
+    public void testFindByUuidWithFields() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findByUuid(uuid, EnumSet.of(EventField.TITLE, EventField.WAITING_COUNT)))
+                .thenReturn(Map.of("title", "Soirée", "waitingCount", 2));
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid+"?fields=waitingCount,title"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("Soirée"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.waitingCount").value(2));
+        String unknown = UUID.randomUUID().toString();
+        Mockito.when(this.service.findByUuid(unknown, EnumSet.of(EventField.TITLE))).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+unknown+"?fields=title"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid+"?fields=title,password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        Mockito.verify(this.service, Mockito.never()).findByUuid(uuid);
+    }
+
+    // Test findAllByUuid route
+
+    /**
+     * Test findAllByUuid : events in the order asked, null for the unknown ones
+     */
+    @DisplayName("Test : find several events by uuid")
+    @Test
+    public void testFindAllByUuid() throws Exception {
+        User user = this.createValidFullUser(3L, "toto");
+        Game game = this.createValidFullGame(23L, "7 Wonders");
+        Event first = this.createValidEvent(1L, game, user, null);
+        Event second = this.createValidEvent(2L, game, user, null);
+        Mockito.when(this.service.findAllByUuid(List.of(second.getUuid(), "unknown", first.getUuid())))
+                .thenReturn(Arrays.asList(second, null, first));
+        this.perform(MockMvcRequestBuilders.get(route)
+                        .param("uuid", second.getUuid(), "unknown", first.getUuid()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].uuid").value(second.getUuid()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value((Object) null))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].uuid").value(first.getUuid()));
+    }
+
+    /**
+     * Test findAllByUuid : uppercase uuids are looked for as read from the database
+     */
+    @DisplayName("Test : find several events by uppercase uuid")
+    @Test
+    public void testFindAllByUuidUppercase() throws Exception {
+        User user = this.createValidFullUser(3L, "toto");
+        Game game = this.createValidFullGame(23L, "7 Wonders");
+        Event event = this.createValidEvent(1L, game, user, null);
+        Mockito.when(this.service.findAllByUuid(List.of(event.getUuid(), "unknown")))
+                .thenReturn(Arrays.asList(event, null));
+        this.perform(MockMvcRequestBuilders.get(route).param("uuid", event.getUuid().toUpperCase(), "unknown"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].uuid").value(event.getUuid()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value((Object) null));
+    }
+
+    /**
+     * Test findAllByUuid : too many uuids is a bad request
+     */
+    @DisplayName("Test : find too many events by uuid")
+    @Test
+    public void testFindAllByUuidTooMany() throws Exception {
+        String[] uuids = new String[MultiGet.MAX_KEYS + 1];
+        Arrays.fill(uuids, "a");
+        this.perform(MockMvcRequestBuilders.get(route).param("uuid", uuids))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        Mockito.verify(this.service, Mockito.never()).findAllByUuid(ArgumentMatchers.anyList());
+    }
+
     // Test FindAllByFilters route
 
     /**
@@ -162,7 +424,7 @@ public class EventControllerTest {
     @Test
     public void testFindAllByFiltersWhenNoParamGiven() throws Exception {
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search"))
+        this.perform(MockMvcRequestBuilders.get(route+"/search"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
@@ -180,7 +442,8 @@ public class EventControllerTest {
         int size = 2;
         Game game = this.createValidFullGame(1L, "The game");
         User user = this.createValidFullUser(1L, "tata");
-        List<EventDTO> events = new LinkedList<>();
+        List<Event> events = new LinkedList<>();
+        List<EventDTO> expected = new LinkedList<>();
         ModelMapper mapper = new ModelMapper();
         for (int i=0; i<size; i++) {
             Location location =
@@ -188,13 +451,14 @@ public class EventControllerTest {
             Event event = this.createValidEvent((long)i, game, user, location);
             event.setLocation(location);
             location.setEvent(event);
-            events.add(mapper.map(event, EventDTO.class));
+            events.add(event);
+            expected.add(mapper.map(event, EventDTO.class));
         }
         Mockito.when(this.service.findByFilter("", town)).thenReturn(events);
 
         // Send Request
         Gson gson = this.getInitializedGSON();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search?date=&town="+town))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route + "/search?date=&town="+town))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andReturn();
@@ -204,7 +468,7 @@ public class EventControllerTest {
                 EventDTO[].class);
         Assertions.assertEquals(size, array.length);
         for (int i=0; i<size; i++) {
-            Assertions.assertEquals(events.get(i), array[i]);
+            Assertions.assertEquals(expected.get(i), array[i]);
         }
     }
 
@@ -217,7 +481,8 @@ public class EventControllerTest {
     public void testFindAllByFiltersWhenTownIsNull() throws Exception {
         // Setting up
         LocalDateTime mytime = LocalDateTime.now().minusMonths(2);
-        List<EventDTO> events = new LinkedList<>();
+        List<Event> events = new LinkedList<>();
+        List<EventDTO> expected = new LinkedList<>();
         ModelMapper mapper = new ModelMapper();
         int size = 5;
         for (int i=0; i<size; i++) {
@@ -228,13 +493,14 @@ public class EventControllerTest {
             Event event = this.createValidEvent((long)i, game, user, location);
             location.setEvent(event);
             event.setStartingDate(mytime.plusMonths(8));
-            events.add(mapper.map(event, EventDTO.class));
+            events.add(event);
+            expected.add(mapper.map(event, EventDTO.class));
         }
         Mockito.when(this.service.findByFilter(mytime.toString(), "")).thenReturn(events);
 
         // Request
         Gson gson = this.getInitializedGSON();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = this.perform(MockMvcRequestBuilders
                         .get(route + "/search?date="+ mytime +"&town="))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
@@ -245,7 +511,7 @@ public class EventControllerTest {
                 EventDTO[].class);
         Assertions.assertEquals(size, array.length);
         for (int i=0; i<size; i++) {
-            Assertions.assertEquals(events.get(i), array[i]);
+            Assertions.assertEquals(expected.get(i), array[i]);
         }
     }
 
@@ -258,9 +524,10 @@ public class EventControllerTest {
     public void testFindAllByFilters() throws Exception {
         // Setting up
         ModelMapper mapper = new ModelMapper();
-        List<EventDTO> townEvents = new LinkedList<>();
+        List<Event> townEvents = new LinkedList<>();
         int townEventsSize = 3;
-        List<EventDTO> dateEvents = new LinkedList<>();
+        List<Event> dateEvents = new LinkedList<>();
+        List<EventDTO> expected = new LinkedList<>();
         int dateEventsSize = townEventsSize+1;
         Game game = this.createValidFullGame(1L, "The game");
         User user = this.createValidFullUser(1L, "tata");
@@ -270,13 +537,14 @@ public class EventControllerTest {
                 new Location((long)i, town, "64000", "Boulevard des Pyrénées", null);
             Event event = this.createValidEvent((long)i, game, user, location);
             location.setEvent(event);
-            townEvents.add(mapper.map(event, EventDTO.class));
+            townEvents.add(event);
         }
         for (int i=0; i<dateEventsSize; i++) {
             Location location = new Location(10L *i, "Ville "+i, null, null, null);
             Event event = this.createValidEvent(10L*i, game, user, location);
             location.setEvent(event);
-            dateEvents.add(mapper.map(event, EventDTO.class));
+            dateEvents.add(event);
+            expected.add(mapper.map(event, EventDTO.class));
         }
         String date = dateEvents.get(0).getStartingDate().minusDays(10).toString();
         Mockito.when(this.service.findByFilter(date, town)).thenReturn(dateEvents);
@@ -285,7 +553,7 @@ public class EventControllerTest {
 
         // Request
         Gson gson = this.getInitializedGSON();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = this.perform(MockMvcRequestBuilders
                         .get(route + "/search?date="+date+"&town="+town))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
@@ -296,10 +564,77 @@ public class EventControllerTest {
                 EventDTO[].class);
         Assertions.assertEquals(dateEventsSize, array.length);
         for (int i=0; i<dateEventsSize; i++) {
-            Assertions.assertEquals(dateEvents.get(i), array[i]);
+            Assertions.assertEquals(expected.get(i), array[i]);
         }
     }
 
+    /**
+     * Test the search when the client asks for CBOR
+     */
+    @DisplayName("Test : find all events by filters, CBOR encoding")
+    @Test
+    public void testFindAllByFiltersCbor() throws Exception {
+        // Setting up
+        String town = "Pau";
+        Game game = this.createValidFullGame(1L, "The game");
+        User user = this.createValidFullUser(1L, "tata");
+        List<Event> events = new LinkedList<>();
+        List<EventDTO> expected = new LinkedList<>();
+        ModelMapper mapper = new ModelMapper();
+        for (int i=0; i<3; i++) {
+            Location location = new Location((long)i, town, "64000", "Boulevard des Pyrénées", null);
+            Event event = this.createValidEvent((long)i, game, user, location);
+            location.setEvent(event);
+            events.add(event);
+            expected.add(mapper.map(event, EventDTO.class));
+        }
+        Mockito.when(this.service.findByFilter("", town)).thenReturn(events);
+
+        // Request
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route + "/search?date=&town="+town)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        // Assertions
+        CBORMapper cbor = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+        EventDTO[] array = cbor.readValue(result.getResponse().getContentAsByteArray(), EventDTO[].class);
+        Assertions.assertArrayEquals(expected.toArray(), array);
+    }
+
+    /**
+     * Test the search with fields sends only these fields
+     */
+    @DisplayName("Test : find all events by filters, with fields")
+    @Test
+    public void testFindAllByFiltersWithFields() throws Exception {
+        EnumSet<EventField> fields = EnumSet.of(EventField.UUID, EventField.LOCATION, EventField.REGISTERED_COUNT);
+        Map<String, Object> location = Map.of("town", "Pau", "zipCode", "64000", "address", "Boulevard");
+        Mockito.when(this.service.findByFilter("", "Pau", fields)).thenReturn(List.of(
+                Map.of("uuid", "a", "location", location, "registeredCount", 3)));
+        this.perform(MockMvcRequestBuilders
+                        .get(route + "/search?town=Pau&fields=uuid,location,registeredCount"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].uuid").value("a"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].location.town").value("Pau"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].registeredCount").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").doesNotExist());
+        Mockito.verify(this.service, Mockito.never()).findByFilter(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test the search with an unknown field
+     */
+    @DisplayName("Test : find all events by filters, unknown field")
+    @Test
+    public void testFindAllByFiltersWithUnknownField() throws Exception {
+        this.perform(MockMvcRequestBuilders.get(route + "/search?town=Pau&fields=uuid,password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        this.perform(MockMvcRequestBuilders.get(route + "/search?town=Pau&fields="))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     // Test delete route
 
     /**
@@ -309,7 +644,7 @@ public class EventControllerTest {
     @Test
     public void testDeleteByUuid() throws Exception {
         EventDeleteDTO eventDTO = new EventDeleteDTO(UUID.randomUUID().toString());
-        this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
+        this.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -324,7 +659,7 @@ public class EventControllerTest {
     @Test
     public void testDeleteByUuidWhenUuidNotValid() throws Exception {
         EventDeleteDTO eventDTO = new EventDeleteDTO("0");
-        this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
+        this.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -339,7 +674,7 @@ public class EventControllerTest {
     @Test
     public void testDeleteByUuidWhenUuidIsNull() throws Exception {
         EventDeleteDTO eventDTO = new EventDeleteDTO();
-        this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
+        this.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -399,7 +734,7 @@ public class EventControllerTest {
 
         // Send request
         Gson gson = this.getInitializedGSON();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = this.perform(MockMvcRequestBuilders
                         .post(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -431,7 +766,7 @@ public class EventControllerTest {
 
         // Request
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .post(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -493,7 +828,7 @@ public class EventControllerTest {
 
         // Send request
         Gson gson = this.getInitializedGSON();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = this.perform(MockMvcRequestBuilders
                         .put(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -525,7 +860,7 @@ public class EventControllerTest {
 
         // Request
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -558,7 +893,7 @@ public class EventControllerTest {
     public void testAddUserInEventWithNullUserName() throws Exception {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", null);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -576,7 +911,7 @@ public class EventControllerTest {
     public void testAddUserInEventWithNullEventUuid() throws Exception {
         EventAddUserDTO body = new EventAddUserDTO(null, "Toto");
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -595,7 +930,7 @@ public class EventControllerTest {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class))).thenReturn(true);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -605,6 +940,47 @@ public class EventControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value(true));
     }
 
+    /**
+     * Test addUserInEvent when a concurrent registration commits first : the registration is done again
+     */
+    @DisplayName("Test addUserInEvent : conflict retried")
+    @Test
+    public void testAddUserInEventConflictRetried() throws Exception {
+        EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
+        Mockito.when(this.service.addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Event.class, 1L))
+                .thenReturn(true);
+        Gson gson = this.getInitializedGSON();
+        this.perform(MockMvcRequestBuilders
+                        .put(route+"/add_user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .content(gson.toJson(body)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value(true));
+        Mockito.verify(this.service, Mockito.times(2)).addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class));
+    }
+
+    /**
+     * Test addUserInEvent when concurrent registrations keep committing first : conflict
+     */
+    @DisplayName("Test addUserInEvent : conflict")
+    @Test
+    public void testAddUserInEventConflict() throws Exception {
+        EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
+        Mockito.when(this.service.addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Event.class, 1L));
+        Gson gson = this.getInitializedGSON();
+        this.perform(MockMvcRequestBuilders
+                        .put(route+"/add_user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .content(gson.toJson(body)))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value(false));
+        Mockito.verify(this.service, Mockito.times(3)).addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class));
+    }
+
     /**
      * Test addUserInEvent when game or user is not found
      */
@@ -614,7 +990,7 @@ public class EventControllerTest {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.addUserInEvent(ArgumentMatchers.any(EventAddUserDTO.class))).thenReturn(false);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -649,7 +1025,7 @@ public class EventControllerTest {
     public void testAddUserInEventInWaitingQueueWithNullUserName() throws Exception {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", null);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -667,7 +1043,7 @@ public class EventControllerTest {
     public void testAddUserInEventInWaitingQueueWithNullEventUuid() throws Exception {
         EventAddUserDTO body = new EventAddUserDTO(null, "Toto");
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -686,7 +1062,7 @@ public class EventControllerTest {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.addUserInEventInWaitingQueue(ArgumentMatchers.any(EventAddUserDTO.class))).thenReturn(true);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -705,7 +1081,7 @@ public class EventControllerTest {
         EventAddUserDTO body = new EventAddUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.addUserInEventInWaitingQueue(ArgumentMatchers.any(EventAddUserDTO.class))).thenReturn(false);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/add_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -740,7 +1116,7 @@ public class EventControllerTest {
     public void testRemoveUserInEventWithNullUserName() throws Exception {
         EventRemoveUserDTO body = new EventRemoveUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", null);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -758,7 +1134,7 @@ public class EventControllerTest {
     public void testRemoveUserInEventWithNullEventUuid() throws Exception {
         EventRemoveUserDTO body = new EventRemoveUserDTO(null, "Toto");
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -777,7 +1153,7 @@ public class EventControllerTest {
         EventRemoveUserDTO body = new EventRemoveUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.removeUserInEvent(ArgumentMatchers.any(EventRemoveUserDTO.class))).thenReturn(true);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -796,7 +1172,7 @@ public class EventControllerTest {
         EventRemoveUserDTO body = new EventRemoveUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", "Toto");
         Mockito.when(this.service.removeUserInEvent(ArgumentMatchers.any(EventRemoveUserDTO.class))).thenReturn(false);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -831,7 +1207,7 @@ public class EventControllerTest {
     public void testRemoveUserInWaitingQueueWithNullUserName() throws Exception {
         EventRemoveUserDTO body = new EventRemoveUserDTO("50b3e71f-cd84-4898-87ea-69d33c4bd7d5", null);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -849,7 +1225,7 @@ public class EventControllerTest {
     public void testRemoveUserInWaitingQueueWithNullEventUuid() throws Exception {
         EventRemoveUserDTO body = new EventRemoveUserDTO(null, "Toto");
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -870,7 +1246,7 @@ public class EventControllerTest {
                 .when(this.service.removeUserInWaitingQueue(ArgumentMatchers.any(EventRemoveUserDTO.class)))
                 .thenReturn(true);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -891,7 +1267,7 @@ public class EventControllerTest {
                 .when(this.service.removeUserInWaitingQueue(ArgumentMatchers.any(EventRemoveUserDTO.class)))
                 .thenReturn(false);
         Gson gson = this.getInitializedGSON();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .put(route+"/remove_user/waiting")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -1,10 +1,15 @@
 package fr.oukilson.backend.controller;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.google.gson.Gson;
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.configuration.WebConfiguration;
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.model.GameField;
 import fr.oukilson.backend.service.GameService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,16 +19,26 @@ import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebMvcTest(controllers = GameController.class)
+@Import(SimpleMeterRegistry.class)
 public class GameControllerTest {
     @Autowired
     private MockMvc mockMvc;
@@ -33,6 +48,18 @@ public class GameControllerTest {
 
     // Convenient methods for testing
 
+    /**
+     * Send a request to a route answering asynchronously, and wait for its answer
+     * @param request Request
+     * @return ResultActions of the answer
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        MvcResult result = this.mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+
     /**
      * Return a valid Game entity with all attributes set to valid data.
      * @param id Game's id in database
@@ -68,8 +95,7 @@ public class GameControllerTest {
         Mockito.when(this.service.findByUuid(game.getUuid())).thenReturn(dto);
 
         // Send request
-        MvcResult result = this.mockMvc
-                .perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid()))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid()))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andReturn();
 
@@ -93,10 +119,125 @@ public class GameControllerTest {
         Mockito.when(this.service.findByUuid(game.getUuid())).thenReturn(null);
 
         // Send request
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid()))
+        this.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid()))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    /**
+     * Test findByUuid sends the game's version as ETag, and answers 304 when the client has it
+     */
+    @DisplayName("Test findByUuid : ETag and not modified")
+    @Test
+    public void testFindByUuidETag() throws Exception {
+        Game game = this.createValidFullGame(1L, "Lords of Waterdeep");
+        game.setVersion(2L);
+        GameDTO dto = new ModelMapper().map(game, GameDTO.class);
+        Mockito.when(this.service.findVersion(game.getUuid())).thenReturn(2L);
+        Mockito.when(this.service.findByUuid(game.getUuid())).thenReturn(dto);
+
+        // First request: the game is sent with its ETag
+        this.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""));
+
+        // Same version: not modified, the game isn't loaded
+        this.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""));
+        Mockito.verify(this.service, Mockito.times(1)).findByUuid(game.getUuid());
+    }
+
+    /**
+     * Test findByUuid with fields sends only these fields
+     */
+    @DisplayName("Test findByUuid : with fields")
+    @Test
+    public void testFindByUuidWithFields() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findByUuid(uuid, EnumSet.of(GameField.NAME, GameField.MIN_AGE)))
+                .thenReturn(Map.of("name", "Root", "minAge", 10));
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid+"?fields=name,minAge"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Root"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.minAge").value(10));
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid+"?fields=name,events"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    /**
+     * Test findByName with fields sends only these fields
+     */
+    @DisplayName("Test findByName : with fields")
+    @Test
+    public void testFindByNameWithFields() throws Exception {
+        Mockito.when(this.service.findByName("Ro", EnumSet.of(GameField.UUID, GameField.MAX_PLAYER)))
+                .thenReturn(List.of(Map.of("uuid", "a", "maxPlayer", 4)));
+        this.perform(MockMvcRequestBuilders.get(route+"/search?name=Ro&fields=uuid,maxPlayer"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].uuid").value("a"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].maxPlayer").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").doesNotExist());
+        this.perform(MockMvcRequestBuilders.get(route+"/search?name=Ro&fields=password"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    /**
+     * Test findByUuid when the work is refused by a full pool
+     */
+    @DisplayName("Test findByUuid : pool full")
+    @Test
+    public void testFindByUuidRejected() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        Mockito.when(this.service.findByUuid(uuid)).thenThrow(new RejectedExecutionException());
+        this.perform(MockMvcRequestBuilders.get(route+"/"+uuid))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    /**
+     * Test findByUuid with an uppercase uuid : the version is looked for as read from the database
+     */
+    @DisplayName("Test findByUuid : uppercase uuid")
+    @Test
+    public void testFindByUuidUppercase() throws Exception {
+        Game game = this.createValidFullGame(1L, "Lords of Waterdeep");
+        Mockito.when(this.service.findVersion(game.getUuid())).thenReturn(2L);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+game.getUuid().toUpperCase())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        Mockito.verify(this.service, Mockito.never()).findVersion(game.getUuid().toUpperCase());
+    }
+
+    // Route findAllByUuid GET
+
+    /**
+     * Test findAllByUuid : games in the order asked, null for the unknown ones
+     */
+    @DisplayName("Test findAllByUuid : games found")
+    @Test
+    public void testFindAllByUuid() throws Exception {
+        GameDTO game = new GameDTO();
+        game.setUuid("a");
+        game.setName("Root");
+        Mockito.when(this.service.findAllByUuid(List.of("unknown", "a")))
+                .thenReturn(Arrays.asList(null, game));
+        this.perform(MockMvcRequestBuilders.get(route).param("uuid", "unknown", "a"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value((Object) null))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].name").value("Root"));
+    }
+
+    /**
+     * Test findAllByUuid : a blank uuid is a bad request
+     */
+    @DisplayName("Test findAllByUuid : blank uuid")
+    @Test
+    public void testFindAllByUuidBlank() throws Exception {
+        this.perform(MockMvcRequestBuilders.get(route).param("uuid", "a", " "))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     // Route findByName POST
 
     /**
@@ -117,7 +258,7 @@ public class GameControllerTest {
 
         // Send request
         Gson gson = new Gson();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andReturn();
@@ -133,6 +274,72 @@ public class GameControllerTest {
         }
     }
 
+    /**
+     * Test findByName when the client asks for CBOR
+     */
+    @DisplayName("Test findByName : CBOR encoding")
+    @Test
+    public void testFindByNameCbor() throws Exception {
+        // Mocking
+        String name = "Jeux";
+        List<GameUuidDTO> games = new LinkedList<>();
+        ModelMapper mapper = new ModelMapper();
+        for (int i=0; i<3; i++) {
+            games.add(mapper.map(this.createValidFullGame((long) i, "Jeux n°"+i), GameUuidDTO.class));
+        }
+        BDDMockito.when(this.service.findByName(name)).thenReturn(games);
+
+        // Send request
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        // Assert
+        GameUuidDTO[] resultDTO = new CBORMapper().readValue(result.getResponse().getContentAsByteArray(),
+                GameUuidDTO[].class);
+        Assertions.assertArrayEquals(games.toArray(), resultDTO);
+    }
+
+    /**
+     * Test findByName when the client asks for Smile
+     */
+    @DisplayName("Test findByName : Smile encoding")
+    @Test
+    public void testFindByNameSmile() throws Exception {
+        // Mocking
+        String name = "Jeux";
+        List<GameUuidDTO> games = new LinkedList<>();
+        games.add(new ModelMapper().map(this.createValidFullGame(1L, "Jeux n°1"), GameUuidDTO.class));
+        BDDMockito.when(this.service.findByName(name)).thenReturn(games);
+
+        // Send request
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name)
+                        .accept(WebConfiguration.APPLICATION_SMILE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(WebConfiguration.APPLICATION_SMILE))
+                .andReturn();
+
+        // Assert
+        GameUuidDTO[] resultDTO = new SmileMapper().readValue(result.getResponse().getContentAsByteArray(),
+                GameUuidDTO[].class);
+        Assertions.assertArrayEquals(games.toArray(), resultDTO);
+    }
+
+    /**
+     * Test findByName when the client accepts anything: JSON is the default
+     */
+    @DisplayName("Test findByName : JSON by default")
+    @Test
+    public void testFindByNameDefaultJson() throws Exception {
+        String name = "Jeux";
+        BDDMockito.when(this.service.findByName(name)).thenReturn(new LinkedList<>());
+        this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name).accept(MediaType.ALL))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON));
+    }
+
     /**
      * Test findByName with special characters in the string to search
      */
@@ -148,7 +355,7 @@ public class GameControllerTest {
 
         // Request
         Gson gson = new Gson();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andReturn();
@@ -170,7 +377,7 @@ public class GameControllerTest {
     public void testFindByNameNoResultFound() throws Exception {
         String name = "o";
         BDDMockito.when(this.service.findByName(name)).thenReturn(new LinkedList<>());
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
+        this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
@@ -183,7 +390,7 @@ public class GameControllerTest {
     @Test
     public void testFindByNameWithEmptySearchString() throws Exception {
         String name = "";
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
+        this.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
@@ -1,32 +1,79 @@
 package fr.oukilson.backend.controller;
 
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.google.gson.Gson;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.configuration.WebConfiguration;
+import fr.oukilson.backend.dto.user.FeedEntryDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserSuggestionDTO;
+import fr.oukilson.backend.dto.event.EventPageDTO;
+import fr.oukilson.backend.dto.event.EventSummaryDTO;
+import fr.oukilson.backend.model.EventRole;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.dto.user.UserImportErrorDTO;
+import fr.oukilson.backend.dto.user.UserImportJobDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.model.UserImportStatus;
+import fr.oukilson.backend.service.EventService;
+import fr.oukilson.backend.service.FeedService;
+import fr.oukilson.backend.service.UserImportService;
 import fr.oukilson.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebMvcTest(controllers = UserController.class)
+@Import(SimpleMeterRegistry.class)
 public class UserControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @MockBean
     private UserService service;
+    @MockBean
+    private UserImportService importService;
+    @MockBean
+    private FeedService feedService;
+    @MockBean
+    private EventService eventService;
     private final String route = "/users";
 
+    /**
+     * Send a request to a route answering asynchronously, and wait for its answer
+     * @param request Request
+     * @return ResultActions of the answer
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        MvcResult result = this.mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+
     // Method findByNickname
 
     /**
@@ -38,7 +85,7 @@ public class UserControllerTest {
         String nickname = "Tutululu";
         UserDTO dto = new UserDTO(nickname, new LinkedList<>());
         Mockito.when(this.service.findUserByNickname(nickname)).thenReturn(dto);
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andReturn();
         Gson gson = new Gson();
@@ -49,6 +96,24 @@ public class UserControllerTest {
         Assertions.assertEquals(dto, resultDTO);
     }
 
+    /**
+     * Test findByNickname when the client asks for Smile
+     */
+    @DisplayName("Test findByNickname : Smile encoding")
+    @Test
+    public void testFindByNicknameSmile() throws Exception {
+        String nickname = "Tutululu";
+        UserDTO dto = new UserDTO(nickname, List.of(new UserNameDTO("Jimmy")));
+        Mockito.when(this.service.findUserByNickname(nickname)).thenReturn(dto);
+        MvcResult result = this.perform(MockMvcRequestBuilders.get(route+"/"+nickname)
+                        .accept(WebConfiguration.APPLICATION_SMILE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(WebConfiguration.APPLICATION_SMILE))
+                .andReturn();
+        UserDTO resultDTO = new SmileMapper().readValue(result.getResponse().getContentAsByteArray(), UserDTO.class);
+        Assertions.assertEquals(dto, resultDTO);
+    }
+
     /**
      * Test findByNickname when nickname is not present in DB
      */
@@ -57,7 +122,7 @@ public class UserControllerTest {
     public void testFindByNicknameNotFound() throws Exception {
         String nickname = "Tutululu";
         Mockito.when(this.service.findUserByNickname(nickname)).thenReturn(null);
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
+        this.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
@@ -69,18 +134,18 @@ public class UserControllerTest {
     public void testFindByNicknameInvalid() throws Exception {
         String nickname = "rené";
         Mockito.when(this.service.findUserByNickname(nickname)).thenReturn(null);
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
+        this.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     /**
-     * Test findByNickname when nickname is null
+     * Test findByNickname when nickname is null : it's the multi-get route, without its nickname parameter
      */
     @DisplayName("Test findByNickname : null nickname")
     @Test
     public void testFindByNicknameNull() throws Exception {
         this.mockMvc.perform(MockMvcRequestBuilders.get(route))
-                .andExpect(MockMvcResultMatchers.status().isMethodNotAllowed());
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
     /**
@@ -91,10 +156,55 @@ public class UserControllerTest {
     public void testFindByNicknameSQLProblem() throws Exception {
         String nickname = "Tutululu";
         Mockito.when(this.service.findUserByNickname(nickname)).thenThrow(RuntimeException.class);
-        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
+        this.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
   
+    // Method findUsersByNickname
+
+    /**
+     * Test findUsersByNickname : users in the order asked, null for the unknown ones
+     */
+    @DisplayName("Test findUsersByNickname : users found")
+    @Test
+    public void testFindUsersByNickname() throws Exception {
+        UserDTO user = new UserDTO("Bruce", new LinkedList<>());
+        Mockito.when(this.service.findUsersByNickname(List.of("Bruce", "Nobody")))
+                .thenReturn(Arrays.asList(user, null));
+        this.perform(MockMvcRequestBuilders.get(route).param("nickname", "Bruce", "Nobody"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nickname").value("Bruce"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value((Object) null));
+    }
+
+    // Method isNicknameAvailable
+
+    /**
+     * Test isNicknameAvailable when the nickname is free
+     */
+    @DisplayName("Test isNicknameAvailable : nickname free")
+    @Test
+    public void testIsNicknameAvailableFree() throws Exception {
+        String nickname = "Tutululu";
+        Mockito.when(this.service.isNicknameAvailable(nickname)).thenReturn(true);
+        this.perform(MockMvcRequestBuilders.get(route+"/available/"+nickname))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
+    }
+
+    /**
+     * Test isNicknameAvailable when the nickname is used
+     */
+    @DisplayName("Test isNicknameAvailable : nickname used")
+    @Test
+    public void testIsNicknameAvailableUsed() throws Exception {
+        String nickname = "Tutululu";
+        Mockito.when(this.service.isNicknameAvailable(nickname)).thenReturn(false);
+        this.perform(MockMvcRequestBuilders.get(route+"/available/"+nickname))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value("false"));
+    }
+
     // Method createUser
 
     /**
@@ -162,9 +272,10 @@ public class UserControllerTest {
     @Test
     public void testCreateUserUserCreationFailed() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
-        Mockito.when(this.service.createUser(body)).thenReturn(null);
+        Mockito.when(this.service.createUser(ArgumentMatchers.eq(body), ArgumentMatchers.any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
         Gson gson = new Gson();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .post(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -180,9 +291,10 @@ public class UserControllerTest {
     public void testCreateUserUserCreationSuccess() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
         UserDTO userDTO = new UserDTO("Toupie", new LinkedList<>());
-        Mockito.when(this.service.createUser(body)).thenReturn(userDTO);
+        Mockito.when(this.service.createUser(ArgumentMatchers.eq(body), ArgumentMatchers.any()))
+                .thenReturn(CompletableFuture.completedFuture(userDTO));
         Gson gson = new Gson();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+        MvcResult result = this.perform(MockMvcRequestBuilders
                         .post(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -204,9 +316,10 @@ public class UserControllerTest {
     @Test
     public void testCreateUserUserCreationThrowException() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
-        Mockito.when(this.service.createUser(body)).thenThrow(NullPointerException.class);
+        Mockito.when(this.service.createUser(ArgumentMatchers.eq(body), ArgumentMatchers.any()))
+                .thenThrow(NullPointerException.class);
         Gson gson = new Gson();
-        this.mockMvc.perform(MockMvcRequestBuilders
+        this.perform(MockMvcRequestBuilders
                         .post(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding(StandardCharsets.UTF_8)
@@ -214,6 +327,24 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    /**
+     * Test createUser when the password isn't hashed in time
+     */
+    @DisplayName("Test createUser : password hasher overloaded")
+    @Test
+    public void testCreateUserHasherOverloaded() throws Exception {
+        UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
+        Mockito.when(this.service.createUser(ArgumentMatchers.eq(body), ArgumentMatchers.any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Timed out")));
+        Gson gson = new Gson();
+        this.perform(MockMvcRequestBuilders
+                        .post(route)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .content(gson.toJson(body)))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+    }
+
     // Method addUserToFriendList
 
     /**
@@ -246,7 +377,7 @@ public class UserControllerTest {
         String id1 = "Elvis";
         String id2 = "Presley";
         Mockito.when(this.service.addUserToFriendList(id1, id2)).thenReturn(false);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/add/"+id1+"/"+id2))
+        this.perform(MockMvcRequestBuilders.put(route+"/add/"+id1+"/"+id2))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("false"));
@@ -261,7 +392,7 @@ public class UserControllerTest {
         String id1 = "Elvis";
         String id2 = "Presley";
         Mockito.when(this.service.addUserToFriendList(id1, id2)).thenReturn(true);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/add/"+id1+"/"+id2))
+        this.perform(MockMvcRequestBuilders.put(route+"/add/"+id1+"/"+id2))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
@@ -299,7 +430,7 @@ public class UserControllerTest {
         String id1 = "Bidulle";
         String id2 = "Machin";
         Mockito.when(this.service.removeUserFromFriendList(id1, id2)).thenReturn(false);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/remove/"+id1+"/"+id2))
+        this.perform(MockMvcRequestBuilders.put(route+"/remove/"+id1+"/"+id2))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("false"));
@@ -314,7 +445,7 @@ public class UserControllerTest {
         String id1 = "Bidulle";
         String id2 = "Machin";
         Mockito.when(this.service.removeUserFromFriendList(id1, id2)).thenReturn(true);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/remove/"+id1+"/"+id2))
+        this.perform(MockMvcRequestBuilders.put(route+"/remove/"+id1+"/"+id2))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
@@ -340,7 +471,7 @@ public class UserControllerTest {
     public void testEmptyFriendListServiceReturnFalse() throws Exception {
         String nickname = "toto";
         Mockito.when(this.service.emptyFriendList(nickname)).thenReturn(false);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/empty/"+nickname))
+        this.perform(MockMvcRequestBuilders.put(route+"/empty/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("false"));
@@ -354,9 +485,209 @@ public class UserControllerTest {
     public void testEmptyFriendListServiceReturnTrue() throws Exception {
         String nickname = "Gandalf";
         Mockito.when(this.service.emptyFriendList(nickname)).thenReturn(true);
-        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/empty/"+nickname))
+        this.perform(MockMvcRequestBuilders.put(route+"/empty/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
     }
-}
\ No newline at end of file
+
+    // Method findSuggestions
+
+    /**
+     * Test findSuggestions when the user is not found
+     */
+    @DisplayName("Test findSuggestions : user not found")
+    @Test
+    public void testFindSuggestionsNotFound() throws Exception {
+        String nickname = "Gandalf";
+        Mockito.when(this.service.findSuggestions(nickname, 10)).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+nickname+"/suggestions"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test findSuggestions when the user is found
+     */
+    @DisplayName("Test findSuggestions : suggestions found")
+    @Test
+    public void testFindSuggestionsFound() throws Exception {
+        String nickname = "Gandalf";
+        List<UserSuggestionDTO> suggestions = List.of(new UserSuggestionDTO("Frodon", 3),
+                new UserSuggestionDTO("Sam", 1));
+        Mockito.when(this.service.findSuggestions(nickname, 5)).thenReturn(suggestions);
+        this.perform(MockMvcRequestBuilders.get(route+"/"+nickname+"/suggestions?limit=5"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nickname").value("Frodon"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].mutualFriends").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].nickname").value("Sam"));
+    }
+
+    // Method importUsers
+
+    /**
+     * Test importUsers : the job is started and its route sent back
+     */
+    @DisplayName("Test importUsers : job started")
+    @Test
+    public void testImportUsers() throws Exception {
+        UserImportJobDTO job = new UserImportJobDTO("42", UserImportStatus.RUNNING, new UserImportReportDTO());
+        Mockito.when(this.importService.startImport(ArgumentMatchers.any(InputStream.class))).thenReturn("42");
+        Mockito.when(this.importService.findImport("42")).thenReturn(Optional.of(job));
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"nickname\":\"Jimmy\"}\n{\"nickname\":\"P89\"}"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().string("Location", route+"/import/42"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value("42"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"));
+    }
+
+    /**
+     * Test importUsers when the body can't be read
+     */
+    @DisplayName("Test importUsers : unreadable body")
+    @Test
+    public void testImportUsersUnreadable() throws Exception {
+        Mockito.when(this.importService.startImport(ArgumentMatchers.any(InputStream.class)))
+                .thenThrow(new IOException("Broken"));
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/import").content("{}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    /**
+     * Test importUsers when too many imports are waiting
+     */
+    @DisplayName("Test importUsers : too many imports")
+    @Test
+    public void testImportUsersRejected() throws Exception {
+        Mockito.when(this.importService.startImport(ArgumentMatchers.any(InputStream.class)))
+                .thenThrow(new RejectedExecutionException("Full"));
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/import").content("{}"))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+    }
+
+    // Method findImport
+
+    /**
+     * Test findImport : the report of the job is sent back
+     */
+    @DisplayName("Test findImport : job found")
+    @Test
+    public void testFindImport() throws Exception {
+        UserImportReportDTO report = new UserImportReportDTO(2, 1, 1,
+                List.of(new UserImportErrorDTO(2, "P89", "Invalid data")));
+        UserImportJobDTO job = new UserImportJobDTO("42", UserImportStatus.DONE, report);
+        Mockito.when(this.importService.findImport("42")).thenReturn(Optional.of(job));
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/import/42"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        Gson gson = new Gson();
+        UserImportJobDTO resultDTO = gson.fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8),
+                UserImportJobDTO.class);
+        Assertions.assertEquals(job, resultDTO);
+    }
+
+    /**
+     * Test findImport when the job is unknown
+     */
+    @DisplayName("Test findImport : job not found")
+    @Test
+    public void testFindImportNotFound() throws Exception {
+        Mockito.when(this.importService.findImport("42")).thenReturn(Optional.empty());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/import/42"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    // Method findFeed
+
+    /**
+     * Test findFeed when the user exists
+     */
+    @DisplayName("Test findFeed : user found")
+    @Test
+    public void testFindFeed() throws Exception {
+        List<FeedEntryDTO> feed = List.of(new FeedEntryDTO(4L, FeedEntryType.REGISTERED, "Tutululu",
+                "0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "Soirée", null));
+        Mockito.when(this.feedService.findFeed("Jimmy", 5L, 2)).thenReturn(feed);
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/feed")
+                        .param("before", "5")
+                        .param("limit", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].seq").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].type").value("REGISTERED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nickname").value("Tutululu"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].eventUuid")
+                        .value("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81"));
+    }
+
+    /**
+     * Test findFeed when the user doesn't exist
+     */
+    @DisplayName("Test findFeed : unknown user")
+    @Test
+    public void testFindFeedUnknownUser() throws Exception {
+        Mockito.when(this.feedService.findFeed("Jimmy", null, 20)).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/feed"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test findFeed with an invalid limit
+     */
+    @DisplayName("Test findFeed : invalid limit")
+    @Test
+    public void testFindFeedInvalidLimit() throws Exception {
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/feed").param("limit", "0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Method findEvents
+
+    /**
+     * Test findEvents when the user exists : the paging key stays hidden
+     */
+    @DisplayName("Test findEvents : user found")
+    @Test
+    public void testFindEvents() throws Exception {
+        EventPageDTO page = new EventPageDTO(List.of(new EventSummaryDTO(7L,
+                "0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "Soirée", null, "Paris", "Le jeu")), 7L);
+        Mockito.when(this.eventService.findByUser("Jimmy", EventRole.REGISTERED, 3L, 100)).thenReturn(page);
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/events")
+                        .param("role", "registered")
+                        .param("after", "3")
+                        .param("limit", "500"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].uuid")
+                        .value("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].town").value("Paris"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].id").doesNotExist());
+    }
+
+    /**
+     * Test findEvents when the user doesn't exist
+     */
+    @DisplayName("Test findEvents : unknown user")
+    @Test
+    public void testFindEventsUnknownUser() throws Exception {
+        Mockito.when(this.eventService.findByUser("Jimmy", EventRole.CREATOR, null, 20)).thenReturn(null);
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/events").param("role", "creator"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test findEvents with an invalid role or limit
+     */
+    @DisplayName("Test findEvents : invalid parameters")
+    @Test
+    public void testFindEventsInvalid() throws Exception {
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/events").param("role", "owner"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Jimmy/events"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        this.perform(MockMvcRequestBuilders.get(route+"/Jimmy/events")
+                        .param("role", "waiting").param("limit", "0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
@@ -0,0 +1,120 @@
+package fr.oukilson.backend.filter;
+
+import fr.oukilson.backend.service.ConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ConcurrencyLimitFilterTest {
+    private MeterRegistry registry;
+    private ConcurrencyLimiter limiter;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    public void init() {
+        this.registry = new SimpleMeterRegistry();
+        this.limiter = new ConcurrencyLimiter(4, 4, 4, 2, 0.9);
+        this.filter = new ConcurrencyLimitFilter(this.limiter, new String[] {"PUT /events/add_user"},
+                new String[] {" GET  /events/search "}, 0.75, 0.5, this.registry);
+    }
+
+    /**
+     * Send a request through the filter, its controller answering asynchronously
+     * @return The request, async started if it went through the filter
+     */
+    private MockHttpServletRequest start(String method, String path, MockHttpServletResponse response)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setAsyncSupported(true);
+        this.filter.doFilter(request, response, (req, res) -> req.startAsync());
+        return request;
+    }
+
+    /**
+     * Test doFilter : 503 with Retry-After once a priority's share is full, searches first
+     */
+    @DisplayName("Test doFilter : requests shed by priority")
+    @Test
+    public void testShed() throws Exception {
+        for (int i=0; i<2; i++)
+            Assertions.assertTrue(this.start("GET", "/events/search", new MockHttpServletResponse())
+                    .isAsyncStarted());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertFalse(this.start("GET", "/events/search", response).isAsyncStarted());
+        Assertions.assertEquals(503, response.getStatus());
+        Assertions.assertEquals("1", response.getHeader("Retry-After"));
+        Assertions.assertEquals(1.0, this.registry.get("http.server.requests.shed")
+                .tag("priority", "search").counter().count());
+
+        // Reads may fill 3 places, registrations all 4
+        MockHttpServletRequest read = this.start("GET", "/events/uuid", new MockHttpServletResponse());
+        Assertions.assertTrue(read.isAsyncStarted());
+        Assertions.assertFalse(this.start("GET", "/events/uuid", new MockHttpServletResponse()).isAsyncStarted());
+        Assertions.assertTrue(this.start("PUT", "/events/add_user", new MockHttpServletResponse())
+                .isAsyncStarted());
+        Assertions.assertFalse(this.start("PUT", "/events/add_user", new MockHttpServletResponse())
+                .isAsyncStarted());
+        Assertions.assertEquals(4.0, this.registry.get("concurrencylimiter.inflight").gauge().value());
+
+        // Place given back once the asynchronous answer is sent
+        ((MockAsyncContext) read.getAsyncContext()).complete();
+        Assertions.assertEquals(3, this.limiter.getInFlight());
+        Assertions.assertTrue(this.start("PUT", "/events/add_user", new MockHttpServletResponse())
+                .isAsyncStarted());
+    }
+
+    /**
+     * Test doFilter : the path is matched as the controllers match it, so a trailing slash keeps the priority
+     */
+    @DisplayName("Test doFilter : path normalized")
+    @Test
+    public void testPathNormalized() throws Exception {
+        for (int i=0; i<3; i++)
+            Assertions.assertTrue(this.start("GET", "/events/uuid", new MockHttpServletResponse()).isAsyncStarted());
+        Assertions.assertTrue(this.start("PUT", "/events/add_user/", new MockHttpServletResponse())
+                .isAsyncStarted());
+        Assertions.assertEquals(4, this.limiter.getInFlight());
+        Assertions.assertFalse(this.start("GET", "/events/search/", new MockHttpServletResponse())
+                .isAsyncStarted());
+        Assertions.assertEquals(1.0, this.registry.get("http.server.requests.shed")
+                .tag("priority", "search").counter().count());
+        Assertions.assertTrue(this.start("GET", "/events/uuid/live/", new MockHttpServletResponse())
+                .isAsyncStarted());
+    }
+
+    /**
+     * Test doFilter : place given back at once by a synchronous answer
+     */
+    @DisplayName("Test doFilter : synchronous request")
+    @Test
+    public void testSynchronous() throws Exception {
+        for (int i=0; i<5; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            this.filter.doFilter(new MockHttpServletRequest("GET", "/users/toto"), new MockHttpServletResponse(),
+                    chain);
+            Assertions.assertNotNull(chain.getRequest());
+        }
+        Assertions.assertEquals(0, this.limiter.getInFlight());
+    }
+
+    /**
+     * Test doFilter : live streams and the actuator are never limited
+     */
+    @DisplayName("Test doFilter : excluded routes")
+    @Test
+    public void testExcluded() throws Exception {
+        for (int i=0; i<5; i++) {
+            Assertions.assertTrue(this.start("GET", "/events/uuid/live", new MockHttpServletResponse())
+                    .isAsyncStarted());
+            MockFilterChain chain = new MockFilterChain();
+            this.filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"),
+                    new MockHttpServletResponse(), chain);
+            Assertions.assertNotNull(chain.getRequest());
+        }
+        Assertions.assertEquals(0, this.limiter.getInFlight());
+    }
+}
@@ -0,0 +1,90 @@
+package fr.oukilson.backend.filter;
+
+import fr.oukilson.backend.service.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RateLimitFilterTest {
+    private MeterRegistry registry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void init() {
+        this.registry = new SimpleMeterRegistry();
+        this.filter = new RateLimitFilter(new RateLimiter(2, 0.001, 60000),
+                new String[] {"PUT /events/add_user", " POST  /users "}, this.registry);
+    }
+
+    /**
+     * Send a request through the filter
+     * @return The response, and whether the chain was called
+     */
+    private MockFilterChain send(String method, String path, String address, MockHttpServletResponse response)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        MockFilterChain chain = new MockFilterChain();
+        this.filter.doFilter(request, response, chain);
+        return chain;
+    }
+
+    /**
+     * Test doFilter : 429 with Retry-After once the client has no token, counted by route
+     */
+    @DisplayName("Test doFilter : limited")
+    @Test
+    public void testLimited() throws Exception {
+        for (int i=0; i<2; i++)
+            Assertions.assertNotNull(this.send("PUT", "/events/add_user", "1.2.3.4",
+                    new MockHttpServletResponse()).getRequest());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = this.send("PUT", "/events/add_user", "1.2.3.4", response);
+        Assertions.assertNull(chain.getRequest());
+        Assertions.assertEquals(429, response.getStatus());
+        Assertions.assertNotNull(response.getHeader("Retry-After"));
+        Assertions.assertEquals(1.0, this.registry.get("http.server.requests.limited")
+                .tag("route", "PUT /events/add_user").counter().count());
+
+        // Other clients and routes have their own buckets
+        Assertions.assertNotNull(this.send("PUT", "/events/add_user", "5.6.7.8",
+                new MockHttpServletResponse()).getRequest());
+        Assertions.assertNotNull(this.send("POST", "/users", "1.2.3.4",
+                new MockHttpServletResponse()).getRequest());
+    }
+
+    /**
+     * Test doFilter : the other routes are never limited
+     */
+    @DisplayName("Test doFilter : route not limited")
+    @Test
+    public void testNotLimited() throws Exception {
+        for (int i=0; i<5; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            Assertions.assertNotNull(this.send("GET", "/users", "1.2.3.4", response).getRequest());
+            Assertions.assertEquals(200, response.getStatus());
+        }
+        Assertions.assertEquals(0.0, this.registry.get("ratelimiter.buckets").gauge().value());
+    }
+
+    /**
+     * Test doFilter : the path is matched as the controllers match it, so a trailing slash or parameters
+     * don't avoid the limit
+     */
+    @DisplayName("Test doFilter : path normalized")
+    @Test
+    public void testLimitedPathNormalized() throws Exception {
+        Assertions.assertNotNull(this.send("POST", "/users/", "1.2.3.4",
+                new MockHttpServletResponse()).getRequest());
+        Assertions.assertNotNull(this.send("POST", "/users;jsessionid=1", "1.2.3.4",
+                new MockHttpServletResponse()).getRequest());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertNull(this.send("POST", "//users/", "1.2.3.4", response).getRequest());
+        Assertions.assertEquals(429, response.getStatus());
+        Assertions.assertEquals(1.0, this.registry.get("http.server.requests.limited")
+                .tag("route", "POST /users").counter().count());
+    }
+}
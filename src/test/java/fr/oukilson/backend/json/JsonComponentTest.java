@@ -0,0 +1,186 @@
+package fr.oukilson.backend.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.mapper.UserMapper;
+import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The handwritten serializers must write the same JSON as Jackson's default bean serialization
+ */
+public class JsonComponentTest {
+    private final EventMapper eventMapper = new EventMapper(new UserMapper(), new GameMapper());
+    private final JsonMapper reflective = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final JsonMapper streaming = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .addModule(new SimpleModule()
+                    .addSerializer(Event.class, new EventJsonComponent.EventSerializer())
+                    .addSerializer(EventDTO.class, new EventJsonComponent.EventDTOSerializer())
+                    .addSerializer(UserDTO.class, new UserJsonComponent.UserDTOSerializer())
+                    .addSerializer(GameUuidDTO.class, new GameJsonComponent.GameUuidDTOSerializer()))
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private static User createUser(Long id, String nickname) {
+        User user = new User();
+        user.setId(id);
+        user.setNickname(nickname);
+        return user;
+    }
+
+    private static Event createEvent(Long id) {
+        Game game = new Game();
+        game.setId(1L);
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Innovation");
+        Location location = new Location(id, "Gan", "64290", "123 Rue d'Ossau", null);
+        Event event = new Event();
+        event.setId(id);
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Soirée \"jeux\" " + id);
+        event.setCreator(createUser(10L, "SuperAlbert"));
+        event.setGame(game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(4);
+        event.setCreationDate(LocalDateTime.now());
+        event.setLimitDate(LocalDateTime.now().plusDays(1));
+        event.setStartingDate(LocalDateTime.now().plusDays(2));
+        event.setEndingDate(LocalDateTime.now().plusDays(3));
+        event.setDescription("Description");
+        event.setPrivate(true);
+        event.setLocation(location);
+        location.setEvent(event);
+        event.getRegisteredUsers().add(createUser(11L, "Jimmy"));
+        event.getRegisteredUsers().add(createUser(12L, "Tutululu"));
+        event.getWaitingUsers().add(createUser(13L, "Bidulle"));
+        return event;
+    }
+
+    private static Event createEventWithMissingFields(Long id) {
+        Event event = createEvent(id);
+        event.setPrivate(false);
+        event.setEndingDate(null);
+        event.setDescription(null);
+        event.setCreator(null);
+        event.setGame(null);
+        event.setLocation(null);
+        event.getRegisteredUsers().clear();
+        event.getWaitingUsers().clear();
+        return event;
+    }
+
+    private void assertSameJson(Object expected, Object actual) throws Exception {
+        JsonNode expectedNode = this.reflective.readTree(this.reflective.writeValueAsString(expected));
+        JsonNode actualNode = this.streaming.readTree(this.streaming.writeValueAsString(actual));
+        Assertions.assertEquals(expectedNode, actualNode);
+    }
+
+    /**
+     * Test an event entity is written as its EventDTO
+     */
+    @DisplayName("Test EventSerializer : entity written as its EventDTO")
+    @Test
+    public void testEventSerializer() throws Exception {
+        Event event = createEvent(1L);
+        this.assertSameJson(this.eventMapper.toDTO(event), event);
+    }
+
+    /**
+     * Test an event entity is written as its EventDTO, when optional fields are missing
+     */
+    @DisplayName("Test EventSerializer : entity with missing fields written as its EventDTO")
+    @Test
+    public void testEventSerializerMissingFields() throws Exception {
+        Event event = createEventWithMissingFields(1L);
+        this.assertSameJson(this.eventMapper.toDTO(event), event);
+    }
+
+    /**
+     * Test a list of entities is written as the list of their EventDTO
+     */
+    @DisplayName("Test EventSerializer : list of entities")
+    @Test
+    public void testEventSerializerList() throws Exception {
+        List<Event> events = List.of(createEvent(1L), createEventWithMissingFields(2L), createEvent(3L));
+        this.assertSameJson(this.eventMapper.toDTOs(events), events);
+    }
+
+    /**
+     * Test dates are written as Jackson does, whatever their precision
+     */
+    @DisplayName("Test EventSerializer : dates written as Jackson does")
+    @Test
+    public void testEventSerializerDates() throws Exception {
+        Event event = createEvent(1L);
+        event.setCreationDate(LocalDateTime.of(2022, 1, 2, 3, 4));
+        event.setStartingDate(LocalDateTime.of(2022, 11, 12, 13, 14, 15, 120_000_000));
+        event.setEndingDate(LocalDateTime.of(999, 12, 31, 23, 59, 59, 1));
+        event.setLimitDate(LocalDateTime.of(12000, 1, 1, 0, 0, 0, 123_456_000));
+        this.assertSameJson(this.eventMapper.toDTO(event), event);
+    }
+
+    /**
+     * Test EventDTO is written as Jackson does
+     */
+    @DisplayName("Test EventDTOSerializer : same as Jackson")
+    @Test
+    public void testEventDTOSerializer() throws Exception {
+        EventDTO event = this.eventMapper.toDTO(createEvent(1L));
+        this.assertSameJson(event, event);
+    }
+
+    /**
+     * Test EventDTO is written as Jackson does, with null fields
+     */
+    @DisplayName("Test EventDTOSerializer : same as Jackson with null fields")
+    @Test
+    public void testEventDTOSerializerNullFields() throws Exception {
+        EventDTO event = this.eventMapper.toDTO(createEventWithMissingFields(1L));
+        event.setRegisteredUsers(null);
+        event.getWaitingUsers().add(null);
+        this.assertSameJson(event, event);
+    }
+
+    /**
+     * Test UserDTO is written as Jackson does
+     */
+    @DisplayName("Test UserDTOSerializer : same as Jackson")
+    @Test
+    public void testUserDTOSerializer() throws Exception {
+        UserDTO user = new UserDTO("SuperAlbert", List.of(new UserNameDTO("Jimmy"), new UserNameDTO("Bidulle")));
+        this.assertSameJson(user, user);
+        user = new UserDTO(null, null);
+        this.assertSameJson(user, user);
+    }
+
+    /**
+     * Test GameUuidDTO is written as Jackson does
+     */
+    @DisplayName("Test GameUuidDTOSerializer : same as Jackson")
+    @Test
+    public void testGameUuidDTOSerializer() throws Exception {
+        GameUuidDTO game = new GameUuidDTO(UUID.randomUUID().toString(), "Innovation");
+        this.assertSameJson(game, game);
+        game = new GameUuidDTO(null, null);
+        this.assertSameJson(game, game);
+    }
+}
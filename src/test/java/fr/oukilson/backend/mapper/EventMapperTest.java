@@ -0,0 +1,106 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import org.junit.jupiter.api.*;
+import org.modelmapper.ModelMapper;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class EventMapperTest {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final EventMapper mapper = new EventMapper(new UserMapper(), new GameMapper());
+
+    private static User createUser(Long id, String nickname) {
+        User user = new User();
+        user.setId(id);
+        user.setNickname(nickname);
+        return user;
+    }
+
+    private static Event createEvent(Long id) {
+        Game game = new Game();
+        game.setId(1L);
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Innovation");
+        Location location = new Location(id, "Gan", "64290", "123 Rue d'Ossau", null);
+        Event event = new Event();
+        event.setId(id);
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Soirée " + id);
+        event.setCreator(createUser(10L, "SuperAlbert"));
+        event.setGame(game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(4);
+        event.setCreationDate(LocalDateTime.now());
+        event.setLimitDate(LocalDateTime.now().plusDays(1));
+        event.setStartingDate(LocalDateTime.now().plusDays(2));
+        event.setEndingDate(LocalDateTime.now().plusDays(3));
+        event.setDescription("Description");
+        event.setPrivate(true);
+        event.setLocation(location);
+        location.setEvent(event);
+        event.getRegisteredUsers().add(createUser(11L, "Jimmy"));
+        event.getRegisteredUsers().add(createUser(12L, "Tutululu"));
+        event.getWaitingUsers().add(createUser(13L, "Bidulle"));
+        return event;
+    }
+
+    /**
+     * Test toDTO gives the same result as ModelMapper, with all fields
+     */
+    @DisplayName("Test toDTO : same as ModelMapper")
+    @Test
+    public void testToDTO() {
+        Event event = createEvent(1L);
+        Assertions.assertEquals(this.modelMapper.map(event, EventDTO.class), this.mapper.toDTO(event));
+    }
+
+    /**
+     * Test toDTO gives the same result as ModelMapper, when optional fields are missing
+     */
+    @DisplayName("Test toDTO : same as ModelMapper with missing fields")
+    @Test
+    public void testToDTOMissingFields() {
+        Event event = createEvent(1L);
+        event.setPrivate(false);
+        event.setEndingDate(null);
+        event.setDescription(null);
+        event.setCreator(null);
+        event.setGame(null);
+        event.setLocation(null);
+        event.getRegisteredUsers().clear();
+        event.getWaitingUsers().clear();
+        Assertions.assertEquals(this.modelMapper.map(event, EventDTO.class), this.mapper.toDTO(event));
+        Assertions.assertNull(this.mapper.toDTO((Event) null));
+    }
+
+    /**
+     * Test toDTOs keeps the order
+     */
+    @DisplayName("Test toDTOs : same as ModelMapper")
+    @Test
+    public void testToDTOs() {
+        List<Event> events = List.of(createEvent(2L), createEvent(1L), createEvent(3L));
+        Assertions.assertEquals(
+                events.stream().map(e -> this.modelMapper.map(e, EventDTO.class)).collect(Collectors.toList()),
+                this.mapper.toDTOs(events));
+    }
+
+    /**
+     * Test toDTO of a location gives the same result as ModelMapper
+     */
+    @DisplayName("Test toDTO location : same as ModelMapper")
+    @Test
+    public void testToDTOLocation() {
+        Location location = new Location(1L, "Gan", null, "123 Rue d'Ossau", null);
+        Assertions.assertEquals(this.modelMapper.map(location, LocationDTO.class), this.mapper.toDTO(location));
+        Assertions.assertNull(this.mapper.toDTO((Location) null));
+    }
+}
@@ -0,0 +1,59 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.entity.Game;
+import org.junit.jupiter.api.*;
+import org.modelmapper.ModelMapper;
+import java.util.UUID;
+
+public class GameMapperTest {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final GameMapper mapper = new GameMapper();
+
+    private static Game createGame() {
+        Game game = new Game();
+        game.setId(1L);
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Innovation");
+        game.setMinPlayer(2);
+        game.setMaxPlayer(4);
+        game.setMinPlayingTime(45);
+        game.setMaxPlayingTime(90);
+        game.setMinAge(14);
+        game.setCreatorName("Carl Chudyk");
+        return game;
+    }
+
+    /**
+     * Test toDTO gives the same result as ModelMapper, with all fields or only mandatory ones
+     */
+    @DisplayName("Test toDTO : same as ModelMapper")
+    @Test
+    public void testToDTO() {
+        Game game = createGame();
+        Assertions.assertEquals(this.modelMapper.map(game, GameDTO.class), this.mapper.toDTO(game));
+        game.setMinPlayer(null);
+        game.setMaxPlayer(null);
+        game.setMinPlayingTime(null);
+        game.setMaxPlayingTime(null);
+        game.setMinAge(null);
+        game.setCreatorName(null);
+        Assertions.assertEquals(this.modelMapper.map(game, GameDTO.class), this.mapper.toDTO(game));
+        Assertions.assertNull(this.mapper.toDTO(null));
+    }
+
+    /**
+     * Test toUuidDTO and toNameUuidDTO give the same result as ModelMapper
+     */
+    @DisplayName("Test toUuidDTO and toNameUuidDTO : same as ModelMapper")
+    @Test
+    public void testToUuidDTO() {
+        Game game = createGame();
+        Assertions.assertEquals(this.modelMapper.map(game, GameUuidDTO.class), this.mapper.toUuidDTO(game));
+        Assertions.assertEquals(this.modelMapper.map(game, GameNameUuidDTO.class), this.mapper.toNameUuidDTO(game));
+        Assertions.assertNull(this.mapper.toUuidDTO(null));
+        Assertions.assertNull(this.mapper.toNameUuidDTO(null));
+    }
+}
@@ -0,0 +1,63 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.User;
+import org.junit.jupiter.api.*;
+import org.modelmapper.ModelMapper;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserMapperTest {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final UserMapper mapper = new UserMapper();
+
+    private static User createUser(Long id, String nickname) {
+        User user = new User();
+        user.setId(id);
+        user.setNickname(nickname);
+        user.setPassword("esdrftghjkkl");
+        user.setEmail(nickname + "@yahoo.de");
+        user.setFirstName("Jimmy");
+        return user;
+    }
+
+    /**
+     * Test toDTO gives the same result as ModelMapper
+     */
+    @DisplayName("Test toDTO : same as ModelMapper")
+    @Test
+    public void testToDTO() {
+        User user = createUser(1L, "Jimmy");
+        Assertions.assertEquals(this.modelMapper.map(user, UserDTO.class), this.mapper.toDTO(user));
+        user.getFriendList().add(createUser(2L, "Tutululu"));
+        user.getFriendList().add(createUser(3L, "Bidulle"));
+        Assertions.assertEquals(this.modelMapper.map(user, UserDTO.class), this.mapper.toDTO(user));
+        user.setNickname(null);
+        Assertions.assertEquals(this.modelMapper.map(user, UserDTO.class), this.mapper.toDTO(user));
+        Assertions.assertNull(this.mapper.toDTO(null));
+    }
+
+    /**
+     * Test toNameDTO gives the same result as ModelMapper
+     */
+    @DisplayName("Test toNameDTO : same as ModelMapper")
+    @Test
+    public void testToNameDTO() {
+        User user = createUser(1L, "Jimmy");
+        Assertions.assertEquals(this.modelMapper.map(user, UserNameDTO.class), this.mapper.toNameDTO(user));
+        Assertions.assertNull(this.mapper.toNameDTO(null));
+    }
+
+    /**
+     * Test toNameDTOs keeps the order and never returns null
+     */
+    @DisplayName("Test toNameDTOs")
+    @Test
+    public void testToNameDTOs() {
+        List<User> users = new ArrayList<>(List.of(createUser(2L, "Tutululu"), createUser(1L, "Jimmy")));
+        Assertions.assertEquals(List.of(new UserNameDTO("Tutululu"), new UserNameDTO("Jimmy")),
+                this.mapper.toNameDTOs(users));
+        Assertions.assertEquals(List.of(), this.mapper.toNameDTOs(null));
+    }
+}
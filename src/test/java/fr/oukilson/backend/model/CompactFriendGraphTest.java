@@ -0,0 +1,101 @@
+package fr.oukilson.backend.model;
+
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+public class CompactFriendGraphTest {
+    /**
+     * Test suggest : friends of friends ranked by mutual friends, the user and his friends excluded
+     */
+    @DisplayName("Test suggest : ranking")
+    @Test
+    public void testSuggest() {
+        CompactFriendGraph graph = new CompactFriendGraph();
+        graph.addFriend(1, 2);
+        graph.addFriend(1, 3);
+        graph.addFriend(2, 1);
+        graph.addFriend(2, 3);
+        graph.addFriend(2, 4);
+        graph.addFriend(2, 5);
+        graph.addFriend(3, 4);
+        graph.addFriend(3, 6);
+
+        List<long[]> suggestions = graph.suggest(1, 10);
+
+        Assertions.assertEquals(3, suggestions.size());
+        Assertions.assertArrayEquals(new long[] {4, 2}, suggestions.get(0));
+        Assertions.assertArrayEquals(new long[] {5, 1}, suggestions.get(1));
+        Assertions.assertArrayEquals(new long[] {6, 1}, suggestions.get(2));
+        Assertions.assertEquals(1, graph.suggest(1, 1).size());
+    }
+
+    /**
+     * Test suggest : counts of a call don't leak into the next one, even when the graph grows between them
+     */
+    @DisplayName("Test suggest : successive calls")
+    @Test
+    public void testSuggestSuccessiveCalls() {
+        CompactFriendGraph graph = new CompactFriendGraph();
+        graph.addFriend(1, 2);
+        graph.addFriend(2, 3);
+        Assertions.assertArrayEquals(new long[] {3, 1}, graph.suggest(1, 10).get(0));
+        Assertions.assertArrayEquals(new long[] {3, 1}, graph.suggest(1, 10).get(0));
+
+        for (long id=10; id<3000; id++)
+            graph.addFriend(2, id);
+        List<long[]> suggestions = graph.suggest(1, 5);
+
+        Assertions.assertEquals(5, suggestions.size());
+        Assertions.assertArrayEquals(new long[] {3, 1}, suggestions.get(0));
+        Assertions.assertArrayEquals(new long[] {10, 1}, suggestions.get(1));
+        Assertions.assertTrue(graph.suggest(2, 10).isEmpty());
+    }
+
+    /**
+     * Test suggest : concurrent calls give the same suggestions as the calls of a single thread
+     */
+    @DisplayName("Test suggest : concurrent calls")
+    @Test
+    public void testSuggestConcurrent() throws Exception {
+        CompactFriendGraph graph = new CompactFriendGraph();
+        Random random = new Random(42);
+        for (int i=0; i<20000; i++)
+            graph.addFriend(random.nextInt(500), random.nextInt(500));
+        List<List<long[]>> expected = new ArrayList<>();
+        for (long user=0; user<500; user++)
+            expected.add(graph.suggest(user, 10));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int thread=0; thread<8; thread++) {
+                int offset = thread * 61;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i=0; i<2000; i++) {
+                        int user = (offset + i) % 500;
+                        List<long[]> suggestions = graph.suggest(user, 10);
+                        List<long[]> wanted = expected.get(user);
+                        if (suggestions.size()!=wanted.size())
+                            return false;
+                        for (int j=0; j<wanted.size(); j++) {
+                            if (suggestions.get(j)[0]!=wanted.get(j)[0] || suggestions.get(j)[1]!=wanted.get(j)[1])
+                                return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results)
+                Assertions.assertTrue(result.get(30, TimeUnit.SECONDS));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
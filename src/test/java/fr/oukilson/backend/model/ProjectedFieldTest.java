@@ -0,0 +1,42 @@
+package fr.oukilson.backend.model;
+
+import org.junit.jupiter.api.*;
+import java.util.EnumSet;
+import java.util.List;
+
+public class ProjectedFieldTest {
+
+    /**
+     * Test fields are parsed whatever the spaces and duplicates, in declaration order
+     */
+    @DisplayName("Test parse : valid fields")
+    @Test
+    public void testParse() {
+        EnumSet<EventField> fields = ProjectedField.parse(EventField.class,
+                " registeredCount,uuid , location,,uuid,private");
+        Assertions.assertEquals(List.of(EventField.UUID, EventField.PRIVATE, EventField.LOCATION,
+                EventField.REGISTERED_COUNT), List.copyOf(fields));
+    }
+
+    /**
+     * Test an unknown field is refused
+     */
+    @DisplayName("Test parse : unknown field")
+    @Test
+    public void testParseUnknownField() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ProjectedField.parse(GameField.class, "uuid,password"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ProjectedField.parse(EventField.class, "UUID"));
+    }
+
+    /**
+     * Test an empty list of fields is refused
+     */
+    @DisplayName("Test parse : no field")
+    @Test
+    public void testParseNoField() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProjectedField.parse(GameField.class, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProjectedField.parse(GameField.class, " , "));
+    }
+}
@@ -0,0 +1,93 @@
+package fr.oukilson.backend.model;
+
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+public class UuidsTest {
+    /**
+     * Test generate : version 7 uuids holding the current time
+     */
+    @DisplayName("Test generate : version and time")
+    @Test
+    public void testGenerate() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(Uuids.generate());
+        long after = System.currentTimeMillis();
+        Assertions.assertEquals(7, uuid.version());
+        Assertions.assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        Assertions.assertTrue(millis >= before && millis <= after + 1);
+    }
+
+    /**
+     * Test generate : uuids are unique and in order, as strings and as bytes, even within a millisecond
+     */
+    @DisplayName("Test generate : ordered")
+    @Test
+    public void testGenerateOrdered() {
+        List<String> uuids = new ArrayList<>();
+        for (int i=0; i<10000; i++)
+            uuids.add(Uuids.generate());
+        for (int i=0; i<5000; i++)
+            uuids.add(Uuids.generate(1000L).toString());    // Clock going back: still after the previous ones
+        Assertions.assertEquals(uuids.size(), new HashSet<>(uuids).size());
+        for (int i=1; i<uuids.size(); i++) {
+            Assertions.assertTrue(uuids.get(i-1).compareTo(uuids.get(i)) < 0);
+            Assertions.assertTrue(compareUnsigned(Uuids.toBytes(uuids.get(i-1)), Uuids.toBytes(uuids.get(i))) < 0);
+        }
+    }
+
+    /**
+     * Test toBytes and fromBytes : bytes in the order of the string
+     */
+    @DisplayName("Test toBytes and fromBytes")
+    @Test
+    public void testBytes() {
+        String uuid = "0189c6e0-51f2-7cc2-9a4d-3b2f1e0d5c6b";
+        byte[] bytes = Uuids.toBytes(uuid);
+        Assertions.assertEquals(16, bytes.length);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes)
+            hex.append(String.format("%02x", b));
+        Assertions.assertEquals(uuid.replace("-", ""), hex.toString());
+        Assertions.assertEquals(uuid, Uuids.fromBytes(bytes));
+        Assertions.assertEquals(uuid, Uuids.fromBytes(Uuids.toBytes(uuid.toUpperCase())));
+    }
+
+    /**
+     * Test toBytes and fromBytes with invalid values
+     */
+    @DisplayName("Test toBytes and fromBytes : invalid")
+    @Test
+    public void testBytesInvalid() {
+        Assertions.assertNull(Uuids.toBytes(null));
+        Assertions.assertNull(Uuids.toBytes("uuid"));
+        Assertions.assertNull(Uuids.toBytes("0189c6e0-51f2-7cc2-9a4d-3b2f1e0d5c6z"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Uuids.fromBytes(new byte[15]));
+    }
+
+    /**
+     * Test normalize : uuids in lowercase, other strings unchanged
+     */
+    @DisplayName("Test normalize")
+    @Test
+    public void testNormalize() {
+        String uuid = "0189c6e0-51f2-7cc2-9a4d-3b2f1e0d5c6b";
+        Assertions.assertEquals(uuid, Uuids.normalize(uuid));
+        Assertions.assertEquals(uuid, Uuids.normalize(uuid.toUpperCase()));
+        Assertions.assertEquals("unknown", Uuids.normalize("unknown"));
+        Assertions.assertNull(Uuids.normalize(null));
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i=0; i<a.length; i++) {
+            int result = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (result!=0)
+                return result;
+        }
+        return 0;
+    }
+}
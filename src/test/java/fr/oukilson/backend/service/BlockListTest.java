@@ -0,0 +1,114 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BlockListTest {
+    @MockBean
+    private UserRepository userRepository;
+    private BlockList blockList;
+
+    @BeforeEach
+    public void init() {
+        blockList = new BlockList(userRepository, 100, 0.01, 60000);
+    }
+
+    /**
+     * Test isBlocked when the denied list is empty : no exact query
+     */
+    @DisplayName("Test isBlocked : empty denied list")
+    @Test
+    public void testIsBlockedEmptyList() {
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(new ArrayList<>());
+        for (long i=2; i<100; i++)
+            Assertions.assertFalse(this.blockList.isBlocked(1L, i));
+        Mockito.verify(this.userRepository, Mockito.times(1)).findDeniedIds(1L);
+        Mockito.verify(this.userRepository, Mockito.never())
+                .countDenied(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test isBlocked when the user is in the denied list : confirmed by an exact query
+     */
+    @DisplayName("Test isBlocked : user blocked")
+    @Test
+    public void testIsBlocked() {
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(List.of(5L, 6L));
+        BDDMockito.when(this.userRepository.countDenied(1L, 5L)).thenReturn(1L);
+        Assertions.assertTrue(this.blockList.isBlocked(1L, 5L));
+        Mockito.verify(this.userRepository).countDenied(1L, 5L);
+    }
+
+    /**
+     * Test isBlocked when the filter answers "maybe" but the exact query says no
+     */
+    @DisplayName("Test isBlocked : false positive")
+    @Test
+    public void testIsBlockedFalsePositive() {
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(List.of(5L));
+        BDDMockito.when(this.userRepository.countDenied(1L, 5L)).thenReturn(0L);
+        Assertions.assertFalse(this.blockList.isBlocked(1L, 5L));
+    }
+
+    /**
+     * Test isBlocked : filter is reloaded after eviction
+     */
+    @DisplayName("Test isBlocked : evict")
+    @Test
+    public void testEvict() {
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(new ArrayList<>());
+        Assertions.assertFalse(this.blockList.isBlocked(1L, 5L));
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(List.of(5L));
+        BDDMockito.when(this.userRepository.countDenied(1L, 5L)).thenReturn(1L);
+        Assertions.assertFalse(this.blockList.isBlocked(1L, 5L));
+        this.blockList.evict(1L);
+        Assertions.assertTrue(this.blockList.isBlocked(1L, 5L));
+    }
+
+    /**
+     * Test isBlocked : filter is reloaded once expired
+     */
+    @DisplayName("Test isBlocked : filter expired")
+    @Test
+    public void testExpiration() throws InterruptedException {
+        BlockList blockList = new BlockList(this.userRepository, 100, 0.01, 20);
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(new ArrayList<>());
+        Assertions.assertFalse(blockList.isBlocked(1L, 5L));
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenReturn(List.of(5L));
+        BDDMockito.when(this.userRepository.countDenied(1L, 5L)).thenReturn(1L);
+        Thread.sleep(50);
+        Assertions.assertTrue(blockList.isBlocked(1L, 5L));
+    }
+
+    /**
+     * Test isBlocked : a filter loaded while its user is evicted isn't kept
+     */
+    @DisplayName("Test isBlocked : evicted during load")
+    @Test
+    public void testEvictDuringLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        BDDMockito.when(this.userRepository.findDeniedIds(1L)).thenAnswer(inv -> {
+            if (loads.getAndIncrement() > 0)
+                return List.of(5L);
+            // Blocked and evicted by another request while the old list was read
+            this.blockList.evict(1L);
+            return new ArrayList<>();
+        });
+        BDDMockito.when(this.userRepository.countDenied(1L, 5L)).thenReturn(1L);
+        Assertions.assertFalse(this.blockList.isBlocked(1L, 5L));
+        Assertions.assertTrue(this.blockList.isBlocked(1L, 5L));
+    }
+}
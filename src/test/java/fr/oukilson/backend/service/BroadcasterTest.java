@@ -0,0 +1,231 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BroadcasterTest {
+    private SimpleMeterRegistry registry;
+    private Broadcaster<Integer> broadcaster;
+
+    /**
+     * Subscriber recording what it gets
+     */
+    private static class Recorder implements Broadcaster.Subscriber<Integer> {
+        private final List<Integer> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile boolean failing;
+        private volatile CountDownLatch blocked;
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        @Override
+        public void send(Integer payload) throws Exception {
+            this.sending.countDown();
+            if (this.blocked!=null)
+                this.blocked.await(5, TimeUnit.SECONDS);
+            if (this.failing)
+                throw new IllegalStateException("gone");
+            this.received.add(payload);
+        }
+
+        @Override
+        public void ping() {
+            if (this.failing)
+                throw new IllegalStateException("gone");
+        }
+
+        @Override
+        public void close() {
+            this.closed.countDown();
+        }
+    }
+
+    @BeforeEach
+    public void init() {
+        this.registry = new SimpleMeterRegistry();
+        this.broadcaster = new Broadcaster<>("test", 1, 50, 16, this.registry);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.broadcaster.shutdown();
+    }
+
+    /**
+     * Wait until the pool has sent everything published before
+     */
+    private void sync() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Recorder marker = new Recorder() {
+            @Override
+            public void send(Integer payload) {
+                done.countDown();
+            }
+        };
+        this.broadcaster.subscribe("sync", marker);
+        this.broadcaster.publish("sync", 0);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        this.broadcaster.unsubscribe("sync", marker);
+    }
+
+    /**
+     * Wait until a subscriber has received a payload
+     */
+    private void awaitReceived(Recorder recorder, int payload) throws InterruptedException {
+        for (int i=0; i<500 && !recorder.received.contains(payload); i++)
+            Thread.sleep(10);
+        Assertions.assertTrue(recorder.received.contains(payload));
+    }
+
+    @DisplayName("Test publish : sent to the subscribers of the topic only")
+    @Test
+    public void testPublish() throws InterruptedException {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        Recorder other = new Recorder();
+        this.broadcaster.subscribe("a", first);
+        this.broadcaster.subscribe("a", second);
+        this.broadcaster.subscribe("b", other);
+        Assertions.assertEquals(3, this.broadcaster.size());
+        Assertions.assertEquals(3, this.registry.get("broadcaster.subscribers").gauge().value());
+
+        this.broadcaster.publish("a", 1);
+        this.sync();
+        Assertions.assertEquals(List.of(1), first.received);
+        Assertions.assertEquals(List.of(1), second.received);
+        Assertions.assertTrue(other.received.isEmpty());
+
+        this.broadcaster.unsubscribe("a", first);
+        this.broadcaster.publish("a", 2);
+        this.sync();
+        Assertions.assertEquals(List.of(1), first.received);
+        Assertions.assertEquals(List.of(1, 2), second.received);
+        Assertions.assertEquals(2, this.broadcaster.size());
+    }
+
+    @DisplayName("Test publish : changes waiting to be sent are coalesced")
+    @Test
+    public void testPublishCoalesced() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        recorder.blocked = new CountDownLatch(1);
+        this.broadcaster.subscribe("a", recorder);
+        this.broadcaster.publish("a", 1);
+        // The only thread is blocked sending 1 (or about to): 2 and 3 wait together
+        Thread.sleep(50);
+        this.broadcaster.publish("a", 2);
+        this.broadcaster.publish("a", 3);
+        recorder.blocked.countDown();
+        this.sync();
+        Assertions.assertEquals(List.of(1, 3), recorder.received);
+    }
+
+    @DisplayName("Test publish : failing subscribers dropped, on send or ping")
+    @Test
+    public void testDrop() throws InterruptedException {
+        Recorder sending = new Recorder();
+        Recorder idle = new Recorder();
+        this.broadcaster.subscribe("a", sending);
+        this.broadcaster.subscribe("b", idle);
+        sending.failing = true;
+        idle.failing = true;
+        this.broadcaster.publish("a", 1);
+        Assertions.assertTrue(sending.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(idle.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, this.broadcaster.size());
+        Assertions.assertEquals(2, this.registry.get("broadcaster.dropped").counter().count());
+    }
+
+    @DisplayName("Test publish : subscribers falling behind dropped, without slowing down the others")
+    @Test
+    public void testDropBehind() throws InterruptedException {
+        Broadcaster<Integer> broadcaster = new Broadcaster<>("test", 2, 60000, 2, this.registry);
+        try {
+            Recorder slow = new Recorder();
+            Recorder fast = new Recorder();
+            slow.blocked = new CountDownLatch(1);
+            broadcaster.subscribe("a", slow);
+            broadcaster.subscribe("a", fast);
+            broadcaster.publish("a", 1);
+            // The slow subscriber is blocked sending 1: the third change after it overflows its outbox,
+            // while the fast one gets each change
+            Assertions.assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+            this.awaitReceived(fast, 1);
+            broadcaster.publish("a", 2);
+            this.awaitReceived(fast, 2);
+            broadcaster.publish("a", 3);
+            this.awaitReceived(fast, 3);
+            Assertions.assertEquals(2, broadcaster.size());
+            broadcaster.publish("a", 4);
+            Assertions.assertEquals(1, broadcaster.size());
+            Assertions.assertEquals(1, this.registry.get("broadcaster.dropped").counter().count());
+
+            // Closed once its blocked send returns
+            Assertions.assertEquals(1, slow.closed.getCount());
+            slow.blocked.countDown();
+            Assertions.assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(List.of(1), slow.received);
+            this.awaitReceived(fast, 4);
+        }
+        finally {
+            broadcaster.shutdown();
+        }
+    }
+
+    @DisplayName("Test close : subscribers of the topic closed")
+    @Test
+    public void testClose() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        this.broadcaster.subscribe("a", recorder);
+        this.broadcaster.close("a");
+        Assertions.assertTrue(recorder.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, this.broadcaster.size());
+        this.broadcaster.publish("a", 1);
+        this.sync();
+        Assertions.assertTrue(recorder.received.isEmpty());
+    }
+
+    @DisplayName("Test publishAfterCommit : published right away without transaction")
+    @Test
+    public void testPublishAfterCommitWithoutTransaction() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        this.broadcaster.subscribe("a", recorder);
+        this.broadcaster.publishAfterCommit("a", () -> 1);
+        this.sync();
+        Assertions.assertEquals(List.of(1), recorder.received);
+    }
+
+    @DisplayName("Test closeAfterCommit : closed once committed, not if rolled back")
+    @Test
+    public void testCloseAfterCommit() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        this.broadcaster.subscribe("a", recorder);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.broadcaster.closeAfterCommit("a");
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertEquals(1, this.broadcaster.size());
+        Assertions.assertEquals(1, recorder.closed.getCount());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.broadcaster.closeAfterCommit("a");
+            Assertions.assertEquals(1, this.broadcaster.size());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertTrue(recorder.closed.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, this.broadcaster.size());
+    }
+}
@@ -0,0 +1,88 @@
+package fr.oukilson.backend.service;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Test tryAcquire : each request fills at most its share of the limit
+     */
+    @DisplayName("Test tryAcquire : shares of the limit")
+    @Test
+    public void testTryAcquire() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10, 10, 2, 0.9);
+        for (int i=0; i<5; i++)
+            Assertions.assertTrue(limiter.tryAcquire(0.5));
+        Assertions.assertFalse(limiter.tryAcquire(0.5));
+        for (int i=0; i<5; i++)
+            Assertions.assertTrue(limiter.tryAcquire(1));
+        Assertions.assertFalse(limiter.tryAcquire(1));
+        Assertions.assertEquals(10, limiter.getInFlight());
+
+        limiter.release(MILLISECOND);
+        Assertions.assertFalse(limiter.tryAcquire(0.5));
+        Assertions.assertTrue(limiter.tryAcquire(1));
+    }
+
+    /**
+     * Test release : the limit decreases when the latency rises, down to the minimum
+     */
+    @DisplayName("Test release : limit decreased by latency")
+    @Test
+    public void testDecrease() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 4, 100, 2, 0.5);
+        for (int i=0; i<100; i++) {
+            Assertions.assertTrue(limiter.tryAcquire(1));
+            limiter.release(MILLISECOND);
+        }
+        Assertions.assertEquals(20, limiter.getLimit());
+
+        // Slow requests: decreased once the recent latency is high enough, then once per limit's worth
+        for (int i=0; i<5; i++) {
+            Assertions.assertTrue(limiter.tryAcquire(1));
+            limiter.release(10 * MILLISECOND);
+        }
+        Assertions.assertEquals(10, limiter.getLimit());
+        for (int i=0; i<200; i++) {
+            Assertions.assertTrue(limiter.tryAcquire(1));
+            limiter.release(10 * MILLISECOND);
+        }
+        Assertions.assertEquals(4, limiter.getLimit());
+    }
+
+    /**
+     * Test release : the limit grows while it's used and the latency holds, up to the maximum
+     */
+    @DisplayName("Test release : limit increased under load")
+    @Test
+    public void testIncrease() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 4, 12, 2, 0.9);
+        for (int i=0; i<8; i++)
+            limiter.tryAcquire(1);
+        for (int i=0; i<10; i++) {
+            limiter.release(MILLISECOND);
+            Assertions.assertTrue(limiter.tryAcquire(1));
+        }
+        Assertions.assertEquals(10, limiter.getLimit());
+
+        for (int i=0; i<200; i++) {
+            limiter.release(MILLISECOND);
+            Assertions.assertTrue(limiter.tryAcquire(1));
+        }
+        Assertions.assertEquals(12, limiter.getLimit());
+    }
+
+    /**
+     * Test the constructor refuses inconsistent settings
+     */
+    @DisplayName("Test constructor : invalid settings")
+    @Test
+    public void testInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(2, 4, 10, 2, 0.9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(20, 4, 10, 2, 0.9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(5, 4, 10, 1, 0.9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(5, 4, 10, 2, 1));
+    }
+}
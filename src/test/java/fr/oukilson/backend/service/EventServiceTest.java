@@ -5,6 +5,14 @@ import fr.oukilson.backend.entity.Event;
 import fr.oukilson.backend.entity.Game;
 import fr.oukilson.backend.entity.Location;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventMapper;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.mapper.UserMapper;
+import fr.oukilson.backend.model.EventField;
+import fr.oukilson.backend.model.EventRole;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.EventProjectionRepository;
 import fr.oukilson.backend.repository.EventRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
@@ -14,10 +22,12 @@ import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.BDDMockito;
 import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -34,17 +44,38 @@ public class EventServiceTest {
     private GameRepository gameRepository;
     @MockBean
     private LocationRepository locationRepository;
+    @MockBean
+    private EventProjectionRepository projectionRepository;
+    @MockBean
+    private FeedService feedService;
+    @MockBean
+    private Broadcaster<EventSeatsDTO> seats;
     @Autowired
     private ModelMapper mapper;
     private EventService service;
 
-    @BeforeAll
+    @BeforeEach
     public void init() {
-        service = new EventService(repository, userRepository, gameRepository, locationRepository, mapper);
+        NicknameCache nicknameCache = new NicknameCache(userRepository, 100, 60000);
+        BlockList blockList = new BlockList(userRepository, 100, 0.01, 60000);
+        service = new EventService(repository, userRepository, gameRepository, locationRepository,
+                projectionRepository, mapper,
+                new EventMapper(new UserMapper(), new GameMapper()), nicknameCache, blockList, feedService,
+                new VersionCache(repository::findVersionByUuid, 100, 60000), seats);
     }
 
     // Convenient methods for testing
 
+    /**
+     * Mock the user repository so that the user can be found by its nickname.
+     * @param user User
+     */
+    private void mockUser(User user) {
+        BDDMockito.when(this.userRepository.findReferenceByNickname(user.getNickname()))
+                .thenReturn(Optional.of(new UserReference(user.getId(), user.getNickname())));
+        BDDMockito.when(this.userRepository.getById(user.getId())).thenReturn(user);
+    }
+
     /**
      * Return a valid Game entity with all attributes set to valid data.
      * @param id Game's id in database
@@ -143,6 +174,106 @@ public class EventServiceTest {
         Assertions.assertEquals(eventInDB, eventDTO);
     }
 
+    /**
+     * Test findByUuid with fields uses the projection
+     */
+    @DisplayName("Test : find an event by its uuid, with fields")
+    @Test
+    public void testFindByUuidWithFields() {
+        Set<EventField> fields = EnumSet.of(EventField.TITLE);
+        BDDMockito.when(this.projectionRepository.findByUuid("a", fields)).thenReturn(Optional.of(Map.of("title", "T")));
+        Assertions.assertEquals(Map.of("title", "T"), this.service.findByUuid("a", fields));
+        Assertions.assertNull(this.service.findByUuid("b", fields));
+    }
+
+    // Method findAllByUuid
+
+    /**
+     * Test findAllByUuid : one query, results in the order asked, null for the unknown uuids
+     */
+    @DisplayName("Test findAllByUuid : request order, misses as null")
+    @Test
+    public void testFindAllByUuid() {
+        Game game = this.createValidFullGame(1L, "Inis");
+        User user = this.createValidFullUser(1L, "toto");
+        Event first = this.createValidEvent(1L, game, user, null);
+        Event second = this.createValidEvent(2L, game, user, null);
+        BDDMockito.when(this.repository.findAllByUuidIn(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(second, first));
+
+        List<Event> result = this.service.findAllByUuid(
+                List.of(first.getUuid(), "unknown", second.getUuid(), first.getUuid()));
+        Assertions.assertEquals(Arrays.asList(first, null, second, first), result);
+        Mockito.verify(this.repository).findAllByUuidIn(Set.of(first.getUuid(), "unknown", second.getUuid()));
+    }
+
+
+    // Method findVersion
+
+    /**
+     * Test findVersion reads the version once, then uses the cache
+     */
+    @DisplayName("Test findVersion : version cached")
+    @Test
+    public void testFindVersionCached() {
+        String uuid = UUID.randomUUID().toString();
+        BDDMockito.when(this.repository.findVersionByUuid(uuid)).thenReturn(Optional.of(3L));
+        Assertions.assertEquals(3L, this.service.findVersion(uuid));
+        Assertions.assertEquals(3L, this.service.findVersion(uuid));
+        Mockito.verify(this.repository, Mockito.times(1)).findVersionByUuid(uuid);
+        Mockito.verify(this.repository, Mockito.never()).findByUuid(ArgumentMatchers.anyString());
+    }
+
+    /**
+     * Test findVersion with an unknown event
+     */
+    @DisplayName("Test findVersion : unknown event")
+    @Test
+    public void testFindVersionUnknownEvent() {
+        Assertions.assertNull(this.service.findVersion(UUID.randomUUID().toString()));
+    }
+
+    /**
+     * Test the cached version is dropped when the event is deleted
+     */
+    @DisplayName("Test findVersion : version dropped on delete")
+    @Test
+    public void testFindVersionAfterDelete() {
+        String uuid = UUID.randomUUID().toString();
+        BDDMockito.when(this.repository.findVersionByUuid(uuid)).thenReturn(Optional.of(3L));
+        Assertions.assertEquals(3L, this.service.findVersion(uuid));
+        BDDMockito.when(this.repository.findVersionByUuid(uuid)).thenReturn(Optional.empty());
+        this.service.deleteByUuid(uuid);
+        Assertions.assertNull(this.service.findVersion(uuid));
+        Mockito.verify(this.seats).closeAfterCommit(uuid);
+    }
+
+    // Method findSeats
+
+    /**
+     * Test findSeats with an existing event
+     */
+    @DisplayName("Test findSeats : existing event")
+    @Test
+    public void testFindSeats() {
+        String uuid = UUID.randomUUID().toString();
+        EventSeatsDTO seats = new EventSeatsDTO(uuid, 2L, 6, 6, 1);
+        BDDMockito.when(this.repository.findSeatsByUuid(uuid)).thenReturn(Optional.of(seats));
+        Assertions.assertEquals(seats, this.service.findSeats(uuid));
+        Assertions.assertEquals(0, seats.getSeatsLeft());
+    }
+
+    /**
+     * Test findSeats with an unknown event
+     */
+    @DisplayName("Test findSeats : unknown event")
+    @Test
+    public void testFindSeatsUnknown() {
+        String uuid = UUID.randomUUID().toString();
+        BDDMockito.when(this.repository.findSeatsByUuid(uuid)).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findSeats(uuid));
+    }
+
     // Method findByFilter
 
     /**
@@ -168,11 +299,11 @@ public class EventServiceTest {
         BDDMockito.when(this.repository.findAllByStartingDateAfter(ArgumentMatchers.any(LocalDateTime.class)))
                 .thenReturn(new LinkedList<>());
 
-        List<EventDTO> result = this.service.findByFilter("", town);
+        List<Event> result = this.service.findByFilter("", town);
         Assertions.assertNotNull(result);
         Assertions.assertEquals(events.size(), result.size());
         for (int i=0; i<size; i++) {
-            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), result.get(i));
+            Assertions.assertSame(events.get(i), result.get(i));
         }
     }
 
@@ -199,11 +330,11 @@ public class EventServiceTest {
                 .thenReturn(new LinkedList<>());
         BDDMockito.when(this.repository.findAllByStartingDateAfter(date)).thenReturn(events);
 
-        List<EventDTO> result = this.service.findByFilter(date.toString(), "");
+        List<Event> result = this.service.findByFilter(date.toString(), "");
         Assertions.assertNotNull(result);
         Assertions.assertEquals(events.size(), result.size());
         for (int i=0; i<size; i++) {
-            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), result.get(i));
+            Assertions.assertSame(events.get(i), result.get(i));
         }
     }
 
@@ -215,7 +346,7 @@ public class EventServiceTest {
     @Test
     public void testFindAllEventsWithEmptyFilters() {
         EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter("", "");
+        List<Event> result = this.service.findByFilter("", "");
         Assertions.assertNotNull(result);
         Assertions.assertEquals(0, result.size());
     }
@@ -228,7 +359,7 @@ public class EventServiceTest {
     @Test
     public void testFindAllEventsWithNullDate() {
         EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter(null, null);
+        List<Event> result = this.service.findByFilter(null, null);
         Assertions.assertNotNull(result);
         Assertions.assertEquals(0, result.size());
     }
@@ -241,7 +372,7 @@ public class EventServiceTest {
     @Test
     public void testFindAllEventsWithNullDateAndNullTown() {
         EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter(null, null);
+        List<Event> result = this.service.findByFilter(null, null);
         Assertions.assertNotNull(result);
         Assertions.assertEquals(0, result.size());
     }
@@ -279,15 +410,89 @@ public class EventServiceTest {
         BDDMockito.when(this.repository.findAllByLocationTownContaining(town)).thenReturn(townEvents);
         BDDMockito.when(this.repository.findAllByStartingDateAfter(date)).thenReturn(dateEvents);
 
-        List<EventDTO> result = this.service.findByFilter(date.toString(), town);
+        List<Event> result = this.service.findByFilter(date.toString(), town);
         Assertions.assertNotNull(result);
         Assertions.assertEquals(dateEvents.size(), result.size());
         Assertions.assertNotEquals(townEvents.size(), result.size());
         for (int i=0; i<dateEvents.size(); i++) {
-            Assertions.assertEquals(this.mapper.map(dateEvents.get(i), EventDTO.class), result.get(i));
+            Assertions.assertSame(dateEvents.get(i), result.get(i));
         }
     }
 
+    /**
+     * Test the search with fields uses the projection, with the same choice of filter
+     */
+    @DisplayName("Test : find events with fields")
+    @Test
+    public void testFindByFilterWithFields() {
+        Set<EventField> fields = EnumSet.of(EventField.UUID, EventField.REGISTERED_COUNT);
+        LocalDateTime date = LocalDateTime.now();
+        List<Map<String, Object>> byDate = List.of(Map.of("uuid", "a", "registeredCount", 1));
+        List<Map<String, Object>> byTown = List.of(Map.of("uuid", "b", "registeredCount", 2));
+        BDDMockito.when(this.projectionRepository.findAllByStartingDateAfter(date, fields)).thenReturn(byDate);
+        BDDMockito.when(this.projectionRepository.findAllByLocationTownContaining("Pau", fields)).thenReturn(byTown);
+
+        Assertions.assertEquals(byDate, this.service.findByFilter(date.toString(), "Pau", fields));
+        Assertions.assertEquals(byTown, this.service.findByFilter("", "Pau", fields));
+        Assertions.assertEquals(byTown, this.service.findByFilter("not a date", "Pau", fields));
+        Assertions.assertTrue(this.service.findByFilter(null, null, fields).isEmpty());
+        Mockito.verify(this.repository, Mockito.never()).findAllByStartingDateAfter(ArgumentMatchers.any());
+        Mockito.verify(this.repository, Mockito.never()).findAllByLocationTownContaining(ArgumentMatchers.any());
+    }
+
+    // Method findByUser
+
+    /**
+     * Test findByUser when the user doesn't exist
+     */
+    @DisplayName("Test findByUser : unknown user")
+    @Test
+    public void testFindByUserUnknownUser() {
+        BDDMockito.when(this.userRepository.findReferenceByNickname("toto")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findByUser("toto", EventRole.CREATOR, null, 10));
+    }
+
+    /**
+     * Test findByUser : each role uses its own query, the first page starts after 0
+     */
+    @DisplayName("Test findByUser : query by role")
+    @Test
+    public void testFindByUserRoles() {
+        User user = this.createValidFullUser(1L, "toto");
+        this.mockUser(user);
+        List<EventSummaryDTO> created = List.of(new EventSummaryDTO(3L, "a", "Created", null, "Paris", "Le jeu"));
+        List<EventSummaryDTO> registered = List.of(new EventSummaryDTO(4L, "b", "Registered", null, "Pau", "Le jeu"));
+        List<EventSummaryDTO> waiting = List.of(new EventSummaryDTO(5L, "c", "Waiting", null, "Gan", "Le jeu"));
+        PageRequest page = PageRequest.of(0, 11);
+        BDDMockito.when(this.repository.findSummariesByCreator(1L, 0L, page)).thenReturn(created);
+        BDDMockito.when(this.repository.findSummariesByRegisteredUser(1L, 0L, page)).thenReturn(registered);
+        BDDMockito.when(this.repository.findSummariesByWaitingUser(1L, 0L, page)).thenReturn(waiting);
+        Assertions.assertEquals(new EventPageDTO(created, null),
+                this.service.findByUser("toto", EventRole.CREATOR, null, 10));
+        Assertions.assertEquals(new EventPageDTO(registered, null),
+                this.service.findByUser("toto", EventRole.REGISTERED, null, 10));
+        Assertions.assertEquals(new EventPageDTO(waiting, null),
+                this.service.findByUser("toto", EventRole.WAITING, null, 10));
+    }
+
+    /**
+     * Test findByUser : when there are more events than the limit, next is the last event returned
+     */
+    @DisplayName("Test findByUser : next page")
+    @Test
+    public void testFindByUserNextPage() {
+        User user = this.createValidFullUser(1L, "toto");
+        this.mockUser(user);
+        List<EventSummaryDTO> events = List.of(
+                new EventSummaryDTO(7L, "a", "First", null, "Paris", "Le jeu"),
+                new EventSummaryDTO(8L, "b", "Second", null, "Pau", "Le jeu"),
+                new EventSummaryDTO(9L, "c", "Third", null, "Gan", "Le jeu"));
+        BDDMockito.when(this.repository.findSummariesByCreator(1L, 6L, PageRequest.of(0, 3))).thenReturn(events);
+        EventPageDTO result = this.service.findByUser("toto", EventRole.CREATOR, 6L, 2);
+        Assertions.assertEquals(events.subList(0, 2), result.getEvents());
+        Assertions.assertEquals(8L, result.getNext());
+    }
+
     // Method save
 
     /**
@@ -303,7 +508,7 @@ public class EventServiceTest {
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
         BDDMockito.when(this.locationRepository.save(ArgumentMatchers.any(Location.class))).thenReturn(location);
 
@@ -323,6 +528,8 @@ public class EventServiceTest {
             event.setCreationDate(result.getCreationDate());
             Assertions.assertEquals(this.mapper.map(event, EventDTO.class), result);
         }
+        Mockito.verify(this.feedService).publish(ArgumentMatchers.eq(FeedEntryType.CREATED),
+                ArgumentMatchers.eq(user.getId()), ArgumentMatchers.any());
     }
 
     /**
@@ -339,7 +546,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setEndingDate(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
         BDDMockito.when(this.locationRepository.save(ArgumentMatchers.any(Location.class))).thenReturn(location);
 
@@ -375,7 +582,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setTitle(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -397,7 +604,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setMinPlayer(1);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -419,7 +626,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setMinPlayer(2);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
         BDDMockito.when(this.locationRepository.save(ArgumentMatchers.any(Location.class))).thenReturn(location);
 
@@ -456,7 +663,7 @@ public class EventServiceTest {
         event.setMinPlayer(3);
         event.setMaxPlayer(event.getMinPlayer());
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
         BDDMockito.when(this.locationRepository.save(ArgumentMatchers.any(Location.class))).thenReturn(location);
 
@@ -492,7 +699,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setMaxPlayer(event.getMinPlayer()-1);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -514,7 +721,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setDescription(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -537,7 +744,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setLimitDate(event.getCreationDate().minusYears(1));
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -559,7 +766,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setStartingDate(event.getLimitDate().minusMonths(1));
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -582,7 +789,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setEndingDate(event.getStartingDate().minusDays(1));
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -605,7 +812,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setCreator(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -649,7 +856,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setGame(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -671,7 +878,7 @@ public class EventServiceTest {
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
 
         // Assert
         EventCreateDTO toCreate = this.mapper.map(event, EventCreateDTO.class);
@@ -693,7 +900,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.setLocation(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -716,7 +923,7 @@ public class EventServiceTest {
         location.setEvent(event);
         event.getLocation().setTown(null);
         BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(event);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // Assert
@@ -738,8 +945,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -773,8 +980,8 @@ public class EventServiceTest {
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
         event.setEndingDate(null);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -807,8 +1014,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -834,8 +1041,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -862,8 +1069,8 @@ public class EventServiceTest {
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
         event.setEndingDate(null);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -896,8 +1103,8 @@ public class EventServiceTest {
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
         event.setEndingDate(null);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -930,8 +1137,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -957,8 +1164,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -984,8 +1191,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1010,8 +1217,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1037,8 +1244,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1064,8 +1271,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1092,8 +1299,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1121,8 +1328,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event with the new game
@@ -1157,8 +1364,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1184,8 +1391,8 @@ public class EventServiceTest {
         Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
         Event event = this.createValidEvent(10L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.repository.findByUuidForUpdate(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
         BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
 
         // The new event
@@ -1278,8 +1485,36 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         Assertions.assertTrue(this.service.addUserInEvent(tuple));
+        Mockito.verify(this.feedService).publish(FeedEntryType.REGISTERED, user.getId(), event.getId());
+        Mockito.verify(this.seats).publishAfterCommit(ArgumentMatchers.eq(event.getUuid()), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test method addUserInEvent when user is in the denied list of the event's creator
+     */
+    @DisplayName("Test addUserInEvent : when user is blocked by the creator")
+    @Test
+    public void testAddUserInEventWhenUserBlockedByCreator() {
+        EventAddUserDTO tuple = new EventAddUserDTO();
+        User user = this.createValidFullUser(1L, "toto");
+        User creator = this.createValidFullUser(100L, "Bidulle");
+        Event event = this.createValidEvent(
+                1L,
+                this.createValidFullGame(1L, "Le jeu"),
+                creator,
+                new Location(100L, "Paris", null, null, null));
+        tuple.setUuid(event.getUuid());
+        tuple.setNickname(user.getNickname());
+        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
+        this.mockUser(user);
+        BDDMockito.when(this.userRepository.findDeniedIds(creator.getId())).thenReturn(List.of(user.getId()));
+        BDDMockito.when(this.userRepository.countDenied(creator.getId(), user.getId())).thenReturn(1L);
+        Assertions.assertFalse(this.service.addUserInEvent(tuple));
+        Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
+        Assertions.assertTrue(event.getRegisteredUsers().isEmpty());
+        Assertions.assertTrue(event.getWaitingUsers().isEmpty());
     }
 
     /**
@@ -1298,7 +1533,7 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         event.addUser(user);
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
@@ -1319,7 +1554,7 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         event.addUserInWaitingQueue(user);
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
@@ -1403,7 +1638,7 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         Assertions.assertTrue(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
@@ -1423,7 +1658,7 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         event.addUser(user);
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
@@ -1444,7 +1679,7 @@ public class EventServiceTest {
         tuple.setUuid(event.getUuid());
         tuple.setNickname(user.getNickname());
         BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         event.addUserInWaitingQueue(user);
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
@@ -1517,8 +1752,9 @@ public class EventServiceTest {
         Event event = this.createValidEvent(5L, game, user, location);
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
         BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         Assertions.assertFalse(this.service.removeUserInEvent(tuple));
+        Mockito.verify(this.seats, Mockito.never()).publishAfterCommit(ArgumentMatchers.any(), ArgumentMatchers.any());
     }
 
     /**
@@ -1534,11 +1770,12 @@ public class EventServiceTest {
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
         event.addUser(user);
         BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
 
         Assertions.assertTrue(event.getRegisteredUsers().contains(user));
         Assertions.assertTrue(this.service.removeUserInEvent(tuple));
         Assertions.assertFalse(event.getRegisteredUsers().contains(user));
+        Mockito.verify(this.seats).publishAfterCommit(ArgumentMatchers.eq(event.getUuid()), ArgumentMatchers.any());
     }
 
     // Method removeUserInWaitingQueue
@@ -1609,7 +1846,7 @@ public class EventServiceTest {
         Event event = this.createValidEvent(5L, game, user, location);
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
         BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
     }
 
@@ -1626,7 +1863,7 @@ public class EventServiceTest {
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
         event.addUserInWaitingQueue(user);
         BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
 
         Assertions.assertTrue(event.getWaitingUsers().contains(user));
         Assertions.assertTrue(this.service.removeUserInWaitingQueue(tuple));
@@ -0,0 +1,199 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.user.FeedEntryDTO;
+import fr.oukilson.backend.model.FeedEntry;
+import fr.oukilson.backend.model.FeedEntryType;
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.FeedRepository;
+import fr.oukilson.backend.repository.FriendListRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FeedServiceTest {
+    @MockBean
+    private FeedRepository feedRepository;
+    @MockBean
+    private FriendListRepository friendListRepository;
+    @MockBean
+    private UserRepository userRepository;
+    private FeedService service;
+
+    @BeforeEach
+    public void init() {
+        service = new FeedService(feedRepository, friendListRepository,
+                new NicknameCache(userRepository, 100, 60000), 3, 2, Runnable::run);
+    }
+
+    /**
+     * Return the entries written by all the calls to FeedRepository.write
+     */
+    private List<FeedEntry> written() {
+        ArgumentCaptor<List<FeedEntry>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.feedRepository, Mockito.atLeastOnce()).write(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * Test publish : an entry is written for each user having the actor as friend
+     */
+    @DisplayName("Test publish : fan out to the followers")
+    @Test
+    public void testPublish() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L)).thenReturn(List.of(2L, 3L));
+        BDDMockito.when(this.feedRepository.findHead(2L)).thenReturn(-1L);
+        BDDMockito.when(this.feedRepository.findHead(3L)).thenReturn(7L);
+        this.service.publish(FeedEntryType.CREATED, 1L, 10L);
+        List<FeedEntry> entries = this.written();
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertEquals(2L, entries.get(0).getOwnerId());
+        Assertions.assertEquals(0L, entries.get(0).getSeq());
+        Assertions.assertEquals(0, entries.get(0).getSlot());
+        Assertions.assertEquals(3L, entries.get(1).getOwnerId());
+        Assertions.assertEquals(8L, entries.get(1).getSeq());
+        Assertions.assertEquals(2, entries.get(1).getSlot());
+        Assertions.assertEquals(FeedEntryType.CREATED, entries.get(1).getType());
+        Assertions.assertEquals(1L, entries.get(1).getActorId());
+        Assertions.assertEquals(10L, entries.get(1).getEventId());
+    }
+
+    /**
+     * Test publish : the head is loaded once and the slots wrap around the capacity
+     */
+    @DisplayName("Test publish : ring buffer")
+    @Test
+    public void testPublishRingBuffer() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L)).thenReturn(List.of(2L));
+        BDDMockito.when(this.feedRepository.findHead(2L)).thenReturn(-1L);
+        for (long event=0; event<5; event++)
+            this.service.publish(FeedEntryType.REGISTERED, 1L, event);
+        List<FeedEntry> entries = this.written();
+        Assertions.assertEquals(List.of(0L, 1L, 2L, 3L, 4L),
+                entries.stream().map(FeedEntry::getSeq).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(0, 1, 2, 0, 1),
+                entries.stream().map(FeedEntry::getSlot).collect(Collectors.toList()));
+        Mockito.verify(this.feedRepository, Mockito.times(1)).findHead(2L);
+    }
+
+    /**
+     * Test publish : heads of the feeds not written lately are forgotten, then loaded again
+     */
+    @DisplayName("Test publish : heads evicted")
+    @Test
+    public void testPublishHeadsEvicted() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L)).thenReturn(List.of(2L));
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(5L)).thenReturn(List.of(3L, 4L));
+        BDDMockito.when(this.feedRepository.findHead(ArgumentMatchers.anyLong())).thenReturn(-1L);
+        this.service.publish(FeedEntryType.CREATED, 1L, 10L);
+        this.service.publish(FeedEntryType.CREATED, 5L, 11L);
+        this.service.publish(FeedEntryType.CREATED, 1L, 12L);
+        Mockito.verify(this.feedRepository, Mockito.times(2)).findHead(2L);
+        Mockito.verify(this.feedRepository, Mockito.times(1)).findHead(3L);
+    }
+
+    /**
+     * Test publish in a transaction : written only once it commits
+     */
+    @DisplayName("Test publish : after commit")
+    @Test
+    public void testPublishAfterCommit() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L)).thenReturn(List.of(2L));
+        BDDMockito.when(this.feedRepository.findHead(2L)).thenReturn(-1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.service.publish(FeedEntryType.CREATED, 1L, 10L);
+            Mockito.verify(this.friendListRepository, Mockito.never()).findUserIdsByFriendId(1L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Assertions.assertEquals(1, this.written().size());
+    }
+
+    /**
+     * Test publish in a transaction rolled back : nothing is written
+     */
+    @DisplayName("Test publish : rolled back")
+    @Test
+    public void testPublishRolledBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            this.service.publish(FeedEntryType.CREATED, 1L, 10L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Mockito.verify(this.friendListRepository, Mockito.never()).findUserIdsByFriendId(1L);
+        Mockito.verify(this.feedRepository, Mockito.never()).write(ArgumentMatchers.anyList());
+    }
+
+    /**
+     * Test publish : nothing is written without followers or ids
+     */
+    @DisplayName("Test publish : nothing to write")
+    @Test
+    public void testPublishNothing() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L)).thenReturn(List.of());
+        this.service.publish(FeedEntryType.CREATED, 1L, 10L);
+        this.service.publish(FeedEntryType.CREATED, null, 10L);
+        this.service.publish(FeedEntryType.CREATED, 1L, null);
+        Mockito.verify(this.feedRepository, Mockito.never()).write(ArgumentMatchers.anyList());
+    }
+
+    /**
+     * Test publish : a database failure doesn't reach the caller
+     */
+    @DisplayName("Test publish : database failure")
+    @Test
+    public void testPublishFailure() {
+        BDDMockito.when(this.friendListRepository.findUserIdsByFriendId(1L))
+                .thenThrow(new DataAccessResourceFailureException("Down"));
+        Assertions.assertDoesNotThrow(() -> this.service.publish(FeedEntryType.CREATED, 1L, 10L));
+    }
+
+    /**
+     * Test findFeed when the user doesn't exist
+     */
+    @DisplayName("Test findFeed : unknown user")
+    @Test
+    public void testFindFeedUnknownUser() {
+        BDDMockito.when(this.userRepository.findReferenceByNickname("Jimmy")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findFeed("Jimmy", null, 10));
+    }
+
+    /**
+     * Test findFeed : newest entries by default, limit capped by the capacity
+     */
+    @DisplayName("Test findFeed : page")
+    @Test
+    public void testFindFeed() {
+        List<FeedEntryDTO> page = List.of(new FeedEntryDTO(4L, FeedEntryType.CREATED, "Tutululu",
+                "0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "Soirée", LocalDateTime.now()));
+        BDDMockito.when(this.userRepository.findReferenceByNickname("Jimmy"))
+                .thenReturn(Optional.of(new UserReference(2L, "Jimmy")));
+        BDDMockito.when(this.feedRepository.findPage(2L, Long.MAX_VALUE, 3)).thenReturn(page);
+        BDDMockito.when(this.feedRepository.findPage(2L, 4L, 1)).thenReturn(List.of());
+        Assertions.assertEquals(page, this.service.findFeed("Jimmy", null, 10));
+        Assertions.assertEquals(List.of(), this.service.findFeed("Jimmy", 4L, 1));
+    }
+}
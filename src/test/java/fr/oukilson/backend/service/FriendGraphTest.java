@@ -0,0 +1,132 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FriendGraphTest {
+    @MockBean
+    private UserRepository userRepository;
+    private FriendGraph graph;
+
+    @BeforeEach
+    public void init() {
+        graph = new FriendGraph(userRepository, 100);
+    }
+
+    /**
+     * Test friendsOf : the friend list is loaded once and sorted
+     */
+    @DisplayName("Test friendsOf : loaded once and sorted")
+    @Test
+    public void testFriendsOfLoadedOnce() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(30L, 10L, 20L));
+        Assertions.assertArrayEquals(new long[] {10L, 20L, 30L}, this.graph.friendsOf(1L));
+        Assertions.assertArrayEquals(new long[] {10L, 20L, 30L}, this.graph.friendsOf(1L));
+        Mockito.verify(this.userRepository, Mockito.times(1)).findFriendIds(1L);
+    }
+
+    /**
+     * Test addFriend : a single row is inserted and the array stays sorted
+     */
+    @DisplayName("Test addFriend : friend added")
+    @Test
+    public void testAddFriend() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(10L, 30L));
+        BDDMockito.when(this.userRepository.insertFriend(1L, 20L)).thenReturn(1);
+        Assertions.assertTrue(this.graph.addFriend(1L, 20L));
+        Assertions.assertArrayEquals(new long[] {10L, 20L, 30L}, this.graph.friendsOf(1L));
+        Mockito.verify(this.userRepository).insertFriend(1L, 20L);
+    }
+
+    /**
+     * Test addFriend : nothing is written when the user is already a friend
+     */
+    @DisplayName("Test addFriend : already a friend")
+    @Test
+    public void testAddFriendAlreadyFriend() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(10L));
+        Assertions.assertFalse(this.graph.addFriend(1L, 10L));
+        Mockito.verify(this.userRepository, Mockito.never())
+                .insertFriend(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test addFriend : concurrent adds of the same friend insert it once
+     */
+    @DisplayName("Test addFriend : concurrent adds")
+    @Test
+    public void testAddFriendConcurrent() throws Exception {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of());
+        BDDMockito.when(this.userRepository.insertFriend(1L, 20L)).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return 1;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> adds = new ArrayList<>();
+            for (int i=0; i<4; i++)
+                adds.add(executor.submit(() -> this.graph.addFriend(1L, 20L)));
+            int added = 0;
+            for (Future<Boolean> add : adds)
+                added += add.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            Assertions.assertEquals(1, added);
+            Mockito.verify(this.userRepository, Mockito.times(1)).insertFriend(1L, 20L);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test addFriend : no row inserted when another instance added the friend meanwhile
+     */
+    @DisplayName("Test addFriend : added by another instance")
+    @Test
+    public void testAddFriendAddedElsewhere() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(10L));
+        BDDMockito.when(this.userRepository.insertFriend(1L, 20L)).thenReturn(0);
+        Assertions.assertFalse(this.graph.addFriend(1L, 20L));
+        Assertions.assertTrue(this.graph.isFriend(1L, 20L));
+    }
+
+    /**
+     * Test removeFriend : a single row is deleted
+     */
+    @DisplayName("Test removeFriend : friend removed")
+    @Test
+    public void testRemoveFriend() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(10L, 20L, 30L));
+        BDDMockito.when(this.userRepository.deleteFriend(1L, 20L)).thenReturn(1);
+        Assertions.assertTrue(this.graph.removeFriend(1L, 20L));
+        Assertions.assertArrayEquals(new long[] {10L, 30L}, this.graph.friendsOf(1L));
+        Mockito.verify(this.userRepository).deleteFriend(1L, 20L);
+    }
+
+    /**
+     * Test removeFriend : nothing is written when the user is not a friend
+     */
+    @DisplayName("Test removeFriend : not a friend")
+    @Test
+    public void testRemoveFriendNotFriend() {
+        BDDMockito.when(this.userRepository.findFriendIds(1L)).thenReturn(List.of(10L));
+        Assertions.assertFalse(this.graph.removeFriend(1L, 20L));
+        Mockito.verify(this.userRepository, Mockito.never())
+                .deleteFriend(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+}
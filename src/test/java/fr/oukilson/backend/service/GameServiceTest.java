@@ -3,17 +3,24 @@ package fr.oukilson.backend.service;
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.GameMapper;
+import fr.oukilson.backend.model.GameField;
+import fr.oukilson.backend.repository.GameProjectionRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
+import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,13 +30,16 @@ import java.util.UUID;
 public class GameServiceTest {
     @MockBean
     private GameRepository repository;
+    @MockBean
+    private GameProjectionRepository projectionRepository;
     @Autowired
     private ModelMapper mapper;
     private GameService service;
 
     @BeforeAll
     public void init() {
-        this.service = new GameService(repository, mapper);
+        this.service = new GameService(repository, projectionRepository, new GameMapper(),
+                new VersionCache(repository::findVersionByUuid, 100, 60000));
     }
 
     // Convenient methods for testing
@@ -89,6 +99,60 @@ public class GameServiceTest {
         Assertions.assertNull(dto);
     }
 
+    /**
+     * Test findAllByUuid : results in the order asked, null for the unknown uuids
+     */
+    @DisplayName("Test findAllByUuid : request order, misses as null")
+    @Test
+    public void testFindAllByUuid() {
+        Game first = this.createValidFullGame(1L, "Root");
+        Game second = this.createValidFullGame(2L, "Inis");
+        BDDMockito.when(this.repository.findAllByUuidIn(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(second, first));
+        List<GameDTO> result = this.service.findAllByUuid(List.of(first.getUuid(), "unknown", second.getUuid()));
+        Assertions.assertEquals(3, result.size());
+        Assertions.assertEquals(first.getUuid(), result.get(0).getUuid());
+        Assertions.assertNull(result.get(1));
+        Assertions.assertEquals(second.getUuid(), result.get(2).getUuid());
+    }
+
+
+    /**
+     * Test findByUuid with fields uses the projection
+     */
+    @DisplayName("Test findByUuid : with fields")
+    @Test
+    public void testFindByUuidWithFields() {
+        EnumSet<GameField> fields = EnumSet.of(GameField.NAME);
+        BDDMockito.when(this.projectionRepository.findByUuid("a", fields)).thenReturn(Optional.of(Map.of("name", "Root")));
+        Assertions.assertEquals(Map.of("name", "Root"), this.service.findByUuid("a", fields));
+        Assertions.assertNull(this.service.findByUuid("b", fields));
+    }
+
+    // Method findVersion
+
+    /**
+     * Test findVersion reads the version once, then uses the cache
+     */
+    @DisplayName("Test findVersion : version cached")
+    @Test
+    public void testFindVersionCached() {
+        String uuid = UUID.randomUUID().toString();
+        BDDMockito.when(this.repository.findVersionByUuid(uuid)).thenReturn(Optional.of(0L));
+        Assertions.assertEquals(0L, this.service.findVersion(uuid));
+        Assertions.assertEquals(0L, this.service.findVersion(uuid));
+        Mockito.verify(this.repository, Mockito.times(1)).findVersionByUuid(uuid);
+    }
+
+    /**
+     * Test findVersion with an unknown game
+     */
+    @DisplayName("Test findVersion : unknown game")
+    @Test
+    public void testFindVersionUnknownGame() {
+        Assertions.assertNull(this.service.findVersion(UUID.randomUUID().toString()));
+    }
+
     // Method findByName
 
     /**
@@ -146,4 +210,17 @@ public class GameServiceTest {
             Assertions.assertEquals(this.mapper.map(games.get(i), GameUuidDTO.class), list.get(i));
         }
     }
+
+    /**
+     * Test findByName with fields uses the projection
+     */
+    @DisplayName("Test findByName : with fields")
+    @Test
+    public void testFindByNameWithFields() {
+        EnumSet<GameField> fields = EnumSet.of(GameField.UUID, GameField.MIN_AGE);
+        List<Map<String, Object>> games = List.of(Map.of("uuid", "a", "minAge", 8));
+        BDDMockito.when(this.projectionRepository.findAllByNameContaining("Ro", fields)).thenReturn(games);
+        Assertions.assertEquals(games, this.service.findByName("Ro", fields));
+        Assertions.assertTrue(this.service.findByName(null, fields).isEmpty());
+    }
 }
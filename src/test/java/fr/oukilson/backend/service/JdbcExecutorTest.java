@@ -0,0 +1,71 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class JdbcExecutorTest {
+
+    /**
+     * Test supply : the task runs on the pool and its result is sent back
+     */
+    @DisplayName("Test supply")
+    @Test
+    public void testSupply() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        JdbcExecutor executor = new JdbcExecutor("test", 1, 1, registry);
+        try {
+            String thread = executor.supply(() -> Thread.currentThread().getName()).get();
+            Assertions.assertEquals("test-1", thread);
+            // Counted by the pool after the task has completed its future
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("executor.completed").tag("name", "test").functionCounter().count() < 1
+                    && System.nanoTime() < deadline)
+                Thread.sleep(1);
+            Assertions.assertEquals(1.0, registry.get("executor.completed").tag("name", "test")
+                    .functionCounter().count());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test supply when the pool and its queue are full : the task is refused and counted
+     */
+    @DisplayName("Test supply : rejected when full")
+    @Test
+    public void testSupplyRejected() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        JdbcExecutor executor = new JdbcExecutor("test", 1, 1, registry);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = executor.supply(() -> {
+                try {
+                    return latch.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    return false;
+                }
+            });
+            CompletableFuture<Integer> waiting = executor.supply(() -> 1);
+            CompletableFuture<Integer> refused = executor.supply(() -> 2);
+
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, refused::get);
+            Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+            Assertions.assertEquals(1.0, registry.get("executor.rejected").tag("name", "test").counter().count());
+
+            latch.countDown();
+            Assertions.assertTrue(running.get());
+            Assertions.assertEquals(1, waiting.get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
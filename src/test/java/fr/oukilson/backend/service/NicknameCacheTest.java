@@ -0,0 +1,121 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.Optional;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class NicknameCacheTest {
+    @MockBean
+    private UserRepository userRepository;
+    private NicknameCache cache;
+
+    @BeforeEach
+    public void init() {
+        cache = new NicknameCache(userRepository, 2, 60000);
+    }
+
+    /**
+     * Test resolve when nickname is null
+     */
+    @DisplayName("Test resolve : null nickname")
+    @Test
+    public void testResolveNull() {
+        Assertions.assertThrows(NullPointerException.class, () -> this.cache.resolve(null));
+    }
+
+    /**
+     * Test resolve : a known nickname is loaded only once
+     */
+    @DisplayName("Test resolve : known nickname loaded once")
+    @Test
+    public void testResolveKnownNickname() {
+        UserReference reference = new UserReference(1L, "Bruce");
+        BDDMockito.when(this.userRepository.findReferenceByNickname(reference.getNickname()))
+                .thenReturn(Optional.of(reference));
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve(reference.getNickname()));
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve(reference.getNickname()));
+        Mockito.verify(this.userRepository, Mockito.times(1)).findReferenceByNickname(reference.getNickname());
+    }
+
+    /**
+     * Test resolve : an unknown nickname is cached too, until invalidated
+     */
+    @DisplayName("Test resolve : unknown nickname cached until invalidated")
+    @Test
+    public void testResolveUnknownNickname() {
+        String nickname = "Alfred";
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.empty());
+        Assertions.assertTrue(this.cache.resolve(nickname).isEmpty());
+        Assertions.assertTrue(this.cache.resolve(nickname).isEmpty());
+        Mockito.verify(this.userRepository, Mockito.times(1)).findReferenceByNickname(nickname);
+
+        // The user is created
+        UserReference reference = new UserReference(2L, nickname);
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.of(reference));
+        this.cache.invalidate(nickname);
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve(nickname));
+    }
+
+    /**
+     * Test resolve : a nickname invalidated while it's loaded isn't cached as unknown
+     */
+    @DisplayName("Test resolve : invalidated during the load")
+    @Test
+    public void testResolveInvalidatedDuringLoad() {
+        String nickname = "Alfred";
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenAnswer(invocation -> {
+            // The user is created and the nickname invalidated before the lookup caches its result
+            this.cache.invalidate(nickname);
+            return Optional.empty();
+        });
+        Assertions.assertTrue(this.cache.resolve(nickname).isEmpty());
+
+        UserReference reference = new UserReference(2L, nickname);
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.of(reference));
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve(nickname));
+    }
+
+    /**
+     * Test resolve : the least recently used entry is evicted when the cache is full
+     */
+    @DisplayName("Test resolve : eviction when full")
+    @Test
+    public void testResolveEviction() {
+        for (long i=1; i<=3; i++) {
+            UserReference reference = new UserReference(i, "User"+i);
+            BDDMockito.when(this.userRepository.findReferenceByNickname(reference.getNickname()))
+                    .thenReturn(Optional.of(reference));
+            this.cache.resolve(reference.getNickname());
+        }
+        this.cache.resolve("User1");
+        Mockito.verify(this.userRepository, Mockito.times(2)).findReferenceByNickname("User1");
+        this.cache.resolve("User3");
+        Mockito.verify(this.userRepository, Mockito.times(1)).findReferenceByNickname("User3");
+    }
+
+    /**
+     * Test resolve : nicknames differing by their case share their entry, invalidated by either
+     */
+    @DisplayName("Test resolve : case ignored")
+    @Test
+    public void testResolveIgnoreCase() {
+        UserReference reference = new UserReference(1L, "Bruce");
+        BDDMockito.when(this.userRepository.findReferenceByNickname("Bruce")).thenReturn(Optional.of(reference));
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve("Bruce"));
+        Assertions.assertEquals(Optional.of(reference), this.cache.resolve("BRUCE"));
+        Mockito.verify(this.userRepository, Mockito.never()).findReferenceByNickname("BRUCE");
+        this.cache.invalidate("bruce");
+        BDDMockito.when(this.userRepository.findReferenceByNickname("BRUCE")).thenReturn(Optional.empty());
+        Assertions.assertTrue(this.cache.resolve("BRUCE").isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package fr.oukilson.backend.service;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+public class PasswordHasherTest {
+
+    /**
+     * Test hash and matches : a hash matches only its password
+     */
+    @DisplayName("Test hash and matches")
+    @Test
+    public void testHashMatches() {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 1, 5000);
+        try {
+            String hash = hasher.hash("esdrftghjkkl").join();
+            Assertions.assertNotEquals("esdrftghjkkl", hash);
+            Assertions.assertNotEquals(hash, hasher.hash("esdrftghjkkl").join());
+            Assertions.assertTrue(hasher.matches("esdrftghjkkl", hash).join());
+            Assertions.assertFalse(hasher.matches("esdrftghjkkm", hash).join());
+            Assertions.assertTrue(hasher.matches("esdrftghjkkl", hasher.hashNow("esdrftghjkkl")).join());
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * Test hash when the pool is busy : too slow results fail, overflowing requests are rejected right away
+     */
+    @DisplayName("Test hash : rejected when busy")
+    @Test
+    public void testHashRejected() {
+        PasswordHasher hasher = new PasswordHasher(16, 1, 1, 10);
+        try {
+            // Still running after the timeout
+            CompletableFuture<String> running = hasher.hash("esdrftghjkkl");
+            // Waiting in the queue after the timeout
+            CompletableFuture<String> waiting = hasher.hash("esdrftghjkkl");
+            assertRejected(running);
+            assertRejected(waiting);
+            // Queue full: the task still running holds the worker, the timed out one its place in the queue
+            Assertions.assertThrows(RejectedExecutionException.class, () -> hasher.matches("esdrftghjkkl", ""));
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * Check that a future failed with a RejectedExecutionException
+     */
+    private static void assertRejected(CompletableFuture<?> future) {
+        CompletionException e = Assertions.assertThrows(CompletionException.class, future::join);
+        Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+}
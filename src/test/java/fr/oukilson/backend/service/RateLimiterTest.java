@@ -0,0 +1,95 @@
+package fr.oukilson.backend.service;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final AtomicLong now = new AtomicLong(1000 * SECOND);
+
+    /**
+     * Test tryAcquire : a burst of 'capacity' requests, then one more per token
+     */
+    @DisplayName("Test tryAcquire : burst then refill")
+    @Test
+    public void testTryAcquire() {
+        RateLimiter limiter = new RateLimiter(3, 2, 60000, this.now::get);
+        for (int i=0; i<3; i++)
+            Assertions.assertEquals(0, limiter.tryAcquire("client"));
+        Assertions.assertEquals(SECOND / 2, limiter.tryAcquire("client"));
+        Assertions.assertEquals(0, limiter.tryAcquire("other"));
+
+        this.now.addAndGet(SECOND / 2);
+        Assertions.assertEquals(0, limiter.tryAcquire("client"));
+        Assertions.assertTrue(limiter.tryAcquire("client") > 0);
+
+        // Idle long enough: full again, no more than 'capacity' tokens
+        this.now.addAndGet(60 * SECOND);
+        for (int i=0; i<3; i++)
+            Assertions.assertEquals(0, limiter.tryAcquire("client"));
+        Assertions.assertTrue(limiter.tryAcquire("client") > 0);
+    }
+
+    /**
+     * Test tryAcquire : the full buckets are removed by the next sweep, the others are kept
+     */
+    @DisplayName("Test tryAcquire : sweep of the full buckets")
+    @Test
+    public void testSweep() {
+        RateLimiter limiter = new RateLimiter(2, 0.1, 20000, this.now::get);
+        limiter.tryAcquire("idle");
+        this.now.addAndGet(15 * SECOND);
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+        Assertions.assertEquals(2, limiter.size());
+
+        // 'idle' is full since 10s, 'busy' will be in 20s
+        this.now.addAndGet(5 * SECOND);
+        Assertions.assertTrue(limiter.tryAcquire("busy") > 0);
+        Assertions.assertEquals(1, limiter.size());
+    }
+
+    /**
+     * Test tryAcquire from several threads : never more tokens than the capacity
+     */
+    @DisplayName("Test tryAcquire : concurrent clients")
+    @Test
+    public void testTryAcquireConcurrent() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, 0.001, 0, this.now::get);
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future[8];
+            for (int t=0; t<8; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i=0; i<1000; i++) {
+                        if (limiter.tryAcquire("client")==0)
+                            acquired.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        }
+        finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(100, acquired.get());
+    }
+
+    /**
+     * Test constructor : invalid limits
+     */
+    @DisplayName("Test constructor : invalid limits")
+    @Test
+    public void testInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1, 1000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0, 1000));
+    }
+}
@@ -0,0 +1,91 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void init() {
+        this.registry = new SimpleMeterRegistry();
+    }
+
+    private double count(String name) {
+        return this.registry.get(name).tag("name", "test").counter().count();
+    }
+
+    /**
+     * Test load : the callers of a key during its load share it, other keys have their own
+     */
+    @DisplayName("Test load : concurrent callers share the load")
+    @Test
+    public void testLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 10000, this.registry);
+        CompletableFuture<String> database = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.load("a", () -> {
+            loads.incrementAndGet();
+            return database;
+        });
+        CompletableFuture<String> second = flight.load("a", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        CompletableFuture<String> other = flight.load("b", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("b");
+        });
+        Assertions.assertFalse(second.isDone());
+        Assertions.assertEquals("b", other.get());
+
+        database.complete("a");
+        Assertions.assertEquals("a", first.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals("a", second.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1.0, this.count("singleflight.coalesced"));
+        Assertions.assertEquals(0, flight.size());
+
+        // Done: the next caller loads again
+        Assertions.assertEquals("again", flight.load("a", () -> CompletableFuture.completedFuture("again")).get());
+    }
+
+    /**
+     * Test load : a failed load fails all its callers, with the cause of the failure
+     */
+    @DisplayName("Test load : failure shared")
+    @Test
+    public void testLoadFailed() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 10000, this.registry);
+        CompletableFuture<String> database = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.load("a", () -> database);
+        CompletableFuture<String> second = flight.load("a", () -> CompletableFuture.completedFuture("other"));
+        database.completeExceptionally(new IllegalStateException("down"));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        e = Assertions.assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        Assertions.assertEquals(0, flight.size());
+    }
+
+    /**
+     * Test load : a caller waiting more than maxWait loads by itself
+     */
+    @DisplayName("Test load : maximal wait")
+    @Test
+    public void testLoadTimeout() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test", 50, this.registry);
+        CompletableFuture<String> first = flight.load("a", CompletableFuture::new);
+        CompletableFuture<String> second = flight.load("a", () -> CompletableFuture.completedFuture("own"));
+        Assertions.assertEquals("own", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(first.isDone());
+        Assertions.assertEquals(1.0, this.count("singleflight.timeouts"));
+    }
+}
@@ -0,0 +1,209 @@
+package fr.oukilson.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.oukilson.backend.dto.user.UserImportErrorDTO;
+import fr.oukilson.backend.dto.user.UserImportJobDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.model.UserImportStatus;
+import fr.oukilson.backend.repository.UserBatchRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserImportServiceTest {
+    @MockBean
+    private UserRepository userRepository;
+    @MockBean
+    private UserBatchRepository userBatchRepository;
+    @Autowired
+    private RegexCollection regexCollection;
+    private PasswordHasher passwordHasher;
+    private NicknameCache nicknameCache;
+    private UserImportService service;
+    private List<String> inserted;
+
+    @BeforeEach
+    public void init() {
+        passwordHasher = new PasswordHasher(4, 1, 4, 5000);
+        nicknameCache = new NicknameCache(userRepository, 100, 60000);
+        service = new UserImportService(userRepository, userBatchRepository, regexCollection, passwordHasher,
+                new NicknameRegistry(userRepository, 100, 0.01), nicknameCache, new ObjectMapper(), 2, 10, 1, 1, 1,
+                10);
+        inserted = new ArrayList<>();
+        Mockito.doAnswer(inv -> {
+            List<User> users = inv.getArgument(0);
+            users.forEach(user -> inserted.add(user.getNickname()));
+            return null;
+        }).when(userBatchRepository).insertAll(ArgumentMatchers.anyList());
+    }
+
+    @AfterEach
+    public void shutdown() {
+        service.shutdown();
+        passwordHasher.shutdown();
+    }
+
+    private UserImportReportDTO run(String... lines) throws IOException {
+        return this.service.importUsers(new ByteArrayInputStream(
+                String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private UserImportJobDTO awaitImport(String id) throws InterruptedException {
+        UserImportJobDTO job = this.service.findImport(id).orElseThrow();
+        for (int i=0; i<500 && job.getStatus()==UserImportStatus.RUNNING; i++) {
+            Thread.sleep(10);
+            job = this.service.findImport(id).orElseThrow();
+        }
+        return job;
+    }
+
+    private static String record(String nickname) {
+        return "{\"nickname\":\"" + nickname + "\",\"password\":\"esdrftghjkkl\",\"email\":\"letruc@yahoo.de\"}";
+    }
+
+    /**
+     * Test importUsers : valid records are inserted by batches with hashed passwords
+     */
+    @DisplayName("Test importUsers : everything is ok")
+    @Test
+    public void testImportUsers() throws IOException {
+        UserImportReportDTO report = this.run(record("Jimmy"), "", record("Tutululu"), record("Eloise"));
+        Assertions.assertEquals(3, report.getTotal());
+        Assertions.assertEquals(3, report.getCreated());
+        Assertions.assertEquals(0, report.getRejected());
+        Assertions.assertTrue(report.getErrors().isEmpty());
+        Assertions.assertEquals(List.of("Jimmy", "Tutululu", "Eloise"), this.inserted);
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(this.userBatchRepository, Mockito.times(2)).insertAll(captor.capture());
+        User user = captor.getAllValues().get(0).get(0);
+        Assertions.assertEquals("letruc@yahoo.de", user.getEmail());
+        Assertions.assertNotEquals("esdrftghjkkl", user.getPassword());
+        Assertions.assertTrue(this.passwordHasher.matches("esdrftghjkkl", user.getPassword()).join());
+    }
+
+    /**
+     * Test importUsers : each rejected record is reported with its line and reason
+     */
+    @DisplayName("Test importUsers : errors reported")
+    @Test
+    public void testImportUsersErrors() throws IOException {
+        BDDMockito.when(this.userRepository.findNicknamesIn(ArgumentMatchers.anyCollection()))
+                .thenAnswer(inv -> ((List<String>) inv.getArgument(0)).stream()
+                        .filter("Tutululu"::equals).collect(Collectors.toList()));
+        UserImportReportDTO report = this.run(record("Jimmy"), "{not json", record("P89"),
+                record("Jimmy"), record("Tutululu"), record("Eloise"), record("JIMMY"));
+        Assertions.assertEquals(7, report.getTotal());
+        Assertions.assertEquals(2, report.getCreated());
+        Assertions.assertEquals(5, report.getRejected());
+        Assertions.assertEquals(List.of(
+                new UserImportErrorDTO(2, null, "Malformed record"),
+                new UserImportErrorDTO(3, "P89", "Invalid data"),
+                new UserImportErrorDTO(4, "Jimmy", "Nickname duplicated in the file"),
+                new UserImportErrorDTO(5, "Tutululu", "Nickname already used"),
+                new UserImportErrorDTO(7, "JIMMY", "Nickname duplicated in the file")), report.getErrors());
+        Assertions.assertEquals(List.of("Jimmy", "Eloise"), this.inserted);
+    }
+
+    /**
+     * Test importUsers : when a batch fails, its users are inserted one by one
+     */
+    @DisplayName("Test importUsers : failed batch")
+    @Test
+    public void testImportUsersFailedBatch() throws IOException {
+        Mockito.doAnswer(inv -> {
+            List<User> users = inv.getArgument(0);
+            if (users.size() > 1 || users.get(0).getNickname().equals("Tutululu"))
+                throw new DataIntegrityViolationException("Duplicate entry");
+            this.inserted.add(users.get(0).getNickname());
+            return null;
+        }).when(this.userBatchRepository).insertAll(ArgumentMatchers.anyList());
+        UserImportReportDTO report = this.run(record("Jimmy"), record("Tutululu"));
+        Assertions.assertEquals(1, report.getCreated());
+        Assertions.assertEquals(List.of(new UserImportErrorDTO(2, "Tutululu", "Insert failed")), report.getErrors());
+        Assertions.assertEquals(List.of("Jimmy"), this.inserted);
+    }
+
+    /**
+     * Test importUsers : the number of detailed errors is limited
+     */
+    @DisplayName("Test importUsers : errors limited")
+    @Test
+    public void testImportUsersErrorsLimited() throws IOException {
+        String[] lines = new String[15];
+        for (int i=0; i<lines.length; i++)
+            lines[i] = "{not json";
+        UserImportReportDTO report = this.run(lines);
+        Assertions.assertEquals(15, report.getRejected());
+        Assertions.assertEquals(10, report.getErrors().size());
+        Mockito.verify(this.userBatchRepository, Mockito.never()).insertAll(ArgumentMatchers.anyList());
+    }
+
+    /**
+     * Test startImport : the job runs in the background, its report is found by its id
+     */
+    @DisplayName("Test startImport : job done")
+    @Test
+    public void testStartImport() throws Exception {
+        String id = this.service.startImport(new ByteArrayInputStream(
+                String.join("\n", record("Jimmy"), "{not json", record("Eloise")).getBytes(StandardCharsets.UTF_8)));
+        UserImportJobDTO job = this.awaitImport(id);
+        Assertions.assertEquals(id, job.getId());
+        Assertions.assertEquals(UserImportStatus.DONE, job.getStatus());
+        Assertions.assertEquals(3, job.getReport().getTotal());
+        Assertions.assertEquals(2, job.getReport().getCreated());
+        Assertions.assertEquals(List.of("Jimmy", "Eloise"), this.inserted);
+        Assertions.assertEquals(Optional.empty(), this.service.findImport("unknown"));
+    }
+
+    /**
+     * Test startImport when too many jobs are waiting
+     */
+    @DisplayName("Test startImport : rejected when busy")
+    @Test
+    public void testStartImportRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(inv -> {
+            release.await();
+            return null;
+        }).when(this.userBatchRepository).insertAll(ArgumentMatchers.anyList());
+        List<String> ids = new ArrayList<>();
+        try {
+            // One running, one waiting
+            ids.add(this.service.startImport(new ByteArrayInputStream(
+                    record("Jimmy").getBytes(StandardCharsets.UTF_8))));
+            ids.add(this.service.startImport(new ByteArrayInputStream(
+                    record("Eloise").getBytes(StandardCharsets.UTF_8))));
+            Assertions.assertThrows(RejectedExecutionException.class, () -> this.service.startImport(
+                    new ByteArrayInputStream(record("Tutululu").getBytes(StandardCharsets.UTF_8))));
+        }
+        finally {
+            release.countDown();
+        }
+        // Jobs done before the next test, so they don't insert through its mocks
+        for (String id : ids)
+            Assertions.assertEquals(UserImportStatus.DONE, this.awaitImport(id).getStatus());
+    }
+}
@@ -2,20 +2,35 @@ package fr.oukilson.backend.service;
 
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserSuggestionDTO;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.UserMapper;
 import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.model.UserReference;
+import fr.oukilson.backend.repository.FriendListRepository;
 import fr.oukilson.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
+import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -23,13 +38,55 @@ import java.util.Optional;
 public class UserServiceTest {
     @MockBean
     private UserRepository userRepository;
+    @MockBean
+    private FriendListRepository friendListRepository;
     @Autowired
     private RegexCollection regexCollection;
+    private FriendGraph friendGraph;
+    private NicknameRegistry nicknameRegistry;
+    private PasswordHasher passwordHasher;
+    private JdbcExecutor writeExecutor;
     private UserService service;
 
-    @BeforeAll
+    @BeforeEach
     public void init() {
-        service = new UserService(userRepository, new ModelMapper(), regexCollection);
+        NicknameCache nicknameCache = new NicknameCache(userRepository, 100, 60000);
+        friendGraph = new FriendGraph(userRepository, 100);
+        nicknameRegistry = new NicknameRegistry(userRepository, 100, 0.01);
+        nicknameRegistry.build();
+        passwordHasher = new PasswordHasher(4, 1, 4, 5000);
+        writeExecutor = new JdbcExecutor("test-write", 1, 10, new SimpleMeterRegistry());
+        service = new UserService(userRepository, new ModelMapper(), new UserMapper(), regexCollection,
+                nicknameCache, friendGraph, new FriendSuggestionIndex(friendListRepository),
+                new BlockList(userRepository, 100, 0.01, 60000), nicknameRegistry, passwordHasher);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        passwordHasher.shutdown();
+        writeExecutor.shutdown();
+    }
+
+    /**
+     * Create a user and wait for the result
+     * @param dto User's data
+     * @return UserDTO, or null if not created
+     */
+    private UserDTO create(UserCreationDTO dto) {
+        return this.service.createUser(dto, this.writeExecutor).join();
+    }
+
+    /**
+     * Mock the repository so that the user can be found by its nickname and its id.
+     * @param user User
+     */
+    private void mockUser(User user) {
+        BDDMockito.when(this.userRepository.findReferenceByNickname(user.getNickname()))
+                .thenReturn(Optional.of(new UserReference(user.getId(), user.getNickname())));
+        BDDMockito.when(this.userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.userRepository.getById(user.getId())).thenReturn(user);
+        BDDMockito.when(this.userRepository.findFriendIds(user.getId())).thenReturn(
+                user.getFriendList().stream().<Number>map(User::getId).collect(Collectors.toList()));
     }
 
     // Method findUserByNickname
@@ -60,7 +117,7 @@ public class UserServiceTest {
     @Test
     public void testFindUserByNicknameUserNotFound() {
         String nickname = "Popo";
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.empty());
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.empty());
         Assertions.assertNull(this.service.findUserByNickname(nickname));
     }
 
@@ -74,13 +131,40 @@ public class UserServiceTest {
         user.setNickname("Bruce");
         user.setPassword("kljsgfsmirgu");
         user.setId(1L);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        this.mockUser(user);
         UserDTO result = this.service.findUserByNickname(user.getNickname());
         Assertions.assertNotNull(result);
         ModelMapper mapper = new ModelMapper();
         Assertions.assertEquals(mapper.map(user, UserDTO.class), result);
     }
 
+    // Method findUsersByNickname
+
+    /**
+     * Test findUsersByNickname : one query for the valid nicknames, results in the order asked
+     */
+    @DisplayName("Test findUsersByNickname : request order, misses as null")
+    @Test
+    public void testFindUsersByNickname() {
+        User bruce = new User();
+        bruce.setId(1L);
+        bruce.setNickname("Bruce");
+        User alfred = new User();
+        alfred.setId(2L);
+        alfred.setNickname("Alfred");
+        alfred.getFriendList().add(bruce);
+        BDDMockito.when(this.userRepository.findAllWithFriendsByNicknameIn(Set.of("Bruce", "Alfred", "Nobody")))
+                .thenReturn(List.of(alfred, bruce));
+
+        List<UserDTO> result = this.service.findUsersByNickname(List.of("Bruce", "Clément", "Nobody", "Alfred"));
+        Assertions.assertEquals(4, result.size());
+        Assertions.assertEquals("Bruce", result.get(0).getNickname());
+        Assertions.assertNull(result.get(1));
+        Assertions.assertNull(result.get(2));
+        Assertions.assertEquals("Alfred", result.get(3).getNickname());
+        Assertions.assertEquals("Bruce", result.get(3).getFriendList().get(0).getNickname());
+    }
+
     // Method createUser
 
     /**
@@ -89,7 +173,7 @@ public class UserServiceTest {
     @DisplayName("Test createUser : userCreationDTO null")
     @Test
     public void testCreateUserNullDTO() {
-        UserDTO dto = Assertions.assertDoesNotThrow(() -> this.service.createUser(null));
+        UserDTO dto = Assertions.assertDoesNotThrow(() -> this.create(null));
         Assertions.assertNull(dto);
     }
 
@@ -100,7 +184,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullNickname() {
         UserCreationDTO dto = new UserCreationDTO(null, "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -110,7 +194,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullPassword() {
         UserCreationDTO dto = new UserCreationDTO("Raymond", null, "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -120,7 +204,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullEmail() {
         UserCreationDTO dto = new UserCreationDTO("Trevor", "esdrftghjkkl", null);
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -130,7 +214,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyNickname() {
         UserCreationDTO dto = new UserCreationDTO("", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -140,7 +224,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyPassword() {
         UserCreationDTO dto = new UserCreationDTO("Billy", "", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -150,7 +234,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyEmail() {
         UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -160,11 +244,11 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmailNotValid() {
         UserCreationDTO dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blabla@tutu.");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blablatutu.");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blabla@tutu");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -174,22 +258,22 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNicknameNotValid() {
         UserCreationDTO dto = new UserCreationDTO("Eloïse", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("Un nickname", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("Boréale", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("P89", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO(
                 "Piiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiii",
                 "esdrftghjkkl",
                 "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("P", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
         dto = new UserCreationDTO("Moldu!", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.create(dto));
     }
 
     /**
@@ -203,7 +287,8 @@ public class UserServiceTest {
         User user = mapper.map(dto, User.class);
         BDDMockito.given(userRepository.save(ArgumentMatchers.any(User.class)))
                 .willAnswer(inv -> { throw new SQLException("Duplicate entry");});
-        Assertions.assertThrows(SQLException.class, () -> this.service.createUser(dto));
+        CompletionException e = Assertions.assertThrows(CompletionException.class, () -> this.create(dto));
+        Assertions.assertTrue(e.getCause() instanceof SQLException);
     }
 
     /**
@@ -216,11 +301,178 @@ public class UserServiceTest {
         ModelMapper mapper = new ModelMapper();
         User user = mapper.map(dto, User.class);
         BDDMockito.when(userRepository.save(ArgumentMatchers.any(User.class))).thenReturn(user);
-        UserDTO result = this.service.createUser(dto);
+        UserDTO result = this.create(dto);
         Assertions.assertNotNull(result);
         Assertions.assertEquals(mapper.map(user, UserDTO.class), result);
     }
 
+    /**
+     * Test createUser when the nickname is already used
+     */
+    @DisplayName("Test createUser : nickname already used")
+    @Test
+    public void testCreateUserNicknameUsed() {
+        UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de");
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenReturn(List.of("Jimmy"));
+        BDDMockito.when(this.userRepository.findReferenceByNickname("Jimmy"))
+                .thenReturn(Optional.of(new UserReference(1L, "Jimmy")));
+        this.nicknameRegistry.build();
+        Assertions.assertNull(this.create(dto));
+        Mockito.verify(this.userRepository, Mockito.never()).save(ArgumentMatchers.any(User.class));
+    }
+
+    /**
+     * Test createUser when the unique index rejects the nickname
+     */
+    @DisplayName("Test createUser : unique index violation")
+    @Test
+    public void testCreateUserUniqueIndexViolation() {
+        UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de");
+        BDDMockito.when(this.userRepository.save(ArgumentMatchers.any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        Assertions.assertNull(this.create(dto));
+    }
+
+    /**
+     * Test createUser stores the password hashed
+     */
+    @DisplayName("Test createUser : password is hashed")
+    @Test
+    public void testCreateUserPasswordHashed() {
+        UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de");
+        BDDMockito.when(this.userRepository.save(ArgumentMatchers.any(User.class)))
+                .thenAnswer(inv -> inv.getArgument(0));
+        Assertions.assertNotNull(this.create(dto));
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        Mockito.verify(this.userRepository).save(captor.capture());
+        String hash = captor.getValue().getPassword();
+        Assertions.assertNotEquals("esdrftghjkkl", hash);
+        Assertions.assertTrue(new BCryptPasswordEncoder().matches("esdrftghjkkl", hash));
+    }
+
+    // Method checkPassword
+
+    /**
+     * Test checkPassword with null parameters
+     */
+    @DisplayName("Test checkPassword : null parameters")
+    @Test
+    public void testCheckPasswordNull() {
+        Assertions.assertFalse(this.service.checkPassword(null, "esdrftghjkkl").join());
+        Assertions.assertFalse(this.service.checkPassword("Jimmy", null).join());
+    }
+
+    /**
+     * Test checkPassword when the user doesn't exist
+     */
+    @DisplayName("Test checkPassword : unknown user")
+    @Test
+    public void testCheckPasswordUnknownUser() {
+        BDDMockito.when(this.userRepository.findPasswordByNickname("Jimmy")).thenReturn(Optional.empty());
+        Assertions.assertFalse(this.service.checkPassword("Jimmy", "esdrftghjkkl").join());
+    }
+
+    /**
+     * Test checkPassword with the right and a wrong password
+     */
+    @DisplayName("Test checkPassword : right and wrong password")
+    @Test
+    public void testCheckPassword() {
+        BDDMockito.when(this.userRepository.findPasswordByNickname("Jimmy"))
+                .thenReturn(Optional.of(this.passwordHasher.hash("esdrftghjkkl").join()));
+        Assertions.assertTrue(this.service.checkPassword("Jimmy", "esdrftghjkkl").join());
+        Assertions.assertFalse(this.service.checkPassword("Jimmy", "esdrftghjkkm").join());
+    }
+
+    // Method isNicknameAvailable
+
+    /**
+     * Test isNicknameAvailable when nickname is null or invalid
+     */
+    @DisplayName("Test isNicknameAvailable : invalid nickname")
+    @Test
+    public void testIsNicknameAvailableInvalid() {
+        Assertions.assertFalse(this.service.isNicknameAvailable(null));
+        Assertions.assertFalse(this.service.isNicknameAvailable("Eloïse"));
+        Assertions.assertFalse(this.service.isNicknameAvailable("P89"));
+    }
+
+    /**
+     * Test isNicknameAvailable when the filter knows the nickname is free : no database access
+     */
+    @DisplayName("Test isNicknameAvailable : free without database access")
+    @Test
+    public void testIsNicknameAvailableFree() {
+        Assertions.assertTrue(this.service.isNicknameAvailable("Jimmy"));
+        Mockito.verify(this.userRepository, Mockito.never()).findReferenceByNickname(ArgumentMatchers.any());
+    }
+
+    /**
+     * Test isNicknameAvailable when the nickname is used
+     */
+    @DisplayName("Test isNicknameAvailable : nickname used")
+    @Test
+    public void testIsNicknameAvailableUsed() {
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenReturn(List.of("Jimmy"));
+        BDDMockito.when(this.userRepository.findReferenceByNickname("Jimmy"))
+                .thenReturn(Optional.of(new UserReference(1L, "Jimmy")));
+        this.nicknameRegistry.build();
+        Assertions.assertFalse(this.service.isNicknameAvailable("Jimmy"));
+    }
+
+    /**
+     * Test isNicknameAvailable when the nickname is used with another case, refused like the unique index does
+     */
+    @DisplayName("Test isNicknameAvailable : nickname used with another case")
+    @Test
+    public void testIsNicknameAvailableUsedOtherCase() {
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenReturn(List.of("jimmy"));
+        BDDMockito.when(this.userRepository.findReferenceByNickname("JIMMY"))
+                .thenReturn(Optional.of(new UserReference(1L, "jimmy")));
+        this.nicknameRegistry.build();
+        Assertions.assertTrue(this.nicknameRegistry.mightExist("JIMMY"));
+        Assertions.assertFalse(this.service.isNicknameAvailable("JIMMY"));
+    }
+
+    /**
+     * Test isNicknameAvailable when the filter couldn't be built : the database is used
+     */
+    @DisplayName("Test isNicknameAvailable : filter not built")
+    @Test
+    public void testIsNicknameAvailableFilterNotBuilt() {
+        NicknameRegistry registry = new NicknameRegistry(this.userRepository, 100, 0.01);
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenThrow(new RuntimeException("Database down"));
+        registry.build();
+        Assertions.assertTrue(registry.mightExist("Jimmy"));
+    }
+
+    /**
+     * Test NicknameRegistry.add when the filter is full : a single build is started in the background,
+     * and the nicknames added while it runs are in the new filter
+     */
+    @DisplayName("Test NicknameRegistry.add : filter full")
+    @Test
+    public void testNicknameRegistryAddFull() {
+        List<Runnable> builds = new ArrayList<>();
+        NicknameRegistry registry = new NicknameRegistry(this.userRepository, 2, 0.01, builds::add);
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenReturn(List.of("Jimmy"));
+        registry.build();
+        registry.add("Eloïse");
+        registry.add("P89");
+        registry.add("Ortie");
+        Assertions.assertEquals(1, builds.size());
+
+        BDDMockito.when(this.userRepository.findAllNicknames()).thenAnswer(invocation -> {
+            registry.add("Machin");
+            return List.of("Jimmy", "Eloïse", "P89", "Ortie");
+        });
+        builds.get(0).run();
+
+        Assertions.assertEquals(1, builds.size());
+        Assertions.assertTrue(registry.mightExist("Machin"));
+        Assertions.assertTrue(registry.mightExist("Ortie"));
+    }
+
     // Method addUserToFriendList
 
     /**
@@ -229,7 +481,7 @@ public class UserServiceTest {
     @DisplayName("Test addUserToFriendList : mainUser is null")
     @Test
     public void testAddUserToFriendListNullMainUser() {
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findReferenceByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.addUserToFriendList(null, "Machin"));
@@ -242,8 +494,8 @@ public class UserServiceTest {
     @Test
     public void testAddUserToFriendListNullSecondUser() {
         String mainUser = "Ortie";
-        BDDMockito.when(userRepository.findByNickname(mainUser)).thenThrow(NullPointerException.class);
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findReferenceByNickname(mainUser)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findReferenceByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.addUserToFriendList(mainUser, null));
@@ -261,7 +513,7 @@ public class UserServiceTest {
         User secondUser = new User();
         secondUser.setId(200000L);
         secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
+        this.mockUser(mainUser);
         Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
     }
 
@@ -277,7 +529,7 @@ public class UserServiceTest {
         User secondUser = new User();
         secondUser.setId(200000L);
         secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
+        this.mockUser(secondUser);
         Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
     }
 
@@ -295,13 +547,15 @@ public class UserServiceTest {
         secondUser.setId(200000L);
         secondUser.setNickname("Dorian");
         mainUser.getFriendList().add(secondUser);
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
+        this.mockUser(mainUser);
+        this.mockUser(secondUser);
 
         // Assert
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertTrue(this.friendGraph.isFriend(mainUser.getId(), secondUser.getId()));
         Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertTrue(this.friendGraph.isFriend(mainUser.getId(), secondUser.getId()));
+        Mockito.verify(this.userRepository, Mockito.never())
+                .insertFriend(ArgumentMatchers.any(), ArgumentMatchers.any());
     }
 
     /**
@@ -317,13 +571,36 @@ public class UserServiceTest {
         User secondUser = new User();
         secondUser.setId(200000L);
         secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
+        this.mockUser(mainUser);
+        this.mockUser(secondUser);
+        BDDMockito.when(this.userRepository.insertFriend(mainUser.getId(), secondUser.getId())).thenReturn(1);
 
         // Assert
-        Assertions.assertFalse(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertFalse(this.friendGraph.isFriend(mainUser.getId(), secondUser.getId()));
         Assertions.assertTrue(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertTrue(this.friendGraph.isFriend(mainUser.getId(), secondUser.getId()));
+        Mockito.verify(this.userRepository).insertFriend(mainUser.getId(), secondUser.getId());
+    }
+
+    /**
+     * Test addUserToFriendList when mainUser is in the denied list of secondUser
+     */
+    @DisplayName("Test addUserToFriendList : mainUser blocked by secondUser")
+    @Test
+    public void testAddUserToFriendListBlocked() {
+        User mainUser = new User();
+        mainUser.setId(100000L);
+        mainUser.setNickname("Eliott");
+        User secondUser = new User();
+        secondUser.setId(200000L);
+        secondUser.setNickname("Dorian");
+        this.mockUser(mainUser);
+        this.mockUser(secondUser);
+        BDDMockito.when(this.userRepository.findDeniedIds(secondUser.getId())).thenReturn(List.of(mainUser.getId()));
+        BDDMockito.when(this.userRepository.countDenied(secondUser.getId(), mainUser.getId())).thenReturn(1L);
+        Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
+        Mockito.verify(this.userRepository, Mockito.never())
+                .insertFriend(ArgumentMatchers.any(), ArgumentMatchers.any());
     }
 
     // Method removeUserFromFriendList
@@ -334,7 +611,7 @@ public class UserServiceTest {
     @DisplayName("Test removeUserFromFriendList : mainUser is null")
     @Test
     public void testRemoveUserFromFriendListNullMainUser() {
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findReferenceByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.removeUserFromFriendList(null, "Machin"));
@@ -348,8 +625,8 @@ public class UserServiceTest {
     public void testRemoveUserFromFriendListNullSecondUser() {
         User mainUser = new User();
         mainUser.setNickname("Pouic");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        this.mockUser(mainUser);
+        BDDMockito.when(userRepository.findReferenceByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.removeUserFromFriendList(mainUser.getNickname(), null));
@@ -363,7 +640,7 @@ public class UserServiceTest {
     public void testRemoveUserFromFriendListMainUserNotFound() {
         String nickname1 = "Radio";
         String nickname2 = "Gaga";
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.empty());
+        BDDMockito.when(userRepository.findReferenceByNickname(nickname1)).thenReturn(Optional.empty());
         Assertions.assertFalse(this.service.removeUserFromFriendList(nickname1, nickname2));
     }
 
@@ -377,8 +654,8 @@ public class UserServiceTest {
         String nickname2 = "Gaga";
         User user = new User();
         user.setNickname(nickname1);
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.of(user));
-        BDDMockito.when(userRepository.findByNickname(nickname2)).thenReturn(Optional.empty());
+        this.mockUser(user);
+        BDDMockito.when(userRepository.findReferenceByNickname(nickname2)).thenReturn(Optional.empty());
         Assertions.assertFalse(this.service.removeUserFromFriendList(nickname1, nickname2));
     }
 
@@ -393,6 +670,7 @@ public class UserServiceTest {
         String nickname2 = "Gaga";
         User user1 = new User();
         user1.setNickname(nickname1);
+        user1.setId(2000L);
         User user2 = new User();
         user2.setNickname(nickname2);
         user2.setId(1000L);
@@ -406,13 +684,15 @@ public class UserServiceTest {
         }
 
         // Mock and assert
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.of(user1));
-        BDDMockito.when(userRepository.findByNickname(nickname2)).thenReturn(Optional.of(user2));
-        Assertions.assertEquals(size+1, user1.getFriendList().size());
-        Assertions.assertTrue(user1.getFriendList().contains(user2));
+        this.mockUser(user1);
+        this.mockUser(user2);
+        BDDMockito.when(this.userRepository.deleteFriend(user1.getId(), user2.getId())).thenReturn(1);
+        Assertions.assertEquals(size+1, this.friendGraph.friendsOf(user1.getId()).length);
+        Assertions.assertTrue(this.friendGraph.isFriend(user1.getId(), user2.getId()));
         Assertions.assertTrue(this.service.removeUserFromFriendList(nickname1, nickname2));
-        Assertions.assertEquals(size, user1.getFriendList().size());
-        Assertions.assertFalse(user1.getFriendList().contains(user2));
+        Assertions.assertEquals(size, this.friendGraph.friendsOf(user1.getId()).length);
+        Assertions.assertFalse(this.friendGraph.isFriend(user1.getId(), user2.getId()));
+        Mockito.verify(this.userRepository).deleteFriend(user1.getId(), user2.getId());
     }
 
     // Method emptyFriendList
@@ -423,7 +703,7 @@ public class UserServiceTest {
     @DisplayName("Test emptyFriendList : null nickname")
     @Test
     public void testEmptyFriendListNullNickname() {
-        BDDMockito.when(this.userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(this.userRepository.findReferenceByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(NullPointerException.class, () -> this.service.emptyFriendList(null));
     }
 
@@ -434,7 +714,7 @@ public class UserServiceTest {
     @Test
     public void testEmptyFriendListUserIsFound() {
         String nickname = "Alpha";
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.empty());
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.empty());
         Assertions.assertFalse(this.service.emptyFriendList(nickname));
     }
 
@@ -447,6 +727,7 @@ public class UserServiceTest {
         String nickname = "Alpha";
         User user = new User();
         user.setNickname(nickname);
+        user.setId(50L);
         int size = 2;
         for (int i=0; i<size; i++) {
             User temp = new User();
@@ -454,9 +735,64 @@ public class UserServiceTest {
             temp.setNickname("User "+i);
             user.getFriendList().add(temp);
         }
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.of(user));
-        Assertions.assertEquals(size, user.getFriendList().size());
+        this.mockUser(user);
+        Assertions.assertEquals(size, this.friendGraph.friendsOf(user.getId()).length);
+        BDDMockito.when(this.userRepository.findFriendIds(user.getId())).thenReturn(List.of());
         Assertions.assertTrue(this.service.emptyFriendList(nickname));
-        Assertions.assertEquals(0, user.getFriendList().size());
+        Mockito.verify(this.userRepository).deleteAllFriends(user.getId());
+        Mockito.verify(this.userRepository, Mockito.never()).save(ArgumentMatchers.any(User.class));
+        Assertions.assertEquals(0, this.friendGraph.friendsOf(user.getId()).length);
+    }
+
+    // Method findSuggestions
+
+    /**
+     * Test findSuggestions when user is not found
+     */
+    @DisplayName("Test findSuggestions : user not found")
+    @Test
+    public void testFindSuggestionsUserNotFound() {
+        String nickname = "Alpha";
+        BDDMockito.when(this.userRepository.findReferenceByNickname(nickname)).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findSuggestions(nickname, 10));
+    }
+
+    /**
+     * Test findSuggestions when user is found : friends of friends ranked by mutual friends
+     */
+    @DisplayName("Test findSuggestions : ranked suggestions")
+    @Test
+    public void testFindSuggestions() {
+        User user = new User();
+        user.setId(1L);
+        user.setNickname("Alpha");
+        this.mockUser(user);
+        // 1 -> 2, 3 ; 2 -> 4, 5 ; 3 -> 4, 1
+        long[][] rows = {{1L, 2L}, {1L, 3L}, {2L, 4L}, {2L, 5L}, {3L, 4L}, {3L, 1L}};
+        BDDMockito.doAnswer(inv -> {
+            BiConsumer<Long, Long> consumer = inv.getArgument(0);
+            for (long[] row : rows)
+                consumer.accept(row[0], row[1]);
+            return null;
+        }).when(this.friendListRepository).forEachFriendship(ArgumentMatchers.any());
+        BDDMockito.when(this.userRepository.findReferencesByIdIn(ArgumentMatchers.anyCollection())).thenReturn(
+                List.of(new UserReference(4L, "Delta"), new UserReference(5L, "Echo")));
+
+        List<UserSuggestionDTO> result = this.service.findSuggestions(user.getNickname(), 10);
+        Assertions.assertEquals(
+                List.of(new UserSuggestionDTO("Delta", 2), new UserSuggestionDTO("Echo", 1)),
+                result);
+
+        // The index follows the friend list changes
+        BDDMockito.when(this.userRepository.findReferencesByIdIn(ArgumentMatchers.anyCollection())).thenReturn(
+                List.of(new UserReference(4L, "Delta")));
+        User echo = new User();
+        echo.setId(5L);
+        echo.setNickname("Echo");
+        this.mockUser(echo);
+        BDDMockito.when(this.userRepository.insertFriend(user.getId(), echo.getId())).thenReturn(1);
+        Assertions.assertTrue(this.service.addUserToFriendList(user.getNickname(), echo.getNickname()));
+        Assertions.assertEquals(List.of(new UserSuggestionDTO("Delta", 2)),
+                this.service.findSuggestions(user.getNickname(), 10));
     }
-}
\ No newline at end of file
+}
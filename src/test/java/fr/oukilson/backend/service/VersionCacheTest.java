@@ -0,0 +1,113 @@
+package fr.oukilson.backend.service;
+
+import org.junit.jupiter.api.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VersionCacheTest {
+    private final Map<String, Long> versions = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Optional<Long> load(String uuid) {
+        this.loads.incrementAndGet();
+        return Optional.ofNullable(this.versions.get(uuid));
+    }
+
+    /**
+     * Test a version is loaded once, then read from the cache
+     */
+    @DisplayName("Test find : loaded once")
+    @Test
+    public void testFindLoadedOnce() {
+        VersionCache cache = new VersionCache(this::load, 10, 60000);
+        this.versions.put("a", 1L);
+        Assertions.assertEquals(1L, cache.find("a"));
+        this.versions.put("a", 2L);
+        Assertions.assertEquals(1L, cache.find("a"));
+        Assertions.assertEquals(1, this.loads.get());
+    }
+
+    /**
+     * Test unknown uuids are not cached
+     */
+    @DisplayName("Test find : unknown uuid")
+    @Test
+    public void testFindUnknown() {
+        VersionCache cache = new VersionCache(this::load, 10, 60000);
+        Assertions.assertNull(cache.find("a"));
+        this.versions.put("a", 1L);
+        Assertions.assertEquals(1L, cache.find("a"));
+        Assertions.assertEquals(2, this.loads.get());
+    }
+
+    /**
+     * Test invalidate makes the next lookup read the new version
+     */
+    @DisplayName("Test invalidate : new version loaded")
+    @Test
+    public void testInvalidate() {
+        VersionCache cache = new VersionCache(this::load, 10, 60000);
+        this.versions.put("a", 1L);
+        Assertions.assertEquals(1L, cache.find("a"));
+        this.versions.put("a", 2L);
+        cache.invalidate("a");
+        Assertions.assertEquals(2L, cache.find("a"));
+    }
+
+    /**
+     * Test a version loaded while the entity is invalidated isn't cached
+     */
+    @DisplayName("Test invalidate : during a load")
+    @Test
+    public void testInvalidateDuringLoad() {
+        VersionCache[] cache = new VersionCache[1];
+        cache[0] = new VersionCache(uuid -> {
+            Optional<Long> result = this.load(uuid);
+            // Written and invalidated by another request while the old version was read
+            this.versions.put(uuid, 2L);
+            cache[0].invalidate(uuid);
+            return result;
+        }, 10, 60000);
+        this.versions.put("a", 1L);
+        Assertions.assertEquals(1L, cache[0].find("a"));
+        Assertions.assertEquals(2L, cache[0].find("a"));
+        Assertions.assertEquals(2, this.loads.get());
+    }
+
+    /**
+     * Test entries expire after the ttl
+     */
+    @DisplayName("Test find : entry expired")
+    @Test
+    public void testExpiration() throws InterruptedException {
+        VersionCache cache = new VersionCache(this::load, 10, 20);
+        this.versions.put("a", 1L);
+        Assertions.assertEquals(1L, cache.find("a"));
+        this.versions.put("a", 2L);
+        Thread.sleep(50);
+        Assertions.assertEquals(2L, cache.find("a"));
+    }
+
+    /**
+     * Test least recently used entries are evicted
+     */
+    @DisplayName("Test find : eviction")
+    @Test
+    public void testEviction() {
+        VersionCache cache = new VersionCache(this::load, 2, 60000);
+        this.versions.put("a", 1L);
+        this.versions.put("b", 1L);
+        this.versions.put("c", 1L);
+        cache.find("a");
+        cache.find("b");
+        cache.find("a");
+        cache.find("c");                    // Evicts b
+        Assertions.assertEquals(3, this.loads.get());
+        cache.find("a");
+        Assertions.assertEquals(3, this.loads.get());
+        cache.find("b");
+        Assertions.assertEquals(4, this.loads.get());
+    }
+}